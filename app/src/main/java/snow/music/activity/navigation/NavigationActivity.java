@@ -183,14 +183,23 @@ public class NavigationActivity extends AppCompatActivity {
     }
 
     private void loadMusicIcon(String musicUri) {
-        mIconLoadDisposable = EmbeddedPictureUtil.getEmbeddedPicture(this, musicUri)
-                .subscribeOn(Schedulers.io())
+        if (mIconLoadDisposable != null) {
+            mIconLoadDisposable.dispose();
+        }
+
+        int size = getResources().getDimensionPixelSize(R.dimen.album_icon_size);
+        mIconLoadDisposable = EmbeddedPictureUtil.getEmbeddedPicture(this, musicUri, size, size)
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(bytes -> Glide.with(NavigationActivity.this)
-                        .load(bytes)
-                        .transform(new CircleCrop())
-                        .transition(DrawableTransitionOptions.withCrossFade(200))
-                        .into(mBinding.ivDiskIcon));
+                .subscribe(bitmap -> Glide.with(NavigationActivity.this)
+                                .load(bitmap)
+                                .transform(new CircleCrop())
+                                .transition(DrawableTransitionOptions.withCrossFade(200))
+                                .into(mBinding.ivDiskIcon),
+                        Throwable::printStackTrace,
+                        () -> {
+                            Glide.with(NavigationActivity.this).clear(mBinding.ivDiskIcon);
+                            mBinding.ivDiskIcon.setImageDrawable(null);
+                        });
     }
 
     private boolean shouldScanLocalMusic() {
@@ -0,0 +1,29 @@
+package snow.music.store;
+
+import io.objectbox.annotation.Entity;
+import io.objectbox.annotation.Id;
+import io.objectbox.annotation.Index;
+
+/**
+ * 这是一个 ObjectBox Entity, 请不要直接用于该类。
+ * <p>
+ * 每播放一次歌曲就会删除该歌曲旧的记录并插入一条新的记录，因此同一首歌曲最多只有一条记录。记录的 ID
+ * 是自增的，因此按 ID 排序即为播放顺序。
+ */
+@Entity
+public class HistoryEntity {
+    @Id
+    long id;
+    @Index
+    long musicId;
+    long timestamp;
+
+    public HistoryEntity() {
+    }
+
+    public HistoryEntity(long id, long musicId, long timestamp) {
+        this.id = id;
+        this.musicId = musicId;
+        this.timestamp = timestamp;
+    }
+}
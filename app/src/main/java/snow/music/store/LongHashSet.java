@@ -0,0 +1,170 @@
+package snow.music.store;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * 只用于保存正整数（例如：ObjectBox 的 ID）的 long 哈希集合。
+ * <p>
+ * 直接使用 long 数组存储元素（开放寻址、线性探测），因此查询时不需要装箱，也不会分配任何对象。0 被用于
+ * 表示空位，因此不允许添加小于等于 0 的值。
+ * <p>
+ * 该类不是线程安全的。
+ */
+final class LongHashSet {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] mTable;
+    private int mSize;
+
+    LongHashSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize 预计的元素数量，用于避免扩容
+     */
+    LongHashSet(int expectedSize) {
+        mTable = new long[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * 创建一个包含 values 中所有正整数的集合。
+     */
+    @NonNull
+    static LongHashSet of(@NonNull long[] values) {
+        LongHashSet set = new LongHashSet(values.length);
+        for (long value : values) {
+            if (value > 0) {
+                set.add(value);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * 获取集合中元素的数量。
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 集合中是否包含指定值。
+     */
+    boolean contains(long value) {
+        if (value <= 0) {
+            return false;
+        }
+
+        return mTable[indexOf(mTable, value)] == value;
+    }
+
+    /**
+     * 添加一个值。
+     *
+     * @param value 要添加的值，必须大于 0
+     * @return 如果集合中不包含该值，则返回 true，否则返回 false
+     */
+    boolean add(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("value must > 0");
+        }
+
+        int index = indexOf(mTable, value);
+        if (mTable[index] == value) {
+            return false;
+        }
+
+        mTable[index] = value;
+        mSize++;
+
+        // 负载因子不超过 0.5，保证线性探测的长度足够短
+        if (mSize * 2 > mTable.length) {
+            resize(mTable.length * 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * 移除一个值。
+     *
+     * @return 如果集合中包含该值，则返回 true，否则返回 false
+     */
+    boolean remove(long value) {
+        if (value <= 0) {
+            return false;
+        }
+
+        int index = indexOf(mTable, value);
+        if (mTable[index] != value) {
+            return false;
+        }
+
+        mTable[index] = 0;
+        mSize--;
+
+        // 将后续同一探测序列中的元素前移，保证查找时不会遇到提前出现的空位
+        int mask = mTable.length - 1;
+        int hole = index;
+        for (int i = (index + 1) & mask; mTable[i] != 0; i = (i + 1) & mask) {
+            int home = hash(mTable[i]) & mask;
+            // home 不在 (hole, i] 区间内时，元素可以移动到 hole
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                mTable[hole] = mTable[i];
+                mTable[i] = 0;
+                hole = i;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 移除所有值。
+     */
+    void clear() {
+        Arrays.fill(mTable, 0);
+        mSize = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldTable = mTable;
+        mTable = new long[capacity];
+
+        for (long value : oldTable) {
+            if (value != 0) {
+                mTable[indexOf(mTable, value)] = value;
+            }
+        }
+    }
+
+    // 返回 value 所在的位置，如果不存在，则返回可以插入 value 的空位
+    private static int indexOf(long[] table, long value) {
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+
+        while (table[index] != 0 && table[index] != value) {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    private static int hash(long value) {
+        // 自增的 ID 在低位上是连续的，先混合高低位再乘以黄金分割常数，使其分布得更均匀
+        int h = (int) (value ^ (value >>> 32));
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
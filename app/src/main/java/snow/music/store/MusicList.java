@@ -4,17 +4,19 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingListIterator;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 用于表示一个歌单。
@@ -120,57 +122,90 @@ public class MusicList {
 
     private class ElementList implements List<Music> {
         private List<Music> mOrderedList;
+        // 歌曲 ID 到歌曲索引的映射，用于实现常数时间的 contains() 与 indexOf()。延迟创建，列表被修改后会失效。
+        @Nullable
+        private Map<Long, Integer> mIndexMap;
+        // 创建 mIndexMap 时列表中是否包含还没有存储到数据库中的歌曲（ID 为 0）
+        private boolean mHasUnsavedMusic;
 
         ElementList() {
-            if (mMusicListEntity.orderBytes == null || mMusicListEntity.orderBytes.length <= 0) {
-                mOrderedList = new ArrayList<>(mMusicListEntity.musicElements);
+            List<Music> elements = mMusicListEntity.musicElements;
+            long[] order = OrderCodec.decode(mMusicListEntity.orderBytes);
+
+            if (order == null || order.length <= 0) {
+                mOrderedList = new ArrayList<>(elements);
                 return;
             }
 
-            try {
-                ByteArrayInputStream byteInput = new ByteArrayInputStream(mMusicListEntity.orderBytes);
-                ObjectInputStream input = new ObjectInputStream(byteInput);
+            // 只遍历一次 musicElements，避免对每个 ID 调用一次 getById()（每次调用都会遍历整个列表）
+            Map<Long, Music> musicMap = new HashMap<>(elements.size() * 2);
+            for (Music music : elements) {
+                musicMap.put(music.id, music);
+            }
 
-                mOrderedList = new ArrayList<>();
-                while (input.available() > 0) {
-                    long id = input.readLong();
-                    if (id <= 0) {
-                        mOrderedList = new ArrayList<>(mMusicListEntity.musicElements);
-                        return;
-                    }
-                    mOrderedList.add(mMusicListEntity.musicElements.getById(id));
+            mOrderedList = new ArrayList<>(elements.size());
+            for (long id : order) {
+                Music music = musicMap.remove(id);
+                if (music != null) {
+                    mOrderedList.add(music);
                 }
+            }
 
-                input.close();
-            } catch (IOException e) {
-                mOrderedList = new ArrayList<>(mMusicListEntity.musicElements);
-                e.printStackTrace();
+            // 顺序信息中不包含的歌曲（例如：顺序信息已损坏）添加到列表末尾
+            if (!musicMap.isEmpty()) {
+                for (Music music : elements) {
+                    if (musicMap.containsKey(music.id)) {
+                        mOrderedList.add(music);
+                    }
+                }
             }
         }
 
         void applyChanges() {
             mMusicListEntity.orderBytes = getOrderBytes();
             mMusicListEntity.size = mOrderedList.size();
+            // 存储到数据库后，新歌曲会被分配 ID
+            invalidateIndexMap();
         }
 
         @NonNull
         private byte[] getOrderBytes() {
-            try {
-                ByteArrayOutputStream byteOutput = new ByteArrayOutputStream(mOrderedList.size() * 4);
-                ObjectOutputStream output = new ObjectOutputStream(byteOutput);
+            long[] ids = new long[mOrderedList.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = mOrderedList.get(i).id;
+            }
 
-                for (Music music : mOrderedList) {
-                    output.writeLong(music.id);
-                }
+            return OrderCodec.encode(ids, ids.length);
+        }
+
+        private Map<Long, Integer> getIndexMap() {
+            if (mIndexMap != null) {
+                return mIndexMap;
+            }
 
-                output.flush();
-                output.close();
-                return byteOutput.toByteArray();
-            } catch (IOException e) {
-                e.printStackTrace();
+            mIndexMap = new HashMap<>(mOrderedList.size() * 2);
+            mHasUnsavedMusic = false;
+            for (int i = 0; i < mOrderedList.size(); i++) {
+                appendIndex(mOrderedList.get(i), i);
             }
 
-            return new byte[0];
+            return mIndexMap;
+        }
+
+        // 只保留第一次出现的位置，与 List.indexOf() 保持一致
+        private void appendIndex(Music music, int index) {
+            if (music.id <= 0) {
+                mHasUnsavedMusic = true;
+                return;
+            }
+
+            if (!mIndexMap.containsKey(music.id)) {
+                mIndexMap.put(music.id, index);
+            }
+        }
+
+        private void invalidateIndexMap() {
+            mIndexMap = null;
         }
 
         @Override
@@ -185,13 +220,13 @@ public class MusicList {
 
         @Override
         public boolean contains(@Nullable Object o) {
-            return mOrderedList.contains(o);
+            return indexOf(o) > -1;
         }
 
         @NonNull
         @Override
         public Iterator<Music> iterator() {
-            return mOrderedList.iterator();
+            return listIterator();
         }
 
         @NonNull
@@ -218,6 +253,9 @@ public class MusicList {
             boolean result = mOrderedList.add(t);
 
             if (result) {
+                if (mIndexMap != null) {
+                    appendIndex(t, mOrderedList.size() - 1);
+                }
                 mMusicListEntity.musicElements.add(t);
                 mMusicListEntity.size = mMusicListEntity.musicElements.size();
             }
@@ -227,20 +265,30 @@ public class MusicList {
 
         @Override
         public boolean remove(@Nullable Object o) {
-            boolean result = mOrderedList.remove(o);
-
-            if (result) {
-                mMusicListEntity.musicElements.remove(o);
-                mMusicListEntity.size = mMusicListEntity.musicElements.size();
+            int index = indexOf(o);
+            if (index < 0) {
+                return false;
             }
 
-            return result;
+            mOrderedList.remove(index);
+            invalidateIndexMap();
+            mMusicListEntity.musicElements.remove(o);
+            mMusicListEntity.size = mMusicListEntity.musicElements.size();
+
+            return true;
         }
 
         @Override
         public boolean containsAll(@NonNull Collection<?> c) {
             Preconditions.checkNotNull(c);
-            return mOrderedList.containsAll(c);
+
+            for (Object o : c) {
+                if (!contains(o)) {
+                    return false;
+                }
+            }
+
+            return true;
         }
 
         @Override
@@ -249,9 +297,15 @@ public class MusicList {
 
             c = excludeDuplicates(c, true);
 
+            int start = mOrderedList.size();
             boolean result = mOrderedList.addAll(c);
 
             if (result) {
+                if (mIndexMap != null) {
+                    for (int i = start; i < mOrderedList.size(); i++) {
+                        appendIndex(mOrderedList.get(i), i);
+                    }
+                }
                 mMusicListEntity.musicElements.addAll(c);
                 mMusicListEntity.size = mMusicListEntity.musicElements.size();
             }
@@ -268,6 +322,7 @@ public class MusicList {
             boolean result = mOrderedList.addAll(index, c);
 
             if (result) {
+                invalidateIndexMap();
                 mMusicListEntity.musicElements.addAll(c);
                 mMusicListEntity.size = mMusicListEntity.musicElements.size();
             }
@@ -279,10 +334,13 @@ public class MusicList {
         public boolean removeAll(@NonNull Collection<?> c) {
             Preconditions.checkNotNull(c);
 
-            boolean result = mOrderedList.removeAll(c);
+            // ArrayList.removeAll() 会对每个元素调用一次 c.contains()，因此先转换成 Set
+            Collection<?> removed = c instanceof Set ? c : new HashSet<>(c);
+            boolean result = mOrderedList.removeAll(removed);
 
             if (result) {
-                mMusicListEntity.musicElements.removeAll(c);
+                invalidateIndexMap();
+                mMusicListEntity.musicElements.removeAll(removed);
                 mMusicListEntity.size = mMusicListEntity.musicElements.size();
             }
 
@@ -298,6 +356,7 @@ public class MusicList {
             boolean result = mOrderedList.retainAll(c);
 
             if (result) {
+                invalidateIndexMap();
                 mMusicListEntity.musicElements.retainAll(c);
                 mMusicListEntity.size = mMusicListEntity.musicElements.size();
             }
@@ -305,22 +364,19 @@ public class MusicList {
             return result;
         }
 
+        // 返回的集合会保持 c 中元素的顺序
         private Collection<Music> excludeDuplicates(Collection<?> c, boolean excludeExists) {
-            List<Music> musicList = new ArrayList<>();
+            Set<Music> musicSet = new LinkedHashSet<>();
 
             for (Object music : c) {
-                if (musicList.contains(music)) {
-                    continue;
-                }
-
                 if (excludeExists && contains(music)) {
                     continue;
                 }
 
-                musicList.add((Music) music);
+                musicSet.add((Music) music);
             }
 
-            return musicList;
+            return musicSet;
         }
 
         @Override
@@ -328,6 +384,7 @@ public class MusicList {
             mMusicListEntity.musicElements.clear();
             mMusicListEntity.size = mMusicListEntity.musicElements.size();
             mOrderedList.clear();
+            invalidateIndexMap();
         }
 
         @Override
@@ -343,6 +400,7 @@ public class MusicList {
             int elementIndex = indexOf(element);
 
             Music music = mOrderedList.set(index, element);
+            invalidateIndexMap();
             mMusicListEntity.musicElements.set(mMusicListEntity.musicElements.indexOf(music), element);
 
             if (elementIndex > 0 && elementIndex != index) {
@@ -367,11 +425,13 @@ public class MusicList {
             }
 
             mOrderedList.add(index, element);
+            invalidateIndexMap();
         }
 
         @Override
         public Music remove(int index) {
             Music music = mOrderedList.remove(index);
+            invalidateIndexMap();
             mMusicListEntity.musicElements.remove(music);
             mMusicListEntity.size = mMusicListEntity.musicElements.size();
             return music;
@@ -379,7 +439,24 @@ public class MusicList {
 
         @Override
         public int indexOf(@Nullable Object o) {
-            return mOrderedList.indexOf(o);
+            if (!(o instanceof Music)) {
+                return -1;
+            }
+
+            Music music = (Music) o;
+            if (music.id > 0) {
+                Integer index = getIndexMap().get(music.id);
+                if (index != null && mOrderedList.get(index).equals(music)) {
+                    return index;
+                }
+
+                // 如果映射中不存在该 ID，并且列表中没有未存储的歌曲，则歌曲一定不在列表中
+                if (index == null && !mHasUnsavedMusic) {
+                    return -1;
+                }
+            }
+
+            return mOrderedList.indexOf(music);
         }
 
         @Override
@@ -390,19 +467,48 @@ public class MusicList {
         @NonNull
         @Override
         public ListIterator<Music> listIterator() {
-            return mOrderedList.listIterator();
+            return listIterator(0);
         }
 
         @NonNull
         @Override
         public ListIterator<Music> listIterator(int index) {
-            return mOrderedList.listIterator(index);
+            final ListIterator<Music> iterator = mOrderedList.listIterator(index);
+
+            // 通过迭代器修改列表时，使 mIndexMap 失效
+            return new ForwardingListIterator<Music>() {
+                @Override
+                protected ListIterator<Music> delegate() {
+                    return iterator;
+                }
+
+                @Override
+                public void remove() {
+                    super.remove();
+                    invalidateIndexMap();
+                }
+
+                @Override
+                public void set(Music element) {
+                    super.set(element);
+                    invalidateIndexMap();
+                }
+
+                @Override
+                public void add(Music element) {
+                    super.add(element);
+                    invalidateIndexMap();
+                }
+            };
         }
 
+        /**
+         * 返回的子列表是只读的，请直接修改歌单。
+         */
         @NonNull
         @Override
         public List<Music> subList(int fromIndex, int toIndex) {
-            return mOrderedList.subList(fromIndex, toIndex);
+            return Collections.unmodifiableList(mOrderedList.subList(fromIndex, toIndex));
         }
     }
 }
@@ -6,7 +6,6 @@ import android.os.Looper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Transformations;
 
 import com.google.common.base.Preconditions;
@@ -33,25 +32,34 @@ public class MusicStore {
     public static final String MUSIC_LIST_HISTORY = "__history";
 
     private static final int MAX_HISTORY_SIZE = 500;
+    // 历史记录表中的记录数超出 MAX_HISTORY_SIZE 的数量达到该值时，才会批量删除最旧的记录
+    private static final int HISTORY_TRIM_BATCH = 100;
 
     private static MusicStore mInstance;
 
     private final BoxStore mBoxStore;
     private final Box<Music> mMusicBox;
     private final Box<MusicListEntity> mMusicListEntityBox;
+    private final Box<HistoryEntity> mHistoryEntityBox;
 
-    private MusicList mHistory;
+    private boolean mHistoryInitialized;
+    private long mHistoryRecordCount;
     private final Handler mMainHandler;
-    private MutableLiveData<List<Music>> mHistoryLiveData;
+    private HistoryLiveData mHistoryLiveData;
 
+    // “我喜欢” 歌单中所有歌曲的 ID，延迟加载，为 null 时表示需要重新加载
+    private LongHashSet mFavoriteIds;
     private final List<OnFavoriteChangeListener> mAllFavoriteChangeListener;
+    private final List<OnHistoryChangeListener> mAllHistoryChangeListener;
 
     private MusicStore(BoxStore boxStore) {
         mBoxStore = boxStore;
         mMusicBox = boxStore.boxFor(Music.class);
         mMusicListEntityBox = boxStore.boxFor(MusicListEntity.class);
+        mHistoryEntityBox = boxStore.boxFor(HistoryEntity.class);
         mMainHandler = new Handler(Looper.getMainLooper());
         mAllFavoriteChangeListener = new LinkedList<>();
+        mAllHistoryChangeListener = new LinkedList<>();
     }
 
     /**
@@ -196,10 +204,23 @@ public class MusicStore {
             return;
         }
 
+        putMusicList(musicList);
+
+        // 可能直接修改了 “我喜欢” 歌单，下次查询时重新加载
+        if (isFavoriteMusicList(musicList)) {
+            mFavoriteIds = null;
+        }
+    }
+
+    private void putMusicList(MusicList musicList) {
         musicList.applyChanges();
         mMusicListEntityBox.put(musicList.getMusicListEntity());
     }
 
+    private static boolean isFavoriteMusicList(MusicList musicList) {
+        return MUSIC_LIST_FAVORITE.equals(musicList.getName());
+    }
+
     /**
      * 删除歌单。
      * <p>
@@ -212,6 +233,10 @@ public class MusicStore {
                 .equal(MusicListEntity_.id, musicList.getId())
                 .build()
                 .remove();
+
+        if (isFavoriteMusicList(musicList)) {
+            mFavoriteIds = null;
+        }
     }
 
     /**
@@ -276,10 +301,13 @@ public class MusicStore {
 
     /**
      * 监听历史记录。
+     * <p>
+     * 历史记录的顺序与 {@link #getAllHistory()} 一致。只有在 LiveData 处于活跃状态时才会监听历史记录，
+     * 添加历史记录时只会在内存中更新列表，不会重新查询数据库。
      */
     public synchronized LiveData<List<Music>> observeHistory() {
         if (mHistoryLiveData == null) {
-            initHistory();
+            mHistoryLiveData = new HistoryLiveData();
         }
         return mHistoryLiveData;
     }
@@ -295,17 +323,29 @@ public class MusicStore {
 
     /**
      * 指定 musicId 的歌曲是否是 “我喜欢”
+     * <p>
+     * “我喜欢” 歌单中所有歌曲的 ID 只会在第一次调用时从数据库中加载一次，之后的查询都在内存中完成，
+     * 不会查询数据库，也不会分配任何对象，因此可以在列表的每一项中调用。
      */
     public synchronized boolean isFavorite(long musicId) {
         if (musicId <= 0) {
             return false;
         }
 
-        QueryBuilder<Music> builder = mMusicBox.query().equal(Music_.id, musicId);
+        return getFavoriteIds().contains(musicId);
+    }
+
+    private LongHashSet getFavoriteIds() {
+        if (mFavoriteIds != null) {
+            return mFavoriteIds;
+        }
+
+        QueryBuilder<Music> builder = mMusicBox.query();
         builder.backlink(MusicListEntity_.musicElements)
                 .equal(MusicListEntity_.name, MUSIC_LIST_FAVORITE);
 
-        return builder.build().count() > 0;
+        mFavoriteIds = LongHashSet.of(builder.build().findIds());
+        return mFavoriteIds;
     }
 
     /**
@@ -328,7 +368,13 @@ public class MusicStore {
 
         MusicList favorite = getFavoriteMusicList();
         favorite.getMusicElements().add(music);
-        updateMusicList(favorite);
+        putMusicList(favorite);
+
+        // 如果歌曲还没有存储到数据库中，则存储歌单后才会分配 ID
+        if (music.getId() > 0) {
+            getFavoriteIds().add(music.getId());
+        }
+
         notifyFavoriteChanged();
     }
 
@@ -341,7 +387,8 @@ public class MusicStore {
         if (isFavorite(music)) {
             MusicList favorite = getFavoriteMusicList();
             favorite.getMusicElements().remove(music);
-            updateMusicList(favorite);
+            putMusicList(favorite);
+            getFavoriteIds().remove(music.getId());
             notifyFavoriteChanged();
         }
     }
@@ -409,22 +456,35 @@ public class MusicStore {
 
     /**
      * 添加一条历史记录。
+     * <p>
+     * 会在同一个事务中删除该歌曲旧的历史记录（通过索引查找），然后插入一条新的记录，因此每首歌曲在历史记录表
+     * 中最多只有一条记录。如果歌曲还没有存储到数据库中，则会先存储歌曲。
      */
     public synchronized void addHistory(@NonNull Music music) {
         Preconditions.checkNotNull(music);
 
-        MusicList history = getHistoryMusicList();
-        List<Music> elements = history.getMusicElements();
+        initHistory();
+
+        if (music.getId() <= 0) {
+            mMusicBox.put(music);
+        }
 
-        elements.remove(music);
-        elements.add(music);
+        long removed = mBoxStore.callInTxNoException(() -> {
+            long count = mHistoryEntityBox.query()
+                    .equal(HistoryEntity_.musicId, music.getId())
+                    .build()
+                    .remove();
+
+            mHistoryEntityBox.put(new HistoryEntity(0, music.getId(), System.currentTimeMillis()));
+            return count;
+        });
+        mHistoryRecordCount += 1 - removed;
 
-        if (history.getSize() - MAX_HISTORY_SIZE > 0) {
-            elements.remove(0);
+        if (mHistoryRecordCount >= MAX_HISTORY_SIZE + HISTORY_TRIM_BATCH) {
+            trimHistory();
         }
 
-        updateMusicList(history);
-        updateHistoryLiveData();
+        notifyHistoryAdded(music);
     }
 
     /**
@@ -433,11 +493,15 @@ public class MusicStore {
     public synchronized void removeHistory(@NonNull Music music) {
         Preconditions.checkNotNull(music);
 
-        MusicList history = getHistoryMusicList();
-        history.getMusicElements().remove(music);
+        initHistory();
 
-        updateMusicList(history);
-        updateHistoryLiveData();
+        mHistoryEntityBox.query()
+                .equal(HistoryEntity_.musicId, music.getId())
+                .build()
+                .remove();
+
+        mHistoryRecordCount = mHistoryEntityBox.count();
+        notifyHistoryRemoved();
     }
 
     /**
@@ -446,29 +510,199 @@ public class MusicStore {
     public synchronized void removeHistory(@NonNull Collection<Music> musics) {
         Preconditions.checkNotNull(musics);
 
-        MusicList history = getHistoryMusicList();
-        history.getMusicElements().removeAll(musics);
+        if (musics.isEmpty()) {
+            return;
+        }
+
+        initHistory();
+
+        long[] musicIds = new long[musics.size()];
+        int i = 0;
+        for (Music music : musics) {
+            musicIds[i++] = music.getId();
+        }
+
+        mHistoryEntityBox.query()
+                .in(HistoryEntity_.musicId, musicIds)
+                .build()
+                .remove();
 
-        updateMusicList(history);
-        updateHistoryLiveData();
+        mHistoryRecordCount = mHistoryEntityBox.count();
+        notifyHistoryRemoved();
     }
 
     /**
      * 清空历史记录。
      */
     public synchronized void clearHistory() {
-        MusicList history = getHistoryMusicList();
-        history.getMusicElements().clear();
+        initHistory();
 
-        updateMusicList(history);
-        updateHistoryLiveData();
+        mHistoryEntityBox.removeAll();
+        mHistoryRecordCount = 0;
+        notifyHistoryRemoved();
     }
 
     /**
      * 获取所有的历史记录。
+     * <p>
+     * 最近播放的歌曲在列表的末尾，最多包含 500 首歌曲。
      */
     public synchronized List<Music> getAllHistory() {
-        return new ArrayList<>(getHistoryMusicList().getMusicElements());
+        List<Music> history = getHistory(0, MAX_HISTORY_SIZE);
+        Collections.reverse(history);
+        return history;
+    }
+
+    /**
+     * 分页获取历史记录。
+     * <p>
+     * 最近播放的歌曲在列表的开头，同一首歌曲只会出现一次，最多包含 500 首歌曲。分页直接由数据库查询完成，
+     * 只会读取当前页的记录。
+     *
+     * @param offset 偏移量
+     * @param limit  最多获取的歌曲数量
+     */
+    @NonNull
+    public synchronized List<Music> getHistory(long offset, long limit) {
+        Preconditions.checkArgument(offset >= 0, "offset must >= 0");
+        Preconditions.checkArgument(limit >= 0, "limit must >= 0");
+
+        initHistory();
+
+        // 历史记录表中可能暂时存在超出 MAX_HISTORY_SIZE 的旧记录，等待批量删除
+        if (offset >= MAX_HISTORY_SIZE || limit == 0) {
+            return new ArrayList<>();
+        }
+
+        List<HistoryEntity> records = mHistoryEntityBox.query()
+                .orderDesc(HistoryEntity_.id)
+                .build()
+                .find(offset, Math.min(limit, MAX_HISTORY_SIZE - offset));
+
+        List<Long> musicIds = new ArrayList<>(records.size());
+        for (HistoryEntity record : records) {
+            musicIds.add(record.musicId);
+        }
+
+        List<Music> history = new ArrayList<>(musicIds.size());
+        for (Music music : mMusicBox.get(musicIds)) {
+            // 歌曲可能已经从数据库中移除
+            if (music != null) {
+                history.add(music);
+            }
+        }
+
+        return history;
+    }
+
+    /**
+     * 批量删除最旧的历史记录，只保留最近的 MAX_HISTORY_SIZE 条记录。
+     */
+    private void trimHistory() {
+        long excess = mHistoryEntityBox.count() - MAX_HISTORY_SIZE;
+        if (excess > 0) {
+            mHistoryEntityBox.remove(mHistoryEntityBox.query()
+                    .order(HistoryEntity_.id)
+                    .build()
+                    .find(0, excess));
+        }
+
+        mHistoryRecordCount = mHistoryEntityBox.count();
+    }
+
+    private void initHistory() {
+        if (mHistoryInitialized) {
+            return;
+        }
+
+        mHistoryInitialized = true;
+        migrateLegacyHistory();
+        mHistoryRecordCount = mHistoryEntityBox.count();
+    }
+
+    /**
+     * 旧版本使用内置歌单 MUSIC_LIST_HISTORY 保存历史记录，这里会将其转换成 HistoryEntity，然后删除该歌单。
+     */
+    private void migrateLegacyHistory() {
+        MusicListEntity entity = mMusicListEntityBox.query()
+                .equal(MusicListEntity_.name, MUSIC_LIST_HISTORY)
+                .build()
+                .findUnique();
+
+        if (entity == null) {
+            return;
+        }
+
+        List<Music> musics = new MusicList(entity).getMusicElements();
+        List<HistoryEntity> records = new ArrayList<>(musics.size());
+
+        // 旧的历史记录没有播放时间，按顺序生成递增的时间戳
+        long timestamp = System.currentTimeMillis() - musics.size();
+        for (Music music : musics) {
+            records.add(new HistoryEntity(0, music.getId(), timestamp++));
+        }
+
+        mBoxStore.runInTx(() -> {
+            mHistoryEntityBox.put(records);
+            mMusicListEntityBox.remove(entity);
+        });
+    }
+
+    private void notifyHistoryAdded(Music music) {
+        if (mAllHistoryChangeListener.isEmpty()) {
+            return;
+        }
+
+        mMainHandler.post(() -> {
+            for (OnHistoryChangeListener listener : getAllHistoryChangeListener()) {
+                listener.onHistoryAdded(music);
+            }
+        });
+    }
+
+    private void notifyHistoryRemoved() {
+        if (mAllHistoryChangeListener.isEmpty()) {
+            return;
+        }
+
+        mMainHandler.post(() -> {
+            for (OnHistoryChangeListener listener : getAllHistoryChangeListener()) {
+                listener.onHistoryRemoved();
+            }
+        });
+    }
+
+    // 监听器可能会在回调中移除自身，因此返回一个副本
+    private synchronized List<OnHistoryChangeListener> getAllHistoryChangeListener() {
+        return new ArrayList<>(mAllHistoryChangeListener);
+    }
+
+    /**
+     * 添加一个 {@link OnHistoryChangeListener} 监听器，如果已添加，则忽略本次调用。
+     *
+     * @param listener {@link OnHistoryChangeListener} 监听器对象，不能为 null
+     */
+    public synchronized void addOnHistoryChangeListener(@NonNull OnHistoryChangeListener listener) {
+        Preconditions.checkNotNull(listener);
+
+        if (mAllHistoryChangeListener.contains(listener)) {
+            return;
+        }
+
+        mAllHistoryChangeListener.add(listener);
+    }
+
+    /**
+     * 移除一个已添加的 {@link OnHistoryChangeListener} 监听器，如果未添加或者已经移除，则忽略本次调用。
+     *
+     * @param listener {@link OnHistoryChangeListener} 监听器对象，为 null 时将忽略本次调用。
+     */
+    public synchronized void removeOnHistoryChangeListener(OnHistoryChangeListener listener) {
+        if (listener == null) {
+            return;
+        }
+
+        mAllHistoryChangeListener.remove(listener);
     }
 
     /**
@@ -524,7 +758,24 @@ public class MusicStore {
      * @return 如果歌曲已添加到数据库中，并且移除成功则返回 true；如果歌曲没有添加到数据库中，则返回 false
      */
     public synchronized boolean removeMusic(@NonNull Music music) {
-        return mMusicBox.remove(music.getId());
+        if (mFavoriteIds != null) {
+            mFavoriteIds.remove(music.getId());
+        }
+
+        initHistory();
+
+        long[] removedHistory = new long[1];
+        boolean removed = mBoxStore.callInTxNoException(() -> {
+            removedHistory[0] = mHistoryEntityBox.query()
+                    .equal(HistoryEntity_.musicId, music.getId())
+                    .build()
+                    .remove();
+
+            return mMusicBox.remove(music.getId());
+        });
+
+        onMusicHistoryRemoved(removedHistory[0]);
+        return removed;
     }
 
     /**
@@ -533,7 +784,45 @@ public class MusicStore {
      * @param musics 所有要移除的歌曲。
      */
     public synchronized void removeMusic(Collection<Music> musics) {
-        mMusicBox.remove(musics);
+        if (mFavoriteIds != null) {
+            for (Music music : musics) {
+                mFavoriteIds.remove(music.getId());
+            }
+        }
+
+        if (musics.isEmpty()) {
+            return;
+        }
+
+        initHistory();
+
+        long[] musicIds = new long[musics.size()];
+        int i = 0;
+        for (Music music : musics) {
+            musicIds[i++] = music.getId();
+        }
+
+        long removedHistory = mBoxStore.callInTxNoException(() -> {
+            long count = mHistoryEntityBox.query()
+                    .in(HistoryEntity_.musicId, musicIds)
+                    .build()
+                    .remove();
+
+            mMusicBox.remove(musics);
+            return count;
+        });
+
+        onMusicHistoryRemoved(removedHistory);
+    }
+
+    // 移除歌曲时会同时移除其历史记录，避免无效的记录占用 MAX_HISTORY_SIZE 的名额
+    private void onMusicHistoryRemoved(long count) {
+        if (count <= 0) {
+            return;
+        }
+
+        mHistoryRecordCount -= count;
+        notifyHistoryRemoved();
     }
 
     /**
@@ -632,23 +921,6 @@ public class MusicStore {
                 .find(offset, limit);
     }
 
-    private synchronized MusicList getHistoryMusicList() {
-        if (mHistory == null) {
-            initHistory();
-        }
-
-        return mHistory;
-    }
-
-    private void updateHistoryLiveData() {
-        mMainHandler.post(() -> mHistoryLiveData.setValue(getHistoryMusicList().getMusicElements()));
-    }
-
-    private void initHistory() {
-        mHistory = getBuiltInMusicList(MUSIC_LIST_HISTORY);
-        mHistoryLiveData = new MutableLiveData<>(mHistory.getMusicElements());
-    }
-
     @NonNull
     private synchronized MusicList getBuiltInMusicList(String name) {
         if (!isBuiltInName(name)) {
@@ -686,4 +958,62 @@ public class MusicStore {
          */
         void onFavoriteChanged();
     }
+
+    /**
+     * 用于监听历史记录的修改事件。
+     * <p>
+     * 所有回调方法都会在主线程中调用。
+     */
+    public interface OnHistoryChangeListener {
+        /**
+         * 当添加了一条历史记录时，会调用该方法。
+         * <p>
+         * 如果歌曲已经在历史记录中，则应该将其移动到最近播放的位置，而不需要重新加载历史记录。
+         *
+         * @param music 新添加的歌曲
+         */
+        void onHistoryAdded(@NonNull Music music);
+
+        /**
+         * 当移除或者清空历史记录时，会调用该方法。此时需要重新加载历史记录（可以使用
+         * {@link MusicStore#getHistory(long, long)} 方法分页加载）。
+         */
+        void onHistoryRemoved();
+    }
+
+    /**
+     * 只在活跃状态时监听历史记录，添加历史记录时增量更新列表。
+     */
+    private class HistoryLiveData extends LiveData<List<Music>> implements OnHistoryChangeListener {
+
+        @Override
+        protected void onActive() {
+            addOnHistoryChangeListener(this);
+            setValue(getAllHistory());
+        }
+
+        @Override
+        protected void onInactive() {
+            removeOnHistoryChangeListener(this);
+        }
+
+        @Override
+        public void onHistoryAdded(@NonNull Music music) {
+            List<Music> history = getValue() == null ? new ArrayList<>() : new ArrayList<>(getValue());
+
+            history.remove(music);
+            history.add(music);
+
+            if (history.size() > MAX_HISTORY_SIZE) {
+                history.remove(0);
+            }
+
+            setValue(history);
+        }
+
+        @Override
+        public void onHistoryRemoved() {
+            setValue(getAllHistory());
+        }
+    }
 }
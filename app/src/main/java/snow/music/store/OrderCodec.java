@@ -0,0 +1,177 @@
+package snow.music.store;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+
+/**
+ * 用于编码/解码歌单中歌曲的顺序（即 {@link MusicListEntity#orderBytes}）。
+ * <p>
+ * 编码格式：1 个字节的格式标识，然后是歌曲数量，最后是每首歌曲的 ID 与前一首歌曲 ID 的差值。差值使用
+ * ZigZag 编码（负数也只需要很少的字节），所有整数都使用变长编码（每个字节保存 7 bit）。由于歌曲 ID 是
+ * 自增的，相邻歌曲的差值通常很小，因此每首歌曲通常只需要 1 ~ 3 个字节，而旧格式（ObjectOutputStream）
+ * 每首歌曲需要 8 个字节，并且还有额外的流头部与数据块头部。
+ * <p>
+ * 为了兼容旧版本，解码时也支持旧格式，旧格式的数据会在歌单下次保存时转换成新格式。
+ */
+final class OrderCodec {
+    private static final byte FORMAT_VARINT = 0x01;
+
+    // ObjectOutputStream 的流头部（STREAM_MAGIC）
+    private static final byte LEGACY_MAGIC_0 = (byte) 0xAC;
+    private static final byte LEGACY_MAGIC_1 = (byte) 0xED;
+
+    private OrderCodec() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 编码歌曲的 ID。
+     *
+     * @param ids   歌曲的 ID
+     * @param count 要编码的 ID 的数量（从 0 开始）
+     */
+    @NonNull
+    static byte[] encode(@NonNull long[] ids, int count) {
+        // 预留最坏情况下需要的空间：每个 ID 最多需要 10 个字节
+        byte[] buffer = new byte[1 + 5 + count * 10];
+        int position = 0;
+
+        buffer[position++] = FORMAT_VARINT;
+        position = writeVarLong(buffer, position, count);
+
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = ids[i] - previous;
+            position = writeVarLong(buffer, position, (delta << 1) ^ (delta >> 63));
+            previous = ids[i];
+        }
+
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * 解码歌曲的 ID。
+     *
+     * @return 歌曲的 ID；如果 bytes 为 null 或者为空，则返回一个空数组；如果数据已损坏，则返回 null
+     */
+    @Nullable
+    static long[] decode(@Nullable byte[] bytes) {
+        if (bytes == null || bytes.length <= 0) {
+            return new long[0];
+        }
+
+        if (bytes[0] == FORMAT_VARINT) {
+            return decodeVarint(bytes);
+        }
+
+        if (bytes.length >= 2 && bytes[0] == LEGACY_MAGIC_0 && bytes[1] == LEGACY_MAGIC_1) {
+            return decodeLegacy(bytes);
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static long[] decodeVarint(byte[] bytes) {
+        int[] position = {1};
+
+        long count = readVarLong(bytes, position);
+        // 每个 ID 至少需要 1 个字节，以此检查数据是否已损坏，避免分配过大的数组
+        if (count < 0 || count > bytes.length - position[0]) {
+            return null;
+        }
+
+        long[] ids = new long[(int) count];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            long zigzag = readVarLong(bytes, position);
+            if (position[0] < 0) {
+                return null;
+            }
+
+            long id = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+            if (id <= 0) {
+                return null;
+            }
+
+            ids[i] = id;
+            previous = id;
+        }
+
+        if (position[0] != bytes.length) {
+            return null;
+        }
+
+        return ids;
+    }
+
+    @Nullable
+    private static long[] decodeLegacy(byte[] bytes) {
+        ObjectInputStream input = null;
+        try {
+            input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+            long[] ids = new long[Math.max(1, bytes.length / 8)];
+            int count = 0;
+            while (input.available() > 0) {
+                long id = input.readLong();
+                if (id <= 0) {
+                    return null;
+                }
+
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = id;
+            }
+
+            return Arrays.copyOf(ids, count);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static int writeVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    // 读取失败时（数据不完整或者超过 10 个字节）会将 position[0] 设置为 -1
+    private static long readVarLong(byte[] bytes, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position[0] < 0 || position[0] >= bytes.length) {
+                position[0] = -1;
+                return -1;
+            }
+
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        position[0] = -1;
+        return -1;
+    }
+}
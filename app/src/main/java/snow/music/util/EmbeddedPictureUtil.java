@@ -1,55 +1,43 @@
 package snow.music.util;
 
 import android.content.Context;
-import android.media.MediaMetadataRetriever;
-import android.net.Uri;
+import android.graphics.Bitmap;
 
 import androidx.annotation.NonNull;
 
 import com.google.common.base.Preconditions;
 
+import io.reactivex.Maybe;
 import io.reactivex.Single;
+import snow.player.artwork.ArtworkCache;
 
 /**
  * 获取本地音乐文件的内嵌图片。
+ * <p>
+ * 内嵌图片由 {@link ArtworkCache} 在 io 线程中提取并缓存，与通知栏共享同一份缓存。
  */
 public final class EmbeddedPictureUtil {
     private EmbeddedPictureUtil() {
         throw new AssertionError();
     }
 
+    /**
+     * 获取内嵌图片的原始数据。如果没有内嵌图片，则发射一个长度为 0 的数组。
+     */
     public static Single<byte[]> getEmbeddedPicture(@NonNull Context context, @NonNull String uri) {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(uri);
 
-        return Single.create(emitter -> {
-            if (uri.isEmpty()) {
-                emitter.onSuccess(new byte[0]);
-                return;
-            }
-
-            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-
-            try {
-                retriever.setDataSource(context, Uri.parse(uri));
-                byte[] picture = retriever.getEmbeddedPicture();
-                retriever.release();
-
-                if (emitter.isDisposed()) {
-                    return;
-                }
-
-                if (picture == null) {
-                    emitter.onSuccess(new byte[0]);
-                } else {
-                    emitter.onSuccess(picture);
-                }
-
-            } catch (Exception e) {
-                emitter.onSuccess(new byte[0]);
-            } finally {
-                retriever.release();
-            }
-        });
+        return ArtworkCache.getInstance(context).getEmbeddedPicture(uri);
+    }
+
+    /**
+     * 获取按目标尺寸解码后的内嵌图片。如果没有内嵌图片，则不会发射任何数据。
+     */
+    public static Maybe<Bitmap> getEmbeddedPicture(@NonNull Context context, @NonNull String uri, int width, int height) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(uri);
+
+        return ArtworkCache.getInstance(context).getArtwork(uri, width, height);
     }
 }
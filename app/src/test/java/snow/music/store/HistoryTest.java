@@ -0,0 +1,186 @@
+package snow.music.store;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.objectbox.BoxStore;
+
+import static org.junit.Assert.*;
+
+public class HistoryTest {
+    private static final File TEST_DIRECTORY = new File("objectbox-debug/test-db");
+
+    private BoxStore store;
+    private MusicStore mMusicStore;
+
+    @Before
+    public void setUp() {
+        BoxStore.deleteAllFiles(TEST_DIRECTORY);
+        store = MyObjectBox.builder()
+                .directory(TEST_DIRECTORY)
+                .build();
+        MusicStore.init(store);
+        mMusicStore = MusicStore.getInstance();
+    }
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+        BoxStore.deleteAllFiles(TEST_DIRECTORY);
+    }
+
+    private List<Music> putMusics(int count) {
+        List<Music> musics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            musics.add(new Music(
+                    0,
+                    "title" + i,
+                    "artist" + i,
+                    "album" + i,
+                    "https://www.test.com/test" + i + ".mp3",
+                    "https://www.test.com/test" + i + ".png",
+                    60_000,
+                    System.currentTimeMillis()));
+        }
+
+        mMusicStore.putAllMusic(musics);
+        return musics;
+    }
+
+    @Test
+    public void addHistory() {
+        List<Music> musics = putMusics(3);
+        Music musicA = musics.get(0);
+        Music musicB = musics.get(1);
+        Music musicC = musics.get(2);
+
+        mMusicStore.addHistory(musicA);
+        mMusicStore.addHistory(musicB);
+        mMusicStore.addHistory(musicC);
+        mMusicStore.addHistory(musicA);
+
+        List<Music> history = mMusicStore.getAllHistory();
+        assertEquals(3, history.size());
+        assertEquals(musicB, history.get(0));
+        assertEquals(musicC, history.get(1));
+        assertEquals(musicA, history.get(2));
+
+        assertEquals(3, store.boxFor(HistoryEntity.class).count());
+    }
+
+    @Test
+    public void getHistory_paging() {
+        List<Music> musics = putMusics(10);
+        for (Music music : musics) {
+            mMusicStore.addHistory(music);
+        }
+
+        List<Music> firstPage = mMusicStore.getHistory(0, 4);
+        assertEquals(4, firstPage.size());
+        assertEquals(musics.get(9), firstPage.get(0));
+        assertEquals(musics.get(6), firstPage.get(3));
+
+        List<Music> lastPage = mMusicStore.getHistory(8, 4);
+        assertEquals(2, lastPage.size());
+        assertEquals(musics.get(1), lastPage.get(0));
+        assertEquals(musics.get(0), lastPage.get(1));
+
+        assertTrue(mMusicStore.getHistory(10, 4).isEmpty());
+        assertEquals(10, mMusicStore.getHistory(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void trimHistory() {
+        final int count = 700;
+
+        List<Music> musics = putMusics(count);
+        for (Music music : musics) {
+            mMusicStore.addHistory(music);
+        }
+
+        List<Music> history = mMusicStore.getAllHistory();
+        assertEquals(500, history.size());
+        assertEquals(musics.get(count - 500), history.get(0));
+        assertEquals(musics.get(count - 1), history.get(499));
+
+        long records = store.boxFor(HistoryEntity.class).count();
+        assertTrue("records: " + records, records < 600);
+    }
+
+    @Test
+    public void removeHistory() {
+        List<Music> musics = putMusics(3);
+        for (Music music : musics) {
+            mMusicStore.addHistory(music);
+            mMusicStore.addHistory(music);
+        }
+
+        mMusicStore.removeHistory(musics.get(0));
+        assertEquals(2, mMusicStore.getAllHistory().size());
+        assertFalse(mMusicStore.getAllHistory().contains(musics.get(0)));
+
+        mMusicStore.removeHistory(musics.subList(1, 3));
+        assertTrue(mMusicStore.getAllHistory().isEmpty());
+    }
+
+    @Test
+    public void removeMusic() {
+        List<Music> musics = putMusics(3);
+        for (Music music : musics) {
+            mMusicStore.addHistory(music);
+        }
+
+        mMusicStore.removeMusic(musics.get(0));
+        mMusicStore.removeMusic(musics.subList(1, 2));
+
+        List<Music> history = mMusicStore.getAllHistory();
+        assertEquals(1, history.size());
+        assertEquals(musics.get(2), history.get(0));
+        assertEquals(1, store.boxFor(HistoryEntity.class).count());
+    }
+
+    @Test
+    public void clearHistory() {
+        List<Music> musics = putMusics(3);
+        for (Music music : musics) {
+            mMusicStore.addHistory(music);
+        }
+
+        mMusicStore.clearHistory();
+
+        assertTrue(mMusicStore.getAllHistory().isEmpty());
+        assertEquals(0, store.boxFor(HistoryEntity.class).count());
+    }
+
+    @Test
+    public void migrateLegacyHistory() {
+        List<Music> musics = putMusics(3);
+
+        MusicListEntity entity = new MusicListEntity(0, MusicStore.MUSIC_LIST_HISTORY, "", null);
+        store.boxFor(MusicListEntity.class).put(entity);
+        MusicList legacy = new MusicList(entity);
+        legacy.getMusicElements().add(musics.get(2));
+        legacy.getMusicElements().add(musics.get(0));
+        legacy.applyChanges();
+        store.boxFor(MusicListEntity.class).put(entity);
+
+        List<Music> history = mMusicStore.getAllHistory();
+        assertEquals(2, history.size());
+        assertEquals(musics.get(2), history.get(0));
+        assertEquals(musics.get(0), history.get(1));
+
+        assertEquals(0, store.boxFor(MusicListEntity.class)
+                .query()
+                .equal(MusicListEntity_.name, MusicStore.MUSIC_LIST_HISTORY)
+                .build()
+                .count());
+    }
+}
@@ -0,0 +1,80 @@
+package snow.music.store;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LongHashSetTest {
+
+    @Test
+    public void addAndContains() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(1));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertFalse(set.add(1));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(2));
+        assertFalse(set.contains(0));
+        assertFalse(set.contains(-1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_illegalValue() {
+        new LongHashSet().add(0);
+    }
+
+    @Test
+    public void remove() {
+        LongHashSet set = LongHashSet.of(new long[]{1, 2, 3, 0, -5});
+
+        assertEquals(3, set.size());
+        assertTrue(set.remove(2));
+        assertFalse(set.remove(2));
+        assertFalse(set.remove(0));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(2));
+        assertTrue(set.contains(3));
+    }
+
+    @Test
+    public void clear() {
+        LongHashSet set = LongHashSet.of(new long[]{1, 2, 3});
+
+        set.clear();
+
+        assertEquals(0, set.size());
+        assertFalse(set.contains(1));
+    }
+
+    @Test
+    public void randomOperations() {
+        Random random = new Random(0);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        // 使用较小的取值范围，制造大量的冲突与删除
+        for (int i = 0; i < 100_000; i++) {
+            long value = 1 + random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (long value = 1; value <= 2_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -6,7 +6,9 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import io.objectbox.BoxStore;
 
@@ -510,4 +512,39 @@ public class MusicListTest {
         assertEquals(musicC, musicList.getMusicElements().get(1));
         assertEquals(musicA, musicList.getMusicElements().get(2));
     }
+
+    @Test
+    public void elements_orders_large() {
+        final int count = 20_000;
+
+        List<Music> musics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            musics.add(new Music(
+                    0,
+                    "title" + i,
+                    "artist" + i,
+                    "album" + i,
+                    "https://www.test.com/test" + i + ".mp3",
+                    "https://www.test.com/test" + i + ".png",
+                    60_000,
+                    System.currentTimeMillis()));
+        }
+
+        mMusicStore.putAllMusic(musics);
+        Collections.shuffle(musics, new Random(0));
+
+        MusicList musicList = mMusicStore.createMusicList(TEST_MUSIC_LIST);
+        musicList.getMusicElements().addAll(musics);
+        mMusicStore.updateMusicList(musicList);
+
+        musicList = mMusicStore.createMusicList(TEST_MUSIC_LIST);
+        List<Music> elements = musicList.getMusicElements();
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, elements.indexOf(musics.get(i)));
+        }
+
+        assertEquals(count, musicList.getSize());
+        assertTrue(elements.contains(musics.get(count - 1)));
+    }
 }
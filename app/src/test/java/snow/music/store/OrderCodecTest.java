@@ -0,0 +1,71 @@
+package snow.music.store;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.*;
+
+public class OrderCodecTest {
+
+    @Test
+    public void encode_decode() {
+        long[] ids = {5, 3, 1_000_000, 1, Long.MAX_VALUE, 7};
+
+        assertArrayEquals(ids, OrderCodec.decode(OrderCodec.encode(ids, ids.length)));
+    }
+
+    @Test
+    public void encode_count() {
+        long[] ids = {1, 2, 3, 4};
+
+        assertArrayEquals(new long[]{1, 2}, OrderCodec.decode(OrderCodec.encode(ids, 2)));
+    }
+
+    @Test
+    public void encode_compact() {
+        final int count = 20_000;
+
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i + 1;
+        }
+
+        // 1 字节格式标识 + 3 字节数量 + 每个 ID 1 字节
+        assertEquals(1 + 3 + count, OrderCodec.encode(ids, count).length);
+    }
+
+    @Test
+    public void decode_empty() {
+        assertEquals(0, OrderCodec.decode(null).length);
+        assertEquals(0, OrderCodec.decode(new byte[0]).length);
+    }
+
+    @Test
+    public void decode_corrupted() {
+        byte[] bytes = OrderCodec.encode(new long[]{1, 2, 3}, 3);
+
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        assertNull(OrderCodec.decode(truncated));
+        assertNull(OrderCodec.decode(new byte[]{0x7F, 0x01}));
+        assertNull(OrderCodec.decode(OrderCodec.encode(new long[]{3, -1}, 2)));
+    }
+
+    @Test
+    public void decode_legacy() throws IOException {
+        long[] ids = {3, 1, 2};
+
+        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(byteOutput);
+        for (long id : ids) {
+            output.writeLong(id);
+        }
+        output.close();
+
+        assertArrayEquals(ids, OrderCodec.decode(byteOutput.toByteArray()));
+    }
+}
@@ -0,0 +1,105 @@
+package snow.player.exo;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.audio.AudioProcessor;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import snow.player.effect.AudioEffectManager;
+import snow.player.exo.audio.EqualizerAudioProcessor;
+
+/**
+ * 使用纯 Java 实现的 {@link EqualizerAudioProcessor} 的音频特效管理器。
+ * <p>
+ * 与 {@link snow.player.effect.AndroidAudioEffectManager} 使用相同的音频特效配置，但不依赖 Android 原生的
+ * 音频特效，因此在所有设备上的表现都是一致的。使用时需要在 {@code PlayerService} 的
+ * {@code onCreateAudioEffectManager()} 方法中返回该类的对象，并在创建 {@link ExoMusicPlayer} 时传入
+ * {@link #createAudioProcessor()} 方法返回的 AudioProcessor。
+ * <p>
+ * 目前只支持 Equalizer 与 BassBoost 配置，Virtualizer 与 PresetReverb 配置会被忽略。
+ * <p>
+ * 该类只能在主线程中使用。
+ */
+public class ExoAudioEffectManager implements AudioEffectManager {
+    private final List<WeakReference<EqualizerAudioProcessor>> mAudioProcessors;
+    private Bundle mConfig;
+    private boolean mEnabled;
+
+    public ExoAudioEffectManager() {
+        mAudioProcessors = new ArrayList<>();
+        mConfig = new Bundle();
+    }
+
+    /**
+     * 创建一个用于应用音频特效的 AudioProcessor。
+     * <p>
+     * 每个 {@link ExoMusicPlayer} 都需要使用一个新的 AudioProcessor，因为旧的播放器可能会在后台线程中异步
+     * 释放。所有由该方法创建的 AudioProcessor 都会同步当前的音频特效配置。
+     */
+    @NonNull
+    public AudioProcessor createAudioProcessor() {
+        Iterator<WeakReference<EqualizerAudioProcessor>> iterator = mAudioProcessors.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+
+        EqualizerAudioProcessor audioProcessor = new EqualizerAudioProcessor();
+        audioProcessor.setConfig(mConfig);
+        audioProcessor.setEnabled(mEnabled);
+        mAudioProcessors.add(new WeakReference<>(audioProcessor));
+
+        return audioProcessor;
+    }
+
+    @Override
+    public void init(@NonNull Bundle config) {
+        updateConfig(config);
+    }
+
+    @Override
+    public void updateConfig(@NonNull Bundle config) {
+        mConfig = new Bundle(config);
+
+        for (WeakReference<EqualizerAudioProcessor> reference : mAudioProcessors) {
+            EqualizerAudioProcessor audioProcessor = reference.get();
+            if (audioProcessor != null) {
+                audioProcessor.setConfig(mConfig);
+            }
+        }
+    }
+
+    @Override
+    public void attachAudioEffect(int audioSessionId) {
+        setEnabled(true);
+    }
+
+    @Override
+    public void detachAudioEffect() {
+        setEnabled(false);
+    }
+
+    @Override
+    public void release() {
+        setEnabled(false);
+        mAudioProcessors.clear();
+    }
+
+    private void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+
+        for (WeakReference<EqualizerAudioProcessor> reference : mAudioProcessors) {
+            EqualizerAudioProcessor audioProcessor = reference.get();
+            if (audioProcessor != null) {
+                audioProcessor.setEnabled(enabled);
+            }
+        }
+    }
+}
@@ -8,9 +8,11 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlaybackException;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.audio.AudioProcessor;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.MediaSourceFactory;
 
@@ -40,10 +42,23 @@ public class ExoMusicPlayer extends AbstractMusicPlayer {
     private boolean mInvalid;
 
     public ExoMusicPlayer(@NonNull Context context, @NonNull MediaSourceFactory mediaSourceFactory, @NonNull Uri uri) {
+        this(context, mediaSourceFactory, uri, new AudioProcessor[0]);
+    }
+
+    /**
+     * 创建一个 ExoMusicPlayer 对象。
+     *
+     * @param audioProcessors 用于处理解码后的 PCM 音频数据的 AudioProcessor，会在 ExoPlayer 默认的
+     *                        AudioProcessor 之后执行。同一个 AudioProcessor 对象不能同时被多个播放器使用。
+     */
+    public ExoMusicPlayer(@NonNull Context context,
+                          @NonNull MediaSourceFactory mediaSourceFactory,
+                          @NonNull Uri uri,
+                          @NonNull AudioProcessor... audioProcessors) {
         mMediaSourceFactory = mediaSourceFactory;
         mUri = uri;
         initEventListener();
-        initExoPlayer(context);
+        initExoPlayer(context, audioProcessors);
     }
 
     private void initEventListener() {
@@ -136,8 +151,15 @@ public class ExoMusicPlayer extends AbstractMusicPlayer {
         }
     }
 
-    private void initExoPlayer(Context context) {
-        mSimpleExoPlayer = new SimpleExoPlayer.Builder(context)
+    private void initExoPlayer(Context context, final AudioProcessor[] audioProcessors) {
+        DefaultRenderersFactory renderersFactory = new DefaultRenderersFactory(context) {
+            @Override
+            protected AudioProcessor[] buildAudioProcessors() {
+                return audioProcessors;
+            }
+        };
+
+        mSimpleExoPlayer = new SimpleExoPlayer.Builder(context, renderersFactory)
                 .setLooper(Looper.getMainLooper())
                 .build();
         mSimpleExoPlayer.addListener(mEventListener);
@@ -238,6 +260,11 @@ public class ExoMusicPlayer extends AbstractMusicPlayer {
         return mSimpleExoPlayer.getAudioSessionId();
     }
 
+    @Override
+    public void setAudioSessionId(int audioSessionId) {
+        mSimpleExoPlayer.setAudioSessionId(audioSessionId);
+    }
+
     @Override
     public void setOnPreparedListener(OnPreparedListener listener) {
         mPreparedListener = listener;
@@ -0,0 +1,132 @@
+package snow.player.exo;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import snow.player.exo.audio.LoudnessMeter;
+
+/**
+ * 使用 MediaExtractor 与 MediaCodec 解码整首歌曲，并使用 {@link LoudnessMeter} 测量其响度。
+ * <p>
+ * 解码是一个耗时操作，只能在异步线程中调用。
+ */
+final class LoudnessDecoder {
+    private static final long TIMEOUT_US = 10_000;
+
+    private LoudnessDecoder() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 解码歌曲并测量其响度。
+     *
+     * @param context Context 对象
+     * @param uri     歌曲的 Uri
+     * @return 测量了整首歌曲的 {@link LoudnessMeter} 对象
+     * @throws IOException 如果无法读取或解码歌曲
+     */
+    @NonNull
+    static LoudnessMeter decode(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+
+        try {
+            extractor.setDataSource(context, uri, null);
+
+            MediaFormat format = selectAudioTrack(extractor);
+            if (format == null) {
+                throw new IOException("no audio track: " + uri);
+            }
+
+            LoudnessMeter meter = new LoudnessMeter();
+            meter.configure(format.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                    format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            decode(extractor, codec, meter);
+            return meter;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // MediaCodec 出错时会抛出 IllegalStateException（CodecException）
+            throw new IOException("decode failed: " + uri, e);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+
+        return null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void decode(MediaExtractor extractor, MediaCodec codec, LoudnessMeter meter)
+            throws IOException {
+        // minSdkVersion 为 16，因此使用 getInputBuffers() 与 getOutputBuffers()
+        ByteBuffer[] inputBuffers = codec.getInputBuffers();
+        ByteBuffer[] outputBuffers = codec.getOutputBuffers();
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        boolean inputDone = false;
+        while (true) {
+            if (Thread.interrupted()) {
+                throw new IOException("decode interrupted");
+            }
+
+            if (!inputDone) {
+                int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                if (inputIndex >= 0) {
+                    int size = extractor.readSampleData(inputBuffers[inputIndex], 0);
+                    if (size < 0) {
+                        codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+            if (outputIndex == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                outputBuffers = codec.getOutputBuffers();
+            } else if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                MediaFormat outputFormat = codec.getOutputFormat();
+                meter.configure(outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE),
+                        outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+            } else if (outputIndex >= 0) {
+                ByteBuffer buffer = outputBuffers[outputIndex];
+                buffer.position(info.offset);
+                buffer.limit(info.offset + info.size);
+                meter.process(buffer.order(ByteOrder.nativeOrder()));
+                codec.releaseOutputBuffer(outputIndex, false);
+
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package snow.player.exo;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.audio.AudioProcessor;
+import com.tencent.mmkv.MMKV;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import snow.player.audio.MusicItem;
+import snow.player.exo.audio.LoudnessMeter;
+import snow.player.exo.audio.ReplayGainAudioProcessor;
+
+/**
+ * 响度均衡管理器，用于避免切换歌曲时音量忽大忽小。
+ * <p>
+ * 第一次播放本地歌曲（file、content 与 android.resource）时，会在一个后台线程中使用 MediaExtractor 与
+ * MediaCodec 解码整首歌曲，按照 EBU R128 标准测量其综合响度，并根据目标响度 {@link #TARGET_LOUDNESS} 与歌曲的
+ * 采样峰值计算出增益，然后以 musicId 为键缓存起来；之后再播放该歌曲时，会直接应用缓存的增益。同一时间只会
+ * 测量一首歌曲，避免与播放器争抢 CPU。
+ * <p>
+ * 网络歌曲需要下载整个文件才能在后台测量，因此只会在歌曲第一次从头到尾完整播放（期间没有 seek）时，在音频
+ * 播放线程中测量其响度。
+ * <p>
+ * 使用时需要在创建 {@link ExoMusicPlayer} 时传入 {@link #createAudioProcessor(MusicItem)} 方法返回的
+ * AudioProcessor。
+ */
+public class ReplayGainManager {
+    /**
+     * 目标响度（单位：LUFS），与 ReplayGain 2.0 的参考响度一致。
+     */
+    public static final double TARGET_LOUDNESS = -18;
+
+    private static final String TAG = "ReplayGainManager";
+
+    // 所有 ReplayGainManager 共用一个后台线程测量响度
+    private static final ExecutorService ANALYZE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context mApplicationContext;
+    private final MMKV mMMKV;
+    private volatile boolean mEnabled;
+    // 正在后台测量的歌曲的 musicId
+    private final Set<String> mAnalyzingMusicIds;
+
+    public ReplayGainManager(@NonNull Context context) {
+        mApplicationContext = context.getApplicationContext();
+        MMKV.initialize(context);
+        mMMKV = MMKV.mmkvWithID("ReplayGainManager", MMKV.MULTI_PROCESS_MODE);
+        mEnabled = true;
+        mAnalyzingMusicIds = new HashSet<>();
+    }
+
+    /**
+     * 设置是否启用响度均衡。只会对之后创建的 AudioProcessor 生效。
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * 为指定的歌曲创建一个响度均衡 AudioProcessor。
+     * <p>
+     * 如果歌曲的增益已被缓存，则返回的 AudioProcessor 会应用该增益；否则会在后台测量本地歌曲的响度，同时也会在
+     * 歌曲播放完毕时测量其响度，并缓存计算出的增益，下次播放该歌曲时生效。每个 {@link ExoMusicPlayer} 都需要
+     * 使用一个新的 AudioProcessor。
+     *
+     * @param musicItem 要播放的歌曲，不能为 null
+     */
+    @NonNull
+    public AudioProcessor createAudioProcessor(@NonNull MusicItem musicItem) {
+        final String musicId = musicItem.getMusicId();
+
+        if (!mEnabled) {
+            return new ReplayGainAudioProcessor(0);
+        }
+
+        if (musicId.isEmpty()) {
+            return new ReplayGainAudioProcessor(0);
+        }
+
+        if (mMMKV.containsKey(musicId)) {
+            return new ReplayGainAudioProcessor(mMMKV.decodeFloat(musicId));
+        }
+
+        Uri uri = Uri.parse(musicItem.getUri());
+        if (isLocalUri(uri)) {
+            analyzeInBackground(musicId, uri);
+        }
+
+        // 后台测量失败时，依然可以在歌曲完整播放后测量其响度
+
+        return new ReplayGainAudioProcessor(new ReplayGainAudioProcessor.OnAnalyzedListener() {
+            @Override
+            public void onAnalyzed(double integratedLoudness, double samplePeak) {
+                mMMKV.encode(musicId, (float) computeGain(integratedLoudness, samplePeak));
+            }
+        }, musicItem.getDuration());
+    }
+
+    /**
+     * 清除所有缓存的增益。
+     */
+    public void clearCache() {
+        mMMKV.clearAll();
+    }
+
+    private void analyzeInBackground(final String musicId, final Uri uri) {
+        synchronized (mAnalyzingMusicIds) {
+            if (!mAnalyzingMusicIds.add(musicId)) {
+                return;
+            }
+        }
+
+        ANALYZE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+                try {
+                    if (mMMKV.containsKey(musicId)) {
+                        return;
+                    }
+
+                    LoudnessMeter meter = LoudnessDecoder.decode(mApplicationContext, uri);
+                    double loudness = meter.getIntegratedLoudness();
+                    if (Double.isInfinite(loudness)) {
+                        // 静音或时长过短，缓存 0dB 增益，避免每次播放都重新测量
+                        mMMKV.encode(musicId, 0F);
+                        return;
+                    }
+
+                    mMMKV.encode(musicId, (float) computeGain(loudness, meter.getSamplePeak()));
+                } catch (IOException e) {
+                    Log.w(TAG, "analyze loudness failed: " + uri, e);
+                } finally {
+                    synchronized (mAnalyzingMusicIds) {
+                        mAnalyzingMusicIds.remove(musicId);
+                    }
+                }
+            }
+        });
+    }
+
+    private static boolean isLocalUri(Uri uri) {
+        String scheme = uri.getScheme();
+        return scheme == null ||
+                "file".equalsIgnoreCase(scheme) ||
+                "content".equalsIgnoreCase(scheme) ||
+                "android.resource".equalsIgnoreCase(scheme);
+    }
+
+    private static double computeGain(double integratedLoudness, double samplePeak) {
+        double gain = TARGET_LOUDNESS - integratedLoudness;
+
+        // 避免增益导致削波
+        if (samplePeak > 0) {
+            double maxGain = -20 * Math.log10(samplePeak);
+            gain = Math.min(gain, maxGain);
+        }
+
+        return gain;
+    }
+}
@@ -0,0 +1,143 @@
+package snow.player.exo;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.audio.AudioProcessor;
+
+import snow.player.audio.WaveDataSource;
+import snow.player.exo.audio.PcmRingBuffer;
+import snow.player.exo.audio.TapAudioProcessor;
+
+/**
+ * 不依赖 {@code android.media.audiofx.Visualizer} 的波形数据源。
+ * <p>
+ * 通过 {@link #createAudioProcessor()} 方法创建的 AudioProcessor 会将 {@link ExoMusicPlayer} 解码后的 PCM
+ * 数据写入一个无锁环形缓冲区，ui 模块的 {@code AbstractWaveView} 则直接从该缓冲区中读取波形数据，
+ * 因此不需要 {@code android.permission.RECORD_AUDIO} 权限，也不受 Visualizer 最大捕获率的限制。
+ * <p>
+ * 环形缓冲区只支持单个写入者，因此每个 AudioProcessor 都会使用自己的环形缓冲区，WaveTap 总是从最近一次
+ * 创建的 AudioProcessor 的环形缓冲区中读取数据，也就是当前正在播放的歌曲。如果有多个播放器同时播放
+ * （例如 PlayerService 的托管播放器），则需要为每个播放器创建一个单独的 WaveTap 对象。
+ * <p>
+ * 使用方法：
+ * <ol>
+ *     <li>在 PlayerService 中创建 {@link ExoMusicPlayer} 时传入 {@code WaveTap.getInstance().createAudioProcessor()}；</li>
+ *     <li>调用 {@code waveView.setWaveDataSource(WaveTap.getInstance())}。</li>
+ * </ol>
+ * 注意！只有当 PlayerService 与 UI 运行在同一进程中时才能使用。
+ */
+public final class WaveTap implements WaveDataSource {
+    // 约 0.74 秒的 44.1kHz 音频
+    private static final int CAPACITY = 32768;
+
+    private static WaveTap sInstance;
+
+    // 最近一次创建的 AudioProcessor 所使用的环形缓冲区
+    private volatile PcmRingBuffer mRingBuffer;
+    private final ThreadLocal<short[]> mReadBuffer;
+
+    /**
+     * 创建一个新的 WaveTap 对象。
+     * <p>
+     * 只有当多个播放器同时播放时才需要创建新的 WaveTap 对象，否则使用 {@link #getInstance()} 即可。
+     */
+    public WaveTap() {
+        mRingBuffer = new PcmRingBuffer(CAPACITY);
+        mReadBuffer = new ThreadLocal<>();
+    }
+
+    /**
+     * 获取当前进程中默认的 WaveTap 对象。
+     */
+    @NonNull
+    public static synchronized WaveTap getInstance() {
+        if (sInstance == null) {
+            sInstance = new WaveTap();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * 创建一个用于捕获 PCM 数据的 AudioProcessor。每个 {@link ExoMusicPlayer} 都需要使用一个新的
+     * AudioProcessor。
+     * <p>
+     * 每个 AudioProcessor 都会写入一个新的环形缓冲区，创建后 WaveTap 会切换到该 AudioProcessor 的环形
+     * 缓冲区，之前创建的 AudioProcessor 写入的数据不会再被读取。
+     */
+    @NonNull
+    public AudioProcessor createAudioProcessor() {
+        PcmRingBuffer ringBuffer = new PcmRingBuffer(CAPACITY);
+        mRingBuffer = ringBuffer;
+        return new TapAudioProcessor(ringBuffer);
+    }
+
+    /**
+     * 获取当前正在使用的环形缓冲区，用于读取原始的单声道 16 bit PCM 数据。
+     * <p>
+     * 每次调用 {@link #createAudioProcessor()} 方法后，该方法都会返回一个新的环形缓冲区。
+     */
+    @NonNull
+    public PcmRingBuffer getRingBuffer() {
+        return mRingBuffer;
+    }
+
+    @Override
+    public int getSamplingRate() {
+        return mRingBuffer.getSampleRate() * 1000;
+    }
+
+    @Override
+    public long getVersion() {
+        return mRingBuffer.getWriteCount();
+    }
+
+    @Override
+    public boolean readWaveform(@NonNull byte[] waveform) {
+        PcmRingBuffer ringBuffer = mRingBuffer;
+        int count = Math.min(waveform.length, ringBuffer.getCapacity());
+
+        short[] samples = readPcm(ringBuffer, count);
+        if (samples == null) {
+            return false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            waveform[i] = (byte) ((samples[i] >> 8) + 128);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean readSamples(@NonNull float[] samples) {
+        PcmRingBuffer ringBuffer = mRingBuffer;
+        int count = Math.min(samples.length, ringBuffer.getCapacity());
+
+        short[] pcm = readPcm(ringBuffer, count);
+        if (pcm == null) {
+            return false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            samples[i] = pcm[i] / 32768F;
+        }
+
+        return true;
+    }
+
+    // 读取最新的 count 个 16 bit 采样到当前线程的缓冲区中，没有足够的数据时返回 null
+    private short[] readPcm(PcmRingBuffer ringBuffer, int count) {
+        short[] samples = mReadBuffer.get();
+        if (samples == null || samples.length != count) {
+            samples = new short[count];
+            mReadBuffer.set(samples);
+        }
+
+        if (!ringBuffer.read(samples)) {
+            return null;
+        }
+
+        return samples;
+    }
+}
@@ -0,0 +1,281 @@
+package snow.player.exo.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 纯 Java 实现的参数均衡器，由若干个峰值（peaking）滤波器与一个低频搁架（low shelf）滤波器串联而成。
+ * <p>
+ * 所有滤波器都是二阶 IIR 滤波器（biquad），系数按照 RBJ Audio EQ Cookbook 计算，并使用转置直接 II 型
+ * 结构进行滤波。
+ * <p>
+ * 参数可以在任意线程中修改，新的参数会在下一次调用 {@link #process(ByteBuffer, ByteBuffer)} 时生效；
+ * 只有在参数或音频格式发生改变时才会重新计算系数并分配内存，处理音频数据时不会分配任何对象。
+ * {@link #configure(int, int)}、{@link #reset()} 与 {@link #process(ByteBuffer, ByteBuffer)} 方法只能在
+ * 同一个线程中调用。
+ */
+public final class BiquadFilterBank {
+    /**
+     * 低频搁架滤波器的转折频率（单位：Hz）。
+     */
+    public static final double BASS_SHELF_FREQUENCY = 150;
+    /**
+     * 低音增强强度为 1000 时的增益（单位：dB）。
+     */
+    public static final double MAX_BASS_GAIN_DB = 12;
+
+    private static final double MIN_BAND_FREQUENCY = 60;
+    private static final double MAX_BAND_FREQUENCY = 14_000;
+    private static final double[] DEFAULT_FIVE_BAND_FREQUENCIES = {60, 230, 910, 3_600, 14_000};
+
+    private volatile Params mPendingParams;
+    private Params mParams;
+
+    private int mSampleRate;
+    private int mChannelCount;
+
+    // 只包含增益不为 0 的滤波器，每个滤波器 5 个系数：b0, b1, b2, a1, a2
+    private double[] mCoefficients;
+    private int mFilterCount;
+    // 每个声道的每个滤波器 2 个状态变量
+    private double[] mState;
+
+    public BiquadFilterBank() {
+        mPendingParams = new Params(new short[0], (short) 0);
+        mCoefficients = new double[0];
+        mState = new double[0];
+    }
+
+    /**
+     * 设置均衡器各频段的增益。
+     * <p>
+     * 频段的中心频率在 60Hz 到 14kHz 之间按对数均匀分布；当频段数量为 5 时，与 Android 默认均衡器的中心
+     * 频率（60Hz、230Hz、910Hz、3.6kHz、14kHz）一致。
+     *
+     * @param bandLevels 各频段的增益（单位：毫贝，mB），为 null 时表示平直
+     */
+    public synchronized void setBandLevels(short[] bandLevels) {
+        Params params = mPendingParams;
+        short[] levels = bandLevels == null ? new short[0] : bandLevels.clone();
+        mPendingParams = new Params(levels, params.mBassStrength);
+    }
+
+    /**
+     * 设置低音增强的强度。
+     *
+     * @param strength 低音增强的强度，范围为 [0, 1000]，与 {@code BassBoost} 的强度范围一致
+     */
+    public synchronized void setBassStrength(short strength) {
+        Params params = mPendingParams;
+        short bassStrength = (short) Math.max(0, Math.min(1000, strength));
+        mPendingParams = new Params(params.mBandLevels, bassStrength);
+    }
+
+    /**
+     * 设置音频格式。会清空滤波器的状态。
+     *
+     * @param sampleRate   采样率
+     * @param channelCount 声道数
+     */
+    public void configure(int sampleRate, int channelCount) {
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        mParams = null;
+        updateParams();
+        reset();
+    }
+
+    /**
+     * 清空所有滤波器的状态，例如：在 seek 之后。
+     */
+    public void reset() {
+        for (int i = 0; i < mState.length; i++) {
+            mState[i] = 0;
+        }
+    }
+
+    /**
+     * 当前的参数是否不会对音频产生任何影响。
+     */
+    public boolean isFlat() {
+        updateParams();
+        return mFilterCount == 0;
+    }
+
+    /**
+     * 对 16 bit PCM 音频数据进行滤波。
+     * <p>
+     * 会读取 input 中剩余的所有数据，并将滤波后的数据写入 output 中。两个缓冲区的字节序由缓冲区自身决定。
+     *
+     * @param input  输入数据（交错存储的 16 bit PCM 数据）
+     * @param output 输出缓冲区，剩余空间不能小于 input 中剩余的数据量
+     */
+    public void process(ByteBuffer input, ByteBuffer output) {
+        updateParams();
+
+        if (mFilterCount == 0) {
+            output.put(input);
+            return;
+        }
+
+        final double[] coefficients = mCoefficients;
+        final double[] state = mState;
+        final int filterCount = mFilterCount;
+        final int channelCount = mChannelCount;
+
+        int channel = 0;
+        while (input.remaining() >= 2) {
+            double sample = input.getShort();
+
+            int s = channel * filterCount * 2;
+            for (int f = 0, c = 0; f < filterCount; f++, c += 5, s += 2) {
+                double y = coefficients[c] * sample + state[s];
+                state[s] = coefficients[c + 1] * sample - coefficients[c + 3] * y + state[s + 1];
+                state[s + 1] = coefficients[c + 2] * sample - coefficients[c + 4] * y;
+                sample = y;
+            }
+
+            output.putShort(clip(sample));
+
+            channel++;
+            if (channel == channelCount) {
+                channel = 0;
+            }
+        }
+    }
+
+    private static short clip(double sample) {
+        if (sample >= Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        }
+
+        if (sample <= Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+
+        return (short) Math.round(sample);
+    }
+
+    private void updateParams() {
+        Params params = mPendingParams;
+        if (params == mParams || mSampleRate <= 0 || mChannelCount <= 0) {
+            return;
+        }
+
+        mParams = params;
+
+        int maxFilterCount = params.mBandLevels.length + 1;
+        if (mCoefficients.length < maxFilterCount * 5) {
+            mCoefficients = new double[maxFilterCount * 5];
+        }
+
+        int filterCount = 0;
+        double nyquist = mSampleRate / 2.0;
+
+        if (params.mBassStrength > 0) {
+            double gainDb = MAX_BASS_GAIN_DB * params.mBassStrength / 1000.0;
+            lowShelf(mCoefficients, 0, BASS_SHELF_FREQUENCY / mSampleRate, gainDb);
+            filterCount++;
+        }
+
+        int bandCount = params.mBandLevels.length;
+        double q = bandQ(bandCount);
+        for (int i = 0; i < bandCount; i++) {
+            short level = params.mBandLevels[i];
+            double frequency = bandFrequency(i, bandCount);
+            if (level == 0 || frequency >= nyquist * 0.95) {
+                continue;
+            }
+
+            peaking(mCoefficients, filterCount * 5, frequency / mSampleRate, q, level / 100.0);
+            filterCount++;
+        }
+
+        // 滤波器的数量或顺序发生改变时，旧的状态已没有意义
+        int stateSize = filterCount * mChannelCount * 2;
+        if (filterCount != mFilterCount || mState.length != stateSize) {
+            mState = new double[stateSize];
+        }
+
+        mFilterCount = filterCount;
+    }
+
+    /**
+     * 获取指定频段的中心频率（单位：Hz）。
+     */
+    public static double bandFrequency(int band, int bandCount) {
+        if (bandCount == DEFAULT_FIVE_BAND_FREQUENCIES.length) {
+            return DEFAULT_FIVE_BAND_FREQUENCIES[band];
+        }
+
+        if (bandCount <= 1) {
+            return Math.sqrt(MIN_BAND_FREQUENCY * MAX_BAND_FREQUENCY);
+        }
+
+        double ratio = MAX_BAND_FREQUENCY / MIN_BAND_FREQUENCY;
+        return MIN_BAND_FREQUENCY * Math.pow(ratio, (double) band / (bandCount - 1));
+    }
+
+    // 根据相邻频段之间的倍频程数计算 Q 值，使相邻频段的带宽恰好衔接
+    private static double bandQ(int bandCount) {
+        if (bandCount <= 1) {
+            return 0.7;
+        }
+
+        double octaves = Math.log(MAX_BAND_FREQUENCY / MIN_BAND_FREQUENCY) / Math.log(2) / (bandCount - 1);
+        double n = Math.pow(2, octaves);
+        return Math.sqrt(n) / (n - 1);
+    }
+
+    private static void peaking(double[] out, int offset, double normalizedFrequency, double q, double gainDb) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * normalizedFrequency;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / (2 * q);
+
+        double b0 = 1 + alpha * a;
+        double b1 = -2 * cos;
+        double b2 = 1 - alpha * a;
+        double a0 = 1 + alpha / a;
+        double a1 = -2 * cos;
+        double a2 = 1 - alpha / a;
+
+        normalize(out, offset, b0, b1, b2, a0, a1, a2);
+    }
+
+    private static void lowShelf(double[] out, int offset, double normalizedFrequency, double gainDb) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * normalizedFrequency;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / 2 * Math.sqrt(2);    // shelf slope S = 1
+        double sqrtA2Alpha = 2 * Math.sqrt(a) * alpha;
+
+        double b0 = a * ((a + 1) - (a - 1) * cos + sqrtA2Alpha);
+        double b1 = 2 * a * ((a - 1) - (a + 1) * cos);
+        double b2 = a * ((a + 1) - (a - 1) * cos - sqrtA2Alpha);
+        double a0 = (a + 1) + (a - 1) * cos + sqrtA2Alpha;
+        double a1 = -2 * ((a - 1) + (a + 1) * cos);
+        double a2 = (a + 1) + (a - 1) * cos - sqrtA2Alpha;
+
+        normalize(out, offset, b0, b1, b2, a0, a1, a2);
+    }
+
+    private static void normalize(double[] out, int offset,
+                                  double b0, double b1, double b2,
+                                  double a0, double a1, double a2) {
+        out[offset] = b0 / a0;
+        out[offset + 1] = b1 / a0;
+        out[offset + 2] = b2 / a0;
+        out[offset + 3] = a1 / a0;
+        out[offset + 4] = a2 / a0;
+    }
+
+    private static final class Params {
+        final short[] mBandLevels;  // 单位：mB
+        final short mBassStrength;  // 范围：[0, 1000]
+
+        Params(short[] bandLevels, short bassStrength) {
+            mBandLevels = bandLevels;
+            mBassStrength = bassStrength;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package snow.player.exo.audio;
+
+import android.media.audiofx.BassBoost;
+import android.media.audiofx.Equalizer;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+
+import java.nio.ByteBuffer;
+
+import snow.player.util.AndroidAudioEffectConfigUtil;
+
+/**
+ * 使用 {@link BiquadFilterBank} 实现的均衡器与低音增强 AudioProcessor。
+ * <p>
+ * 与 Android 原生的音频特效不同，该 AudioProcessor 在所有设备上的表现都是一致的。配置信息与
+ * {@link snow.player.effect.AndroidAudioEffectManager} 使用的音频特效配置（{@link Bundle}）相同，
+ * 因此可以直接替换 Android 原生的 Equalizer 与 BassBoost。
+ * <p>
+ * 只支持 16 bit PCM 音频，其他格式的音频会直接跳过该 AudioProcessor。处理音频数据时只会复用输出缓冲区，
+ * 不会为每个缓冲区分配新的内存。
+ */
+public final class EqualizerAudioProcessor extends BaseAudioProcessor {
+    private final BiquadFilterBank mFilterBank;
+    private volatile boolean mEnabled;
+
+    public EqualizerAudioProcessor() {
+        mFilterBank = new BiquadFilterBank();
+        mEnabled = true;
+    }
+
+    /**
+     * 设置是否启用均衡器。禁用时音频数据会原样输出。
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * 是否已启用均衡器。
+     */
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * 应用音频特效配置。只会读取其中的 Equalizer 与 BassBoost 配置。
+     *
+     * @param config 音频特效的配置，不能为 null
+     * @see AndroidAudioEffectConfigUtil
+     */
+    public void setConfig(@NonNull Bundle config) {
+        Equalizer.Settings equalizerSettings = AndroidAudioEffectConfigUtil.getEqualizerSettings(config);
+        mFilterBank.setBandLevels(equalizerSettings == null ? null : equalizerSettings.bandLevels);
+
+        BassBoost.Settings bassBoostSettings = AndroidAudioEffectConfigUtil.getBassBoostSettings(config);
+        mFilterBank.setBassStrength(bassBoostSettings == null ? 0 : bassBoostSettings.strength);
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int remaining = inputBuffer.remaining();
+        if (remaining == 0) {
+            return;
+        }
+
+        ByteBuffer outputBuffer = replaceOutputBuffer(remaining);
+        if (mEnabled) {
+            mFilterBank.process(inputBuffer, outputBuffer);
+        } else {
+            outputBuffer.put(inputBuffer);
+        }
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onFlush() {
+        mFilterBank.configure(inputAudioFormat.sampleRate, inputAudioFormat.channelCount);
+    }
+
+    @Override
+    protected void onReset() {
+        mFilterBank.configure(0, 0);
+    }
+}
@@ -0,0 +1,232 @@
+package snow.player.exo.audio;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 按照 EBU R128（ITU-R BS.1770）标准测量音频的综合响度（integrated loudness）。
+ * <p>
+ * 音频会先经过 K 计权滤波，然后按 400ms 的块（相邻块之间重叠 75%）计算响度，最后使用 -70 LUFS 的绝对门限
+ * 与 -10 LU 的相对门限计算综合响度。同时会记录音频的采样峰值，用于避免增益导致削波。
+ * <p>
+ * 该类不是线程安全的。
+ */
+public final class LoudnessMeter {
+    private static final double ABSOLUTE_GATE = -70;    // 单位：LUFS
+    private static final double RELATIVE_GATE = -10;    // 单位：LU
+    private static final int SUB_BLOCKS_PER_BLOCK = 4;  // 400ms 的块由 4 个 100ms 的子块组成
+
+    private int mSampleRate;
+    private int mChannelCount;
+
+    // K 计权滤波器的系数：预滤波器（高搁架）与 RLB 滤波器（高通）
+    private final double[] mCoefficients = new double[10];
+    // 每个声道 4 个状态变量
+    private double[] mState = new double[0];
+
+    private int mFramesPerSubBlock;
+    private int mSubBlockFrames;
+    private int mChannel;
+    private double mSubBlockEnergy;
+    private final double[] mRecentSubBlocks = new double[SUB_BLOCKS_PER_BLOCK];
+    private int mSubBlockCount;
+
+    private double[] mBlockEnergies = new double[256];
+    private int mBlockCount;
+
+    private int mPeak;
+    private long mFrameCount;
+
+    /**
+     * 设置音频格式，并清空所有已测量的数据。
+     *
+     * @param sampleRate   采样率
+     * @param channelCount 声道数
+     */
+    public void configure(int sampleRate, int channelCount) {
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        mFramesPerSubBlock = Math.max(1, sampleRate / 10);
+        mState = new double[channelCount * 4];
+
+        computeCoefficients(sampleRate);
+        reset();
+    }
+
+    /**
+     * 清空所有已测量的数据。
+     */
+    public void reset() {
+        Arrays.fill(mState, 0);
+        Arrays.fill(mRecentSubBlocks, 0);
+        mSubBlockFrames = 0;
+        mChannel = 0;
+        mSubBlockEnergy = 0;
+        mSubBlockCount = 0;
+        mBlockCount = 0;
+        mPeak = 0;
+        mFrameCount = 0;
+    }
+
+    /**
+     * 测量 16 bit PCM 音频数据。不会改变 buffer 的 position。
+     *
+     * @param buffer 交错存储的 16 bit PCM 音频数据
+     */
+    public void process(ByteBuffer buffer) {
+        if (mChannelCount <= 0) {
+            return;
+        }
+
+        final double[] c = mCoefficients;
+        final double[] state = mState;
+
+        int limit = buffer.limit() - 1;
+        for (int i = buffer.position(); i < limit; i += 2) {
+            int sample = buffer.getShort(i);
+            mPeak = Math.max(mPeak, Math.abs(sample));
+
+            double x = sample / 32768.0;
+            int s = mChannel * 4;
+
+            // 预滤波器
+            double y = c[0] * x + state[s];
+            state[s] = c[1] * x - c[3] * y + state[s + 1];
+            state[s + 1] = c[2] * x - c[4] * y;
+
+            // RLB 滤波器
+            double z = c[5] * y + state[s + 2];
+            state[s + 2] = c[6] * y - c[8] * z + state[s + 3];
+            state[s + 3] = c[7] * y - c[9] * z;
+
+            // 5.1 声道的环绕声道权重为 1.41，其余声道为 1.0
+            mSubBlockEnergy += (mChannel >= 4 && mChannelCount > 5) ? 1.41 * z * z : z * z;
+
+            mChannel++;
+            if (mChannel == mChannelCount) {
+                mChannel = 0;
+                mFrameCount++;
+                mSubBlockFrames++;
+                if (mSubBlockFrames == mFramesPerSubBlock) {
+                    endSubBlock();
+                }
+            }
+        }
+    }
+
+    private void endSubBlock() {
+        mRecentSubBlocks[mSubBlockCount % SUB_BLOCKS_PER_BLOCK] = mSubBlockEnergy / mFramesPerSubBlock;
+        mSubBlockCount++;
+        mSubBlockEnergy = 0;
+        mSubBlockFrames = 0;
+
+        if (mSubBlockCount < SUB_BLOCKS_PER_BLOCK) {
+            return;
+        }
+
+        double blockEnergy = 0;
+        for (double energy : mRecentSubBlocks) {
+            blockEnergy += energy;
+        }
+        blockEnergy /= SUB_BLOCKS_PER_BLOCK;
+
+        if (mBlockCount == mBlockEnergies.length) {
+            mBlockEnergies = Arrays.copyOf(mBlockEnergies, mBlockCount * 2);
+        }
+        mBlockEnergies[mBlockCount++] = blockEnergy;
+    }
+
+    /**
+     * 获取已测量的音频时长（单位：毫秒）。
+     */
+    public long getMeasuredMillis() {
+        if (mSampleRate <= 0) {
+            return 0;
+        }
+
+        return mFrameCount * 1000 / mSampleRate;
+    }
+
+    /**
+     * 获取采样峰值，范围为 [0, 1]。
+     */
+    public double getSamplePeak() {
+        return mPeak / 32768.0;
+    }
+
+    /**
+     * 获取综合响度（单位：LUFS）。
+     *
+     * @return 如果没有足够的数据或音频是静音，则返回 {@link Double#NEGATIVE_INFINITY}
+     */
+    public double getIntegratedLoudness() {
+        double absoluteThreshold = toEnergy(ABSOLUTE_GATE);
+
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < mBlockCount; i++) {
+            if (mBlockEnergies[i] > absoluteThreshold) {
+                sum += mBlockEnergies[i];
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        double relativeThreshold = toEnergy(toLoudness(sum / count) + RELATIVE_GATE);
+
+        sum = 0;
+        count = 0;
+        for (int i = 0; i < mBlockCount; i++) {
+            if (mBlockEnergies[i] > absoluteThreshold && mBlockEnergies[i] > relativeThreshold) {
+                sum += mBlockEnergies[i];
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+
+        return toLoudness(sum / count);
+    }
+
+    private static double toLoudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static double toEnergy(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+
+    // 系数的计算方法与 libebur128 一致，支持任意采样率
+    private void computeCoefficients(int sampleRate) {
+        double f0 = 1681.974450955533;
+        double g = 3.999843853973347;
+        double q = 0.7071752369554196;
+
+        double k = Math.tan(Math.PI * f0 / sampleRate);
+        double vh = Math.pow(10, g / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+
+        mCoefficients[0] = (vh + vb * k / q + k * k) / a0;
+        mCoefficients[1] = 2 * (k * k - vh) / a0;
+        mCoefficients[2] = (vh - vb * k / q + k * k) / a0;
+        mCoefficients[3] = 2 * (k * k - 1) / a0;
+        mCoefficients[4] = (1 - k / q + k * k) / a0;
+
+        f0 = 38.13547087602444;
+        q = 0.5003270373238773;
+        k = Math.tan(Math.PI * f0 / sampleRate);
+        a0 = 1 + k / q + k * k;
+
+        mCoefficients[5] = 1;
+        mCoefficients[6] = -2;
+        mCoefficients[7] = 1;
+        mCoefficients[8] = 2 * (k * k - 1) / a0;
+        mCoefficients[9] = (1 - k / q + k * k) / a0;
+    }
+}
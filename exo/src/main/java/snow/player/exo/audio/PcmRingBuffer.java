@@ -0,0 +1,110 @@
+package snow.player.exo.audio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单生产者、多消费者的无锁环形缓冲区，用于保存最近的单声道 PCM 采样。
+ * <p>
+ * 写入方（音频播放线程）永远不会被阻塞，旧的数据会被新的数据覆盖；读取方只会读取最新的数据，如果读取期间
+ * 数据被覆盖，则读取失败。
+ */
+public final class PcmRingBuffer {
+    private final short[] mBuffer;
+    private final int mMask;
+
+    // 已写入的采样总数，写入数据后才会更新，用于向读取方发布数据
+    private volatile long mWriteCount;
+    private volatile int mSampleRate;
+
+    /**
+     * 创建一个 PcmRingBuffer 对象。
+     *
+     * @param capacity 缓冲区的容量（采样数），会向上取整为 2 的幂
+     */
+    public PcmRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mBuffer = new short[size];
+        mMask = size - 1;
+    }
+
+    public int getCapacity() {
+        return mBuffer.length;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        mSampleRate = sampleRate;
+    }
+
+    /**
+     * 获取采样率（单位：Hz）。
+     */
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    /**
+     * 获取已写入的采样总数。
+     */
+    public long getWriteCount() {
+        return mWriteCount;
+    }
+
+    /**
+     * 将 16 bit PCM 数据混合为单声道后写入缓冲区。不会改变 input 的 position。只能在同一个线程中调用。
+     *
+     * @param input        交错存储的 16 bit PCM 数据
+     * @param channelCount 声道数
+     */
+    public void write(ByteBuffer input, int channelCount) {
+        final short[] buffer = mBuffer;
+        final int mask = mMask;
+
+        long writeCount = mWriteCount;
+        int frameSize = channelCount * 2;
+        int limit = input.limit() - frameSize + 1;
+        for (int i = input.position(); i < limit; i += frameSize) {
+            int sum = 0;
+            for (int c = 0; c < channelCount; c++) {
+                sum += input.getShort(i + c * 2);
+            }
+
+            buffer[(int) (writeCount & mask)] = (short) (sum / channelCount);
+            writeCount++;
+        }
+
+        mWriteCount = writeCount;
+    }
+
+    /**
+     * 读取最新的 out.length 个采样。可以在任意线程中调用。
+     *
+     * @param out 用于保存采样的数组，长度不能超过缓冲区的容量
+     * @return 如果缓冲区中没有足够的数据，或者读取期间数据被覆盖，则返回 false
+     */
+    public boolean read(short[] out) {
+        int count = out.length;
+        if (count > mBuffer.length) {
+            throw new IllegalArgumentException("out.length > capacity");
+        }
+
+        long end = mWriteCount;
+        long start = end - count;
+        if (start < 0) {
+            return false;
+        }
+
+        for (int i = 0; i < count; i++) {
+            out[i] = mBuffer[(int) ((start + i) & mMask)];
+        }
+
+        // 读取期间写入方已经绕了一圈，读取到的数据可能已被覆盖
+        return mWriteCount - start <= mBuffer.length;
+    }
+
+    /**
+     * 清空缓冲区。
+     */
+    public void clear() {
+        mWriteCount = 0;
+    }
+}
@@ -0,0 +1,168 @@
+package snow.player.exo.audio;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 响度均衡 AudioProcessor。
+ * <p>
+ * 如果已知歌曲的增益，则会对音频应用该增益（每个采样只需要一次整数乘法与移位）；否则会原样输出音频，
+ * 并使用 {@link LoudnessMeter} 测量歌曲的响度，在歌曲播放完毕时通过 {@link OnAnalyzedListener} 返回测量结果，
+ * 以便缓存起来供下次播放时使用。增益接近 0dB 时不会启用该 AudioProcessor。
+ * <p>
+ * seek 时会丢弃已测量的数据，并且只有测量的时长接近歌曲的时长时才会返回测量结果，避免只根据歌曲的一部分
+ * 计算出的增益被永久缓存。
+ * <p>
+ * 只支持 16 bit PCM 音频，其他格式的音频会直接跳过该 AudioProcessor。
+ */
+public final class ReplayGainAudioProcessor extends BaseAudioProcessor {
+    // 增益的定点数精度
+    private static final int GAIN_SHIFT = 14;
+    // 增益小于该值时忽略（单位：dB）
+    private static final float MIN_GAIN_DB = 0.1F;
+    // 至少需要测量的音频时长（单位：毫秒）
+    private static final long MIN_MEASURED_MILLIS = 10_000;
+    // 测量的时长至少需要达到歌曲时长的比例
+    private static final float MIN_MEASURED_RATIO = 0.9F;
+
+    private final float mGainDb;
+    private final int mGain;    // 定点数，1 << GAIN_SHIFT 表示 0dB
+
+    @Nullable
+    private final LoudnessMeter mLoudnessMeter;
+    @Nullable
+    private final OnAnalyzedListener mOnAnalyzedListener;
+    private final long mDurationMillis;
+    private int mConfiguredSampleRate;
+    private int mConfiguredChannelCount;
+
+    /**
+     * 创建一个对音频应用指定增益的 AudioProcessor。
+     *
+     * @param gainDb 增益（单位：dB），范围为 [-24, 12]，超出范围时会被截断
+     */
+    public ReplayGainAudioProcessor(float gainDb) {
+        gainDb = Math.max(-24, Math.min(12, gainDb));
+        mGainDb = gainDb;
+        mGain = (int) Math.round(Math.pow(10, gainDb / 20) * (1 << GAIN_SHIFT));
+        mLoudnessMeter = null;
+        mOnAnalyzedListener = null;
+        mDurationMillis = 0;
+    }
+
+    /**
+     * 创建一个测量歌曲响度的 AudioProcessor。
+     *
+     * @param listener       用于接收测量结果，会在音频播放线程中调用，不能为 null
+     * @param durationMillis 歌曲的时长（单位：毫秒），只有测量的时长接近该值时才会返回测量结果；小于等于 0
+     *                       时表示时长未知
+     */
+    public ReplayGainAudioProcessor(@NonNull OnAnalyzedListener listener, long durationMillis) {
+        mGainDb = 0;
+        mGain = 1 << GAIN_SHIFT;
+        mLoudnessMeter = new LoudnessMeter();
+        mOnAnalyzedListener = listener;
+        mDurationMillis = durationMillis;
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+
+        if (mLoudnessMeter == null && Math.abs(mGainDb) < MIN_GAIN_DB) {
+            return AudioFormat.NOT_SET;
+        }
+
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int remaining = inputBuffer.remaining();
+        if (remaining == 0) {
+            return;
+        }
+
+        ByteBuffer outputBuffer = replaceOutputBuffer(remaining);
+
+        if (mLoudnessMeter != null) {
+            mLoudnessMeter.process(inputBuffer);
+            outputBuffer.put(inputBuffer);
+            outputBuffer.flip();
+            return;
+        }
+
+        final int gain = mGain;
+        while (inputBuffer.remaining() >= 2) {
+            int sample = (inputBuffer.getShort() * gain) >> GAIN_SHIFT;
+            if (sample > Short.MAX_VALUE) {
+                sample = Short.MAX_VALUE;
+            } else if (sample < Short.MIN_VALUE) {
+                sample = Short.MIN_VALUE;
+            }
+            outputBuffer.putShort((short) sample);
+        }
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onQueueEndOfStream() {
+        if (mLoudnessMeter == null || mOnAnalyzedListener == null) {
+            return;
+        }
+
+        long measuredMillis = mLoudnessMeter.getMeasuredMillis();
+        if (measuredMillis < MIN_MEASURED_MILLIS) {
+            return;
+        }
+
+        // 只播放了歌曲的一部分（例如从中间开始播放），测量结果不能代表整首歌曲
+        if (mDurationMillis > 0 && measuredMillis < mDurationMillis * MIN_MEASURED_RATIO) {
+            return;
+        }
+
+        double loudness = mLoudnessMeter.getIntegratedLoudness();
+        if (Double.isInfinite(loudness)) {
+            return;
+        }
+
+        mOnAnalyzedListener.onAnalyzed(loudness, mLoudnessMeter.getSamplePeak());
+    }
+
+    @Override
+    protected void onFlush() {
+        if (mLoudnessMeter == null) {
+            return;
+        }
+
+        // seek 后测量的数据已不连续，需要丢弃已测量的数据并重新测量
+        if (inputAudioFormat.sampleRate != mConfiguredSampleRate ||
+                inputAudioFormat.channelCount != mConfiguredChannelCount) {
+            mConfiguredSampleRate = inputAudioFormat.sampleRate;
+            mConfiguredChannelCount = inputAudioFormat.channelCount;
+            mLoudnessMeter.configure(mConfiguredSampleRate, mConfiguredChannelCount);
+        } else {
+            mLoudnessMeter.reset();
+        }
+    }
+
+    /**
+     * 用于接收响度的测量结果。
+     */
+    public interface OnAnalyzedListener {
+        /**
+         * 该方法会在歌曲播放完毕，并且测量了（几乎）完整的歌曲时调用。
+         *
+         * @param integratedLoudness 综合响度（单位：LUFS）
+         * @param samplePeak         采样峰值，范围为 [0, 1]
+         */
+        void onAnalyzed(double integratedLoudness, double samplePeak);
+    }
+}
@@ -0,0 +1,49 @@
+package snow.player.exo.audio;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.audio.BaseAudioProcessor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 将经过的 PCM 音频数据复制一份到 {@link PcmRingBuffer} 中的 AudioProcessor，音频数据本身会原样输出。
+ * <p>
+ * 只支持 16 bit PCM 音频，其他格式的音频会直接跳过该 AudioProcessor。
+ */
+public final class TapAudioProcessor extends BaseAudioProcessor {
+    private final PcmRingBuffer mRingBuffer;
+
+    public TapAudioProcessor(@NonNull PcmRingBuffer ringBuffer) {
+        mRingBuffer = ringBuffer;
+    }
+
+    @Override
+    protected AudioFormat onConfigure(AudioFormat inputAudioFormat) throws UnhandledAudioFormatException {
+        if (inputAudioFormat.encoding != C.ENCODING_PCM_16BIT) {
+            throw new UnhandledAudioFormatException(inputAudioFormat);
+        }
+
+        return inputAudioFormat;
+    }
+
+    @Override
+    public void queueInput(ByteBuffer inputBuffer) {
+        int remaining = inputBuffer.remaining();
+        if (remaining == 0) {
+            return;
+        }
+
+        mRingBuffer.write(inputBuffer, inputAudioFormat.channelCount);
+
+        ByteBuffer outputBuffer = replaceOutputBuffer(remaining);
+        outputBuffer.put(inputBuffer);
+        outputBuffer.flip();
+    }
+
+    @Override
+    protected void onFlush() {
+        mRingBuffer.setSampleRate(inputAudioFormat.sampleRate);
+    }
+}
@@ -0,0 +1,63 @@
+package snow.player.exo.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link BiquadFilterBank} 的吞吐量基准测试，输出每秒处理的采样数。
+ * <p>
+ * 该类不是单元测试，不会在 {@code ./gradlew test} 中运行（耗时的计时代码会导致单元测试在较慢的 CI 机器上
+ * 不稳定）。需要时在 IDE 中直接运行 {@link #main(String[])} 方法。
+ */
+public final class BiquadFilterBankBenchmark {
+    private static final int SAMPLE_RATE = 44_100;
+    private static final int CHANNEL_COUNT = 2;
+
+    private BiquadFilterBankBenchmark() {
+        throw new AssertionError();
+    }
+
+    public static void main(String[] args) {
+        BiquadFilterBank filterBank = new BiquadFilterBank();
+        filterBank.setBandLevels(new short[]{300, -200, 100, 400, -300});
+        filterBank.setBassStrength((short) 500);
+        filterBank.configure(SAMPLE_RATE, CHANNEL_COUNT);
+
+        ByteBuffer input = createSine(440, 8192, 10_000);
+        ByteBuffer output = ByteBuffer.allocateDirect(input.remaining()).order(ByteOrder.nativeOrder());
+
+        // 预热
+        for (int i = 0; i < 2_000; i++) {
+            process(filterBank, input, output);
+        }
+
+        int iterations = 5_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            process(filterBank, input, output);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long samples = (long) iterations * (input.remaining() / 2);
+        double samplesPerSecond = samples / (elapsed / 1e9);
+        System.out.println(String.format("BiquadFilterBank: %.1f Msamples/s (%.0fx realtime, 6 filters, stereo 44.1kHz)",
+                samplesPerSecond / 1e6, samplesPerSecond / (SAMPLE_RATE * CHANNEL_COUNT)));
+    }
+
+    private static void process(BiquadFilterBank filterBank, ByteBuffer input, ByteBuffer output) {
+        output.clear();
+        filterBank.process(input.duplicate().order(ByteOrder.nativeOrder()), output);
+    }
+
+    private static ByteBuffer createSine(double frequency, int frames, int amplitude) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frames * CHANNEL_COUNT * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                buffer.putShort(sample);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
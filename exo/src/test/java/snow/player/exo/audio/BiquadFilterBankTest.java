@@ -0,0 +1,108 @@
+package snow.player.exo.audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class BiquadFilterBankTest {
+    private static final int SAMPLE_RATE = 44_100;
+    private static final int CHANNEL_COUNT = 2;
+
+    @Test
+    public void flat_passThrough() {
+        BiquadFilterBank filterBank = new BiquadFilterBank();
+        filterBank.configure(SAMPLE_RATE, CHANNEL_COUNT);
+
+        assertTrue(filterBank.isFlat());
+
+        ByteBuffer input = createSine(1_000, 4096, 10_000);
+        ByteBuffer output = ByteBuffer.allocateDirect(input.remaining()).order(ByteOrder.nativeOrder());
+
+        filterBank.process(input.duplicate().order(ByteOrder.nativeOrder()), output);
+        output.flip();
+
+        assertEquals(input, output);
+    }
+
+    @Test
+    public void bassBoost_amplifiesLowFrequency() {
+        BiquadFilterBank filterBank = new BiquadFilterBank();
+        filterBank.setBassStrength((short) 1000);
+        filterBank.configure(SAMPLE_RATE, CHANNEL_COUNT);
+
+        assertFalse(filterBank.isFlat());
+
+        // 50Hz 的正弦波应该被放大（最大增益 12dB，约 4 倍）
+        int lowPeak = peakAfterFilter(filterBank, 50);
+        assertTrue("lowPeak=" + lowPeak, lowPeak > 2 * 5_000);
+
+        // 5kHz 的正弦波应该基本不受影响
+        filterBank.reset();
+        int highPeak = peakAfterFilter(filterBank, 5_000);
+        assertTrue("highPeak=" + highPeak, Math.abs(highPeak - 5_000) < 500);
+    }
+
+    @Test
+    public void bandLevels_cutAndBoost() {
+        BiquadFilterBank filterBank = new BiquadFilterBank();
+        // 5 个频段：60Hz, 230Hz, 910Hz, 3.6kHz, 14kHz
+        filterBank.setBandLevels(new short[]{0, 0, -1200, 0, 0});
+        filterBank.configure(SAMPLE_RATE, CHANNEL_COUNT);
+
+        int cutPeak = peakAfterFilter(filterBank, 910);
+        assertTrue("cutPeak=" + cutPeak, cutPeak < 5_000 / 2);
+
+        filterBank.setBandLevels(new short[]{0, 0, 600, 0, 0});
+        filterBank.reset();
+        int boostPeak = peakAfterFilter(filterBank, 910);
+        assertTrue("boostPeak=" + boostPeak, boostPeak > 5_000 * 3 / 2);
+    }
+
+    @Test
+    public void clipping() {
+        BiquadFilterBank filterBank = new BiquadFilterBank();
+        filterBank.setBassStrength((short) 1000);
+        filterBank.configure(SAMPLE_RATE, CHANNEL_COUNT);
+
+        // 负半周会被削波到 Short.MIN_VALUE，其绝对值为 32768
+        int peak = peakAfterFilter(filterBank, 50, 30_000);
+        assertEquals(-Short.MIN_VALUE, peak);
+    }
+
+    private static int peakAfterFilter(BiquadFilterBank filterBank, double frequency) {
+        return peakAfterFilter(filterBank, frequency, 5_000);
+    }
+
+    private static int peakAfterFilter(BiquadFilterBank filterBank, double frequency, int amplitude) {
+        int frames = SAMPLE_RATE;  // 1 秒
+        ByteBuffer input = createSine(frequency, frames, amplitude);
+        ByteBuffer output = ByteBuffer.allocateDirect(input.remaining()).order(ByteOrder.nativeOrder());
+
+        filterBank.process(input, output);
+        output.flip();
+
+        // 跳过前 0.5 秒，等待滤波器进入稳态
+        output.position(output.limit() / 2);
+        int peak = 0;
+        while (output.remaining() >= 2) {
+            peak = Math.max(peak, Math.abs(output.getShort()));
+        }
+
+        return peak;
+    }
+
+    private static ByteBuffer createSine(double frequency, int frames, int amplitude) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frames * CHANNEL_COUNT * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+            for (int c = 0; c < CHANNEL_COUNT; c++) {
+                buffer.putShort(sample);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
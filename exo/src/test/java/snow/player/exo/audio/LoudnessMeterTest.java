@@ -0,0 +1,71 @@
+package snow.player.exo.audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class LoudnessMeterTest {
+    private static final int SAMPLE_RATE = 48_000;
+
+    @Test
+    public void sine_minus23dBFS() {
+        // EBU Tech 3341：1kHz 立体声正弦波，-23 dBFS，应测得 -23 LUFS
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.configure(SAMPLE_RATE, 2);
+        meter.process(createSine(1_000, 20, Math.pow(10, -23 / 20.0)));
+
+        assertEquals(-23, meter.getIntegratedLoudness(), 0.1);
+        assertEquals(20_000, meter.getMeasuredMillis());
+    }
+
+    @Test
+    public void sine_minus33dBFS() {
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.configure(44_100, 2);
+        meter.process(createSine(1_000, 20, Math.pow(10, -33 / 20.0), 44_100));
+
+        assertEquals(-33, meter.getIntegratedLoudness(), 0.1);
+    }
+
+    @Test
+    public void silence() {
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.configure(SAMPLE_RATE, 2);
+        meter.process(createSine(1_000, 5, 0));
+
+        assertTrue(Double.isInfinite(meter.getIntegratedLoudness()));
+        assertEquals(0, meter.getSamplePeak(), 0);
+    }
+
+    @Test
+    public void processDoesNotConsumeBuffer() {
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.configure(SAMPLE_RATE, 2);
+
+        ByteBuffer buffer = createSine(1_000, 1, 0.5);
+        int position = buffer.position();
+        meter.process(buffer);
+
+        assertEquals(position, buffer.position());
+        assertEquals(0.5, meter.getSamplePeak(), 0.001);
+    }
+
+    private static ByteBuffer createSine(double frequency, int seconds, double amplitude) {
+        return createSine(frequency, seconds, amplitude, SAMPLE_RATE);
+    }
+
+    private static ByteBuffer createSine(double frequency, int seconds, double amplitude, int sampleRate) {
+        int frames = sampleRate * seconds;
+        ByteBuffer buffer = ByteBuffer.allocate(frames * 4).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(amplitude * 32767 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+            buffer.putShort(sample);
+            buffer.putShort(sample);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,63 @@
+package snow.player.exo.audio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class PcmRingBufferTest {
+
+    @Test
+    public void capacity_roundUpToPowerOfTwo() {
+        assertEquals(8, new PcmRingBuffer(5).getCapacity());
+        assertEquals(8, new PcmRingBuffer(8).getCapacity());
+    }
+
+    @Test
+    public void read_notEnoughData() {
+        PcmRingBuffer ringBuffer = new PcmRingBuffer(8);
+        ringBuffer.write(createStereo(1, 2, 3), 2);
+
+        assertFalse(ringBuffer.read(new short[4]));
+    }
+
+    @Test
+    public void write_downmixAndKeepPosition() {
+        PcmRingBuffer ringBuffer = new PcmRingBuffer(8);
+        ByteBuffer input = createStereo(1, 2, 3);
+        ringBuffer.write(input, 2);
+
+        assertEquals(0, input.position());
+        assertEquals(3, ringBuffer.getWriteCount());
+
+        short[] out = new short[3];
+        assertTrue(ringBuffer.read(out));
+        // 左声道为 n * 100，右声道为 n * 300，混合后为 n * 200
+        assertEquals(200, out[0]);
+        assertEquals(400, out[1]);
+        assertEquals(600, out[2]);
+    }
+
+    @Test
+    public void read_latestAfterWrapAround() {
+        PcmRingBuffer ringBuffer = new PcmRingBuffer(4);
+        ringBuffer.write(createStereo(1, 2, 3, 4, 5, 6), 2);
+
+        short[] out = new short[4];
+        assertTrue(ringBuffer.read(out));
+        assertEquals(600, out[0]);
+        assertEquals(1200, out[3]);
+    }
+
+    private static ByteBuffer createStereo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putShort((short) (value * 100));
+            buffer.putShort((short) (value * 300));
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
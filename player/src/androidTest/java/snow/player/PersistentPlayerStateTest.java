@@ -9,6 +9,9 @@ import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.List;
+
 import snow.player.audio.MusicItem;
 
 import static org.junit.Assert.*;
@@ -43,4 +46,22 @@ public class PersistentPlayerStateTest {
         assertEquals(position, other.getPlayPosition());
         assertEquals(playMode, other.getPlayMode());
     }
+
+    @Test
+    public void recentMusicItemsTest() {
+        final MusicItem musicItem1 = new MusicItem();
+        musicItem1.setTitle("RecentMusicItem1");
+        musicItem1.setUri("https://www.persistent_test.com/recent1.mp3");
+        final MusicItem musicItem2 = new MusicItem();
+        musicItem2.setTitle("RecentMusicItem2");
+        musicItem2.setUri("https://www.persistent_test.com/recent2.mp3");
+
+        final String id = "PersistentPlayerStateTest_recent";
+        PersistentPlayerState persistentPlayerState = new PersistentPlayerState(getContext(), id);
+        List<MusicItem> recentMusicItems = Arrays.asList(musicItem1, musicItem2);
+        persistentPlayerState.setRecentMusicItems(recentMusicItems);
+
+        PersistentPlayerState other = new PersistentPlayerState(getContext(), id);
+        assertEquals(recentMusicItems, other.getRecentMusicItems());
+    }
 }
@@ -0,0 +1,109 @@
+package snow.player;
+
+import android.os.Parcel;
+import android.os.SystemClock;
+
+import org.junit.Test;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.runner.RunWith;
+
+import snow.player.audio.MusicItem;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class PlayerStateDeltaTest {
+
+    private PlayerState createPlayerState(PlayerStateChangeLog changeLog) {
+        MusicItem musicItem = new MusicItem();
+        musicItem.setTitle("Test Title");
+        musicItem.setArtist("Test Artist");
+        musicItem.setUri("https://www.test.com/test.mp3");
+
+        PlayerState playerState = new PlayerState();
+        playerState.setChangeLog(changeLog);
+
+        playerState.setPlayProgress(1000);
+        playerState.setPlayProgressUpdateTime(SystemClock.elapsedRealtime());
+        playerState.setMusicItem(musicItem);
+        playerState.setPlayPosition(5);
+        playerState.setPlayMode(PlayMode.SHUFFLE);
+        playerState.setPlaybackState(PlaybackState.PLAYING);
+
+        return playerState;
+    }
+
+    @Test
+    public void unknownTokenTest() {
+        PlayerStateChangeLog changeLog = new PlayerStateChangeLog();
+        PlayerState playerState = createPlayerState(changeLog);
+
+        PlayerStateDelta delta = changeLog.createDelta("", 0, playerState);
+        assertTrue(delta.isFull());
+
+        PlayerState client = new PlayerState();
+        delta.applyTo(client);
+
+        assertEquals(playerState, client);
+    }
+
+    @Test
+    public void changedFieldsTest() {
+        PlayerStateChangeLog changeLog = new PlayerStateChangeLog();
+        PlayerState playerState = createPlayerState(changeLog);
+
+        PlayerState client = new PlayerState();
+        changeLog.createDelta("", 0, playerState).applyTo(client);
+
+        long version = changeLog.getVersion();
+
+        // 重复设置相同的值不应该产生变更
+        playerState.setPlayMode(PlayMode.SHUFFLE);
+        assertEquals(version, changeLog.getVersion());
+
+        playerState.setPlayProgress(2000);
+        playerState.setStalled(true);
+
+        PlayerStateDelta delta = changeLog.createDelta(changeLog.getToken(), version, playerState);
+        assertEquals(PlayerStateChangeLog.FIELD_PLAY_PROGRESS | PlayerStateChangeLog.FIELD_STALLED,
+                delta.getFields());
+        assertFalse(delta.contains(PlayerStateChangeLog.FIELD_MUSIC_ITEM));
+
+        delta.applyTo(client);
+        assertEquals(playerState, client);
+
+        assertEquals(0, changeLog.createDelta(changeLog.getToken(), changeLog.getVersion(), playerState).getFields());
+    }
+
+    @Test
+    public void parcelableTest() {
+        PlayerStateChangeLog changeLog = new PlayerStateChangeLog();
+        PlayerState playerState = createPlayerState(changeLog);
+
+        long version = changeLog.getVersion();
+        playerState.setBufferedProgress(50);
+        playerState.setErrorMessage("error");
+
+        PlayerStateDelta delta = changeLog.createDelta(changeLog.getToken(), version, playerState);
+
+        Parcel parcel = Parcel.obtain();
+        delta.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+
+        PlayerStateDelta other = new PlayerStateDelta(parcel);
+        parcel.recycle();
+
+        assertEquals(delta.getToken(), other.getToken());
+        assertEquals(delta.getVersion(), other.getVersion());
+        assertEquals(delta.getFields(), other.getFields());
+
+        PlayerState client = new PlayerState();
+        other.applyTo(client);
+
+        assertEquals(50, client.getBufferedProgress());
+        assertEquals("error", client.getErrorMessage());
+        assertNull(client.getMusicItem());
+    }
+}
@@ -3,18 +3,25 @@ package snow.player;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import snow.player.artwork.ArtworkCacheTest;
 import snow.player.audio.MusicItemTest;
 import snow.player.playlist.PlaylistTest;
+import snow.player.waveform.WaveformSummaryTest;
 
 @Suite.SuiteClasses({
         // snow.player
         PlayerStateTest.class,
+        PlayerStateDeltaTest.class,
         PersistentPlayerStateTest.class,
         PlayerConfigTest.class,
         // snow.player.media
         MusicItemTest.class,
+        // snow.player.artwork
+        ArtworkCacheTest.class,
         // snow.player.playlist
-        PlaylistTest.class
+        PlaylistTest.class,
+        // snow.player.waveform
+        WaveformSummaryTest.class
 })
 @RunWith(Suite.class)
 public class RunAllTest {
@@ -0,0 +1,22 @@
+package snow.player.artwork;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class ArtworkCacheTest {
+
+    @Test
+    public void computeSampleSizeTest() {
+        assertEquals(1, ArtworkCache.computeSampleSize(500, 500, 0, 0));
+        assertEquals(1, ArtworkCache.computeSampleSize(500, 500, 300, 300));
+        assertEquals(2, ArtworkCache.computeSampleSize(500, 500, 250, 250));
+        assertEquals(4, ArtworkCache.computeSampleSize(1200, 1200, 256, 256));
+        // 按较短的一边计算，解码后的尺寸不能小于目标尺寸
+        assertEquals(2, ArtworkCache.computeSampleSize(1200, 600, 256, 256));
+    }
+}
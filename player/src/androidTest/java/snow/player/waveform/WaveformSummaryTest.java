@@ -0,0 +1,102 @@
+package snow.player.waveform;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class WaveformSummaryTest {
+
+    @Test
+    public void accumulatorTest() {
+        // 采样率 1000Hz，50ms 的区间包含 50 帧
+        PeakAccumulator accumulator = new PeakAccumulator(50);
+        accumulator.configure(1000, 2);
+
+        ByteBuffer buffer = ByteBuffer.allocate(120 * 2 * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 120; i++) {
+            short left = (short) (i < 50 ? 16384 : 0);
+            short right = (short) (i >= 50 && i < 100 ? Short.MIN_VALUE : 100);
+            buffer.putShort(left);
+            buffer.putShort(right);
+        }
+        buffer.flip();
+
+        accumulator.process(buffer);
+        WaveformSummary summary = accumulator.finish();
+
+        // 最后 20 帧是一个不完整的区间
+        assertEquals(3, summary.getPeakCount());
+        assertEquals(50, summary.getIntervalMillis());
+        assertEquals(128, summary.getPeak(0));
+        assertEquals(255, summary.getPeak(1));
+        assertEquals(1, summary.getPeak(2));
+        assertEquals(255, summary.getPeakAt(75));
+        assertEquals(1, summary.getPeakAt(10_000));
+    }
+
+    @Test
+    public void accumulatorTest_reconfigure() {
+        PeakAccumulator accumulator = new PeakAccumulator(50);
+        accumulator.configure(1000, 1);
+        accumulator.process(createMonoBuffer(40, (short) 16384));
+
+        // 采样率 100Hz，50ms 的区间只包含 5 帧，之前累计的 40 帧不能计入新的区间
+        accumulator.configure(100, 1);
+        accumulator.process(createMonoBuffer(10, (short) 100));
+        WaveformSummary summary = accumulator.finish();
+
+        assertEquals(2, summary.getPeakCount());
+        assertEquals(128, summary.getPeak(0));
+        assertEquals(1, summary.getPeak(1));
+    }
+
+    private static ByteBuffer createMonoBuffer(int frames, short sample) {
+        ByteBuffer buffer = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            buffer.putShort(sample);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void resampleTest() {
+        WaveformSummary summary = new WaveformSummary(50, new byte[]{0, (byte) 255, 51, 0});
+
+        float[] peaks = new float[2];
+        summary.resample(peaks);
+
+        assertEquals(1.0F, peaks[0], 0);
+        assertEquals(0.2F, peaks[1], 1e-6);
+    }
+
+    @Test
+    public void readWriteTest() throws IOException {
+        WaveformSummary summary = new WaveformSummary(50, new byte[]{1, 2, (byte) 200});
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        summary.writeTo(new DataOutputStream(bytes), "key");
+
+        WaveformSummary read = WaveformSummary.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), "key");
+        assertNotNull(read);
+        assertEquals(3, read.getPeakCount());
+        assertEquals(200, read.getPeak(2));
+
+        WaveformSummary mismatch = WaveformSummary.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), "other");
+        assertNull(mismatch);
+    }
+}
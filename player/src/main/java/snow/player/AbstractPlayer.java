@@ -1,13 +1,10 @@
 package snow.player;
 
-import android.Manifest;
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.media.AudioManager;
 import android.net.Uri;
-import android.net.wifi.WifiManager;
+import android.os.Build;
 import android.os.Bundle;
-import android.os.PowerManager;
 import android.os.SystemClock;
 import android.support.v4.media.MediaMetadataCompat;
 import android.support.v4.media.session.MediaSessionCompat;
@@ -16,15 +13,12 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.content.ContextCompat;
 
 import com.google.common.base.Preconditions;
 
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
 
-import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.reactivex.SingleEmitter;
 import io.reactivex.SingleOnSubscribe;
@@ -43,12 +37,14 @@ import snow.player.playlist.PlaylistEditor;
 import snow.player.playlist.PlaylistManager;
 import snow.player.audio.ErrorCode;
 import snow.player.helper.NetworkHelper;
+import snow.player.util.WheelTimer;
 
 /**
  * 该类实现了 {@link Player} 接口，并实现大部分音乐播放器功能。
  */
 abstract class AbstractPlayer implements Player, PlaylistEditor {
     private static final String TAG = "AbstractPlayer";
+    private static final long RECORD_PROGRESS_PERIOD_MILLIS = 3_000;
     private static final int FORWARD_STEP = 15_000;     // 15 秒, 单位：毫秒 ms
 
     private final Context mApplicationContext;
@@ -65,12 +61,15 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
     private MusicPlayer.OnBufferingUpdateListener mBufferingUpdateListener;
     private MusicPlayer.OnErrorListener mErrorListener;
 
-    private AudioFocusHelper mAudioFocusHelper;
-    private PhoneCallStateHelper mPhoneCallStateHelper;
+    private final SharedPlayerHelper mSharedHelper;
+    private AudioFocusHelper.OnAudioFocusChangeListener mAudioFocusListener;
+    private PhoneCallStateHelper.OnStateChangeListener mCallStateListener;
     private BecomeNoiseHelper mBecomeNoiseHelper;
-    private NetworkHelper mNetworkHelper;
+    private NetworkHelper.OnNetworkStateChangeListener mNetworkStateListener;
 
     private MusicPlayer mMusicPlayer;
+    // 当前播放器创建的所有 MusicPlayer 共用的 audio session id，为 0 时表示尚未确定
+    private int mAudioSessionId;
 
     private boolean mLoadingPlaylist;
 
@@ -88,16 +87,18 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private boolean mReleased;
 
-    private Disposable mRecordProgressDisposable;
+    private WheelTimer.Timeout mRecordProgressTimeout;
     private Disposable mCheckCachedDisposable;
+    private Disposable mCheckStreamingDisposable;
 
     private MediaSessionCompat mMediaSession;
+    private QueueWindow mQueueWindow;
+    private int mQueueWindowSize = QueueWindow.DEFAULT_WINDOW_SIZE;
     private PlaybackStateCompat.Builder mPlaybackStateBuilder;
     private PlaybackStateCompat.Builder mForbidSeekPlaybackStateBuilder;
     private MediaMetadataCompat.Builder mMediaMetadataBuilder;
 
-    private PowerManager.WakeLock mWakeLock;
-    private WifiManager.WifiLock mWifiLock;
+    private WakeLockPolicy mWakeLockPolicy;
 
     private boolean mConfirmNextPlay;
 
@@ -110,30 +111,36 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
      * @param playlistManager {@link PlaylistManagerImp} 对象，用于管理播放列表，不能为 null
      * @param pref            {@link AppWidgetPreferences} 对象，用于在 PlayerService 与 AppWidget
      *                        之间进行状态同步，不能为 null
+     * @param sharedHelper    {@link SharedPlayerHelper} 对象，用于与同一个 PlayerService 中的其他播放器
+     *                        共享音频焦点、来电状态与网络状态，不能为 null
      */
     public AbstractPlayer(@NonNull Context context,
                           @NonNull PlayerConfig playerConfig,
                           @NonNull PlayerState playerState,
                           @NonNull PlaylistManagerImp playlistManager,
                           @NonNull AppWidgetPreferences pref,
+                          @NonNull SharedPlayerHelper sharedHelper,
                           boolean prepare) {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(playerConfig);
         Preconditions.checkNotNull(playerState);
         Preconditions.checkNotNull(playlistManager);
         Preconditions.checkNotNull(pref);
+        Preconditions.checkNotNull(sharedHelper);
 
         mApplicationContext = context.getApplicationContext();
         mPlayerConfig = playerConfig;
         mPlayerState = playerState;
         mPlayerStateHelper = new PlayerStateHelper(mPlayerState, pref);
         mPlaylistManager = playlistManager;
+        mSharedHelper = sharedHelper;
 
         initAllListener();
         initAllHelper();
-        initWakeLock();
+        mWakeLockPolicy = new WakeLockPolicy(mApplicationContext);
+        mAudioSessionId = generateAudioSessionId(mApplicationContext);
 
-        mNetworkHelper.subscribeNetworkState();
+        mSharedHelper.addNetworkStateListener(mNetworkStateListener);
         reloadPlaylist();
 
         if (prepare) {
@@ -141,6 +148,20 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         }
     }
 
+    private static int generateAudioSessionId(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return 0;
+        }
+
+        AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        if (audioManager == null) {
+            return 0;
+        }
+
+        int audioSessionId = audioManager.generateAudioSessionId();
+        return audioSessionId == AudioManager.ERROR ? 0 : audioSessionId;
+    }
+
     /**
      * 查询具有 soundQuality 音质的 MusicItem 表示的的音乐是否已被缓存。
      * <p>
@@ -256,6 +277,14 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
     protected void onPlayingMusicItemChanged(@Nullable MusicItem musicItem) {
     }
 
+    /**
+     * 该方法会在播放列表被修改并保存完成后调用。
+     *
+     * @param position 播放列表被修改后正在播放的歌曲的位置
+     */
+    protected void onPlaylistChanged(int position) {
+    }
+
     /**
      * 释放播放器所占用的资源。注意！调用该方法后，就不允许在使用当前 Player 对象了，否则会导致不可预见的错误。
      */
@@ -263,16 +292,18 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         mReleased = true;
         disposeRetrieveUri();
         releaseMusicPlayer();
-        releaseWakeLock();
+        disposeCheckStreaming();
+        mWakeLockPolicy.release();
 
-        mAudioFocusHelper.abandonAudioFocus();
-        mPhoneCallStateHelper.unregisterCallStateListener();
+        mSharedHelper.abandonAudioFocus(mAudioFocusListener);
+        mSharedHelper.unregisterCallStateListener(mCallStateListener);
         mBecomeNoiseHelper.unregisterBecomeNoiseReceiver();
-        mNetworkHelper.unsubscribeNetworkState();
+        mSharedHelper.removeNetworkStateListener(mNetworkStateListener);
 
-        mAudioFocusHelper = null;
+        mAudioFocusListener = null;
+        mCallStateListener = null;
         mBecomeNoiseHelper = null;
-        mNetworkHelper = null;
+        mNetworkStateListener = null;
 
         mPreparedAction = null;
         mSeekCompleteAction = null;
@@ -352,10 +383,13 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
             @Override
             public void accept(Uri uri) {
                 mMusicPlayer = onCreateMusicPlayer(mApplicationContext, musicItem, uri);
+                if (mAudioSessionId != 0) {
+                    mMusicPlayer.setAudioSessionId(mAudioSessionId);
+                }
                 attachListeners(mMusicPlayer);
 
                 mPreparedAction = preparedAction;
-                notifyPreparing();
+                notifyPreparing(uri);
 
                 try {
                     if (!mMusicPlayer.isInvalid()) {
@@ -380,7 +414,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
     }
 
     private boolean isWiFiNetwork() {
-        return mNetworkHelper.isWifiNetwork();
+        return mSharedHelper.isWifiNetwork();
     }
 
     private void initAllListener() {
@@ -393,6 +427,11 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
                 mp.setLooping(isLooping());
 
+                if (mAudioSessionId == 0) {
+                    // 无法生成 audio session id 时，沿用第一个 MusicPlayer 的 audio session id
+                    mAudioSessionId = mp.getAudioSessionId();
+                }
+
                 if (mPlayerConfig.isAudioEffectEnabled()) {
                     attachAudioEffect(mp.getAudioSessionId());
                 }
@@ -478,7 +517,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
     }
 
     private void initAllHelper() {
-        mAudioFocusHelper = new AudioFocusHelper(mApplicationContext, new AudioFocusHelper.OnAudioFocusChangeListener() {
+        mAudioFocusListener = new AudioFocusHelper.OnAudioFocusChangeListener() {
             private boolean mResumePlay;
 
             @Override
@@ -516,9 +555,9 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
                     mMusicPlayer.dismissQuiet();
                 }
             }
-        });
+        };
 
-        mPhoneCallStateHelper = new PhoneCallStateHelper(mApplicationContext, new PhoneCallStateHelper.OnStateChangeListener() {
+        mCallStateListener = new PhoneCallStateHelper.OnStateChangeListener() {
             private boolean mResumePlay;
 
             @Override
@@ -548,7 +587,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
                 mResumePlay = isPlayingState();
                 pause();
             }
-        });
+        };
 
         mBecomeNoiseHelper = new BecomeNoiseHelper(mApplicationContext, new BecomeNoiseHelper.OnBecomeNoiseListener() {
             @Override
@@ -557,7 +596,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
             }
         });
 
-        mNetworkHelper = NetworkHelper.newInstance(mApplicationContext, new NetworkHelper.OnNetworkStateChangeListener() {
+        mNetworkStateListener = new NetworkHelper.OnNetworkStateChangeListener() {
             @Override
             public void onNetworkStateChanged(boolean connected, boolean wifiNetwork) {
                 if (!isPrepared() || !connected) {
@@ -566,7 +605,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
                 checkNetworkType(mPlayerConfig.isOnlyWifiNetwork(), wifiNetwork);
             }
-        });
+        };
     }
 
     public final void setMediaSession(MediaSessionCompat mediaSession) {
@@ -574,6 +613,9 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         initPlaybackStateBuilder();
 
         mMediaSession = mediaSession;
+        mQueueWindow = new QueueWindow(mediaSession);
+        mQueueWindow.setWindowSize(mQueueWindowSize);
+        updateQueueWindow();
 
         if (getMusicItem() != null) {
             mPlayerState.setPlaybackState(PlaybackState.PAUSED);
@@ -595,6 +637,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
                         PlaybackStateCompat.ACTION_SKIP_TO_NEXT |
                         PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS |
                         PlaybackStateCompat.ACTION_SKIP_TO_QUEUE_ITEM |
+                        PlaybackStateCompat.ACTION_PLAY_FROM_MEDIA_ID |
                         PlaybackStateCompat.ACTION_SET_REPEAT_MODE |
                         PlaybackStateCompat.ACTION_SET_SHUFFLE_MODE |
                         PlaybackStateCompat.ACTION_FAST_FORWARD |
@@ -609,6 +652,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
                         PlaybackStateCompat.ACTION_SKIP_TO_NEXT |
                         PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS |
                         PlaybackStateCompat.ACTION_SKIP_TO_QUEUE_ITEM |
+                        PlaybackStateCompat.ACTION_PLAY_FROM_MEDIA_ID |
                         PlaybackStateCompat.ACTION_SET_REPEAT_MODE |
                         PlaybackStateCompat.ACTION_SET_SHUFFLE_MODE);
     }
@@ -617,75 +661,107 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         mMediaMetadataBuilder = new MediaMetadataCompat.Builder();
     }
 
-    private void initWakeLock() {
-        PowerManager pm = (PowerManager) mApplicationContext.getSystemService(Context.POWER_SERVICE);
-        WifiManager wm = (WifiManager) mApplicationContext.getApplicationContext().getSystemService(Context.WIFI_SERVICE);
-
-        String tag = "snow.player:AbstractPlayer";
-
-        if (pm != null) {
-            mWakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, tag);
-            mWakeLock.setReferenceCounted(false);
-        }
-
-        if (wm != null) {
-            mWifiLock = wm.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, tag);
-            mWifiLock.setReferenceCounted(false);
-        }
+    /**
+     * 获取 WakeLock 的累计持有时间（单位：毫秒）。
+     */
+    public final long getWakeLockHeldTime() {
+        return mWakeLockPolicy.getWakeLockHeldTime();
     }
 
-    private void requireWakeLock() {
-        if (wakeLockPermissionDenied()) {
-            Log.w(TAG, "need permission: 'android.permission.WAKE_LOCK'");
-            return;
-        }
+    /**
+     * 获取 WifiLock 的累计持有时间（单位：毫秒）。
+     */
+    public final long getWifiLockHeldTime() {
+        return mWakeLockPolicy.getWifiLockHeldTime();
+    }
 
-        if (mWakeLock != null && !mWakeLock.isHeld()) {
-            mWakeLock.acquire(getMusicItemDuration() + 5_000);
-        }
+    private void checkStreaming(@NonNull Uri uri) {
+        disposeCheckStreaming();
 
-        if (mWifiLock != null && !mWifiLock.isHeld()) {
-            mWifiLock.acquire();
+        if (WakeLockPolicy.isLocalUri(uri)) {
+            return;
         }
-    }
 
-    private boolean wakeLockPermissionDenied() {
-        return PackageManager.PERMISSION_DENIED ==
-                ContextCompat.checkSelfPermission(mApplicationContext, Manifest.permission.WAKE_LOCK);
+        // 已缓存的歌曲不需要持有 WakeLock 与 WifiLock
+        mCheckStreamingDisposable = playingMusicIsCached()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Consumer<Boolean>() {
+                    @Override
+                    public void accept(Boolean cached) {
+                        mWakeLockPolicy.setStreaming(!cached);
+                    }
+                });
     }
 
-    private void releaseWakeLock() {
-        if (mWakeLock != null && mWakeLock.isHeld()) {
-            mWakeLock.release();
-        }
-
-        if (mWifiLock != null && mWifiLock.isHeld()) {
-            mWifiLock.release();
+    private void disposeCheckStreaming() {
+        if (mCheckStreamingDisposable != null) {
+            mCheckStreamingDisposable.dispose();
+            mCheckStreamingDisposable = null;
         }
     }
 
     private PlaybackStateCompat buildPlaybackState(int state) {
         if (mPlayerState.isForbidSeek()) {
             return mForbidSeekPlaybackStateBuilder.setState(state, mPlayerState.getPlayProgress(), 1.0F, mPlayerState.getPlayProgressUpdateTime())
+                    .setActiveQueueItemId(getActiveQueueItemId())
                     .build();
         }
 
         return mPlaybackStateBuilder.setState(state, mPlayerState.getPlayProgress(), 1.0F, mPlayerState.getPlayProgressUpdateTime())
+                .setActiveQueueItemId(getActiveQueueItemId())
                 .build();
     }
 
     private PlaybackStateCompat buildErrorState(String errorMessage) {
         if (mPlayerState.isForbidSeek()) {
             return mForbidSeekPlaybackStateBuilder.setState(PlaybackStateCompat.STATE_ERROR, mPlayerState.getPlayProgress(), 1.0F, mPlayerState.getPlayProgressUpdateTime())
+                    .setActiveQueueItemId(getActiveQueueItemId())
                     .setErrorMessage(PlaybackStateCompat.ERROR_CODE_APP_ERROR, errorMessage)
                     .build();
         }
 
         return mPlaybackStateBuilder.setState(PlaybackStateCompat.STATE_ERROR, mPlayerState.getPlayProgress(), 1.0F, mPlayerState.getPlayProgressUpdateTime())
+                .setActiveQueueItemId(getActiveQueueItemId())
                 .setErrorMessage(PlaybackStateCompat.ERROR_CODE_APP_ERROR, errorMessage)
                 .build();
     }
 
+    private long getActiveQueueItemId() {
+        if (mQueueWindow == null) {
+            return MediaSessionCompat.QueueItem.UNKNOWN_ID;
+        }
+
+        return mQueueWindow.getActiveQueueItemId(mPlayerState.getPlayPosition());
+    }
+
+    /**
+     * 设置发布到 MediaSession 的播放队列窗口的大小。
+     * <p>
+     * MediaSession 只会发布正在播放的歌曲附近的 windowSize 首歌曲，而不是整个播放列表，以避免超出 Binder
+     * 的传输限制。默认值为 {@link QueueWindow#DEFAULT_WINDOW_SIZE}。
+     *
+     * @param windowSize 播放队列窗口的大小，小于等于 0 时不发布播放队列
+     */
+    public final void setQueueWindowSize(int windowSize) {
+        mQueueWindowSize = windowSize;
+
+        if (mQueueWindow == null) {
+            return;
+        }
+
+        mQueueWindow.setWindowSize(windowSize);
+        updateQueueWindow();
+    }
+
+    private void updateQueueWindow() {
+        if (mQueueWindow == null || mLoadingPlaylist) {
+            return;
+        }
+
+        mQueueWindow.update(mPlaylist, mPlayerState.getPlayPosition());
+    }
+
     private MediaMetadataCompat buildMediaMetadata() {
         MusicItem musicItem = getMusicItem();
 
@@ -812,8 +888,10 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         mPlayerStateListener = listener;
     }
 
-    private void notifyPreparing() {
-        requireWakeLock();
+    private void notifyPreparing(Uri uri) {
+        mWakeLockPolicy.setTimeout(getMusicItemDuration() + 5_000);
+        mWakeLockPolicy.onPreparing(!WakeLockPolicy.isLocalUri(uri));
+        checkStreaming(uri);
         mPlayerStateHelper.onPreparing();
 
         onPreparing();
@@ -824,6 +902,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
     }
 
     private void notifyPrepared(int audioSessionId) {
+        mWakeLockPolicy.onPrepared();
         mPlayerStateHelper.onPrepared(audioSessionId);
 
         onPrepared(audioSessionId);
@@ -835,6 +914,8 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private void notifyPlaying(boolean stalled, int progress, long updateTime) {
         mPlayerStateHelper.onPlay(stalled, progress, updateTime);
+        mWakeLockPolicy.setStalled(stalled);
+        mWakeLockPolicy.setPlaying(true);
 
         if (!stalled) {
             mMediaSession.setPlaybackState(buildPlaybackState(PlaybackStateCompat.STATE_PLAYING));
@@ -853,7 +934,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private void notifyPaused() {
         cancelRecordProgress();
-        releaseWakeLock();
+        mWakeLockPolicy.reset();
 
         int playProgress = mPlayerState.getPlayProgress();
         long updateTime = mPlayerState.getPlayProgressUpdateTime();
@@ -878,14 +959,14 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private void notifyStopped() {
         cancelRecordProgress();
-        releaseWakeLock();
+        mWakeLockPolicy.reset();
 
         mPlayerStateHelper.onStopped();
         mMediaSession.setActive(false);
         mMediaSession.setPlaybackState(buildPlaybackState(PlaybackStateCompat.STATE_STOPPED));
 
-        mAudioFocusHelper.abandonAudioFocus();
-        mPhoneCallStateHelper.unregisterCallStateListener();
+        mSharedHelper.abandonAudioFocus(mAudioFocusListener);
+        mSharedHelper.unregisterCallStateListener(mCallStateListener);
         mBecomeNoiseHelper.unregisterBecomeNoiseReceiver();
 
         onStopped();
@@ -905,6 +986,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         }
 
         mPlayerStateHelper.onStalled(stalled, playProgress, updateTime);
+        mWakeLockPolicy.setStalled(stalled);
         updateMediaSessionPlaybackState(stalled);
         onStalledChanged(stalled);
 
@@ -937,13 +1019,14 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private void notifyError(int errorCode, String errorMessage) {
         releaseMusicPlayer();
-        releaseWakeLock();
+        disposeCheckStreaming();
+        mWakeLockPolicy.reset();
 
         mPlayerStateHelper.onError(errorCode, errorMessage);
         mMediaSession.setPlaybackState(buildErrorState(errorMessage));
 
-        mAudioFocusHelper.abandonAudioFocus();
-        mPhoneCallStateHelper.unregisterCallStateListener();
+        mSharedHelper.abandonAudioFocus(mAudioFocusListener);
+        mSharedHelper.unregisterCallStateListener(mCallStateListener);
         mBecomeNoiseHelper.unregisterBecomeNoiseReceiver();
 
         onError(errorCode, errorMessage);
@@ -970,6 +1053,8 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         }
 
         mPlayerStateHelper.onBufferedChanged(bufferedProgress);
+        mWakeLockPolicy.setFullyBuffered(isPercent ? buffered >= 100 :
+                (bufferedProgress > 0 && bufferedProgress >= getMusicItemDuration()));
 
         if (mPlayerStateListener != null) {
             mPlayerStateListener.onBufferedProgressChanged(bufferedProgress);
@@ -980,6 +1065,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
         releaseMusicPlayer();
 
         mPlayerStateHelper.onPlayingMusicItemChanged(musicItem, position, 0);
+        updateQueueWindow();
 
         if (musicItem == null) {
             mMediaSession.setPlaybackState(buildPlaybackState(PlaybackStateCompat.STATE_NONE));
@@ -1226,7 +1312,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
             return;
         }
 
-        checkNetworkType(mPlayerConfig.isOnlyWifiNetwork(), mNetworkHelper.isWifiNetwork());
+        checkNetworkType(mPlayerConfig.isOnlyWifiNetwork(), mSharedHelper.isWifiNetwork());
     }
 
     public void notifyIgnoreAudioFocusChanged() {
@@ -1237,19 +1323,18 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private boolean requestAudioFocusFailed() {
         if (mPlayerConfig.isIgnoreAudioFocus()) {
-            mAudioFocusHelper.abandonAudioFocus();
-            mPhoneCallStateHelper.registerCallStateListener();
-            return !mPhoneCallStateHelper.isCallIDLE();
+            mSharedHelper.abandonAudioFocus(mAudioFocusListener);
+            mSharedHelper.registerCallStateListener(mCallStateListener);
+            return !mSharedHelper.isCallIDLE();
         }
 
-        return AudioManager.AUDIOFOCUS_REQUEST_FAILED ==
-                mAudioFocusHelper.requestAudioFocus(AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        return AudioManager.AUDIOFOCUS_REQUEST_FAILED == mSharedHelper.requestAudioFocus(mAudioFocusListener);
     }
 
     private void checkNetworkType(boolean onlyWifiNetwork, boolean isWifiNetwork) {
         disposeCheckCached();
 
-        if (!mNetworkHelper.networkAvailable()) {
+        if (!mSharedHelper.networkAvailable()) {
             return;
         }
 
@@ -1305,6 +1390,7 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
                 mPlaylist = playlist;
                 mLoadingPlaylist = false;
+                updateQueueWindow();
 
                 if (mPlaylistLoadedAction != null) {
                     mPlaylistLoadedAction.run();
@@ -1342,6 +1428,8 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     private void notifyPlaylistChanged(int position) {
         mPlayerStateHelper.onPlaylistChanged(position);
+        updateQueueWindow();
+        onPlaylistChanged(position);
 
         if (mPlayerStateListener != null) {
             // 注意！playlistManager 参数为 null，客户端接收到该事件后，应该将其替换为自己的 PlaylistManager 对象
@@ -1499,13 +1587,37 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
 
     @Override
     public void setPlaylist(Playlist playlist, final int position, final boolean play) {
+        setPlaylist(playlist, position, play, null, null);
+    }
+
+    /**
+     * 设置新的播放列表。
+     * <p>
+     * 由于播放列表的保存是异步进行的，因此需要借助 doOnChanged 参数来确保在新的播放列表生效后再执行后续的操作。
+     *
+     * @param doBeforeChanged 新的播放列表保存完成后、通知播放列表已改变前要执行的操作，可为 null
+     * @param doOnChanged     新的播放列表生效后要执行的操作，可为 null
+     */
+    void setPlaylist(Playlist playlist,
+                     final int position,
+                     final boolean play,
+                     @Nullable final Runnable doBeforeChanged,
+                     @Nullable final Runnable doOnChanged) {
         final MusicItem musicItem = playlist.get(position);
         updatePlaylist(playlist, playlist.getAllMusicItem(), new Runnable() {
             @Override
             public void run() {
+                if (doBeforeChanged != null) {
+                    doBeforeChanged.run();
+                }
+
                 stop();
                 notifyPlaylistChanged(position);
                 notifyPlayingMusicItemChanged(musicItem, position, play);
+
+                if (doOnChanged != null) {
+                    doOnChanged.run();
+                }
             }
         });
     }
@@ -1559,26 +1671,25 @@ abstract class AbstractPlayer implements Player, PlaylistEditor {
             return;
         }
 
-        mRecordProgressDisposable = Observable.interval(3, 3, TimeUnit.SECONDS, Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<Long>() {
-                    @Override
-                    public void accept(Long aLong) {
-                        if (!isPrepared()) {
-                            return;
-                        }
+        mRecordProgressTimeout = WheelTimer.getInstance().schedulePeriodic(new Runnable() {
+            @Override
+            public void run() {
+                if (!isPrepared()) {
+                    return;
+                }
 
-                        mPlayerStateHelper.updatePlayProgress(mMusicPlayer.getProgress(), SystemClock.elapsedRealtime());
-                    }
-                });
+                mPlayerStateHelper.updatePlayProgress(mMusicPlayer.getProgress(), SystemClock.elapsedRealtime());
+            }
+        }, RECORD_PROGRESS_PERIOD_MILLIS, RECORD_PROGRESS_PERIOD_MILLIS);
     }
 
     private void cancelRecordProgress() {
-        if (mRecordProgressDisposable == null || mRecordProgressDisposable.isDisposed()) {
+        if (mRecordProgressTimeout == null) {
             return;
         }
 
-        mRecordProgressDisposable.dispose();
+        mRecordProgressTimeout.cancel();
+        mRecordProgressTimeout = null;
     }
 
     @Override
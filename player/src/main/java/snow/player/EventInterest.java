@@ -0,0 +1,32 @@
+package snow.player;
+
+/**
+ * 客户端感兴趣的事件类型。
+ * <p>
+ * 播放状态、stalled、seek 完成、正在播放的歌曲、准备状态、播放列表与播放模式等事件总会发送给所有客户端
+ * （stalled 与 seek 完成事件会同时更新播放进度，如果不发送，客户端的播放进度就会过期）；而缓存进度与睡眠
+ * 定时器等只用于通知的事件只会在至少有一个客户端对其感兴趣时才会跨进程发送。
+ *
+ * @see PlayerStateSynchronizer#setEventInterest(String, int)
+ */
+final class EventInterest {
+    static final int BUFFERED_PROGRESS = 1 << 1;
+    static final int SLEEP_TIMER = 1 << 3;
+
+    // 以下事件总会发送给所有客户端，不能用于设置客户端感兴趣的事件类型，只用于记录被合并的事件
+    static final int STALLED = 1;
+    static final int SEEK_COMPLETE = 1 << 2;
+    static final int PLAYBACK_STATE = 1 << 4;
+    static final int PREPARE = 1 << 5;
+    static final int PLAYING_MUSIC_ITEM = 1 << 6;
+    static final int PLAYLIST = 1 << 7;
+    static final int PLAY_MODE = 1 << 8;
+    static final int AUDIO_SESSION = 1 << 9;
+
+    static final int NONE = 0;
+    static final int ALL = BUFFERED_PROGRESS | SLEEP_TIMER;
+
+    private EventInterest() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,153 @@
+package snow.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+/**
+ * 写时复制（copy-on-write）的事件监听器列表。
+ * <p>
+ * 只有在添加或移除监听器时才会复制内部数组，通知监听器时直接遍历当前数组的快照，因此不会产生任何额外的对象
+ * 分配；并且在通知期间添加或移除监听器也是安全的（本次通知仍然使用通知开始时的快照）。
+ * <p>
+ * 该类不是线程安全的，只应该在主线程中使用。
+ *
+ * @param <T> 监听器的类型
+ */
+final class ListenerList<T> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] mListeners;
+    @Nullable
+    private final Runnable mOnChangedAction;
+
+    ListenerList() {
+        this(null);
+    }
+
+    /**
+     * @param onChangedAction 添加或移除监听器后要执行的操作，可为 null
+     */
+    ListenerList(@Nullable Runnable onChangedAction) {
+        mListeners = EMPTY;
+        mOnChangedAction = onChangedAction;
+    }
+
+    boolean contains(T listener) {
+        return indexOf(listener) >= 0;
+    }
+
+    boolean isEmpty() {
+        return mListeners.length == 0;
+    }
+
+    /**
+     * 添加监听器。
+     *
+     * @return 如果监听器已添加，则返回 false
+     */
+    boolean add(@NonNull T listener) {
+        Preconditions.checkNotNull(listener);
+
+        if (contains(listener)) {
+            return false;
+        }
+
+        Object[] listeners = Arrays.copyOf(mListeners, mListeners.length + 1);
+        listeners[mListeners.length] = listener;
+        mListeners = listeners;
+
+        notifyChanged();
+        return true;
+    }
+
+    /**
+     * 移除监听器。
+     *
+     * @return 如果监听器不存在，则返回 false
+     */
+    boolean remove(T listener) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            return false;
+        }
+
+        if (mListeners.length == 1) {
+            mListeners = EMPTY;
+        } else {
+            Object[] listeners = new Object[mListeners.length - 1];
+            System.arraycopy(mListeners, 0, listeners, 0, index);
+            System.arraycopy(mListeners, index + 1, listeners, index, listeners.length - index);
+            mListeners = listeners;
+        }
+
+        notifyChanged();
+        return true;
+    }
+
+    /**
+     * 在 LifecycleOwner 销毁时自动移除监听器。
+     */
+    void bindLifecycle(@NonNull LifecycleOwner owner, @NonNull T listener) {
+        Preconditions.checkNotNull(owner);
+        Preconditions.checkNotNull(listener);
+
+        owner.getLifecycle().addObserver(new RemoveOnDestroyObserver(listener));
+    }
+
+    /**
+     * 使用当前监听器列表的快照通知所有监听器。
+     */
+    @SuppressWarnings("unchecked")
+    void dispatch(@NonNull Action<T> action) {
+        Object[] listeners = mListeners;
+        for (Object listener : listeners) {
+            action.run((T) listener);
+        }
+    }
+
+    private int indexOf(T listener) {
+        for (int i = 0; i < mListeners.length; i++) {
+            if (mListeners[i].equals(listener)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void notifyChanged() {
+        if (mOnChangedAction != null) {
+            mOnChangedAction.run();
+        }
+    }
+
+    /**
+     * 用于通知单个监听器。
+     * <p>
+     * 建议将 Action 对象保存为字段，以避免每次通知都创建新的对象。
+     */
+    interface Action<T> {
+        void run(T listener);
+    }
+
+    private class RemoveOnDestroyObserver implements LifecycleObserver {
+        private final T mListener;
+
+        RemoveOnDestroyObserver(T listener) {
+            mListener = listener;
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            remove(mListener);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package snow.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import snow.player.audio.MusicItem;
+import snow.player.playlist.PlaylistManager;
+
+/**
+ * 用于将播放器事件同时发送给远程客户端与同一进程中的本地客户端。
+ * <p>
+ * 远程客户端通过 MediaSession 的 session event 接收事件；而与 {@link PlayerService} 运行在同一进程中的
+ * 本地客户端则会直接接收事件，避免了 Bundle 的序列化与反序列化开销。
+ */
+class LocalClientGroup implements PlayerStateListener,
+        SleepTimer.OnStateChangeListener,
+        TransactionExecutor.OnCommitListener {
+
+    private final PlayerStateListener mPlayerStateEmitter;
+    private final SleepTimer.OnStateChangeListener mSleepTimerStateEmitter;
+    private final TransactionExecutor.OnCommitListener mCommitEmitter;
+
+    // 客户端可能会在接收事件时断开连接（例如 onShutdown），因此使用 CopyOnWriteArrayList 保证遍历时的安全
+    private final List<LocalClient> mAllLocalClient;
+
+    LocalClientGroup(@NonNull PlayerStateListener playerStateEmitter,
+                     @NonNull SleepTimer.OnStateChangeListener sleepTimerStateEmitter,
+                     @NonNull TransactionExecutor.OnCommitListener commitEmitter) {
+        Preconditions.checkNotNull(playerStateEmitter);
+        Preconditions.checkNotNull(sleepTimerStateEmitter);
+        Preconditions.checkNotNull(commitEmitter);
+
+        mPlayerStateEmitter = playerStateEmitter;
+        mSleepTimerStateEmitter = sleepTimerStateEmitter;
+        mCommitEmitter = commitEmitter;
+        mAllLocalClient = new CopyOnWriteArrayList<>();
+    }
+
+    void addLocalClient(@NonNull LocalClient client) {
+        Preconditions.checkNotNull(client);
+
+        if (mAllLocalClient.contains(client)) {
+            return;
+        }
+
+        mAllLocalClient.add(client);
+    }
+
+    void removeLocalClient(LocalClient client) {
+        mAllLocalClient.remove(client);
+    }
+
+    // MusicItem 是可变对象，因此需要为本地客户端创建一个副本，避免客户端与服务端共享同一个对象
+    @Nullable
+    private static MusicItem copy(@Nullable MusicItem musicItem) {
+        if (musicItem == null) {
+            return null;
+        }
+
+        return new MusicItem(musicItem);
+    }
+
+    @Override
+    public void onPlay(boolean stalled, int playProgress, long playProgressUpdateTime) {
+        mPlayerStateEmitter.onPlay(stalled, playProgress, playProgressUpdateTime);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPlay(stalled, playProgress, playProgressUpdateTime);
+        }
+    }
+
+    @Override
+    public void onPause(int playProgress, long updateTime) {
+        mPlayerStateEmitter.onPause(playProgress, updateTime);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPause(playProgress, updateTime);
+        }
+    }
+
+    @Override
+    public void onStop() {
+        mPlayerStateEmitter.onStop();
+        for (LocalClient client : mAllLocalClient) {
+            client.onStop();
+        }
+    }
+
+    @Override
+    public void onError(int errorCode, String errorMessage) {
+        mPlayerStateEmitter.onError(errorCode, errorMessage);
+        for (LocalClient client : mAllLocalClient) {
+            client.onError(errorCode, errorMessage);
+        }
+    }
+
+    @Override
+    public void onPreparing() {
+        mPlayerStateEmitter.onPreparing();
+        for (LocalClient client : mAllLocalClient) {
+            client.onPreparing();
+        }
+    }
+
+    @Override
+    public void onPrepared(int audioSessionId) {
+        mPlayerStateEmitter.onPrepared(audioSessionId);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPrepared(audioSessionId);
+        }
+    }
+
+    @Override
+    public void onStalledChanged(boolean stalled, int playProgress, long updateTime) {
+        mPlayerStateEmitter.onStalledChanged(stalled, playProgress, updateTime);
+        for (LocalClient client : mAllLocalClient) {
+            client.onStalledChanged(stalled, playProgress, updateTime);
+        }
+    }
+
+    @Override
+    public void onBufferedProgressChanged(int bufferedProgress) {
+        mPlayerStateEmitter.onBufferedProgressChanged(bufferedProgress);
+        for (LocalClient client : mAllLocalClient) {
+            client.onBufferedProgressChanged(bufferedProgress);
+        }
+    }
+
+    @Override
+    public void onPlayingMusicItemChanged(@Nullable MusicItem musicItem, int position, int playProgress) {
+        mPlayerStateEmitter.onPlayingMusicItemChanged(musicItem, position, playProgress);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPlayingMusicItemChanged(copy(musicItem), position, playProgress);
+        }
+    }
+
+    @Override
+    public void onSeekComplete(int progress, long updateTime, boolean stalled) {
+        mPlayerStateEmitter.onSeekComplete(progress, updateTime, stalled);
+        for (LocalClient client : mAllLocalClient) {
+            client.onSeekComplete(progress, updateTime, stalled);
+        }
+    }
+
+    @Override
+    public void onPlaylistChanged(PlaylistManager playlistManager, int position) {
+        mPlayerStateEmitter.onPlaylistChanged(playlistManager, position);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPlaylistChanged(playlistManager, position);
+        }
+    }
+
+    @Override
+    public void onPlayModeChanged(PlayMode playMode) {
+        mPlayerStateEmitter.onPlayModeChanged(playMode);
+        for (LocalClient client : mAllLocalClient) {
+            client.onPlayModeChanged(playMode);
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        mPlayerStateEmitter.onShutdown();
+        for (LocalClient client : mAllLocalClient) {
+            client.onShutdown();
+        }
+    }
+
+    @Override
+    public void onTimerStart(long time, long startTime, SleepTimer.TimeoutAction action) {
+        mSleepTimerStateEmitter.onTimerStart(time, startTime, action);
+        for (LocalClient client : mAllLocalClient) {
+            client.onTimerStart(time, startTime, action);
+        }
+    }
+
+    @Override
+    public void onTimerEnd() {
+        mSleepTimerStateEmitter.onTimerEnd();
+        for (LocalClient client : mAllLocalClient) {
+            client.onTimerEnd();
+        }
+    }
+
+    @Override
+    public void onCommitted(@NonNull PlayerStateDelta delta, int events) {
+        mCommitEmitter.onCommitted(delta, events);
+        for (LocalClient client : mAllLocalClient) {
+            client.onCommitted(delta, events);
+        }
+    }
+
+    /**
+     * 与 {@link PlayerService} 运行在同一进程中的客户端。
+     */
+    interface LocalClient extends PlayerStateListener,
+            SleepTimer.OnStateChangeListener,
+            TransactionExecutor.OnCommitListener {
+    }
+}
@@ -0,0 +1,37 @@
+package snow.player;
+
+import androidx.annotation.NonNull;
+
+import snow.player.playlist.PlaylistEditor;
+
+/**
+ * 与客户端运行在同一进程中的播放器。
+ * <p>
+ * 客户端会直接调用该接口的方法与播放器通信，而不是通过 MediaSession 的 custom action 与 session event。
+ *
+ * @see PlayerService#getLocalPlayer(String)
+ */
+interface LocalPlayer {
+
+    @NonNull
+    Player getPlayer();
+
+    @NonNull
+    PlaylistEditor getPlaylistEditor();
+
+    @NonNull
+    TransactionExecutor getTransactionExecutor();
+
+    @NonNull
+    PlayerStateSynchronizer getPlayerStateSynchronizer();
+
+    /**
+     * 创建一个包含了自指定版本以来被修改过的所有字段的 {@link PlayerStateDelta} 对象，用于同步本地客户端的状态。
+     */
+    @NonNull
+    PlayerStateDelta createPlayerStateDelta(String changeLogToken, long version);
+
+    void addLocalClient(@NonNull LocalClientGroup.LocalClient client);
+
+    void removeLocalClient(LocalClientGroup.LocalClient client);
+}
@@ -0,0 +1,362 @@
+package snow.player;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v4.media.MediaBrowserCompat;
+import android.support.v4.media.MediaDescriptionCompat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media.MediaBrowserServiceCompat;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import snow.player.audio.MusicItem;
+import snow.player.playlist.Playlist;
+import snow.player.playlist.PlaylistEditor;
+import snow.player.playlist.PlaylistManager;
+
+/**
+ * PlayerService 的媒体浏览树。
+ * <p>
+ * 浏览树的结构如下：
+ * <pre>
+ * root
+ * ├── queue    当前的播放队列
+ * └── recent   最近播放的歌曲
+ * </pre>
+ * 播放队列会在第一次被浏览时通过 {@link PlaylistManager} 在后台线程中加载，并缓存到播放列表被修改为止。
+ * 支持通过 {@link MediaBrowserCompat#EXTRA_PAGE} 与 {@link MediaBrowserCompat#EXTRA_PAGE_SIZE}
+ * 进行分页，每次只会为当前页的歌曲创建 {@link MediaBrowserCompat.MediaItem} 对象。
+ * <p>
+ * 注意！为了避免一次性返回的数据超出 Binder 的传输限制，没有指定分页参数时最多只会返回前 500 首歌曲，
+ * 客户端需要使用分页参数才能浏览完整的播放队列。
+ * <p>
+ * 歌曲的 media id 由父节点的 media id 与歌曲的 music id（music id 为空时使用歌曲的 Uri）组成，而不是歌曲在
+ * 列表中的索引，因此在播放队列被修改后依然有效。如果列表中存在多首 music id 相同的歌曲，则只会播放第一首。
+ * <p>
+ * 最近播放的歌曲会通过 {@link PersistentPlayerState} 进行持久化，因此在服务重启后依然可以浏览。
+ * <p>
+ * 该类不是线程安全的，只应该在主线程中使用。
+ */
+class MediaBrowserTree {
+    static final String MEDIA_ID_QUEUE = "snow.player.media_id.QUEUE";
+    static final String MEDIA_ID_RECENT = "snow.player.media_id.RECENT";
+
+    // 没有指定分页参数时，最多返回的歌曲数量，避免一次性返回的数据超出 Binder 的传输限制。
+    // 超出该数量的歌曲只能通过分页参数获取
+    private static final int MAX_UNPAGED_SIZE = 500;
+    private static final int MAX_RECENT_SIZE = 50;
+    private static final char SEPARATOR = '/';
+
+    private final Context mApplicationContext;
+    private final PlaylistManager mPlaylistManager;
+    private final Player mPlayer;
+    private final PlaylistEditor mPlaylistEditor;
+    private final PersistentPlayerState mPlayerState;
+    private final LinkedList<MusicItem> mRecentMusicItems;
+
+    @Nullable
+    private Playlist mQueue;
+    private boolean mLoadingQueue;
+    private final List<PlaylistManager.Callback> mPendingCallbacks;
+    private int mQueueGeneration;
+
+    // 等待被插入到播放队列后再播放的歌曲
+    @Nullable
+    private MusicItem mPendingPlayMusicItem;
+
+    MediaBrowserTree(@NonNull Context context,
+                     @NonNull PlaylistManager playlistManager,
+                     @NonNull Player player,
+                     @NonNull PlaylistEditor playlistEditor,
+                     @NonNull PersistentPlayerState playerState) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(playlistManager);
+        Preconditions.checkNotNull(player);
+        Preconditions.checkNotNull(playlistEditor);
+        Preconditions.checkNotNull(playerState);
+
+        mApplicationContext = context.getApplicationContext();
+        mPlaylistManager = playlistManager;
+        mPlayer = player;
+        mPlaylistEditor = playlistEditor;
+        mPlayerState = playerState;
+        mRecentMusicItems = new LinkedList<>(playerState.getRecentMusicItems());
+        mPendingCallbacks = new ArrayList<>();
+    }
+
+    /**
+     * 加载指定节点的子节点。
+     *
+     * @param parentId 父节点的 media id
+     * @param result   用于返回子节点
+     * @param options  分页参数，可为 null
+     */
+    void loadChildren(@NonNull String parentId,
+                      @NonNull final MediaBrowserServiceCompat.Result<List<MediaBrowserCompat.MediaItem>> result,
+                      @Nullable Bundle options) {
+        final int page = getPage(options);
+        final int pageSize = getPageSize(options);
+
+        switch (parentId) {
+            case PlayerService.DEFAULT_MEDIA_ROOT_ID:
+                result.sendResult(createRootChildren());
+                break;
+            case MEDIA_ID_QUEUE:
+                result.detach();
+                getQueue(new PlaylistManager.Callback() {
+                    @Override
+                    public void onFinished(@NonNull Playlist playlist) {
+                        result.sendResult(createPage(MEDIA_ID_QUEUE, playlist.getAllMusicItem(), page, pageSize));
+                    }
+                });
+                break;
+            case MEDIA_ID_RECENT:
+                result.sendResult(createPage(MEDIA_ID_RECENT, mRecentMusicItems, page, pageSize));
+                break;
+            default:
+                result.sendResult(null);
+                break;
+        }
+    }
+
+    /**
+     * 获取当前的播放队列。如果播放队列尚未加载，则会在后台线程中加载。
+     *
+     * @param callback 回调接口，会在主线程中调用
+     */
+    void getQueue(@NonNull PlaylistManager.Callback callback) {
+        if (mQueue != null) {
+            callback.onFinished(mQueue);
+            return;
+        }
+
+        mPendingCallbacks.add(callback);
+        if (mLoadingQueue) {
+            return;
+        }
+
+        mLoadingQueue = true;
+        final int generation = mQueueGeneration;
+        mPlaylistManager.getPlaylist(new PlaylistManager.Callback() {
+            @Override
+            public void onFinished(@NonNull Playlist playlist) {
+                mLoadingQueue = false;
+                if (generation != mQueueGeneration) {
+                    // 加载期间播放列表已被修改，重新加载
+                    List<PlaylistManager.Callback> callbacks = new ArrayList<>(mPendingCallbacks);
+                    mPendingCallbacks.clear();
+                    for (PlaylistManager.Callback callback : callbacks) {
+                        getQueue(callback);
+                    }
+                    return;
+                }
+
+                mQueue = playlist;
+                List<PlaylistManager.Callback> callbacks = new ArrayList<>(mPendingCallbacks);
+                mPendingCallbacks.clear();
+                for (PlaylistManager.Callback callback : callbacks) {
+                    callback.onFinished(playlist);
+                }
+            }
+        });
+    }
+
+    /**
+     * 播放列表已被修改，丢弃缓存的播放队列。
+     */
+    void onPlaylistChanged() {
+        mQueue = null;
+        mQueueGeneration++;
+
+        if (mPendingPlayMusicItem == null) {
+            return;
+        }
+
+        final MusicItem musicItem = mPendingPlayMusicItem;
+        mPendingPlayMusicItem = null;
+        getQueue(new PlaylistManager.Callback() {
+            @Override
+            public void onFinished(@NonNull Playlist playlist) {
+                int position = playlist.indexOf(musicItem);
+                if (position >= 0) {
+                    mPlayer.skipToPosition(position);
+                }
+            }
+        });
+    }
+
+    /**
+     * 添加一首最近播放的歌曲。
+     */
+    void addRecent(@NonNull MusicItem musicItem) {
+        Preconditions.checkNotNull(musicItem);
+
+        mRecentMusicItems.remove(musicItem);
+        mRecentMusicItems.addFirst(musicItem);
+
+        if (mRecentMusicItems.size() > MAX_RECENT_SIZE) {
+            mRecentMusicItems.removeLast();
+        }
+
+        mPlayerState.setRecentMusicItems(mRecentMusicItems);
+    }
+
+    /**
+     * 播放指定 media id 对应的歌曲。
+     *
+     * @return 如果 media id 不属于当前浏览树，则返回 false
+     */
+    boolean playFromMediaId(@NonNull String mediaId) {
+        final String queueKey = getMusicKey(MEDIA_ID_QUEUE, mediaId);
+        if (queueKey != null) {
+            getQueue(new PlaylistManager.Callback() {
+                @Override
+                public void onFinished(@NonNull Playlist playlist) {
+                    // 歌曲已从播放队列中移除时忽略本次调用
+                    int position = indexOf(playlist.getAllMusicItem(), queueKey);
+                    if (position >= 0) {
+                        mPlayer.skipToPosition(position);
+                    }
+                }
+            });
+            return true;
+        }
+
+        String recentKey = getMusicKey(MEDIA_ID_RECENT, mediaId);
+        if (recentKey == null) {
+            return false;
+        }
+
+        int index = indexOf(mRecentMusicItems, recentKey);
+        if (index < 0) {
+            return false;
+        }
+
+        final MusicItem musicItem = mRecentMusicItems.get(index);
+        getQueue(new PlaylistManager.Callback() {
+            @Override
+            public void onFinished(@NonNull Playlist playlist) {
+                int position = playlist.indexOf(musicItem);
+                if (position >= 0) {
+                    mPlayer.skipToPosition(position);
+                    return;
+                }
+
+                // 播放列表不可编辑时无法插入歌曲，忽略本次调用
+                if (!mPlaylistManager.isPlaylistEditable()) {
+                    mPendingPlayMusicItem = null;
+                    return;
+                }
+
+                // 歌曲不在播放队列中时，先将其插入到播放队列，并在播放列表修改完成后再播放
+                mPendingPlayMusicItem = musicItem;
+                mPlaylistEditor.setNextPlay(musicItem);
+            }
+        });
+        return true;
+    }
+
+    private List<MediaBrowserCompat.MediaItem> createRootChildren() {
+        List<MediaBrowserCompat.MediaItem> children = new ArrayList<>(2);
+
+        children.add(new MediaBrowserCompat.MediaItem(new MediaDescriptionCompat.Builder()
+                .setMediaId(MEDIA_ID_QUEUE)
+                .setTitle(mApplicationContext.getString(R.string.snow_media_browser_queue))
+                .build(), MediaBrowserCompat.MediaItem.FLAG_BROWSABLE));
+
+        children.add(new MediaBrowserCompat.MediaItem(new MediaDescriptionCompat.Builder()
+                .setMediaId(MEDIA_ID_RECENT)
+                .setTitle(mApplicationContext.getString(R.string.snow_media_browser_recent))
+                .build(), MediaBrowserCompat.MediaItem.FLAG_BROWSABLE));
+
+        return children;
+    }
+
+    private static List<MediaBrowserCompat.MediaItem> createPage(String parentId,
+                                                                 List<MusicItem> musicItems,
+                                                                 int page,
+                                                                 int pageSize) {
+        int fromIndex = page * pageSize;
+        if (fromIndex < 0 || fromIndex >= musicItems.size()) {
+            return Collections.emptyList();
+        }
+
+        int toIndex = Math.min(musicItems.size(), fromIndex + pageSize);
+        List<MediaBrowserCompat.MediaItem> mediaItems = new ArrayList<>(toIndex - fromIndex);
+
+        // 使用迭代器遍历，避免对 LinkedList 进行随机访问
+        for (MusicItem musicItem : musicItems.subList(fromIndex, toIndex)) {
+            mediaItems.add(createMediaItem(parentId + SEPARATOR + getMediaKey(musicItem), musicItem));
+        }
+
+        return mediaItems;
+    }
+
+    private static MediaBrowserCompat.MediaItem createMediaItem(String mediaId, MusicItem musicItem) {
+        MediaDescriptionCompat.Builder builder = new MediaDescriptionCompat.Builder()
+                .setMediaId(mediaId)
+                .setTitle(musicItem.getTitle())
+                .setSubtitle(musicItem.getArtist())
+                .setDescription(musicItem.getAlbum());
+
+        if (!musicItem.getIconUri().isEmpty()) {
+            builder.setIconUri(Uri.parse(musicItem.getIconUri()));
+        }
+
+        return new MediaBrowserCompat.MediaItem(builder.build(), MediaBrowserCompat.MediaItem.FLAG_PLAYABLE);
+    }
+
+    private static int getPage(@Nullable Bundle options) {
+        if (options == null) {
+            return 0;
+        }
+
+        return Math.max(0, options.getInt(MediaBrowserCompat.EXTRA_PAGE, 0));
+    }
+
+    private static int getPageSize(@Nullable Bundle options) {
+        if (options == null || options.getInt(MediaBrowserCompat.EXTRA_PAGE_SIZE, 0) <= 0) {
+            return MAX_UNPAGED_SIZE;
+        }
+
+        return options.getInt(MediaBrowserCompat.EXTRA_PAGE_SIZE);
+    }
+
+    // 歌曲在 media id 中的标识，不会随歌曲在列表中的位置改变
+    private static String getMediaKey(MusicItem musicItem) {
+        String musicId = musicItem.getMusicId();
+        return musicId.isEmpty() ? musicItem.getUri() : musicId;
+    }
+
+    // 如果 media id 不是 parentId 的子节点，则返回 null。music id 中可能包含分隔符，因此只截取父节点之后的部分
+    @Nullable
+    private static String getMusicKey(String parentId, String mediaId) {
+        String prefix = parentId + SEPARATOR;
+        if (!mediaId.startsWith(prefix) || mediaId.length() == prefix.length()) {
+            return null;
+        }
+
+        return mediaId.substring(prefix.length());
+    }
+
+    private static int indexOf(List<MusicItem> musicItems, String key) {
+        // 使用迭代器遍历，避免对 LinkedList 进行随机访问
+        int index = 0;
+        for (MusicItem musicItem : musicItems) {
+            if (key.equals(getMediaKey(musicItem))) {
+                return index;
+            }
+            index++;
+        }
+
+        return -1;
+    }
+}
@@ -1,6 +1,7 @@
 package snow.player;
 
 import android.content.Context;
+import android.os.Parcel;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -8,16 +9,23 @@ import androidx.annotation.Nullable;
 import com.google.common.base.Preconditions;
 import com.tencent.mmkv.MMKV;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import snow.player.audio.MusicItem;
 
 /**
  * 用于对播放器的部分关键状态进行持久化。
+ * <p>
+ * 持久化的状态使用多进程模式保存，因此客户端可以使用 {@link #readSnapshot(Context, String)} 方法以只读的
+ * 方式读取这些状态。
  */
 class PersistentPlayerState extends PlayerState {
     private static final String KEY_PLAY_PROGRESS = "play_progress";
     private static final String KEY_MUSIC_ITEM = "music_item";
     private static final String KEY_PLAY_POSITION = "position";
     private static final String KEY_PLAY_MODE = "play_mode";
+    private static final String KEY_RECENT_MUSIC_ITEMS = "recent_music_items";
 
     private final MMKV mMMKV;
 
@@ -25,20 +33,50 @@ class PersistentPlayerState extends PlayerState {
         Preconditions.checkNotNull(context);
         Preconditions.checkNotNull(id);
 
+        mMMKV = getMMKV(context, id);
+
+        PlayerState snapshot = readSnapshot(mMMKV);
+        super.setMusicItem(snapshot.getMusicItem());
+        super.setPlayPosition(snapshot.getPlayPosition());
+        super.setPlayMode(snapshot.getPlayMode());
+        super.setPlayProgress(snapshot.getPlayProgress());
+    }
+
+    /**
+     * 以只读的方式读取持久化的播放器状态。
+     * <p>
+     * 返回的 {@link PlayerState} 对象只包含正在播放的歌曲、播放位置、播放模式与播放进度，修改它不会影响
+     * 持久化的状态。
+     *
+     * @param context Context 对象，不能为 null
+     * @param id      持久化 id，不能为 null
+     * @return 包含了持久化的播放器状态的 {@link PlayerState} 对象
+     */
+    @NonNull
+    public static PlayerState readSnapshot(@NonNull Context context, @NonNull String id) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(id);
+
+        return readSnapshot(getMMKV(context, id));
+    }
+
+    private static MMKV getMMKV(Context context, String id) {
         MMKV.initialize(context);
+        return MMKV.mmkvWithID("PlayerState:" + id, MMKV.MULTI_PROCESS_MODE);
+    }
 
-        mMMKV = MMKV.mmkvWithID("PlayerState:" + id);
+    private static PlayerState readSnapshot(MMKV mmkv) {
+        PlayerState snapshot = new PlayerState();
 
-        super.setMusicItem(mMMKV.decodeParcelable(KEY_MUSIC_ITEM, MusicItem.class));
-        super.setPlayPosition(mMMKV.decodeInt(KEY_PLAY_POSITION, 0));
-        super.setPlayMode(PlayMode.values()[mMMKV.decodeInt(KEY_PLAY_MODE, 0)]);
+        snapshot.setMusicItem(mmkv.decodeParcelable(KEY_MUSIC_ITEM, MusicItem.class));
+        snapshot.setPlayPosition(mmkv.decodeInt(KEY_PLAY_POSITION, 0));
+        snapshot.setPlayMode(PlayMode.values()[mmkv.decodeInt(KEY_PLAY_MODE, 0)]);
 
-        if (isForbidSeek()) {
-            super.setPlayProgress(0);
-            return;
+        if (!snapshot.isForbidSeek()) {
+            snapshot.setPlayProgress(mmkv.decodeInt(KEY_PLAY_PROGRESS, 0));
         }
 
-        super.setPlayProgress(mMMKV.decodeInt(KEY_PLAY_PROGRESS, 0));
+        return snapshot;
     }
 
     @Override
@@ -78,4 +116,51 @@ class PersistentPlayerState extends PlayerState {
 
         mMMKV.encode(KEY_PLAY_MODE, playMode.ordinal());
     }
+
+    /**
+     * 获取持久化的最近播放的歌曲列表。
+     * <p>
+     * 最近播放的歌曲列表不属于播放器状态，不会被包含在 {@link #readSnapshot(Context, String)} 方法返回的
+     * {@link PlayerState} 对象中。
+     *
+     * @return 最近播放的歌曲列表，最近播放的歌曲在前，如果没有则返回一个空列表
+     */
+    @NonNull
+    public List<MusicItem> getRecentMusicItems() {
+        byte[] bytes = mMMKV.decodeBytes(KEY_RECENT_MUSIC_ITEMS);
+        if (bytes == null) {
+            return new ArrayList<>();
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            List<MusicItem> musicItems = parcel.createTypedArrayList(MusicItem.CREATOR);
+            return musicItems == null ? new ArrayList<MusicItem>() : musicItems;
+        } catch (RuntimeException e) {
+            // 数据已损坏，丢弃
+            mMMKV.remove(KEY_RECENT_MUSIC_ITEMS);
+            return new ArrayList<>();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * 持久化最近播放的歌曲列表。
+     *
+     * @param musicItems 最近播放的歌曲列表，不能为 null
+     */
+    public void setRecentMusicItems(@NonNull List<MusicItem> musicItems) {
+        Preconditions.checkNotNull(musicItems);
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(musicItems);
+            mMMKV.encode(KEY_RECENT_MUSIC_ITEMS, parcel.marshall());
+        } finally {
+            parcel.recycle();
+        }
+    }
 }
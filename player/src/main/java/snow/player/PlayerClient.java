@@ -10,13 +10,12 @@ import android.os.Looper;
 import android.os.SystemClock;
 import android.support.v4.media.MediaBrowserCompat;
 import android.support.v4.media.session.MediaControllerCompat;
+import android.support.v4.media.session.MediaSessionCompat;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.lifecycle.Lifecycle;
-import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LifecycleOwner;
-import androidx.lifecycle.OnLifecycleEvent;
 
 import com.google.common.base.Preconditions;
 
@@ -36,12 +35,26 @@ import snow.player.audio.ErrorCode;
 
 /**
  * 播放器客户端，用于向播放器发送各种控制命令。
+ * <p>
+ * <b>事件监听器的通知方式：</b>
+ * <ul>
+ *     <li>播放器事件（连接状态改变事件除外）不会在事件到达时同步通知监听器，而是会被合并，并在下一次主线程
+ *     消息中一次性通知所有监听器。因此，调用控制命令（例如 {@link #play()}）后，监听器不会在该方法返回前
+ *     被调用；</li>
+ *     <li>同一类型的事件在通知前到达了多次时，监听器只会被通知一次，并且只能获取到最新的状态，不一定能观察到
+ *     每一个中间状态（例如快速切换歌曲时，只会收到最后一首歌曲的通知）；</li>
+ *     <li>通知时，所有的 getter 方法（例如 {@link #getPlayProgress()}）都已返回最新的状态；</li>
+ *     <li>如果已连接，添加监听器时会立即（同步）使用当前状态通知一次该监听器。</li>
+ * </ul>
  */
 public class PlayerClient implements Player, PlayerManager, PlaylistManager, PlaylistEditor, SleepTimer {
     private final Context mApplicationContext;
     private final Class<? extends PlayerService> mPlayerService;
     private final String mClientToken;
     private final String mPersistentId;
+    // 托管的播放器的 ID，为 null 时表示连接到 PlayerService 的主播放器
+    @Nullable
+    private final String mPlayerId;
 
     private MediaBrowserCompat mMediaBrowser;
     private MediaControllerCompat mMediaController;
@@ -52,53 +65,176 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     private PlayerManager mPlayerManager;
     private PlayerStateSynchronizer mPlayerStateSynchronizer;
     private PlayerStateSynchronizer.OnSyncPlayerStateListener mSyncPlayerStateListener;
+    private TransactionExecutor mTransactionExecutor;
+    private PlaylistTransfer mPlaylistTransfer;
+
+    // 如果 PlayerService 与客户端运行在同一进程中，则会直接与 PlayerService 通信
+    @Nullable
+    private PlayerService mLocalService;
+    @Nullable
+    private LocalPlayer mLocalPlayer;
+    private TransactionExecutor.OnCommitListener mTransactionCommitListener;
     private SleepTimer mSleepTimer;
 
     private OnConnectCallback mConnectCallback;
 
     private PlayerState mPlayerState;
     private PlayerStateHelper mPlayerStateHelper;
+    private String mChangeLogToken;
+    private long mPlayerStateVersion;
+    private boolean mPlayerStateSynced;
+    private boolean mSnapshotAvailable;
+    private int mEventInterest;
 
     private Player mPlayer;
     private PlaylistEditor mPlaylistEditor;
     private PlaylistManagerImp mPlaylistManager;
     private PlayerStateListenerImpl mPlayerStateListener;
 
-    private final List<Player.OnPlaybackStateChangeListener> mAllPlaybackStateChangeListener;
-    private final List<Player.OnPrepareListener> mAllPrepareListener;
-    private final List<Player.OnStalledChangeListener> mAllStalledChangeListener;
-    private final List<OnBufferedProgressChangeListener> mAllBufferedProgressChangeListener;
-    private final List<Player.OnPlayingMusicItemChangeListener> mAllPlayingMusicItemChangeListener;
-    private final List<OnSeekCompleteListener> mAllSeekListener;
-    private final List<Player.OnPlaylistChangeListener> mAllPlaylistChangeListener;
-    private final List<Player.OnPlayModeChangeListener> mAllPlayModeChangeListener;
+    private final ListenerList<Player.OnPlaybackStateChangeListener> mAllPlaybackStateChangeListener;
+    private final ListenerList<Player.OnPrepareListener> mAllPrepareListener;
+    private final ListenerList<Player.OnStalledChangeListener> mAllStalledChangeListener;
+    private final ListenerList<OnBufferedProgressChangeListener> mAllBufferedProgressChangeListener;
+    private final ListenerList<Player.OnPlayingMusicItemChangeListener> mAllPlayingMusicItemChangeListener;
+    private final ListenerList<OnSeekCompleteListener> mAllSeekListener;
+    private final ListenerList<Player.OnPlaylistChangeListener> mAllPlaylistChangeListener;
+    private final ListenerList<Player.OnPlayModeChangeListener> mAllPlayModeChangeListener;
+
+    private final ListenerList<PlayerClient.OnPlaybackStateChangeListener> mClientAllPlaybackStateChangeListener;
+    private final ListenerList<PlayerClient.OnAudioSessionChangeListener> mAllAudioSessionChangeListener;
+    private final ListenerList<SleepTimer.OnStateChangeListener> mAllSleepTimerStateChangeListener;
+
+    private final ListenerList<OnConnectStateChangeListener> mAllConnectStateChangeListener;
+
+    // 通知监听器时使用的 Action 对象，避免每次通知都创建新的对象
+    private final ListenerList.Action<Player.OnPlaybackStateChangeListener> mNotifyPlaybackStateChangedAction = new ListenerList.Action<Player.OnPlaybackStateChangeListener>() {
+        @Override
+        public void run(Player.OnPlaybackStateChangeListener listener) {
+            notifyPlaybackStateChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<Player.OnPrepareListener> mNotifyPrepareStateChangedAction = new ListenerList.Action<Player.OnPrepareListener>() {
+        @Override
+        public void run(Player.OnPrepareListener listener) {
+            notifyPrepareStateChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<Player.OnStalledChangeListener> mNotifyStalledChangedAction = new ListenerList.Action<Player.OnStalledChangeListener>() {
+        @Override
+        public void run(Player.OnStalledChangeListener listener) {
+            notifyStalledChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<OnBufferedProgressChangeListener> mNotifyOnBufferedProgressChangedAction = new ListenerList.Action<OnBufferedProgressChangeListener>() {
+        @Override
+        public void run(OnBufferedProgressChangeListener listener) {
+            notifyOnBufferedProgressChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<Player.OnPlayingMusicItemChangeListener> mNotifyPlayingMusicItemChangedAction = new ListenerList.Action<Player.OnPlayingMusicItemChangeListener>() {
+        @Override
+        public void run(Player.OnPlayingMusicItemChangeListener listener) {
+            notifyPlayingMusicItemChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<OnSeekCompleteListener> mNotifySeekCompleteAction = new ListenerList.Action<OnSeekCompleteListener>() {
+        @Override
+        public void run(OnSeekCompleteListener listener) {
+            notifySeekComplete(listener);
+        }
+    };
+
+    private final ListenerList.Action<Player.OnPlaylistChangeListener> mNotifyPlaylistChangedAction = new ListenerList.Action<Player.OnPlaylistChangeListener>() {
+        @Override
+        public void run(Player.OnPlaylistChangeListener listener) {
+            notifyPlaylistChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<Player.OnPlayModeChangeListener> mNotifyPlayModeChangedAction = new ListenerList.Action<Player.OnPlayModeChangeListener>() {
+        @Override
+        public void run(Player.OnPlayModeChangeListener listener) {
+            notifyPlayModeChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<OnPlaybackStateChangeListener> mNotifyClientPlaybackStateChangedAction = new ListenerList.Action<OnPlaybackStateChangeListener>() {
+        @Override
+        public void run(OnPlaybackStateChangeListener listener) {
+            notifyClientPlaybackStateChanged(listener);
+        }
+    };
 
-    private final List<PlayerClient.OnPlaybackStateChangeListener> mClientAllPlaybackStateChangeListener;
-    private final List<PlayerClient.OnAudioSessionChangeListener> mAllAudioSessionChangeListener;
-    private final List<SleepTimer.OnStateChangeListener> mAllSleepTimerStateChangeListener;
+    private final ListenerList.Action<OnAudioSessionChangeListener> mNotifyAudioSessionChangedAction = new ListenerList.Action<OnAudioSessionChangeListener>() {
+        @Override
+        public void run(OnAudioSessionChangeListener listener) {
+            notifyAudioSessionChanged(listener);
+        }
+    };
 
-    private final List<OnConnectStateChangeListener> mAllConnectStateChangeListener;
+    private final ListenerList.Action<SleepTimer.OnStateChangeListener> mNotifySleepTimerStateChangedAction = new ListenerList.Action<SleepTimer.OnStateChangeListener>() {
+        @Override
+        public void run(SleepTimer.OnStateChangeListener listener) {
+            notifySleepTimerStateChanged(listener);
+        }
+    };
+
+    private final ListenerList.Action<OnConnectStateChangeListener> mNotifyConnectStateChangedAction =
+            new ListenerList.Action<OnConnectStateChangeListener>() {
+                @Override
+                public void run(OnConnectStateChangeListener listener) {
+                    listener.onConnectStateChanged(mConnected);
+                }
+            };
+
+    private boolean mConnected;
 
-    private PlayerClient(Context context, Class<? extends PlayerService> playerService) {
+    // 在同一次主线程消息中到达的多个事件（例如 prepared -> playing -> buffered）会被合并后一次性通知
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private int mPendingEvents;
+    private final Runnable mDispatchPendingEvents = new Runnable() {
+        @Override
+        public void run() {
+            int events = mPendingEvents;
+            mPendingEvents = EventInterest.NONE;
+            notifyEvents(events);
+        }
+    };
+
+    private PlayerClient(Context context, Class<? extends PlayerService> playerService, @Nullable String playerId) {
         mApplicationContext = context.getApplicationContext();
         mPlayerService = playerService;
         mClientToken = UUID.randomUUID().toString();
         mPersistentId = mPlayerService.getName();
+        mPlayerId = playerId;
 
         mPlayerConfig = new PlayerConfig(context, mPersistentId);
 
-        mAllPlaybackStateChangeListener = new ArrayList<>();
-        mAllPrepareListener = new ArrayList<>();
-        mAllStalledChangeListener = new ArrayList<>();
-        mAllBufferedProgressChangeListener = new ArrayList<>();
-        mAllPlayingMusicItemChangeListener = new ArrayList<>();
-        mAllSeekListener = new ArrayList<>();
-        mAllPlaylistChangeListener = new ArrayList<>();
-        mAllPlayModeChangeListener = new ArrayList<>();
-        mClientAllPlaybackStateChangeListener = new ArrayList<>();
-        mAllAudioSessionChangeListener = new ArrayList<>();
-        mAllSleepTimerStateChangeListener = new ArrayList<>();
-        mAllConnectStateChangeListener = new ArrayList<>();
+        // 添加或移除这些监听器时，需要更新客户端感兴趣的事件类型
+        Runnable updateEventInterest = new Runnable() {
+            @Override
+            public void run() {
+                updateEventInterest();
+            }
+        };
+
+        mAllPlaybackStateChangeListener = new ListenerList<>();
+        mAllPrepareListener = new ListenerList<>();
+        mAllStalledChangeListener = new ListenerList<>(updateEventInterest);
+        mAllBufferedProgressChangeListener = new ListenerList<>(updateEventInterest);
+        mAllPlayingMusicItemChangeListener = new ListenerList<>();
+        mAllSeekListener = new ListenerList<>(updateEventInterest);
+        mAllPlaylistChangeListener = new ListenerList<>();
+        mAllPlayModeChangeListener = new ListenerList<>();
+        mClientAllPlaybackStateChangeListener = new ListenerList<>();
+        mAllAudioSessionChangeListener = new ListenerList<>();
+        mAllSleepTimerStateChangeListener = new ListenerList<>(updateEventInterest);
+        mAllConnectStateChangeListener = new ListenerList<>();
 
         initMediaBrowser();
         initPlaylistManager();
@@ -106,7 +242,11 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         initCommandCallback();
         initSessionEventDispatcher();
         initMediaControllerCallback();
-        initPlayerState(new PlayerState());
+        initPlayerSnapshot();
+
+        mChangeLogToken = "";
+        mPlayerStateVersion = 0;
+        mEventInterest = EventInterest.NONE;
     }
 
     /**
@@ -125,7 +265,33 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             throw new IllegalArgumentException("PlayerService not found, Please check your 'AndroidManifest.xml'");
         }
 
-        return new PlayerClient(context, playerService);
+        return new PlayerClient(context, playerService, null);
+    }
+
+    /**
+     * 创建一个连接到 PlayerService 托管的播放器的 PlayerClient 对象。
+     * <p>
+     * 托管的播放器与主播放器相互独立，拥有自己的播放列表与播放状态，但会共享同一个 PlayerService 的播放器配置。
+     * 托管的播放器不支持睡眠定时器，调用睡眠定时器的相关方法不会有任何效果。
+     *
+     * @param context       Context 对象，不能为 null
+     * @param playerService PlayerService 或者其子类的 Class 对象，不能为 null
+     * @param playerId      托管的播放器的 ID，不能为 null，且必须是 PlayerService 的
+     *                      {@link PlayerService#getHostedPlayerIds()} 方法返回的 ID 之一，否则会连接失败
+     * @return PlayerClient 对象
+     */
+    public static PlayerClient newInstance(@NonNull Context context,
+                                           @NonNull Class<? extends PlayerService> playerService,
+                                           @NonNull String playerId) {
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(playerService);
+        Preconditions.checkNotNull(playerId);
+
+        if (serviceNotFound(context, playerService)) {
+            throw new IllegalArgumentException("PlayerService not found, Please check your 'AndroidManifest.xml'");
+        }
+
+        return new PlayerClient(context, playerService, playerId);
     }
 
     private static boolean serviceNotFound(Context context, Class<? extends PlayerService> playerService) {
@@ -141,11 +307,13 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
                     @Override
                     public void onConnected() {
                         try {
-                            mMediaController = new MediaControllerCompat(mApplicationContext, mMediaBrowser.getSessionToken());
+                            mMediaController = new MediaControllerCompat(mApplicationContext, getSessionToken());
 
                             mMediaController.registerCallback(mMediaControllerCallback, new Handler(Looper.getMainLooper()));
                             initCustomActionEmitter(mMediaController);
-                            mPlayerStateSynchronizer.syncPlayerState(mClientToken);
+                            initLocalService();
+                            mPlayerStateSynchronizer.setEventInterest(mClientToken, mEventInterest);
+                            mPlayerStateSynchronizer.syncPlayerState(mClientToken, mChangeLogToken, mPlayerStateVersion);
                         } catch (Exception e) {
                             mMediaBrowser.disconnect();
                             onConnectionFailed();
@@ -164,8 +332,40 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
                 }, null);
     }
 
+    private MediaSessionCompat.Token getSessionToken() {
+        if (mPlayerId == null) {
+            return mMediaBrowser.getSessionToken();
+        }
+
+        // 托管的播放器的 MediaSession 的 token 由 PlayerService 通过 root extras 返回
+        Bundle extras = mMediaBrowser.getExtras();
+        Bundle token = extras == null ? null : extras.getBundle(PlayerService.getHostedSessionTokenKey(mPlayerId));
+        if (token == null) {
+            throw new IllegalStateException("hosted player not found: " + mPlayerId);
+        }
+
+        return Preconditions.checkNotNull(MediaSessionCompat.Token.fromBundle(token));
+    }
+
+    // 播放状态与播放列表的持久化 ID，托管的播放器使用各自独立的 ID
+    private String getPlayerPersistentId() {
+        if (mPlayerId == null) {
+            return mPersistentId;
+        }
+
+        return PlayerService.getHostedPersistentId(mPersistentId, mPlayerId);
+    }
+
+    // 在连接成功前，先使用服务端持久化的状态作为客户端的初始状态，并在首次同步时以服务端的状态为准
+    private void initPlayerSnapshot() {
+        PlayerState snapshot = PersistentPlayerState.readSnapshot(mApplicationContext, getPlayerPersistentId());
+
+        initPlayerState(snapshot);
+        mSnapshotAvailable = snapshot.getMusicItem() != null;
+    }
+
     private void initPlaylistManager() {
-        mPlaylistManager = new PlaylistManagerImp(mApplicationContext, mPersistentId);
+        mPlaylistManager = new PlaylistManagerImp(mApplicationContext, getPlayerPersistentId());
     }
 
     private void initPlayerStateHolder() {
@@ -175,13 +375,22 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     private void initCommandCallback() {
         mSyncPlayerStateListener = new PlayerStateSynchronizer.OnSyncPlayerStateListener() {
             @Override
-            public void onSyncPlayerState(@NonNull String clientToken, @NonNull PlayerState playerState) {
+            public void onSyncPlayerState(@NonNull String clientToken, @NonNull PlayerStateDelta delta) {
                 if (!clientToken.equals(mClientToken)) {
                     return;
                 }
 
-                initPlayerState(playerState);
+                delta.applyTo(mPlayerState);
+                mChangeLogToken = delta.getToken();
+                mPlayerStateVersion = delta.getVersion();
 
+                if (mPlayerStateSynced) {
+                    notifyResync(delta);
+                    return;
+                }
+
+                mPlayerStateSynced = true;
+                mSnapshotAvailable = false;
                 if (mConnectCallback != null) {
                     mConnectCallback.onConnected(true);
                     mConnectCallback = null;
@@ -191,6 +400,18 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
                 notifySticky();
             }
         };
+
+        mTransactionCommitListener = new TransactionExecutor.OnCommitListener() {
+            @Override
+            public void onCommitted(@NonNull PlayerStateDelta delta, int events) {
+                if (!mPlayerStateSynced) {
+                    return;
+                }
+
+                delta.applyTo(mPlayerState);
+                notifyCommitted(delta, events);
+            }
+        };
     }
 
     private void initCustomActionEmitter(MediaControllerCompat mediaController) {
@@ -203,11 +424,41 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         mPlayerStateSynchronizer = ChannelHelper.newEmitter(PlayerStateSynchronizer.class, customActionEmitter);
 
         mSleepTimer = ChannelHelper.newEmitter(SleepTimer.class, customActionEmitter);
+        mTransactionExecutor = ChannelHelper.newEmitter(TransactionExecutor.class, customActionEmitter);
+        mPlaylistTransfer = ChannelHelper.newEmitter(PlaylistTransfer.class, customActionEmitter);
+    }
+
+    private void initLocalService() {
+        PlayerService localService = PlayerService.getLocalService(mPlayerService);
+        if (localService == null) {
+            return;
+        }
+
+        LocalPlayer localPlayer = localService.getLocalPlayer(mPlayerId);
+        if (localPlayer == null) {
+            return;
+        }
+
+        mLocalService = localService;
+        mLocalPlayer = localPlayer;
+
+        mPlayer = localPlayer.getPlayer();
+        mPlaylistEditor = localPlayer.getPlaylistEditor();
+        mPlayerManager = localService;
+        if (mPlayerId == null) {
+            // 托管的播放器不支持睡眠定时器
+            mSleepTimer = localService;
+        }
+        mTransactionExecutor = localPlayer.getTransactionExecutor();
+        mPlayerStateSynchronizer = new LocalPlayerStateSynchronizer(localPlayer);
+
+        localPlayer.addLocalClient(mPlayerStateListener);
     }
 
     private void initSessionEventDispatcher() {
         mSessionEventDispatcher = new SessionEventPipe(DispatcherUtil.merge(
                 ChannelHelper.newDispatcher(PlayerStateSynchronizer.OnSyncPlayerStateListener.class, mSyncPlayerStateListener),
+                ChannelHelper.newDispatcher(TransactionExecutor.OnCommitListener.class, mTransactionCommitListener),
                 ChannelHelper.newDispatcher(PlayerStateListener.class, mPlayerStateListener),
                 ChannelHelper.newDispatcher(SleepTimer.OnStateChangeListener.class, mPlayerStateListener)
         ));
@@ -217,19 +468,151 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         mMediaControllerCallback = new MediaControllerCompat.Callback() {
             @Override
             public void onSessionEvent(String event, Bundle extras) {
+                if (mLocalService != null) {
+                    // 本地客户端会直接接收 PlayerService 的事件
+                    return;
+                }
+
                 mSessionEventDispatcher.dispatch(event, extras);
             }
         };
     }
 
     private void onDisconnected() {
+        mPlayerStateSynced = false;
+        mPendingEvents = EventInterest.NONE;
+        mMainHandler.removeCallbacks(mDispatchPendingEvents);
         notifyConnectStateChanged(false);
     }
 
-    private void notifyConnectStateChanged(boolean connected) {
-        for (OnConnectStateChangeListener listener : mAllConnectStateChangeListener) {
-            listener.onConnectStateChanged(connected);
+    /**
+     * 根据已注册的事件监听器更新客户端感兴趣的事件类型。
+     * <p>
+     * 只有当存在对应类型的事件监听器时，服务端才会发送缓存进度与睡眠定时器事件。
+     * 如果感兴趣的事件类型增加了，则会重新同步一次播放器状态，以便获取在此期间错过的状态。
+     */
+    private void updateEventInterest() {
+        int interest = EventInterest.NONE;
+
+        if (!mAllBufferedProgressChangeListener.isEmpty()) {
+            interest |= EventInterest.BUFFERED_PROGRESS;
+        }
+
+        if (!mAllSleepTimerStateChangeListener.isEmpty()) {
+            interest |= EventInterest.SLEEP_TIMER;
+        }
+
+        if (interest == mEventInterest) {
+            return;
+        }
+
+        boolean expanded = (interest & ~mEventInterest) != 0;
+        mEventInterest = interest;
+
+        if (notConnected()) {
+            return;
         }
+
+        mPlayerStateSynchronizer.setEventInterest(mClientToken, interest);
+        if (expanded) {
+            mPlayerStateSynchronizer.syncPlayerState(mClientToken, mChangeLogToken, mPlayerStateVersion);
+        }
+    }
+
+    private void notifyResync(PlayerStateDelta delta) {
+        int events = EventInterest.NONE;
+
+        if (delta.contains(PlayerStateChangeLog.FIELD_STALLED)) {
+            events |= EventInterest.STALLED;
+        }
+
+        if (delta.contains(PlayerStateChangeLog.FIELD_BUFFERED_PROGRESS)) {
+            events |= EventInterest.BUFFERED_PROGRESS;
+        }
+
+        if (delta.contains(PlayerStateChangeLog.FIELD_SLEEP_TIMER_STARTED |
+                PlayerStateChangeLog.FIELD_SLEEP_TIMER_TIME |
+                PlayerStateChangeLog.FIELD_SLEEP_TIMER_START_TIME |
+                PlayerStateChangeLog.FIELD_TIMEOUT_ACTION)) {
+            events |= EventInterest.SLEEP_TIMER;
+        }
+
+        postEvents(events);
+    }
+
+    // 事务执行期间的事件会被服务端合并
+    private void notifyCommitted(PlayerStateDelta delta, int events) {
+        if (delta.contains(PlayerStateChangeLog.FIELD_AUDIO_SESSION_ID)) {
+            events |= EventInterest.AUDIO_SESSION;
+        }
+
+        postEvents(events);
+    }
+
+    /**
+     * 将事件合并到待通知的事件中，并在下一次主线程消息中一次性通知所有监听器。
+     * <p>
+     * 事件到达时播放器状态已经被更新，因此即使同一类型的事件在此期间到达了多次，监听器也只会被通知一次，
+     * 并且总是能获取到最新的状态。
+     */
+    private void postEvents(int events) {
+        if (events == EventInterest.NONE) {
+            return;
+        }
+
+        if (mPendingEvents == EventInterest.NONE) {
+            mMainHandler.post(mDispatchPendingEvents);
+        }
+
+        mPendingEvents |= events;
+    }
+
+    // 按照与 notifySticky() 相同的顺序通知所有监听器
+    private void notifyEvents(int events) {
+        if ((events & EventInterest.PLAYLIST) != 0) {
+            notifyPlaylistChanged();
+        }
+
+        if ((events & EventInterest.PLAY_MODE) != 0) {
+            notifyPlayModeChanged();
+        }
+
+        if ((events & EventInterest.PLAYING_MUSIC_ITEM) != 0) {
+            notifyPlayingMusicItemChanged();
+        }
+
+        if ((events & EventInterest.PREPARE) != 0) {
+            notifyPrepareStateChanged();
+        }
+
+        if ((events & EventInterest.AUDIO_SESSION) != 0) {
+            notifyAudioSessionChanged();
+        }
+
+        if ((events & EventInterest.PLAYBACK_STATE) != 0) {
+            notifyPlaybackStateChanged();
+        }
+
+        if ((events & EventInterest.SEEK_COMPLETE) != 0) {
+            notifySeekComplete();
+        }
+
+        if ((events & EventInterest.BUFFERED_PROGRESS) != 0) {
+            notifyOnBufferedProgressChanged();
+        }
+
+        if ((events & EventInterest.STALLED) != 0) {
+            notifyStalledChanged();
+        }
+
+        if ((events & EventInterest.SLEEP_TIMER) != 0) {
+            notifySleepTimerStateChanged();
+        }
+    }
+
+    private void notifyConnectStateChanged(boolean connected) {
+        mConnected = connected;
+        mAllConnectStateChangeListener.dispatch(mNotifyConnectStateChangedAction);
     }
 
     /**
@@ -268,6 +651,13 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
+        mPlayerStateSynchronizer.removeEventInterest(mClientToken);
+        if (mLocalPlayer != null) {
+            mLocalPlayer.removeLocalClient(mPlayerStateListener);
+            mLocalPlayer = null;
+            mLocalService = null;
+        }
+
         onDisconnected();
         mMediaController.unregisterCallback(mMediaControllerCallback);
         mMediaBrowser.disconnect();
@@ -314,12 +704,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnConnectStateChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnConnectStateChangeListener(listener);
-            }
-        }));
+        mAllConnectStateChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -492,6 +877,31 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         return !mMediaBrowser.isConnected();
     }
 
+    // 连接成功前，正在播放的歌曲、播放列表与播放模式可以使用持久化的快照
+    private boolean stateUnavailable() {
+        return notConnected() && !mSnapshotAvailable;
+    }
+
+    /**
+     * 创建一个新的事务。
+     * <p>
+     * 事务中的所有命令会在调用 {@link Transaction#commit()} 方法后通过一次跨进程调用发送给播放器，并由播放器
+     * 按顺序执行。事务执行期间产生的所有事件会被合并，并在事务执行完毕后一次性通知给事件监听器。例如：
+     * <pre>
+     * playerClient.transaction()
+     *         .setPlaylist(playlist, 4, false)
+     *         .setPlayMode(PlayMode.SHUFFLE)
+     *         .play()
+     *         .commit();
+     * </pre>
+     *
+     * @return 新的 {@link Transaction} 对象
+     */
+    @NonNull
+    public Transaction transaction() {
+        return new Transaction();
+    }
+
     /**
      * 获取当前 PlayerController 的 PlaylistManager 对象。
      * <p>
@@ -525,6 +935,8 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
 
     /**
      * 设置一个新的播放列表。
+     * <p>
+     * 如果播放列表中的歌曲数量很多，则会分块传输播放列表，以避免超出 Binder 传输缓冲区的大小限制。
      *
      * @param playlist 播放列表（不能为 null）
      * @param position 播放列表中要播放的歌曲的位置
@@ -542,9 +954,27 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
+        if (mLocalService == null && PlaylistAssembler.needChunkedTransfer(playlist)) {
+            transferPlaylist(playlist, position, play);
+            return;
+        }
+
         mPlaylistEditor.setPlaylist(playlist, position, play);
     }
 
+    private void transferPlaylist(Playlist playlist, int position, boolean play) {
+        String transferId = UUID.randomUUID().toString();
+        List<MusicItem> musicItems = playlist.getAllMusicItem();
+
+        mPlaylistTransfer.beginPlaylistTransfer(transferId, PlaylistAssembler.newHeader(playlist));
+        for (int start = 0; start < musicItems.size(); start += PlaylistAssembler.CHUNK_SIZE) {
+            int end = Math.min(start + PlaylistAssembler.CHUNK_SIZE, musicItems.size());
+            mPlaylistTransfer.appendPlaylistChunk(transferId,
+                    PlaylistAssembler.newChunk(musicItems.subList(start, end)));
+        }
+        mPlaylistTransfer.commitPlaylistTransfer(transferId, position, play);
+    }
+
     @Override
     public void getPlaylist(@NonNull PlaylistManager.Callback callback) {
         Preconditions.checkNotNull(callback);
@@ -639,6 +1069,10 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 获取当前的缓存进度。
      *
+     * <p>
+     * 注意！只有在至少注册了一个 {@link OnBufferedProgressChangeListener} 监听器时，才能保证该方法的返回值
+     * 是最新的。
+     *
      * @return 当前缓存进度，使用整数表示的百分比值，范围为 [0, 100]
      */
     public int getBufferedProgress() {
@@ -730,6 +1164,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
 
     /**
      * 查询睡眠定时器是否已启动。
+     * <p>
+     * 注意！只有在至少注册了一个 {@link SleepTimer.OnStateChangeListener} 监听器时，才能保证该方法的返回值
+     * 是最新的。
      *
      * @return 睡眠定时器是否已启动，如果已启动则返回 true，否则返回 false
      */
@@ -1036,6 +1473,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个播放器播放状态监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 播放器播放状态监听器
@@ -1055,6 +1495,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个播放器播放状态监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1073,12 +1516,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPlaybackStateChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPlaybackStateChangeListener(listener);
-            }
-        }));
+        mAllPlaybackStateChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1092,6 +1530,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
 
     /**
      * 添加一个播放器准备（prepare）状态监听器。
+     * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
      *
      * @param listener 如果监听器已存在，则忽略本次添加
      */
@@ -1109,6 +1550,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个播放器准备（prepare）状态监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
      *
      * @param owner    LifecycleOwner 对象
@@ -1123,12 +1567,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPrepareListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPrepareListener(listener);
-            }
-        }));
+        mAllPrepareListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1143,6 +1582,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个 stalled 状态监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1162,6 +1604,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个 stalled 状态监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1179,12 +1624,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnStalledChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnStalledChangeListener(listener);
-            }
-        }));
+        mAllStalledChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1199,6 +1639,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个缓存进度监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1218,6 +1661,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个缓存进度监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1235,12 +1681,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnBufferedProgressChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnBufferedProgressChangeListener(listener);
-            }
-        }));
+        mAllBufferedProgressChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1255,6 +1696,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个监听当前播放的 MusicItem 改变事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1274,6 +1718,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个监听当前播放的 MusicItem 改变事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1291,12 +1738,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPlayingMusicItemChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPlayingMusicItemChangeListener(listener);
-            }
-        }));
+        mAllPlayingMusicItemChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1311,6 +1753,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放器播放进度调整完毕事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1330,6 +1775,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放器播放进度调整完毕事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1347,12 +1795,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnSeekCompleteListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnSeekCompleteListener(listener);
-            }
-        }));
+        mAllSeekListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1367,6 +1810,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放列表改变事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1386,6 +1832,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放列表改变事件的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1403,12 +1852,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPlaylistChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPlaylistChangeListener(listener);
-            }
-        }));
+        mAllPlaylistChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1423,6 +1867,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放模式改变的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1442,6 +1889,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个用于监听播放模式改变的监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1459,12 +1909,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPlayModeChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPlayModeChangeListener(listener);
-            }
-        }));
+        mAllPlayModeChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1479,6 +1924,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 监听播放器状态。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1497,6 +1945,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 监听播放器状态。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1513,12 +1964,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnPlaybackStateChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnPlaybackStateChangeListener(listener);
-            }
-        }));
+        mClientAllPlaybackStateChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1533,6 +1979,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 添加一个 audio session id 监听器。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1551,6 +2000,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 监听播放器的 audio session id
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1567,12 +2019,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnAudioSessionChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnAudioSessionChangeListener(listener);
-            }
-        }));
+        mAllAudioSessionChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1587,6 +2034,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 监听睡眠定时器的状态。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      *
      * @param listener 要添加的监听器
@@ -1607,6 +2057,9 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     /**
      * 监听睡眠定时器的状态。
      * <p>
+     * 注意！监听器会在下一次主线程消息中被异步通知，并且多个相同类型的事件会被合并成一次通知，参见
+     * {@link PlayerClient} 的类文档。
+     * <p>
      * 如果监听器已添加，则忽略本次调用。
      * <p>
      * 事件监听器会在 LifecycleOwner 销毁时自动注销，以避免发生内容泄露。
@@ -1623,12 +2076,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
 
         addOnSleepTimerStateChangeListener(listener);
-        owner.getLifecycle().addObserver(new DestroyObserver(new Runnable() {
-            @Override
-            public void run() {
-                removeOnSleepTimerStateChangeListener(listener);
-            }
-        }));
+        mAllSleepTimerStateChangeListener.bindLifecycle(owner, listener);
     }
 
     /**
@@ -1826,9 +2274,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (Player.OnPlaybackStateChangeListener listener : mAllPlaybackStateChangeListener) {
-            notifyPlaybackStateChanged(listener);
-        }
+        mAllPlaybackStateChangeListener.dispatch(mNotifyPlaybackStateChangedAction);
 
         notifyClientPlaybackStateChanged();
     }
@@ -1853,9 +2299,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (Player.OnPrepareListener listener : mAllPrepareListener) {
-            notifyPrepareStateChanged(listener);
-        }
+        mAllPrepareListener.dispatch(mNotifyPrepareStateChangedAction);
     }
 
     private void notifyStalledChanged(Player.OnStalledChangeListener listener) {
@@ -1873,9 +2317,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (Player.OnStalledChangeListener listener : mAllStalledChangeListener) {
-            notifyStalledChanged(listener);
-        }
+        mAllStalledChangeListener.dispatch(mNotifyStalledChangedAction);
     }
 
     private void notifyOnBufferedProgressChanged(OnBufferedProgressChangeListener listener) {
@@ -1891,13 +2333,11 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (OnBufferedProgressChangeListener listener : mAllBufferedProgressChangeListener) {
-            notifyOnBufferedProgressChanged(listener);
-        }
+        mAllBufferedProgressChangeListener.dispatch(mNotifyOnBufferedProgressChangedAction);
     }
 
     private void notifyPlayingMusicItemChanged(Player.OnPlayingMusicItemChangeListener listener) {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
@@ -1905,13 +2345,11 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     }
 
     private void notifyPlayingMusicItemChanged() {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
-        for (Player.OnPlayingMusicItemChangeListener listener : mAllPlayingMusicItemChangeListener) {
-            notifyPlayingMusicItemChanged(listener);
-        }
+        mAllPlayingMusicItemChangeListener.dispatch(mNotifyPlayingMusicItemChangedAction);
     }
 
     private void notifySeekComplete(OnSeekCompleteListener listener) {
@@ -1927,13 +2365,11 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (OnSeekCompleteListener listener : mAllSeekListener) {
-            notifySeekComplete(listener);
-        }
+        mAllSeekListener.dispatch(mNotifySeekCompleteAction);
     }
 
     private void notifyPlaylistChanged(Player.OnPlaylistChangeListener listener) {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
@@ -1941,17 +2377,15 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     }
 
     private void notifyPlaylistChanged() {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
-        for (Player.OnPlaylistChangeListener listener : mAllPlaylistChangeListener) {
-            notifyPlaylistChanged(listener);
-        }
+        mAllPlaylistChangeListener.dispatch(mNotifyPlaylistChangedAction);
     }
 
     private void notifyPlayModeChanged(Player.OnPlayModeChangeListener listener) {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
@@ -1959,13 +2393,11 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
     }
 
     private void notifyPlayModeChanged() {
-        if (notConnected()) {
+        if (stateUnavailable()) {
             return;
         }
 
-        for (Player.OnPlayModeChangeListener listener : mAllPlayModeChangeListener) {
-            notifyPlayModeChanged(listener);
-        }
+        mAllPlayModeChangeListener.dispatch(mNotifyPlayModeChangedAction);
     }
 
     private void notifyClientPlaybackStateChanged() {
@@ -1973,9 +2405,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (OnPlaybackStateChangeListener listener : mClientAllPlaybackStateChangeListener) {
-            notifyClientPlaybackStateChanged(listener);
-        }
+        mClientAllPlaybackStateChangeListener.dispatch(mNotifyClientPlaybackStateChangedAction);
     }
 
     private void notifyClientPlaybackStateChanged(OnPlaybackStateChangeListener listener) {
@@ -1991,9 +2421,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (OnAudioSessionChangeListener listener : mAllAudioSessionChangeListener) {
-            notifyAudioSessionChanged(listener);
-        }
+        mAllAudioSessionChangeListener.dispatch(mNotifyAudioSessionChangedAction);
     }
 
     private void notifyAudioSessionChanged(OnAudioSessionChangeListener listener) {
@@ -2009,9 +2437,7 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             return;
         }
 
-        for (SleepTimer.OnStateChangeListener listener : mAllSleepTimerStateChangeListener) {
-            notifySleepTimerStateChanged(listener);
-        }
+        mAllSleepTimerStateChangeListener.dispatch(mNotifySleepTimerStateChangedAction);
     }
 
     private void notifySleepTimerStateChanged(SleepTimer.OnStateChangeListener listener) {
@@ -2029,69 +2455,251 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
         }
     }
 
+    /**
+     * 用于将多个命令合并为一次调用发送给播放器。
+     * <p>
+     * 事务中的命令会按照添加的顺序执行。如果事务中包含设置播放列表的命令，则会等到新的播放列表生效后再执行
+     * 后续的命令。
+     *
+     * @see #transaction()
+     */
+    public final class Transaction {
+        private final ArrayList<Bundle> mCommands;
+
+        private Transaction() {
+            mCommands = new ArrayList<>();
+        }
+
+        /**
+         * 开始播放。
+         */
+        public Transaction play() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.PLAY));
+            return this;
+        }
+
+        /**
+         * 暂停播放。
+         */
+        public Transaction pause() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.PAUSE));
+            return this;
+        }
+
+        /**
+         * 停止播放。
+         */
+        public Transaction stop() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.STOP));
+            return this;
+        }
+
+        /**
+         * 播放/暂停。
+         */
+        public Transaction playPause() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.PLAY_PAUSE));
+            return this;
+        }
+
+        /**
+         * 调整音乐播放进度。
+         *
+         * @param progress 要调整到的播放进度
+         */
+        public Transaction seekTo(int progress) {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SEEK_TO, progress));
+            return this;
+        }
+
+        /**
+         * 下一曲。
+         */
+        public Transaction skipToNext() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SKIP_TO_NEXT));
+            return this;
+        }
+
+        /**
+         * 上一曲。
+         */
+        public Transaction skipToPrevious() {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SKIP_TO_PREVIOUS));
+            return this;
+        }
+
+        /**
+         * 播放播放列表中指定位置处的歌曲。
+         *
+         * @param position 目标位置
+         * @throws IllegalArgumentException 如果 position 的值小于 0，则会抛出该异常
+         */
+        public Transaction skipToPosition(int position) throws IllegalArgumentException {
+            if (position < 0) {
+                throw new IllegalArgumentException("position music >= 0");
+            }
+
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SKIP_TO_POSITION, position));
+            return this;
+        }
+
+        /**
+         * 播放或暂停播放列表中指定位置处的歌曲。
+         *
+         * @param position 目标位置
+         * @throws IllegalArgumentException 如果 position 的值小于 0，则会抛出该异常
+         */
+        public Transaction playPause(int position) throws IllegalArgumentException {
+            if (position < 0) {
+                throw new IllegalArgumentException("position music >= 0");
+            }
+
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.PLAY_PAUSE_POSITION, position));
+            return this;
+        }
+
+        /**
+         * 设置播放模式。
+         *
+         * @param playMode 播放模式，不能为 null
+         */
+        public Transaction setPlayMode(@NonNull PlayMode playMode) {
+            Preconditions.checkNotNull(playMode);
+
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SET_PLAY_MODE, playMode.ordinal()));
+            return this;
+        }
+
+        /**
+         * 设置一个新的播放列表。
+         * <p>
+         * 注意！事务中的所有命令会通过一次跨进程调用发送给播放器，因此不适合用于设置包含大量歌曲的播放列表。
+         * 对于包含大量歌曲的播放列表，请使用 {@link PlayerClient#setPlaylist(Playlist, int, boolean)} 方法。
+         *
+         * @param playlist 播放列表，不能为 null
+         * @param position 播放列表中要播放的歌曲的位置
+         * @param play     是否立即播放 {@code position} 参数指定处的音乐
+         * @throws IllegalArgumentException 如果 position 的值小于 0，则抛出该异常
+         */
+        public Transaction setPlaylist(@NonNull Playlist playlist, int position, boolean play)
+                throws IllegalArgumentException {
+            Preconditions.checkNotNull(playlist);
+            if (position < 0) {
+                throw new IllegalArgumentException("position must >= 0.");
+            }
+
+            mCommands.add(TransactionCommand.newSetPlaylistCommand(playlist, position, play));
+            return this;
+        }
+
+        /**
+         * 设置播放器的首选音质。
+         *
+         * @param soundQuality 要设置的音质，不能为 null
+         */
+        public Transaction setSoundQuality(@NonNull SoundQuality soundQuality) {
+            Preconditions.checkNotNull(soundQuality);
+
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SET_SOUND_QUALITY, soundQuality.ordinal()));
+            return this;
+        }
+
+        /**
+         * 设置是否启用音频特效。
+         */
+        public Transaction setAudioEffectEnabled(boolean enabled) {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SET_AUDIO_EFFECT_ENABLED, enabled));
+            return this;
+        }
+
+        /**
+         * 设置是否只允许使用 Wifi 网络。
+         */
+        public Transaction setOnlyWifiNetwork(boolean onlyWifiNetwork) {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SET_ONLY_WIFI_NETWORK, onlyWifiNetwork));
+            return this;
+        }
+
+        /**
+         * 设置是否忽略音频焦点。
+         */
+        public Transaction setIgnoreAudioFocus(boolean ignoreAudioFocus) {
+            mCommands.add(TransactionCommand.newCommand(TransactionCommand.SET_IGNORE_AUDIO_FOCUS, ignoreAudioFocus));
+            return this;
+        }
+
+        /**
+         * 提交事务。
+         * <p>
+         * 该方法只在连接到播放器后（{@link #isConnected()} 返回 true）才有效。
+         */
+        public void commit() {
+            if (notConnected() || mCommands.isEmpty()) {
+                return;
+            }
+
+            mTransactionExecutor.execute(TransactionCommand.newTransaction(new ArrayList<>(mCommands)));
+        }
+    }
+
     // 用于管理与同步播放器状态
-    private class PlayerStateListenerImpl implements PlayerStateListener, SleepTimer.OnStateChangeListener {
+    private class PlayerStateListenerImpl implements LocalClientGroup.LocalClient {
 
         @Override
         public void onPreparing() {
             boolean error = mPlayerState.getPlaybackState() == PlaybackState.ERROR;
             mPlayerStateHelper.onPreparing();
 
-            if (error) {
-                notifyPlaybackStateChanged();
-            }
-
-            notifyPrepareStateChanged();
+            postEvents(error ? EventInterest.PREPARE | EventInterest.PLAYBACK_STATE : EventInterest.PREPARE);
         }
 
         @Override
         public void onPrepared(int audioSessionId) {
             mPlayerStateHelper.onPrepared(audioSessionId);
 
-            notifyPrepareStateChanged();
-            notifyAudioSessionChanged();
+            postEvents(EventInterest.PREPARE | EventInterest.AUDIO_SESSION);
         }
 
         @Override
         public void onPlay(boolean stalled, int playProgress, long playProgressUpdateTime) {
             mPlayerStateHelper.onPlay(stalled, playProgress, playProgressUpdateTime);
 
-            notifyPlaybackStateChanged();
+            postEvents(EventInterest.PLAYBACK_STATE);
         }
 
         @Override
         public void onPause(int playProgress, long updateTime) {
             mPlayerStateHelper.onPaused(playProgress, updateTime);
 
-            notifyPlaybackStateChanged();
+            postEvents(EventInterest.PLAYBACK_STATE);
         }
 
         @Override
         public void onStop() {
             mPlayerStateHelper.onStopped();
 
-            notifyPlaybackStateChanged();
+            postEvents(EventInterest.PLAYBACK_STATE);
         }
 
         @Override
         public void onError(int errorCode, String errorMessage) {
             mPlayerStateHelper.onError(errorCode, errorMessage);
 
-            notifyPlaybackStateChanged();
+            postEvents(EventInterest.PLAYBACK_STATE);
         }
 
         @Override
         public void onSeekComplete(int progress, long updateTime, boolean stalled) {
             mPlayerStateHelper.onSeekComplete(progress, updateTime, stalled);
 
-            notifySeekComplete();
+            postEvents(EventInterest.SEEK_COMPLETE);
         }
 
         @Override
         public void onBufferedProgressChanged(int bufferedProgress) {
             mPlayerStateHelper.onBufferedChanged(bufferedProgress);
 
-            notifyOnBufferedProgressChanged();
+            postEvents(EventInterest.BUFFERED_PROGRESS);
         }
 
         @Override
@@ -2099,63 +2707,75 @@ public class PlayerClient implements Player, PlayerManager, PlaylistManager, Pla
             boolean error = mPlayerState.getPlaybackState() == PlaybackState.ERROR;
             mPlayerStateHelper.onPlayingMusicItemChanged(musicItem, position, playProgress);
 
-            notifyPlayingMusicItemChanged();
-
-            if (error) {
-                notifyPlaybackStateChanged();
-            }
+            postEvents(error ? EventInterest.PLAYING_MUSIC_ITEM | EventInterest.PLAYBACK_STATE : EventInterest.PLAYING_MUSIC_ITEM);
         }
 
         @Override
         public void onStalledChanged(boolean stalled, int playProgress, long updateTime) {
             mPlayerStateHelper.onStalled(stalled, playProgress, updateTime);
 
-            notifyStalledChanged();
+            postEvents(EventInterest.STALLED);
         }
 
         @Override
         public void onPlaylistChanged(PlaylistManager playlistManager, int position) {
             mPlayerStateHelper.onPlaylistChanged(position);
 
-            notifyPlaylistChanged();
+            postEvents(EventInterest.PLAYLIST);
         }
 
         @Override
         public void onPlayModeChanged(PlayMode playMode) {
             mPlayerStateHelper.onPlayModeChanged(playMode);
 
-            notifyPlayModeChanged();
+            postEvents(EventInterest.PLAY_MODE);
         }
 
         @Override
         public void onTimerStart(long time, long startTime, SleepTimer.TimeoutAction action) {
             mPlayerStateHelper.onSleepTimerStart(time, startTime, action);
-            notifySleepTimerStateChanged();
+            postEvents(EventInterest.SLEEP_TIMER);
         }
 
         @Override
         public void onTimerEnd() {
             mPlayerStateHelper.onSleepTimerEnd();
-            notifySleepTimerStateChanged();
+            postEvents(EventInterest.SLEEP_TIMER);
         }
 
         @Override
         public void onShutdown() {
             disconnect();
         }
+
+        @Override
+        public void onCommitted(@NonNull PlayerStateDelta delta, int events) {
+            mTransactionCommitListener.onCommitted(delta, events);
+        }
     }
 
-    private static class DestroyObserver implements LifecycleObserver {
-        private final Runnable mOnDestroyAction;
+    // 用于本地客户端的状态同步，同步结果会直接返回给客户端，而不是通过 session event 发送
+    private class LocalPlayerStateSynchronizer implements PlayerStateSynchronizer {
+        private final LocalPlayer mLocalPlayer;
+
+        LocalPlayerStateSynchronizer(LocalPlayer localPlayer) {
+            mLocalPlayer = localPlayer;
+        }
+
+        @Override
+        public void syncPlayerState(String clientToken, String changeLogToken, long version) {
+            mSyncPlayerStateListener.onSyncPlayerState(clientToken,
+                    mLocalPlayer.createPlayerStateDelta(changeLogToken, version));
+        }
 
-        DestroyObserver(@NonNull Runnable action) {
-            Preconditions.checkNotNull(action);
-            mOnDestroyAction = action;
+        @Override
+        public void setEventInterest(String clientToken, int interest) {
+            mLocalPlayer.getPlayerStateSynchronizer().setEventInterest(clientToken, interest);
         }
 
-        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
-        public void onDestroy() {
-            mOnDestroyAction.run();
+        @Override
+        public void removeEventInterest(String clientToken) {
+            mLocalPlayer.getPlayerStateSynchronizer().removeEventInterest(clientToken);
         }
     }
 }
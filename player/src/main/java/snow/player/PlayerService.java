@@ -14,7 +14,6 @@ import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.media.MediaMetadataRetriever;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -37,13 +36,17 @@ import androidx.media.session.MediaButtonReceiver;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.bitmap.GranularRoundedCorners;
+import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.target.Target;
 import com.bumptech.glide.request.transition.Transition;
 import com.google.common.base.Preconditions;
 
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -54,13 +57,14 @@ import channel.helper.DispatcherUtil;
 import channel.helper.pipe.CustomActionPipe;
 
 import channel.helper.pipe.SessionEventPipe;
-import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import media.helper.HeadsetHookHelper;
 
 import snow.player.appwidget.AppWidgetPreferences;
+import snow.player.artwork.ArtworkCache;
 import snow.player.effect.AudioEffectManager;
 import snow.player.audio.MediaMusicPlayer;
 import snow.player.audio.MusicItem;
@@ -70,6 +74,7 @@ import snow.player.playlist.PlaylistEditor;
 import snow.player.audio.ErrorCode;
 import snow.player.playlist.PlaylistManager;
 import snow.player.util.MusicItemUtil;
+import snow.player.util.WheelTimer;
 
 /**
  * 提供了基本的 {@code player service} 实现，用于在后台播放音乐。
@@ -107,21 +112,46 @@ public class PlayerService extends MediaBrowserServiceCompat
 
     private static final String CUSTOM_ACTION_NAME = "snow.player.action.ACTION_NAME";
 
+    // 当前进程中正在运行的 PlayerService，用于实现同一进程中的客户端与服务端的直接通信
+    private static final Map<String, PlayerService> sLocalServices = new HashMap<>();
+
+    // 两次发送通知之间的最小时间间隔（单位：毫秒）
+    private static final long NOTIFY_INTERVAL = 200;
+
     private String mPersistentId;
 
     private PlayerConfig mPlayerConfig;
-    private PlayerState mPlayerState;
+    private PersistentPlayerState mPlayerState;
+    private PlayerStateChangeLog mPlayerStateChangeLog;
 
     private PlaylistManagerImp mPlaylistManager;
+    private SharedPlayerHelper mSharedPlayerHelper;
     private PlayerImp mPlayer;
+    private MediaBrowserTree mMediaBrowserTree;
     private CustomActionPipe mCustomActionDispatcher;
 
     private PlayerStateListener mPlayerStateListener;
     private PlayerStateSynchronizer.OnSyncPlayerStateListener mSyncPlayerStateListener;
+    private EventFilter mEventFilter;
+    private LocalClientGroup mLocalClientGroup;
+    private TransactionExecutorImp mTransactionExecutor;
+    private TransactionExecutor.OnCommitListener mTransactionCommitListener;
+    private PlaylistAssembler mPlaylistAssembler;
+    private LocalPlayer mLocalPlayer;
+    private Map<String, HostedPlayer> mAllHostedPlayer;
+    // 正在播放的托管播放器的数量，只要有一个播放器正在播放，Service 就需要处于前台
+    private int mForegroundHostedPlayerCount;
+    // 主播放器没有在播放时，通知栏中显示的托管播放器
+    @Nullable
+    private HostedPlayer mNotificationHostedPlayer;
+    private int mQueueWindowSize = QueueWindow.DEFAULT_WINDOW_SIZE;
 
     private boolean mForeground;
 
     private NotificationManager mNotificationManager;
+    private long mLastNotifyTime;
+    @Nullable
+    private Disposable mPendingNotifyDisposable;
 
     private Map<String, CustomAction> mAllCustomAction;
 
@@ -139,11 +169,11 @@ public class PlayerService extends MediaBrowserServiceCompat
     private HistoryRecorder mHistoryRecorder;
 
     private OnStateChangeListener mSleepTimerStateChangedListener;
-    private Disposable mSleepTimerDisposable;
+    private WheelTimer.Timeout mSleepTimerTimeout;
     private PlayerStateHelper mPlayerStateHelper;
 
     private int mMaxIDLEMinutes = -1;
-    private Disposable mIDLETimerDisposable;
+    private WheelTimer.Timeout mIDLETimerTimeout;
 
     private Intent mKeepAliveIntent;
     private KeepAliveConnection mKeepAliveConnection;
@@ -167,13 +197,15 @@ public class PlayerService extends MediaBrowserServiceCompat
         initPlaylistManager();
         initNotificationView();
         initPlayer();
-        initCustomActionDispatcher();
         initHeadsetHookHelper();
         initMediaSession();
         initSessionEventEmitter();
+        initCustomActionDispatcher();
+        initHostedPlayers();
         initHistoryRecorder();
         initCustomActionReceiver();
 
+        sLocalServices.put(getClass().getName(), this);
         keepServiceAlive();
 
         if (mNotificationView != null && mNotificationView.isNotifyOnCreate()) {
@@ -200,18 +232,58 @@ public class PlayerService extends MediaBrowserServiceCompat
     @Nullable
     @Override
     public BrowserRoot onGetRoot(@NonNull String clientPackageName, int clientUid, @Nullable Bundle rootHints) {
-        return new BrowserRoot(DEFAULT_MEDIA_ROOT_ID, null);
+        if (mAllHostedPlayer.isEmpty()) {
+            return new BrowserRoot(DEFAULT_MEDIA_ROOT_ID, null);
+        }
+
+        // 托管的播放器的 MediaSession 的 token 会通过 root extras 返回给客户端
+        Bundle extras = new Bundle();
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            extras.putBundle(getHostedSessionTokenKey(hostedPlayer.mPlayerId),
+                    hostedPlayer.mMediaSession.getSessionToken().toBundle());
+        }
+
+        return new BrowserRoot(DEFAULT_MEDIA_ROOT_ID, extras);
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        super.onUnbind(intent);
+
+        // 所有 MediaBrowser 客户端都已解除绑定（包括意外死亡的客户端），此时不会再有客户端接收事件
+        if (SERVICE_INTERFACE.equals(intent.getAction())) {
+            clearEventInterest();
+        }
+
+        // 返回 true，以便下次所有客户端解除绑定时该方法会被再次调用
+        return true;
+    }
+
+    private void clearEventInterest() {
+        mEventFilter.clearEventInterest();
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.clearEventInterest();
+        }
     }
 
     @Override
     public void onLoadChildren(@NonNull String parentId, @NonNull Result<List<MediaBrowserCompat.MediaItem>> result) {
-        result.sendResult(Collections.<MediaBrowserCompat.MediaItem>emptyList());
+        mMediaBrowserTree.loadChildren(parentId, result, null);
+    }
+
+    @Override
+    public void onLoadChildren(@NonNull String parentId,
+                               @NonNull Result<List<MediaBrowserCompat.MediaItem>> result,
+                               @NonNull Bundle options) {
+        mMediaBrowserTree.loadChildren(parentId, result, options);
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        sLocalServices.remove(getClass().getName());
 
+        cancelPendingNotify();
         if (!noNotificationView()) {
             stopForegroundEx(true);
             mNotificationView.release();
@@ -219,10 +291,18 @@ public class PlayerService extends MediaBrowserServiceCompat
         }
 
         cancelIDLETimer();
+        mTransactionExecutor.release();
+        mPlaylistAssembler.release();
+
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.release();
+        }
+        mAllHostedPlayer.clear();
 
         unregisterReceiver(mCustomActionReceiver);
         mMediaSession.release();
         mPlayer.release();
+        mSharedPlayerHelper.release();
 
         mPlayer = null;
 
@@ -268,6 +348,9 @@ public class PlayerService extends MediaBrowserServiceCompat
     private void initPlayerState() {
         mPlayerState = new PersistentPlayerState(this, mPersistentId);
         mPlayerStateHelper = new PlayerStateHelper(mPlayerState);
+
+        mPlayerStateChangeLog = new PlayerStateChangeLog();
+        mPlayerState.setChangeLog(mPlayerStateChangeLog);
     }
 
     private void initPlaylistManager() {
@@ -277,12 +360,17 @@ public class PlayerService extends MediaBrowserServiceCompat
     private void initPlayer() {
         boolean prepare = mNotificationView != null && mNotificationView.isNotifyOnCreate();
 
+        mSharedPlayerHelper = new SharedPlayerHelper(this);
         mPlayer = new PlayerImp(this,
                 mPlayerConfig,
                 mPlayerState,
                 mPlaylistManager,
                 new AppWidgetPreferences(this, this.getClass()),
+                mSharedPlayerHelper,
                 prepare);
+        mPlayer.setQueueWindowSize(mQueueWindowSize);
+
+        mMediaBrowserTree = new MediaBrowserTree(this, mPlaylistManager, mPlayer, mPlayer, mPlayerState);
     }
 
     private void initCustomActionDispatcher() {
@@ -301,13 +389,27 @@ public class PlayerService extends MediaBrowserServiceCompat
         final Dispatcher sleepTimerDispatcher =
                 ChannelHelper.newDispatcher(SleepTimer.class, this);
 
+        mTransactionExecutor = new TransactionExecutorImp(mPlayer,
+                mPlayerState,
+                mPlayerStateChangeLog,
+                mEventFilter,
+                mTransactionCommitListener);
+        final Dispatcher transactionExecutorDispatcher =
+                ChannelHelper.newDispatcher(TransactionExecutor.class, mTransactionExecutor);
+
+        mPlaylistAssembler = new PlaylistAssembler(mPlayer);
+        final Dispatcher playlistTransferDispatcher =
+                ChannelHelper.newDispatcher(PlaylistTransfer.class, mPlaylistAssembler);
+
         mCustomActionDispatcher = new CustomActionPipe(
                 DispatcherUtil.merge(
                         playerStateSynchronizerDispatcher,
                         playerManagerDispatcher,
                         playerDispatcher,
                         playlistEditorDispatcher,
-                        sleepTimerDispatcher
+                        sleepTimerDispatcher,
+                        transactionExecutorDispatcher,
+                        playlistTransferDispatcher
                 ));
     }
 
@@ -348,11 +450,31 @@ public class PlayerService extends MediaBrowserServiceCompat
 
     private void initSessionEventEmitter() {
         SessionEventPipe sessionEventEmitter = new SessionEventPipe(mMediaSession);
-        mPlayerStateListener = ChannelHelper.newEmitter(PlayerStateListener.class, sessionEventEmitter);
+        mLocalClientGroup = new LocalClientGroup(
+                ChannelHelper.newEmitter(PlayerStateListener.class, sessionEventEmitter),
+                ChannelHelper.newEmitter(OnStateChangeListener.class, sessionEventEmitter),
+                ChannelHelper.newEmitter(TransactionExecutor.OnCommitListener.class, sessionEventEmitter));
+        mEventFilter = new EventFilter(mLocalClientGroup, mLocalClientGroup);
+
+        mPlayerStateListener = mEventFilter;
         mSyncPlayerStateListener = ChannelHelper.newEmitter(PlayerStateSynchronizer.OnSyncPlayerStateListener.class, sessionEventEmitter);
+        mTransactionCommitListener = mLocalClientGroup;
 
         mPlayer.setPlayerStateListener(mPlayerStateListener);
-        mSleepTimerStateChangedListener = ChannelHelper.newEmitter(OnStateChangeListener.class, sessionEventEmitter);
+        mSleepTimerStateChangedListener = mEventFilter;
+    }
+
+    private void initHostedPlayers() {
+        mLocalPlayer = new PrimaryLocalPlayer();
+        mAllHostedPlayer = new HashMap<>();
+
+        for (String playerId : getHostedPlayerIds()) {
+            Preconditions.checkNotNull(playerId);
+            Preconditions.checkArgument(!mAllHostedPlayer.containsKey(playerId),
+                    "duplicate hosted player id: " + playerId);
+
+            mAllHostedPlayer.put(playerId, new HostedPlayer(playerId));
+        }
     }
 
     private void initAudioEffectManager() {
@@ -447,6 +569,9 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         mPlayerConfig.setSoundQuality(soundQuality);
         mPlayer.notifySoundQualityChanged();
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.mPlayer.notifySoundQualityChanged();
+        }
     }
 
     @Override
@@ -537,6 +662,9 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         mPlayerConfig.setOnlyWifiNetwork(onlyWifiNetwork);
         mPlayer.notifyOnlyWifiNetworkChanged();
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.mPlayer.notifyOnlyWifiNetworkChanged();
+        }
     }
 
     @Override
@@ -547,6 +675,9 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         mPlayerConfig.setIgnoreAudioFocus(ignoreAudioFocus);
         mPlayer.notifyIgnoreAudioFocusChanged();
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.mPlayer.notifyIgnoreAudioFocusChanged();
+        }
     }
 
     /**
@@ -566,8 +697,76 @@ public class PlayerService extends MediaBrowserServiceCompat
     }
 
     @Override
-    public void syncPlayerState(final String clientToken) {
-        mSyncPlayerStateListener.onSyncPlayerState(clientToken, new PlayerState(mPlayerState));
+    public void syncPlayerState(String clientToken, String changeLogToken, long version) {
+        mSyncPlayerStateListener.onSyncPlayerState(clientToken,
+                mPlayerStateChangeLog.createDelta(changeLogToken, version, mPlayerState));
+    }
+
+    /**
+     * 获取当前进程中正在运行的 PlayerService。
+     *
+     * @param playerService PlayerService 或者其子类的 Class 对象
+     * @return 如果指定的 PlayerService 没有在当前进程中运行，则返回 null
+     */
+    @Nullable
+    static PlayerService getLocalService(@NonNull Class<? extends PlayerService> playerService) {
+        return sLocalServices.get(playerService.getName());
+    }
+
+    /**
+     * 获取当前 PlayerService 中的播放器，用于与同一进程中的客户端直接通信。
+     *
+     * @param playerId 托管的播放器的 ID，为 null 时返回主播放器
+     * @return 如果不存在指定 ID 的托管播放器，则返回 null
+     */
+    @Nullable
+    LocalPlayer getLocalPlayer(@Nullable String playerId) {
+        if (playerId == null) {
+            return mLocalPlayer;
+        }
+
+        return mAllHostedPlayer.get(playerId);
+    }
+
+    /**
+     * 返回当前 PlayerService 需要托管的所有播放器的 ID。
+     * <p>
+     * 除了主播放器外，PlayerService 还可以托管多个相互独立的播放器（例如音乐、播客与试听），每个托管的播放器
+     * 都有自己的播放列表、播放状态与 MediaSession，但会共享同一个 PlayerService 的播放器配置、通知栏、
+     * 音乐缓存等资源。客户端可以使用 {@link PlayerClient#newInstance(Context, Class, String)} 方法连接到
+     * 指定的托管播放器。
+     * <p>
+     * 所有播放器共享同一个音频焦点与网络状态。托管的播放器不支持睡眠定时器与音频特效，媒体按钮事件也总是由
+     * 主播放器处理；只有当主播放器没有在播放时，才会在通知栏中显示托管的播放器
+     * （见 {@link #onCreateHostedNotification(String, MusicItem, MediaSessionCompat.Token)}）。
+     * <p>
+     * 默认返回一个空数组，即不托管任何播放器。
+     *
+     * @return 托管的播放器的 ID，不能为 null，且每个 ID 都应该是唯一的
+     */
+    @NonNull
+    protected String[] getHostedPlayerIds() {
+        return new String[0];
+    }
+
+    static String getHostedPersistentId(String persistentId, String playerId) {
+        return persistentId + "/" + playerId;
+    }
+
+    static String getHostedSessionTokenKey(String playerId) {
+        return "snow.player.hosted_session_token:" + playerId;
+    }
+
+    @Override
+    public void setEventInterest(String clientToken, int interest) {
+        Preconditions.checkNotNull(clientToken);
+        mEventFilter.setEventInterest(clientToken, interest);
+    }
+
+    @Override
+    public void removeEventInterest(String clientToken) {
+        Preconditions.checkNotNull(clientToken);
+        mEventFilter.removeEventInterest(clientToken);
     }
 
     /**
@@ -579,6 +778,31 @@ public class PlayerService extends MediaBrowserServiceCompat
         return mPlayerConfig.isIgnoreAudioFocus();
     }
 
+    /**
+     * 设置发布到 MediaSession 的播放队列窗口的大小。
+     * <p>
+     * 为了避免超出 Binder 的传输限制，MediaSession 只会发布正在播放的歌曲附近的 windowSize 首歌曲，
+     * 并在切换歌曲或者修改播放列表时更新该窗口。默认值为 50。
+     * <p>
+     * 该设置会同时应用于主播放器与所有托管的播放器，可以在 {@link #onCreate()} 方法之前调用。
+     *
+     * @param windowSize 播放队列窗口的大小，设置为小于等于 0 时将不发布播放队列
+     */
+    public final void setQueueWindowSize(int windowSize) {
+        mQueueWindowSize = windowSize;
+
+        // 播放器尚未创建时，会在创建播放器时应用该设置
+        if (mPlayer != null) {
+            mPlayer.setQueueWindowSize(windowSize);
+        }
+
+        if (mAllHostedPlayer != null) {
+            for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+                hostedPlayer.mPlayer.setQueueWindowSize(windowSize);
+            }
+        }
+    }
+
     /**
      * 设置 {@link PlayerService} 处于空闲状态（暂停或者停止后）的最大存活时间。
      * <p>
@@ -606,23 +830,36 @@ public class PlayerService extends MediaBrowserServiceCompat
             return;
         }
 
-        mIDLETimerDisposable = Observable.timer(mMaxIDLEMinutes, TimeUnit.MINUTES)
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<Long>() {
-                    @Override
-                    public void accept(Long aLong) {
-                        shutdown();
-                    }
-                });
+        mIDLETimerTimeout = WheelTimer.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                shutdown();
+            }
+        }, TimeUnit.MINUTES.toMillis(mMaxIDLEMinutes));
     }
 
     private boolean notIDLE() {
-        return (isPreparing() || isStalled()) || (getPlaybackState() == PlaybackState.PLAYING);
+        if (notIDLE(mPlayer)) {
+            return true;
+        }
+
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            if (notIDLE(hostedPlayer.mPlayer)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean notIDLE(AbstractPlayer player) {
+        return (player.isPreparing() || player.isStalled()) || (player.getPlaybackState() == PlaybackState.PLAYING);
     }
 
     private void cancelIDLETimer() {
-        if (mIDLETimerDisposable != null && !mIDLETimerDisposable.isDisposed()) {
-            mIDLETimerDisposable.dispose();
+        if (mIDLETimerTimeout != null) {
+            mIDLETimerTimeout.cancel();
+            mIDLETimerTimeout = null;
         }
     }
 
@@ -704,6 +941,10 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         mPlayerStateListener.onShutdown();
         mMediaSession.sendSessionEvent(SESSION_EVENT_ON_SHUTDOWN, null);
+
+        for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+            hostedPlayer.notifyOnShutdown();
+        }
     }
 
     /**
@@ -793,6 +1034,12 @@ public class PlayerService extends MediaBrowserServiceCompat
             return;
         }
 
+        HostedPlayer hostedPlayer = getNotificationHostedPlayer();
+        if (hostedPlayer != null) {
+            showHostedNotification(hostedPlayer);
+            return;
+        }
+
         MusicItem musicItem = getPlayingMusicItem();
         if (musicItem == null || shouldClearNotification()) {
             stopForegroundEx(true);
@@ -827,7 +1074,128 @@ public class PlayerService extends MediaBrowserServiceCompat
     }
 
     private boolean shouldBeForeground() {
-        return mPlayer.getPlaybackState() == PlaybackState.PLAYING;
+        return mPlayer.getPlaybackState() == PlaybackState.PLAYING || mForegroundHostedPlayerCount > 0;
+    }
+
+    // 主播放器正在播放时总是显示主播放器；否则显示正在播放的托管播放器。没有任何播放器在播放，并且主播放器
+    // 没有需要显示的内容时，继续显示最后一个播放的托管播放器
+    @Nullable
+    private HostedPlayer getNotificationHostedPlayer() {
+        if (mPlayer.getPlaybackState() == PlaybackState.PLAYING) {
+            mNotificationHostedPlayer = null;
+            return null;
+        }
+
+        if (mNotificationHostedPlayer != null && mNotificationHostedPlayer.isHoldingForeground()) {
+            return mNotificationHostedPlayer;
+        }
+
+        if (mForegroundHostedPlayerCount > 0) {
+            for (HostedPlayer hostedPlayer : mAllHostedPlayer.values()) {
+                if (hostedPlayer.isHoldingForeground()) {
+                    mNotificationHostedPlayer = hostedPlayer;
+                    return hostedPlayer;
+                }
+            }
+        }
+
+        HostedPlayer lastHostedPlayer = mNotificationHostedPlayer;
+        if (lastHostedPlayer != null &&
+                lastHostedPlayer.mPlayerState.getPlaybackState() == PlaybackState.PAUSED &&
+                lastHostedPlayer.mPlayerState.getMusicItem() != null &&
+                (getPlayingMusicItem() == null || shouldClearNotification())) {
+            return lastHostedPlayer;
+        }
+
+        mNotificationHostedPlayer = null;
+        return null;
+    }
+
+    // 托管的播放器与主播放器共用同一个通知，只有在主播放器没有在播放时才会显示托管的播放器
+    private void showHostedNotification(HostedPlayer hostedPlayer) {
+        MusicItem musicItem = hostedPlayer.mPlayerState.getMusicItem();
+        if (musicItem == null) {
+            stopForegroundEx(true);
+            return;
+        }
+
+        Notification notification = onCreateHostedNotification(hostedPlayer.mPlayerId,
+                musicItem,
+                hostedPlayer.mMediaSession.getSessionToken());
+
+        cancelPendingNotify();
+        // 切换回主播放器时需要重新发送主播放器的通知
+        mNotificationView.clearRendered();
+
+        if (shouldBeForeground()) {
+            mForeground = true;
+            startForeground(mNotificationView.getNotificationId(), notification);
+        } else {
+            if (isForeground()) {
+                mForeground = false;
+                stopForeground(false);
+            }
+            mNotificationManager.notify(mNotificationView.getNotificationId(), notification);
+        }
+
+        mLastNotifyTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 创建托管的播放器的通知。
+     * <p>
+     * 托管的播放器与主播放器共用同一个通知（使用 {@link NotificationView#getNotificationId()} 作为通知的 id），
+     * 只有当主播放器没有在播放，而托管的播放器正在播放（或者最后一个播放的是托管的播放器）时才会显示托管的播放器的
+     * 通知。只要有一个播放器正在播放，Service 就会处于前台。如果没有设置 {@link NotificationView}，则不会显示
+     * 任何通知。
+     * <p>
+     * 默认的通知使用 {@code NotificationCompat.MediaStyle} 样式，并关联了托管的播放器的 MediaSession。
+     * 你可以覆盖该方法来自定义托管的播放器的通知。
+     *
+     * @param playerId     托管的播放器的 ID
+     * @param musicItem    托管的播放器正在播放的歌曲
+     * @param sessionToken 托管的播放器的 MediaSession 的 token
+     * @return 托管的播放器的通知，不能为 null
+     */
+    @NonNull
+    protected Notification onCreateHostedNotification(@NonNull String playerId,
+                                                      @NonNull MusicItem musicItem,
+                                                      @NonNull MediaSessionCompat.Token sessionToken) {
+        return new NotificationCompat.Builder(this, NotificationView.CHANNEL_ID)
+                .setSmallIcon(R.drawable.snow_ic_notification_small_icon)
+                .setContentTitle(MusicItemUtil.getTitle(this, musicItem))
+                .setContentText(MusicItemUtil.getArtist(this, musicItem))
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setShowWhen(false)
+                .setAutoCancel(false)
+                .setStyle(new androidx.media.app.NotificationCompat.MediaStyle()
+                        .setMediaSession(sessionToken))
+                .build();
+    }
+
+    /**
+     * 关闭指定的托管播放器。
+     * <p>
+     * 只会停止并释放该托管的播放器，并要求连接到该播放器的客户端断开连接，不会影响主播放器与其他托管的播放器。
+     * 之后会为该 ID 创建一个新的托管播放器（会恢复持久化的播放状态与播放列表），以便客户端重新连接。
+     */
+    private void shutdownHostedPlayer(String playerId) {
+        HostedPlayer hostedPlayer = mAllHostedPlayer.get(playerId);
+        if (hostedPlayer == null) {
+            return;
+        }
+
+        if (hostedPlayer.mPlayer.getPlaybackState() == PlaybackState.PLAYING) {
+            hostedPlayer.mPlayer.pause();
+        }
+
+        hostedPlayer.notifyOnShutdown();
+        hostedPlayer.release();
+        mAllHostedPlayer.put(playerId, new HostedPlayer(playerId));
+
+        updateNotificationView();
+        startIDLETimer();
     }
 
     /**
@@ -851,8 +1219,11 @@ public class PlayerService extends MediaBrowserServiceCompat
         }
 
         mForeground = true;
+        cancelPendingNotify();
         startForeground(mNotificationView.getNotificationId(),
                 mNotificationView.createNotification());
+        mNotificationView.markRendered();
+        mLastNotifyTime = SystemClock.elapsedRealtime();
     }
 
     /**
@@ -863,6 +1234,13 @@ public class PlayerService extends MediaBrowserServiceCompat
     protected final void stopForegroundEx(boolean removeNotification) {
         mForeground = false;
         stopForeground(removeNotification);
+
+        if (removeNotification) {
+            cancelPendingNotify();
+            if (!noNotificationView()) {
+                mNotificationView.clearRendered();
+            }
+        }
     }
 
     /**
@@ -959,6 +1337,8 @@ public class PlayerService extends MediaBrowserServiceCompat
         mPlayer.setPlaylist(playlist, position, play);
     }
 
+    // 只有在通知的内容发生改变时才会重新发送通知，并且限制发送通知的频率，
+    // 短时间内的多次改变会被合并成一次更新
     private void updateNotification() {
         if (noNotificationView()) {
             return;
@@ -969,8 +1349,46 @@ public class PlayerService extends MediaBrowserServiceCompat
             return;
         }
 
+        if (!mNotificationView.isContentChanged()) {
+            return;
+        }
+
+        long delay = mLastNotifyTime + NOTIFY_INTERVAL - SystemClock.elapsedRealtime();
+        if (delay <= 0) {
+            cancelPendingNotify();
+            notifyNotification();
+            return;
+        }
+
+        if (mPendingNotifyDisposable != null) {
+            return;
+        }
+
+        mPendingNotifyDisposable = AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                mPendingNotifyDisposable = null;
+                updateNotificationView();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifyNotification() {
+        if (noNotificationView()) {
+            return;
+        }
+
         mNotificationManager.notify(mNotificationView.getNotificationId(),
                 mNotificationView.createNotification());
+        mNotificationView.markRendered();
+        mLastNotifyTime = SystemClock.elapsedRealtime();
+    }
+
+    private void cancelPendingNotify() {
+        if (mPendingNotifyDisposable != null) {
+            mPendingNotifyDisposable.dispose();
+            mPendingNotifyDisposable = null;
+        }
     }
 
     /**
@@ -1035,7 +1453,17 @@ public class PlayerService extends MediaBrowserServiceCompat
         stopForegroundEx(true);
     }
 
+    private void onPlaylistChanged() {
+        mMediaBrowserTree.onPlaylistChanged();
+        notifyChildrenChanged(MediaBrowserTree.MEDIA_ID_QUEUE);
+    }
+
     private void onPlayingMusicItemChanged(@Nullable MusicItem musicItem) {
+        if (musicItem != null) {
+            mMediaBrowserTree.addRecent(musicItem);
+            notifyChildrenChanged(MediaBrowserTree.MEDIA_ID_RECENT);
+        }
+
         if (mHistoryRecorder != null && musicItem != null) {
             mHistoryRecorder.recordHistory(musicItem);
         }
@@ -1116,25 +1544,23 @@ public class PlayerService extends MediaBrowserServiceCompat
             return;
         }
 
-        mSleepTimerDisposable = Observable.timer(time, TimeUnit.MILLISECONDS)
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<Long>() {
-                    @Override
-                    public void accept(Long aLong) {
-                        switch (action) {
-                            case PAUSE:
-                                PlayerService.this.getPlayer().pause();
-                                break;
-                            case STOP:
-                                PlayerService.this.getPlayer().stop();
-                                break;
-                            case SHUTDOWN:
-                                PlayerService.this.shutdown();
-                                break;
-                        }
-                        notifySleepTimerEnd();
-                    }
-                });
+        mSleepTimerTimeout = WheelTimer.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                switch (action) {
+                    case PAUSE:
+                        PlayerService.this.getPlayer().pause();
+                        break;
+                    case STOP:
+                        PlayerService.this.getPlayer().stop();
+                        break;
+                    case SHUTDOWN:
+                        PlayerService.this.shutdown();
+                        break;
+                }
+                notifySleepTimerEnd();
+            }
+        }, time);
 
         long startTime = SystemClock.elapsedRealtime();
         mPlayerStateHelper.onSleepTimerStart(time, startTime, action);
@@ -1151,11 +1577,12 @@ public class PlayerService extends MediaBrowserServiceCompat
     }
 
     private void disposeLastSleepTimer() {
-        if (mSleepTimerDisposable == null || mSleepTimerDisposable.isDisposed()) {
+        if (mSleepTimerTimeout == null) {
             return;
         }
 
-        mSleepTimerDisposable.dispose();
+        mSleepTimerTimeout.cancel();
+        mSleepTimerTimeout = null;
     }
 
     private void notifySleepTimerEnd() {
@@ -1170,8 +1597,9 @@ public class PlayerService extends MediaBrowserServiceCompat
                          @NonNull PlayerState playlistState,
                          @NonNull PlaylistManagerImp playlistManager,
                          @NonNull AppWidgetPreferences pref,
+                         @NonNull SharedPlayerHelper sharedHelper,
                          boolean prepare) {
-            super(context, playerConfig, playlistState, playlistManager, pref, prepare);
+            super(context, playerConfig, playlistState, playlistManager, pref, sharedHelper, prepare);
         }
 
         @Override
@@ -1244,6 +1672,12 @@ public class PlayerService extends MediaBrowserServiceCompat
             PlayerService.this.onPlayingMusicItemChanged(musicItem);
         }
 
+        @Override
+        protected void onPlaylistChanged(int position) {
+            super.onPlaylistChanged(position);
+            PlayerService.this.onPlaylistChanged();
+        }
+
         @Override
         protected void attachAudioEffect(int audioSessionId) {
             super.attachAudioEffect(audioSessionId);
@@ -1324,6 +1758,13 @@ public class PlayerService extends MediaBrowserServiceCompat
             mPlayer.skipToPosition((int) id);
         }
 
+        @Override
+        public void onPlayFromMediaId(String mediaId, Bundle extras) {
+            if (mediaId != null) {
+                mPlayerService.mMediaBrowserTree.playFromMediaId(mediaId);
+            }
+        }
+
         @Override
         public void onPause() {
             mPlayer.pause();
@@ -1399,11 +1840,24 @@ public class PlayerService extends MediaBrowserServiceCompat
         private Bitmap mIcon;
         private Bitmap mDefaultIcon;
         private CustomTarget<Bitmap> mTarget;
+        @Nullable
+        private Disposable mEmbeddedIconDisposable;
 
         private boolean mNotifyOnCreate;
         private boolean mKeepOnStopped;
         private boolean mReleased;
 
+        // 上一次发送的通知所展示的内容，用于判断是否需要重新发送通知
+        private boolean mRendered;
+        private boolean mContentInvalid;
+        private MusicItem mRenderedMusicItem;
+        private Bitmap mRenderedIcon;
+        private PlaybackState mRenderedPlaybackState;
+        private boolean mRenderedPreparing;
+        private boolean mRenderedStalled;
+        private int mRenderedErrorCode;
+        private PlayMode mRenderedPlayMode;
+
         private int mPendingIntentRequestCode;
 
         void init(PlayerService playerService) {
@@ -1435,6 +1889,7 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         private void release() {
             mReleased = true;
+            disposeEmbeddedIcon();
             Glide.with(getContext())
                     .clear(mTarget);
             mTarget = null;
@@ -1463,14 +1918,47 @@ public class PlayerService extends MediaBrowserServiceCompat
          */
         protected void reloadIcon() {
             setNeedReloadIcon(false);
+            disposeEmbeddedIcon();
 
             Glide.with(getContext())
                     .clear(mTarget);
 
+            final MusicItem musicItem = getPlayingMusicItem();
+            if (musicItem.getIconUri().isEmpty()) {
+                loadEmbeddedIcon(musicItem);
+                return;
+            }
+
             Glide.with(getContext())
                     .asBitmap()
-                    .load(getPlayingMusicItem().getIconUri())
-                    .error(loadEmbeddedIcon())
+                    .load(musicItem.getIconUri())
+                    .listener(new RequestListener<Bitmap>() {
+                        @Override
+                        public boolean onLoadFailed(@Nullable GlideException e,
+                                                    Object model,
+                                                    Target<Bitmap> target,
+                                                    boolean isFirstResource) {
+                            // 不能在 RequestListener 的回调中开始新的加载，因此延迟到下一个消息中执行
+                            AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (!mReleased && musicItem.equals(getPlayingMusicItem())) {
+                                        loadEmbeddedIcon(musicItem);
+                                    }
+                                }
+                            });
+                            return true;
+                        }
+
+                        @Override
+                        public boolean onResourceReady(Bitmap resource,
+                                                       Object model,
+                                                       Target<Bitmap> target,
+                                                       DataSource dataSource,
+                                                       boolean isFirstResource) {
+                            return false;
+                        }
+                    })
                     .transform(new GranularRoundedCorners(mIconCornerRadius[0],
                             mIconCornerRadius[1],
                             mIconCornerRadius[2],
@@ -1497,22 +1985,48 @@ public class PlayerService extends MediaBrowserServiceCompat
                     PendingIntent.FLAG_UPDATE_CURRENT);
         }
 
-        private boolean notLocaleMusic() {
-            String stringUri = getPlayingMusicItem().getUri();
-            String scheme = Uri.parse(stringUri).getScheme();
+        // 内嵌图片由 ArtworkCache 在 io 线程中提取，并与 UI 共享缓存。图片会先按图标的尺寸解码并裁剪成圆角，
+        // 缓存的是最终结果，因此不需要再交给 Glide 进行变换
+        private void loadEmbeddedIcon(final MusicItem musicItem) {
+            disposeEmbeddedIcon();
+
+            mEmbeddedIconDisposable = ArtworkCache.getInstance(getContext())
+                    .getArtwork(musicItem.getUri(), mIconSize[0], mIconSize[1], mIconCornerRadius)
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(new Consumer<Bitmap>() {
+                        @Override
+                        public void accept(Bitmap bitmap) {
+                            if (!mReleased) {
+                                setIcon(bitmap);
+                            }
+                        }
+                    }, new Consumer<Throwable>() {
+                        @Override
+                        public void accept(Throwable throwable) {
+                            throwable.printStackTrace();
+                            showDefaultIcon();
+                        }
+                    }, new Action() {
+                        @Override
+                        public void run() {
+                            showDefaultIcon();
+                        }
+                    });
+        }
+
+        private void showDefaultIcon() {
+            if (mReleased) {
+                return;
+            }
 
-            return "http".equalsIgnoreCase(scheme) | "https".equalsIgnoreCase(scheme);
+            loadDefaultIcon().into(mTarget);
         }
 
-        private RequestBuilder<Bitmap> loadEmbeddedIcon() {
-            return Glide.with(getContext())
-                    .asBitmap()
-                    .load(getEmbeddedIcon())
-                    .error(loadDefaultIcon())
-                    .transform(new GranularRoundedCorners(mIconCornerRadius[0],
-                            mIconCornerRadius[1],
-                            mIconCornerRadius[2],
-                            mIconCornerRadius[3]));
+        private void disposeEmbeddedIcon() {
+            if (mEmbeddedIconDisposable != null) {
+                mEmbeddedIconDisposable.dispose();
+                mEmbeddedIconDisposable = null;
+            }
         }
 
         private RequestBuilder<Bitmap> loadDefaultIcon() {
@@ -1525,24 +2039,6 @@ public class PlayerService extends MediaBrowserServiceCompat
                             mIconCornerRadius[3]));
         }
 
-        private byte[] getEmbeddedIcon() {
-            if (notLocaleMusic()) {
-                return null;
-            }
-
-            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-
-            try {
-                retriever.setDataSource(getContext(), Uri.parse(getPlayingMusicItem().getUri()));
-                return retriever.getEmbeddedPicture();
-            } catch (IllegalArgumentException e) {
-                e.printStackTrace();
-                return null;
-            } finally {
-                retriever.release();
-            }
-        }
-
         /**
          * 创建一个新的 Notification 对象，不能为 null。
          *
@@ -1857,12 +2353,17 @@ public class PlayerService extends MediaBrowserServiceCompat
 
         /**
          * 要求 Service 更新 NotificationView，如果没有设置 NotificationView，则忽略本次操作。
+         * <p>
+         * Service 只会在通知展示的播放器状态（歌曲、图标、播放状态、准备中、stalled、错误与播放模式）
+         * 发生改变时才会重新发送通知。如果子类展示了其他内容，则需要在这些内容发生改变时调用该方法，
+         * 调用该方法后一定会重新发送通知。
          */
         public final void invalidate() {
             if (mReleased) {
                 return;
             }
 
+            mContentInvalid = true;
             mPlayerService.updateNotificationView();
         }
 
@@ -1888,6 +2389,47 @@ public class PlayerService extends MediaBrowserServiceCompat
             return mNeedReloadIcon;
         }
 
+        /**
+         * 通知所展示的内容是否已经发生了改变。
+         */
+        boolean isContentChanged() {
+            if (!mRendered || mContentInvalid || mNeedReloadIcon) {
+                return true;
+            }
+
+            return !mMusicItem.equals(mRenderedMusicItem) ||
+                    mIcon != mRenderedIcon ||
+                    getPlaybackState() != mRenderedPlaybackState ||
+                    isPreparing() != mRenderedPreparing ||
+                    isStalled() != mRenderedStalled ||
+                    mPlayerService.getErrorCode() != mRenderedErrorCode ||
+                    getPlayMode() != mRenderedPlayMode;
+        }
+
+        /**
+         * 记录已发送的通知所展示的内容。
+         */
+        void markRendered() {
+            mRendered = true;
+            mContentInvalid = false;
+            mRenderedMusicItem = mMusicItem;
+            mRenderedIcon = mIcon;
+            mRenderedPlaybackState = getPlaybackState();
+            mRenderedPreparing = isPreparing();
+            mRenderedStalled = isStalled();
+            mRenderedErrorCode = mPlayerService.getErrorCode();
+            mRenderedPlayMode = getPlayMode();
+        }
+
+        /**
+         * 通知已被移除，下一次更新时必须重新发送通知。
+         */
+        void clearRendered() {
+            mRendered = false;
+            mRenderedMusicItem = null;
+            mRenderedIcon = null;
+        }
+
         void setNeedReloadIcon(boolean needReloadIcon) {
             mNeedReloadIcon = needReloadIcon;
         }
@@ -2068,4 +2610,748 @@ public class PlayerService extends MediaBrowserServiceCompat
             // ignore
         }
     }
+
+    /**
+     * 主播放器的 {@link LocalPlayer}，供同一进程中的客户端直接使用。
+     */
+    private class PrimaryLocalPlayer implements LocalPlayer {
+
+        @NonNull
+        @Override
+        public Player getPlayer() {
+            return mPlayer;
+        }
+
+        @NonNull
+        @Override
+        public PlaylistEditor getPlaylistEditor() {
+            return PlayerService.this;
+        }
+
+        @NonNull
+        @Override
+        public TransactionExecutor getTransactionExecutor() {
+            return mTransactionExecutor;
+        }
+
+        @NonNull
+        @Override
+        public PlayerStateSynchronizer getPlayerStateSynchronizer() {
+            return PlayerService.this;
+        }
+
+        @NonNull
+        @Override
+        public PlayerStateDelta createPlayerStateDelta(String changeLogToken, long version) {
+            return mPlayerStateChangeLog.createDelta(changeLogToken, version, mPlayerState);
+        }
+
+        @Override
+        public void addLocalClient(@NonNull LocalClientGroup.LocalClient client) {
+            mLocalClientGroup.addLocalClient(client);
+        }
+
+        @Override
+        public void removeLocalClient(LocalClientGroup.LocalClient client) {
+            mLocalClientGroup.removeLocalClient(client);
+        }
+    }
+
+    /**
+     * 由 PlayerService 托管的播放器。
+     * <p>
+     * 每个托管的播放器都有自己的播放状态、播放列表与 MediaSession，并使用各自的 MediaSession 与客户端通信，
+     * 但会与主播放器共享同一个 {@link PlayerConfig}。
+     *
+     * @see #getHostedPlayerIds()
+     */
+    private class HostedPlayer implements LocalPlayer, PlayerStateSynchronizer {
+        private final String mPlayerId;
+        private final PlayerState mPlayerState;
+        private final PlayerStateChangeLog mPlayerStateChangeLog;
+        private final HostedPlayerImp mPlayer;
+        private final MediaSessionCompat mMediaSession;
+
+        private final LocalClientGroup mLocalClientGroup;
+        private final EventFilter mEventFilter;
+        private final PlayerStateSynchronizer.OnSyncPlayerStateListener mSyncPlayerStateListener;
+        private final TransactionExecutorImp mTransactionExecutor;
+        private final PlaylistAssembler mPlaylistAssembler;
+        private final CustomActionPipe mCustomActionDispatcher;
+
+        private boolean mHoldingForeground;
+
+        HostedPlayer(String playerId) {
+            String persistentId = getHostedPersistentId(mPersistentId, playerId);
+
+            mPlayerId = playerId;
+            mPlayerState = new PersistentPlayerState(PlayerService.this, persistentId);
+            mPlayerStateChangeLog = new PlayerStateChangeLog();
+            mPlayerState.setChangeLog(mPlayerStateChangeLog);
+
+            mPlayer = new HostedPlayerImp(PlayerService.this,
+                    mPlayerConfig,
+                    mPlayerState,
+                    new PlaylistManagerImp(PlayerService.this, persistentId),
+                    new AppWidgetPreferences(PlayerService.this, PlayerService.this.getClass(), playerId),
+                    mSharedPlayerHelper,
+                    this);
+
+            mMediaSession = new MediaSessionCompat(PlayerService.this, persistentId);
+            mPlayer.setQueueWindowSize(mQueueWindowSize);
+            mPlayer.setMediaSession(mMediaSession);
+            // 激活 MediaSession，使客户端与系统在开始播放前就能通过该 MediaSession 控制托管的播放器
+            mMediaSession.setActive(true);
+
+            SessionEventPipe sessionEventEmitter = new SessionEventPipe(mMediaSession);
+            mLocalClientGroup = new LocalClientGroup(
+                    ChannelHelper.newEmitter(PlayerStateListener.class, sessionEventEmitter),
+                    ChannelHelper.newEmitter(OnStateChangeListener.class, sessionEventEmitter),
+                    ChannelHelper.newEmitter(TransactionExecutor.OnCommitListener.class, sessionEventEmitter));
+            mEventFilter = new EventFilter(mLocalClientGroup, mLocalClientGroup);
+            mSyncPlayerStateListener = ChannelHelper.newEmitter(PlayerStateSynchronizer.OnSyncPlayerStateListener.class, sessionEventEmitter);
+            mPlayer.setPlayerStateListener(mEventFilter);
+
+            mTransactionExecutor = new TransactionExecutorImp(mPlayer,
+                    mPlayerState,
+                    mPlayerStateChangeLog,
+                    mEventFilter,
+                    mLocalClientGroup);
+            mPlaylistAssembler = new PlaylistAssembler(mPlayer);
+
+            mCustomActionDispatcher = new CustomActionPipe(
+                    DispatcherUtil.merge(
+                            ChannelHelper.newDispatcher(PlayerStateSynchronizer.class, this),
+                            ChannelHelper.newDispatcher(PlayerManager.class, PlayerService.this),
+                            ChannelHelper.newDispatcher(Player.class, mPlayer),
+                            ChannelHelper.newDispatcher(PlaylistEditor.class, mPlayer),
+                            ChannelHelper.newDispatcher(TransactionExecutor.class, mTransactionExecutor),
+                            ChannelHelper.newDispatcher(PlaylistTransfer.class, mPlaylistAssembler)
+                    ));
+
+            mMediaSession.setCallback(new MediaSessionCompat.Callback() {
+                @Override
+                public void onCustomAction(String action, Bundle extras) {
+                    if (CUSTOM_ACTION_SHUTDOWN.equals(action)) {
+                        // 只关闭当前托管的播放器，不影响主播放器与其他托管的播放器
+                        shutdownHostedPlayer(mPlayerId);
+                        return;
+                    }
+
+                    mCustomActionDispatcher.dispatch(action, extras);
+                }
+
+                @Override
+                public void onPlay() {
+                    mPlayer.play();
+                }
+
+                @Override
+                public void onPause() {
+                    mPlayer.pause();
+                }
+
+                @Override
+                public void onStop() {
+                    mPlayer.stop();
+                }
+
+                @Override
+                public void onSkipToNext() {
+                    mPlayer.skipToNext();
+                }
+
+                @Override
+                public void onSkipToPrevious() {
+                    mPlayer.skipToPrevious();
+                }
+
+                @Override
+                public void onSkipToQueueItem(long id) {
+                    mPlayer.skipToPosition((int) id);
+                }
+
+                @Override
+                public void onSeekTo(long pos) {
+                    mPlayer.seekTo((int) pos);
+                }
+            });
+        }
+
+        void notifyOnShutdown() {
+            mEventFilter.onShutdown();
+            mMediaSession.sendSessionEvent(SESSION_EVENT_ON_SHUTDOWN, null);
+        }
+
+        void release() {
+            setHoldingForeground(false);
+            if (mNotificationHostedPlayer == this) {
+                mNotificationHostedPlayer = null;
+            }
+
+            mTransactionExecutor.release();
+            mPlaylistAssembler.release();
+            mMediaSession.release();
+            mPlayer.release();
+        }
+
+        /**
+         * 设置当前托管的播放器是否需要 Service 处于前台（即是否正在播放），并更新通知栏。
+         */
+        void setHoldingForeground(boolean holdingForeground) {
+            if (mHoldingForeground == holdingForeground) {
+                return;
+            }
+
+            mHoldingForeground = holdingForeground;
+            mForegroundHostedPlayerCount += holdingForeground ? 1 : -1;
+        }
+
+        boolean isHoldingForeground() {
+            return mHoldingForeground;
+        }
+
+        @Override
+        public void syncPlayerState(String clientToken, String changeLogToken, long version) {
+            mSyncPlayerStateListener.onSyncPlayerState(clientToken,
+                    createPlayerStateDelta(changeLogToken, version));
+        }
+
+        @Override
+        public void setEventInterest(String clientToken, int interest) {
+            Preconditions.checkNotNull(clientToken);
+            mEventFilter.setEventInterest(clientToken, interest);
+        }
+
+        @Override
+        public void removeEventInterest(String clientToken) {
+            Preconditions.checkNotNull(clientToken);
+            mEventFilter.removeEventInterest(clientToken);
+        }
+
+        void clearEventInterest() {
+            mEventFilter.clearEventInterest();
+        }
+
+        @NonNull
+        @Override
+        public Player getPlayer() {
+            return mPlayer;
+        }
+
+        @NonNull
+        @Override
+        public PlaylistEditor getPlaylistEditor() {
+            return mPlayer;
+        }
+
+        @NonNull
+        @Override
+        public TransactionExecutor getTransactionExecutor() {
+            return mTransactionExecutor;
+        }
+
+        @NonNull
+        @Override
+        public PlayerStateSynchronizer getPlayerStateSynchronizer() {
+            return this;
+        }
+
+        @NonNull
+        @Override
+        public PlayerStateDelta createPlayerStateDelta(String changeLogToken, long version) {
+            return mPlayerStateChangeLog.createDelta(changeLogToken, version, mPlayerState);
+        }
+
+        @Override
+        public void addLocalClient(@NonNull LocalClientGroup.LocalClient client) {
+            mLocalClientGroup.addLocalClient(client);
+        }
+
+        @Override
+        public void removeLocalClient(LocalClientGroup.LocalClient client) {
+            mLocalClientGroup.removeLocalClient(client);
+        }
+    }
+
+    // 托管的播放器不会应用音频特效，只有在主播放器没有在播放时才会显示在通知栏中
+    private class HostedPlayerImp extends AbstractPlayer {
+        private final HostedPlayer mOwner;
+
+        HostedPlayerImp(@NonNull Context context,
+                        @NonNull PlayerConfig playerConfig,
+                        @NonNull PlayerState playlistState,
+                        @NonNull PlaylistManagerImp playlistManager,
+                        @NonNull AppWidgetPreferences pref,
+                        @NonNull SharedPlayerHelper sharedHelper,
+                        @NonNull HostedPlayer owner) {
+            super(context, playerConfig, playlistState, playlistManager, pref, sharedHelper, false);
+            mOwner = owner;
+        }
+
+        @Override
+        protected boolean isCached(MusicItem musicItem, SoundQuality soundQuality) {
+            return PlayerService.this.isCached(musicItem, soundQuality);
+        }
+
+        @NonNull
+        @Override
+        protected MusicPlayer onCreateMusicPlayer(@NonNull Context context, @NonNull MusicItem musicItem, @NonNull Uri uri) {
+            return PlayerService.this.onCreateMusicPlayer(context, musicItem, uri);
+        }
+
+        @Nullable
+        @Override
+        protected Uri retrieveMusicItemUri(@NonNull MusicItem musicItem, @NonNull SoundQuality soundQuality) throws Exception {
+            return PlayerService.this.onRetrieveMusicItemUri(musicItem, soundQuality);
+        }
+
+        @Override
+        protected void onPreparing() {
+            super.onPreparing();
+            PlayerService.this.cancelIDLETimer();
+        }
+
+        @Override
+        protected void onPlaying(int progress, long updateTime) {
+            super.onPlaying(progress, updateTime);
+            mOwner.setHoldingForeground(true);
+            PlayerService.this.updateNotificationView();
+            PlayerService.this.cancelIDLETimer();
+        }
+
+        @Override
+        protected void onPaused() {
+            super.onPaused();
+            mOwner.setHoldingForeground(false);
+            PlayerService.this.updateNotificationView();
+            PlayerService.this.startIDLETimer();
+        }
+
+        @Override
+        protected void onStopped() {
+            super.onStopped();
+            mOwner.setHoldingForeground(false);
+            PlayerService.this.updateNotificationView();
+            PlayerService.this.startIDLETimer();
+        }
+
+        @Override
+        protected void onError(int errorCode, String errorMessage) {
+            super.onError(errorCode, errorMessage);
+            mOwner.setHoldingForeground(false);
+            PlayerService.this.updateNotificationView();
+        }
+
+        @Override
+        protected void onPlayingMusicItemChanged(@Nullable MusicItem musicItem) {
+            super.onPlayingMusicItemChanged(musicItem);
+            if (mNotificationHostedPlayer == mOwner) {
+                PlayerService.this.updateNotificationView();
+            }
+        }
+    }
+
+    /**
+     * 按顺序执行客户端提交的事务，并在事务执行完毕后一次性通知所有客户端。
+     * <p>
+     * 由于播放列表的保存是异步进行的，因此遇到设置播放列表的命令时，会等到新的播放列表生效后再继续执行后续的
+     * 命令。如果在等待期间又收到了新的事务，则新事务的命令会被追加到当前事务的末尾，并一同提交。
+     */
+    private class TransactionExecutorImp implements TransactionExecutor {
+        // 等待播放列表生效的最长时间，避免因播放列表的保存被后续的修改取消而导致事务无法结束
+        private static final long MAX_PLAYLIST_WAIT_MILLIS = 3_000;
+
+        // 事务所属的播放器，可以是主播放器，也可以是托管的播放器
+        private final AbstractPlayer mPlayer;
+        private final PlayerState mPlayerState;
+        private final PlayerStateChangeLog mPlayerStateChangeLog;
+        private final EventFilter mEventFilter;
+        private final TransactionExecutor.OnCommitListener mTransactionCommitListener;
+
+        private final LinkedList<Bundle> mPendingCommands;
+        private boolean mExecuting;
+        private long mStartVersion;
+
+        @Nullable
+        private WheelTimer.Timeout mWaitPlaylistTimeout;
+        @Nullable
+        private Object mWaitPlaylistToken;
+
+        TransactionExecutorImp(AbstractPlayer player,
+                               PlayerState playerState,
+                               PlayerStateChangeLog playerStateChangeLog,
+                               EventFilter eventFilter,
+                               TransactionExecutor.OnCommitListener commitListener) {
+            mPlayer = player;
+            mPlayerState = playerState;
+            mPlayerStateChangeLog = playerStateChangeLog;
+            mEventFilter = eventFilter;
+            mTransactionCommitListener = commitListener;
+            mPendingCommands = new LinkedList<>();
+        }
+
+        @Override
+        public void execute(Bundle transaction) {
+            List<Bundle> commands = TransactionCommand.getCommands(transaction);
+            if (commands.isEmpty()) {
+                return;
+            }
+
+            mPendingCommands.addAll(commands);
+
+            if (!mExecuting) {
+                mExecuting = true;
+                mStartVersion = mPlayerStateChangeLog.getVersion();
+                mEventFilter.beginBatch();
+            }
+
+            if (mWaitPlaylistToken == null) {
+                executePendingCommands();
+            }
+        }
+
+        void release() {
+            mPendingCommands.clear();
+            disposeWaitPlaylist();
+        }
+
+        private void executePendingCommands() {
+            Bundle command;
+            while ((command = mPendingCommands.poll()) != null) {
+                if (TransactionCommand.getOp(command) == TransactionCommand.SET_PLAYLIST) {
+                    setPlaylistAndWait(command);
+                    return;
+                }
+
+                executeCommand(command);
+            }
+
+            commit();
+        }
+
+        private void setPlaylistAndWait(Bundle command) {
+            final Object waitToken = new Object();
+            mWaitPlaylistToken = waitToken;
+
+            // 播放列表生效后产生的事件是由当前事务引起的，需要继续合并
+            final Runnable beforeChanged = new Runnable() {
+                @Override
+                public void run() {
+                    if (mWaitPlaylistToken == waitToken) {
+                        mEventFilter.resumeBatch();
+                    }
+                }
+            };
+
+            final Runnable resume = new Runnable() {
+                @Override
+                public void run() {
+                    if (mWaitPlaylistToken != waitToken) {
+                        return;
+                    }
+
+                    mEventFilter.resumeBatch();
+                    disposeWaitPlaylist();
+                    executePendingCommands();
+                }
+            };
+
+            mWaitPlaylistTimeout = WheelTimer.getInstance().schedule(resume, MAX_PLAYLIST_WAIT_MILLIS);
+
+            mPlayer.setPlaylist(TransactionCommand.getPlaylist(command),
+                    TransactionCommand.getInt(command),
+                    TransactionCommand.getBoolean(command),
+                    beforeChanged,
+                    resume);
+
+            if (mWaitPlaylistToken == waitToken) {
+                // 等待播放列表生效期间产生的事件与当前事务无关（例如音频焦点丢失、播放出错、睡眠定时器等），
+                // 需要立即发送给客户端
+                mEventFilter.suspendBatch();
+            }
+        }
+
+        private void disposeWaitPlaylist() {
+            mWaitPlaylistToken = null;
+            if (mWaitPlaylistTimeout == null) {
+                return;
+            }
+
+            mWaitPlaylistTimeout.cancel();
+            mWaitPlaylistTimeout = null;
+        }
+
+        private void executeCommand(Bundle command) {
+            switch (TransactionCommand.getOp(command)) {
+                case TransactionCommand.PLAY:
+                    mPlayer.play();
+                    break;
+                case TransactionCommand.PAUSE:
+                    mPlayer.pause();
+                    break;
+                case TransactionCommand.STOP:
+                    mPlayer.stop();
+                    break;
+                case TransactionCommand.PLAY_PAUSE:
+                    mPlayer.playPause();
+                    break;
+                case TransactionCommand.SEEK_TO:
+                    mPlayer.seekTo(TransactionCommand.getInt(command));
+                    break;
+                case TransactionCommand.SKIP_TO_NEXT:
+                    mPlayer.skipToNext();
+                    break;
+                case TransactionCommand.SKIP_TO_PREVIOUS:
+                    mPlayer.skipToPrevious();
+                    break;
+                case TransactionCommand.SKIP_TO_POSITION:
+                    mPlayer.skipToPosition(TransactionCommand.getInt(command));
+                    break;
+                case TransactionCommand.PLAY_PAUSE_POSITION:
+                    mPlayer.playPause(TransactionCommand.getInt(command));
+                    break;
+                case TransactionCommand.SET_PLAY_MODE:
+                    mPlayer.setPlayMode(PlayMode.values()[TransactionCommand.getInt(command)]);
+                    break;
+                case TransactionCommand.SET_SOUND_QUALITY:
+                    setSoundQuality(SoundQuality.values()[TransactionCommand.getInt(command)]);
+                    break;
+                case TransactionCommand.SET_AUDIO_EFFECT_ENABLED:
+                    setAudioEffectEnabled(TransactionCommand.getBoolean(command));
+                    break;
+                case TransactionCommand.SET_ONLY_WIFI_NETWORK:
+                    setOnlyWifiNetwork(TransactionCommand.getBoolean(command));
+                    break;
+                case TransactionCommand.SET_IGNORE_AUDIO_FOCUS:
+                    setIgnoreAudioFocus(TransactionCommand.getBoolean(command));
+                    break;
+            }
+        }
+
+        private void commit() {
+            mExecuting = false;
+            int events = mEventFilter.endBatch();
+
+            mTransactionCommitListener.onCommitted(
+                    mPlayerStateChangeLog.createDelta(mPlayerStateChangeLog.getToken(), mStartVersion, mPlayerState),
+                    events);
+        }
+    }
+
+    /**
+     * 根据客户端感兴趣的事件类型过滤要发送的事件。
+     * <p>
+     * 由于 MediaSession 的 session event 会被发送给所有已连接的客户端，因此无法单独为某个客户端过滤事件。
+     * 这里会合并所有客户端感兴趣的事件类型，只要有一个客户端对某个事件感兴趣，该事件就会被发送。如果没有任何
+     * 客户端设置过感兴趣的事件类型（例如旧版本的客户端），则会发送所有事件。只会过滤只用于通知的事件，会更新
+     * 客户端播放器状态（例如播放进度）的事件总会被发送，参见 {@link EventInterest}。
+     * <p>
+     * 客户端断开连接时会移除其感兴趣的事件类型；所有客户端都已解除绑定（包括意外死亡的客户端）时，会移除所有
+     * 客户端感兴趣的事件类型。
+     * <p>
+     * 在同步执行事务中的命令期间，所有事件都会被合并，并在事务执行完毕后由 {@link TransactionExecutorImp}
+     * 一次性通知给客户端。等待事务设置的播放列表生效期间会暂停合并，此时产生的与事务无关的事件会被立即发送。
+     */
+    private static class EventFilter implements PlayerStateListener, OnStateChangeListener {
+        private final PlayerStateListener mPlayerStateEmitter;
+        private final OnStateChangeListener mSleepTimerStateEmitter;
+        private final Map<String, Integer> mAllClientInterest;
+        private int mInterest;
+
+        private boolean mBatching;
+        private int mMergedEvents;
+
+        EventFilter(PlayerStateListener playerStateEmitter, OnStateChangeListener sleepTimerStateEmitter) {
+            mPlayerStateEmitter = playerStateEmitter;
+            mSleepTimerStateEmitter = sleepTimerStateEmitter;
+            mAllClientInterest = new HashMap<>();
+            mInterest = EventInterest.ALL;
+        }
+
+        void setEventInterest(String clientToken, int interest) {
+            mAllClientInterest.put(clientToken, interest);
+            updateInterest();
+        }
+
+        void removeEventInterest(String clientToken) {
+            mAllClientInterest.remove(clientToken);
+            updateInterest();
+        }
+
+        /**
+         * 移除所有客户端感兴趣的事件类型。
+         */
+        void clearEventInterest() {
+            mAllClientInterest.clear();
+            updateInterest();
+        }
+
+        private void updateInterest() {
+            if (mAllClientInterest.isEmpty()) {
+                mInterest = EventInterest.ALL;
+                return;
+            }
+
+            int interest = EventInterest.NONE;
+            for (int clientInterest : mAllClientInterest.values()) {
+                interest |= clientInterest;
+            }
+
+            mInterest = interest;
+        }
+
+        /**
+         * 开始合并事件。在调用 {@link #endBatch()} 或 {@link #suspendBatch()} 前，除 onShutdown 外的所有事件
+         * 都不会被发送。
+         */
+        void beginBatch() {
+            mBatching = true;
+            mMergedEvents = EventInterest.NONE;
+        }
+
+        /**
+         * 暂停合并事件。暂停期间的事件会被立即发送，已合并的事件会被保留到调用 {@link #endBatch()} 时返回。
+         */
+        void suspendBatch() {
+            mBatching = false;
+        }
+
+        /**
+         * 恢复被 {@link #suspendBatch()} 暂停的事件合并。
+         */
+        void resumeBatch() {
+            mBatching = true;
+        }
+
+        /**
+         * 结束合并事件。
+         *
+         * @return 合并期间被合并的事件类型的位掩码
+         */
+        int endBatch() {
+            mBatching = false;
+            return mMergedEvents;
+        }
+
+        private boolean isInterested(int event) {
+            return (mInterest & event) != 0;
+        }
+
+        private boolean shouldEmit(int event) {
+            if (mBatching) {
+                mMergedEvents |= event;
+                return false;
+            }
+
+            return true;
+        }
+
+        private boolean shouldEmitIfInterested(int event) {
+            return isInterested(event) && shouldEmit(event);
+        }
+
+        @Override
+        public void onPlay(boolean stalled, int playProgress, long playProgressUpdateTime) {
+            if (shouldEmit(EventInterest.PLAYBACK_STATE)) {
+                mPlayerStateEmitter.onPlay(stalled, playProgress, playProgressUpdateTime);
+            }
+        }
+
+        @Override
+        public void onPause(int playProgress, long updateTime) {
+            if (shouldEmit(EventInterest.PLAYBACK_STATE)) {
+                mPlayerStateEmitter.onPause(playProgress, updateTime);
+            }
+        }
+
+        @Override
+        public void onStop() {
+            if (shouldEmit(EventInterest.PLAYBACK_STATE)) {
+                mPlayerStateEmitter.onStop();
+            }
+        }
+
+        @Override
+        public void onError(int errorCode, String errorMessage) {
+            if (shouldEmit(EventInterest.PLAYBACK_STATE)) {
+                mPlayerStateEmitter.onError(errorCode, errorMessage);
+            }
+        }
+
+        @Override
+        public void onPreparing() {
+            if (shouldEmit(EventInterest.PREPARE)) {
+                mPlayerStateEmitter.onPreparing();
+            }
+        }
+
+        @Override
+        public void onPrepared(int audioSessionId) {
+            if (shouldEmit(EventInterest.PREPARE)) {
+                mPlayerStateEmitter.onPrepared(audioSessionId);
+            }
+        }
+
+        @Override
+        public void onStalledChanged(boolean stalled, int playProgress, long updateTime) {
+            if (shouldEmit(EventInterest.STALLED)) {
+                mPlayerStateEmitter.onStalledChanged(stalled, playProgress, updateTime);
+            }
+        }
+
+        @Override
+        public void onBufferedProgressChanged(int bufferedProgress) {
+            if (shouldEmitIfInterested(EventInterest.BUFFERED_PROGRESS)) {
+                mPlayerStateEmitter.onBufferedProgressChanged(bufferedProgress);
+            }
+        }
+
+        @Override
+        public void onPlayingMusicItemChanged(@Nullable MusicItem musicItem, int position, int playProgress) {
+            if (shouldEmit(EventInterest.PLAYING_MUSIC_ITEM)) {
+                mPlayerStateEmitter.onPlayingMusicItemChanged(musicItem, position, playProgress);
+            }
+        }
+
+        @Override
+        public void onSeekComplete(int progress, long updateTime, boolean stalled) {
+            if (shouldEmit(EventInterest.SEEK_COMPLETE)) {
+                mPlayerStateEmitter.onSeekComplete(progress, updateTime, stalled);
+            }
+        }
+
+        @Override
+        public void onPlaylistChanged(PlaylistManager playlistManager, int position) {
+            if (shouldEmit(EventInterest.PLAYLIST)) {
+                mPlayerStateEmitter.onPlaylistChanged(playlistManager, position);
+            }
+        }
+
+        @Override
+        public void onPlayModeChanged(PlayMode playMode) {
+            if (shouldEmit(EventInterest.PLAY_MODE)) {
+                mPlayerStateEmitter.onPlayModeChanged(playMode);
+            }
+        }
+
+        @Override
+        public void onShutdown() {
+            mPlayerStateEmitter.onShutdown();
+        }
+
+        @Override
+        public void onTimerStart(long time, long startTime, SleepTimer.TimeoutAction action) {
+            if (shouldEmitIfInterested(EventInterest.SLEEP_TIMER)) {
+                mSleepTimerStateEmitter.onTimerStart(time, startTime, action);
+            }
+        }
+
+        @Override
+        public void onTimerEnd() {
+            if (shouldEmitIfInterested(EventInterest.SLEEP_TIMER)) {
+                mSleepTimerStateEmitter.onTimerEnd();
+            }
+        }
+    }
 }
@@ -38,6 +38,10 @@ class PlayerState implements Parcelable {
     private long sleepTimerStartTime;
     private SleepTimer.TimeoutAction timeoutAction;
 
+    // no parcel
+    @Nullable
+    private PlayerStateChangeLog changeLog;
+
     public PlayerState() {
         playProgress = 0;
         playProgressUpdateTime = 0;
@@ -81,6 +85,21 @@ class PlayerState implements Parcelable {
         timeoutAction = source.timeoutAction;
     }
 
+    /**
+     * 设置变更日志。设置后，每当某个字段被修改时都会记录到该变更日志中（仅服务端使用）。
+     *
+     * @param changeLog 变更日志，为 null 时将不再记录字段的修改
+     */
+    void setChangeLog(@Nullable PlayerStateChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    private void markChanged(int field) {
+        if (changeLog != null) {
+            changeLog.markChanged(field);
+        }
+    }
+
     /**
      * 获取播放进度。
      *
@@ -96,12 +115,11 @@ class PlayerState implements Parcelable {
      * @param playProgress 播放进度（小于 0 时，相当于设置为 0）。
      */
     public void setPlayProgress(int playProgress) {
-        if (playProgress < 0) {
-            this.playProgress = 0;
-            return;
+        int value = Math.max(playProgress, 0);
+        if (this.playProgress != value) {
+            this.playProgress = value;
+            markChanged(PlayerStateChangeLog.FIELD_PLAY_PROGRESS);
         }
-
-        this.playProgress = playProgress;
     }
 
 
@@ -120,7 +138,10 @@ class PlayerState implements Parcelable {
      * @param updateTime 上次播放进度的更新时间。
      */
     public void setPlayProgressUpdateTime(long updateTime) {
-        playProgressUpdateTime = updateTime;
+        if (playProgressUpdateTime != updateTime) {
+            playProgressUpdateTime = updateTime;
+            markChanged(PlayerStateChangeLog.FIELD_PLAY_PROGRESS_UPDATE_TIME);
+        }
     }
 
     /**
@@ -135,7 +156,10 @@ class PlayerState implements Parcelable {
      * 设置当前播放歌曲的 MusicItem 对象。
      */
     public void setMusicItem(@Nullable MusicItem musicItem) {
-        this.musicItem = musicItem;
+        if (this.musicItem != musicItem) {
+            this.musicItem = musicItem;
+            markChanged(PlayerStateChangeLog.FIELD_MUSIC_ITEM);
+        }
     }
 
     /**
@@ -153,12 +177,11 @@ class PlayerState implements Parcelable {
      * @param playPosition 播放队列的播放位置（小于 0 时相当于设置为 0）。
      */
     public void setPlayPosition(int playPosition) {
-        if (playPosition < 0) {
-            this.playPosition = 0;
-            return;
+        int value = Math.max(playPosition, 0);
+        if (this.playPosition != value) {
+            this.playPosition = value;
+            markChanged(PlayerStateChangeLog.FIELD_PLAY_POSITION);
         }
-
-        this.playPosition = playPosition;
     }
 
     /**
@@ -180,7 +203,10 @@ class PlayerState implements Parcelable {
      * @see PlayMode
      */
     public void setPlayMode(@NonNull PlayMode playMode) {
-        this.playMode = playMode;
+        if (this.playMode != playMode) {
+            this.playMode = playMode;
+            markChanged(PlayerStateChangeLog.FIELD_PLAY_MODE);
+        }
     }
 
     /**
@@ -202,11 +228,14 @@ class PlayerState implements Parcelable {
      */
     public void setPlaybackState(@NonNull PlaybackState playbackState) {
         Preconditions.checkNotNull(playbackState);
-        this.playbackState = playbackState;
+        if (this.playbackState != playbackState) {
+            this.playbackState = playbackState;
+            markChanged(PlayerStateChangeLog.FIELD_PLAYBACK_STATE);
+        }
 
         if (playbackState != PlaybackState.ERROR) {
-            errorCode = ErrorCode.NO_ERROR;
-            errorMessage = "";
+            setErrorCode(ErrorCode.NO_ERROR);
+            setErrorMessage("");
         }
     }
 
@@ -225,7 +254,10 @@ class PlayerState implements Parcelable {
      * @param preparing 播放器是否正在准备中
      */
     public void setPreparing(boolean preparing) {
-        this.preparing = preparing;
+        if (this.preparing != preparing) {
+            this.preparing = preparing;
+            markChanged(PlayerStateChangeLog.FIELD_PREPARING);
+        }
     }
 
     /**
@@ -243,7 +275,10 @@ class PlayerState implements Parcelable {
      * @param prepared 播放器是否准备完毕
      */
     public void setPrepared(boolean prepared) {
-        this.prepared = prepared;
+        if (this.prepared != prepared) {
+            this.prepared = prepared;
+            markChanged(PlayerStateChangeLog.FIELD_PREPARED);
+        }
     }
 
     /**
@@ -263,7 +298,10 @@ class PlayerState implements Parcelable {
      *                       设为 0 （API 21: {@link android.media.AudioManager#AUDIO_SESSION_ID_GENERATE}）。
      */
     public void setAudioSessionId(int audioSessionId) {
-        this.audioSessionId = audioSessionId;
+        if (this.audioSessionId != audioSessionId) {
+            this.audioSessionId = audioSessionId;
+            markChanged(PlayerStateChangeLog.FIELD_AUDIO_SESSION_ID);
+        }
     }
 
     /**
@@ -277,12 +315,11 @@ class PlayerState implements Parcelable {
      * 设置当前音乐的缓存进度。百分比值，范围为 [0 ~ 100]。
      */
     public void setBufferedProgress(int bufferedProgress) {
-        if (bufferedProgress < 0) {
-            this.bufferedProgress = 0;
-            return;
+        int value = Math.max(bufferedProgress, 0);
+        if (this.bufferedProgress != value) {
+            this.bufferedProgress = value;
+            markChanged(PlayerStateChangeLog.FIELD_BUFFERED_PROGRESS);
         }
-
-        this.bufferedProgress = bufferedProgress;
     }
 
     /**
@@ -304,7 +341,10 @@ class PlayerState implements Parcelable {
      * @param stalled {@code stalled} 状态
      */
     public void setStalled(boolean stalled) {
-        this.stalled = stalled;
+        if (this.stalled != stalled) {
+            this.stalled = stalled;
+            markChanged(PlayerStateChangeLog.FIELD_STALLED);
+        }
     }
 
     /**
@@ -323,7 +363,10 @@ class PlayerState implements Parcelable {
      * @see ErrorCode
      */
     public void setErrorCode(int errorCode) {
-        this.errorCode = errorCode;
+        if (this.errorCode != errorCode) {
+            this.errorCode = errorCode;
+            markChanged(PlayerStateChangeLog.FIELD_ERROR_CODE);
+        }
     }
 
     /**
@@ -341,7 +384,10 @@ class PlayerState implements Parcelable {
      */
     public void setErrorMessage(@NonNull String errorMessage) {
         Preconditions.checkNotNull(errorMessage);
-        this.errorMessage = errorMessage;
+        if (!errorMessage.equals(this.errorMessage)) {
+            this.errorMessage = errorMessage;
+            markChanged(PlayerStateChangeLog.FIELD_ERROR_MESSAGE);
+        }
     }
 
     /**
@@ -372,7 +418,10 @@ class PlayerState implements Parcelable {
      * 设置是否启动了睡眠定时器。
      */
     public void setSleepTimerStarted(boolean sleepTimerStarted) {
-        this.sleepTimerStarted = sleepTimerStarted;
+        if (this.sleepTimerStarted != sleepTimerStarted) {
+            this.sleepTimerStarted = sleepTimerStarted;
+            markChanged(PlayerStateChangeLog.FIELD_SLEEP_TIMER_STARTED);
+        }
     }
 
     /**
@@ -386,7 +435,10 @@ class PlayerState implements Parcelable {
      * 设置睡眠定时器的定时时间。
      */
     public void setSleepTimerTime(long time) {
-        this.sleepTimerTime = time;
+        if (this.sleepTimerTime != time) {
+            this.sleepTimerTime = time;
+            markChanged(PlayerStateChangeLog.FIELD_SLEEP_TIMER_TIME);
+        }
     }
 
     /**
@@ -400,7 +452,10 @@ class PlayerState implements Parcelable {
      * 设置睡眠定时器的启动时间。
      */
     public void setSleepTimerStartTime(long sleepTimerStartTime) {
-        this.sleepTimerStartTime = sleepTimerStartTime;
+        if (this.sleepTimerStartTime != sleepTimerStartTime) {
+            this.sleepTimerStartTime = sleepTimerStartTime;
+            markChanged(PlayerStateChangeLog.FIELD_SLEEP_TIMER_START_TIME);
+        }
     }
 
     /**
@@ -420,8 +475,11 @@ class PlayerState implements Parcelable {
      * @see snow.player.SleepTimer.TimeoutAction
      */
     public void setTimeoutAction(@NonNull SleepTimer.TimeoutAction action) {
-        Preconditions.checkNotNull(timeoutAction);
-        this.timeoutAction = action;
+        Preconditions.checkNotNull(action);
+        if (this.timeoutAction != action) {
+            this.timeoutAction = action;
+            markChanged(PlayerStateChangeLog.FIELD_TIMEOUT_ACTION);
+        }
     }
 
     @Override
@@ -0,0 +1,113 @@
+package snow.player;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.UUID;
+
+/**
+ * 播放器状态的变更日志，用于实现播放器状态的增量同步。
+ * <p>
+ * 每当 {@link PlayerState} 的某个字段被修改时，变更日志的版本号都会递增，并记录该字段最后一次被修改时的
+ * 版本号。客户端在重新连接时只需提供上次同步时的版本号，服务端就可以据此计算出自该版本以来被修改过的字段，
+ * 并只同步这些字段。
+ * <p>
+ * 每个变更日志都有一个唯一的 token，版本号只在同一个 token 下才有意义。如果客户端提供的 token 与当前变更
+ * 日志的 token 不一致（例如 PlayerService 已被重新创建），则会同步全部字段。
+ */
+class PlayerStateChangeLog {
+    static final int FIELD_PLAY_PROGRESS = 1;
+    static final int FIELD_PLAY_PROGRESS_UPDATE_TIME = 1 << 1;
+    static final int FIELD_MUSIC_ITEM = 1 << 2;
+    static final int FIELD_PLAY_POSITION = 1 << 3;
+    static final int FIELD_PLAY_MODE = 1 << 4;
+    static final int FIELD_PLAYBACK_STATE = 1 << 5;
+    static final int FIELD_PREPARING = 1 << 6;
+    static final int FIELD_PREPARED = 1 << 7;
+    static final int FIELD_AUDIO_SESSION_ID = 1 << 8;
+    static final int FIELD_BUFFERED_PROGRESS = 1 << 9;
+    static final int FIELD_STALLED = 1 << 10;
+    static final int FIELD_ERROR_CODE = 1 << 11;
+    static final int FIELD_ERROR_MESSAGE = 1 << 12;
+    static final int FIELD_SLEEP_TIMER_STARTED = 1 << 13;
+    static final int FIELD_SLEEP_TIMER_TIME = 1 << 14;
+    static final int FIELD_SLEEP_TIMER_START_TIME = 1 << 15;
+    static final int FIELD_TIMEOUT_ACTION = 1 << 16;
+
+    private static final int FIELD_COUNT = 17;
+
+    static final int ALL_FIELDS = (1 << FIELD_COUNT) - 1;
+
+    private final String mToken;
+    private final long[] mFieldVersions;
+    private long mVersion;
+
+    PlayerStateChangeLog() {
+        mToken = UUID.randomUUID().toString();
+        mFieldVersions = new long[FIELD_COUNT];
+        mVersion = 0;
+    }
+
+    /**
+     * 获取当前变更日志的 token。
+     */
+    @NonNull
+    public String getToken() {
+        return mToken;
+    }
+
+    /**
+     * 获取当前的版本号。
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * 记录一次字段修改。
+     *
+     * @param field 被修改的字段，必须是 {@code FIELD_*} 常量之一
+     */
+    public void markChanged(int field) {
+        mVersion += 1;
+        mFieldVersions[Integer.numberOfTrailingZeros(field)] = mVersion;
+    }
+
+    /**
+     * 获取自指定版本以来被修改过的所有字段。
+     *
+     * @param token   客户端上次同步时的变更日志 token，可为 null
+     * @param version 客户端上次同步时的版本号
+     * @return 被修改过的字段的位掩码。如果 token 与当前变更日志不一致，或者版本号无效，则返回
+     * {@link #ALL_FIELDS}
+     */
+    public int getChangedFieldsSince(@Nullable String token, long version) {
+        if (!mToken.equals(token) || version < 0 || version > mVersion) {
+            return ALL_FIELDS;
+        }
+
+        int fields = 0;
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (mFieldVersions[i] > version) {
+                fields |= 1 << i;
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * 创建一个包含了自指定版本以来被修改过的所有字段的 {@link PlayerStateDelta} 对象。
+     *
+     * @param token   客户端上次同步时的变更日志 token，可为 null
+     * @param version 客户端上次同步时的版本号
+     * @param state   当前的播放器状态，不能为 null
+     */
+    @NonNull
+    public PlayerStateDelta createDelta(@Nullable String token, long version, @NonNull PlayerState state) {
+        Preconditions.checkNotNull(state);
+        return new PlayerStateDelta(mToken, mVersion, getChangedFieldsSince(token, version), state);
+    }
+}
@@ -0,0 +1,280 @@
+package snow.player;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import snow.player.audio.MusicItem;
+
+import static snow.player.PlayerStateChangeLog.*;
+
+/**
+ * 播放器状态的增量，只包含自客户端上次同步以来被修改过的字段。
+ * <p>
+ * 序列化时只会写入被修改过的字段，因此当只有少数字段被修改时（例如只有播放进度发生了改变），可以避免
+ * 传输完整的 {@link PlayerState} 对象（特别是携带了 extra 数据的 {@link MusicItem} 对象）。
+ *
+ * @see PlayerStateChangeLog
+ */
+class PlayerStateDelta implements Parcelable {
+    private final String mToken;
+    private final long mVersion;
+    private final int mFields;
+    private final PlayerState mState;
+
+    PlayerStateDelta(@NonNull String token, long version, int fields, @NonNull PlayerState source) {
+        Preconditions.checkNotNull(token);
+        Preconditions.checkNotNull(source);
+
+        mToken = token;
+        mVersion = version;
+        mFields = fields;
+        mState = new PlayerState();
+
+        copyFields(source, mState, fields);
+
+        MusicItem musicItem = source.getMusicItem();
+        if (contains(FIELD_MUSIC_ITEM) && musicItem != null) {
+            mState.setMusicItem(new MusicItem(musicItem));
+        }
+    }
+
+    /**
+     * 获取服务端变更日志的 token。
+     */
+    @NonNull
+    public String getToken() {
+        return mToken;
+    }
+
+    /**
+     * 获取该增量对应的版本号。
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * 获取该增量包含的所有字段的位掩码。
+     */
+    public int getFields() {
+        return mFields;
+    }
+
+    /**
+     * 判断是否包含指定字段。
+     */
+    public boolean contains(int field) {
+        return (mFields & field) != 0;
+    }
+
+    /**
+     * 判断该增量是否包含了全部字段。
+     */
+    public boolean isFull() {
+        return mFields == ALL_FIELDS;
+    }
+
+    /**
+     * 将该增量应用到 target 上。
+     *
+     * @param target 要应用增量的 {@link PlayerState} 对象，不能为 null
+     */
+    public void applyTo(@NonNull PlayerState target) {
+        Preconditions.checkNotNull(target);
+        copyFields(mState, target, mFields);
+    }
+
+    private static void copyFields(PlayerState from, PlayerState to, int fields) {
+        if ((fields & FIELD_PLAY_PROGRESS) != 0) {
+            to.setPlayProgress(from.getPlayProgress());
+        }
+        if ((fields & FIELD_PLAY_PROGRESS_UPDATE_TIME) != 0) {
+            to.setPlayProgressUpdateTime(from.getPlayProgressUpdateTime());
+        }
+        if ((fields & FIELD_MUSIC_ITEM) != 0) {
+            to.setMusicItem(from.getMusicItem());
+        }
+        if ((fields & FIELD_PLAY_POSITION) != 0) {
+            to.setPlayPosition(from.getPlayPosition());
+        }
+        if ((fields & FIELD_PLAY_MODE) != 0) {
+            to.setPlayMode(from.getPlayMode());
+        }
+        // 注意！setPlaybackState 会清除错误码与错误信息，因此必须在 errorCode 与 errorMessage 之前设置
+        if ((fields & FIELD_PLAYBACK_STATE) != 0) {
+            to.setPlaybackState(from.getPlaybackState());
+        }
+        if ((fields & FIELD_PREPARING) != 0) {
+            to.setPreparing(from.isPreparing());
+        }
+        if ((fields & FIELD_PREPARED) != 0) {
+            to.setPrepared(from.isPrepared());
+        }
+        if ((fields & FIELD_AUDIO_SESSION_ID) != 0) {
+            to.setAudioSessionId(from.getAudioSessionId());
+        }
+        if ((fields & FIELD_BUFFERED_PROGRESS) != 0) {
+            to.setBufferedProgress(from.getBufferedProgress());
+        }
+        if ((fields & FIELD_STALLED) != 0) {
+            to.setStalled(from.isStalled());
+        }
+        if ((fields & FIELD_ERROR_CODE) != 0) {
+            to.setErrorCode(from.getErrorCode());
+        }
+        if ((fields & FIELD_ERROR_MESSAGE) != 0) {
+            to.setErrorMessage(from.getErrorMessage());
+        }
+        if ((fields & FIELD_SLEEP_TIMER_STARTED) != 0) {
+            to.setSleepTimerStarted(from.isSleepTimerStarted());
+        }
+        if ((fields & FIELD_SLEEP_TIMER_TIME) != 0) {
+            to.setSleepTimerTime(from.getSleepTimerTime());
+        }
+        if ((fields & FIELD_SLEEP_TIMER_START_TIME) != 0) {
+            to.setSleepTimerStartTime(from.getSleepTimerStartTime());
+        }
+        if ((fields & FIELD_TIMEOUT_ACTION) != 0) {
+            to.setTimeoutAction(from.getTimeoutAction());
+        }
+    }
+
+    protected PlayerStateDelta(Parcel in) {
+        mToken = in.readString();
+        mVersion = in.readLong();
+        mFields = in.readInt();
+        mState = new PlayerState();
+
+        if (contains(FIELD_PLAY_PROGRESS)) {
+            mState.setPlayProgress(in.readInt());
+        }
+        if (contains(FIELD_PLAY_PROGRESS_UPDATE_TIME)) {
+            mState.setPlayProgressUpdateTime(in.readLong());
+        }
+        if (contains(FIELD_MUSIC_ITEM)) {
+            mState.setMusicItem(in.<MusicItem>readParcelable(Thread.currentThread().getContextClassLoader()));
+        }
+        if (contains(FIELD_PLAY_POSITION)) {
+            mState.setPlayPosition(in.readInt());
+        }
+        if (contains(FIELD_PLAY_MODE)) {
+            mState.setPlayMode(PlayMode.values()[in.readInt()]);
+        }
+        if (contains(FIELD_PLAYBACK_STATE)) {
+            mState.setPlaybackState(PlaybackState.values()[in.readInt()]);
+        }
+        if (contains(FIELD_PREPARING)) {
+            mState.setPreparing(in.readByte() != 0);
+        }
+        if (contains(FIELD_PREPARED)) {
+            mState.setPrepared(in.readByte() != 0);
+        }
+        if (contains(FIELD_AUDIO_SESSION_ID)) {
+            mState.setAudioSessionId(in.readInt());
+        }
+        if (contains(FIELD_BUFFERED_PROGRESS)) {
+            mState.setBufferedProgress(in.readInt());
+        }
+        if (contains(FIELD_STALLED)) {
+            mState.setStalled(in.readByte() != 0);
+        }
+        if (contains(FIELD_ERROR_CODE)) {
+            mState.setErrorCode(in.readInt());
+        }
+        if (contains(FIELD_ERROR_MESSAGE)) {
+            mState.setErrorMessage(in.readString());
+        }
+        if (contains(FIELD_SLEEP_TIMER_STARTED)) {
+            mState.setSleepTimerStarted(in.readByte() != 0);
+        }
+        if (contains(FIELD_SLEEP_TIMER_TIME)) {
+            mState.setSleepTimerTime(in.readLong());
+        }
+        if (contains(FIELD_SLEEP_TIMER_START_TIME)) {
+            mState.setSleepTimerStartTime(in.readLong());
+        }
+        if (contains(FIELD_TIMEOUT_ACTION)) {
+            mState.setTimeoutAction(SleepTimer.TimeoutAction.values()[in.readInt()]);
+        }
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(mToken);
+        dest.writeLong(mVersion);
+        dest.writeInt(mFields);
+
+        if (contains(FIELD_PLAY_PROGRESS)) {
+            dest.writeInt(mState.getPlayProgress());
+        }
+        if (contains(FIELD_PLAY_PROGRESS_UPDATE_TIME)) {
+            dest.writeLong(mState.getPlayProgressUpdateTime());
+        }
+        if (contains(FIELD_MUSIC_ITEM)) {
+            dest.writeParcelable(mState.getMusicItem(), flags);
+        }
+        if (contains(FIELD_PLAY_POSITION)) {
+            dest.writeInt(mState.getPlayPosition());
+        }
+        if (contains(FIELD_PLAY_MODE)) {
+            dest.writeInt(mState.getPlayMode().ordinal());
+        }
+        if (contains(FIELD_PLAYBACK_STATE)) {
+            dest.writeInt(mState.getPlaybackState().ordinal());
+        }
+        if (contains(FIELD_PREPARING)) {
+            dest.writeByte((byte) (mState.isPreparing() ? 1 : 0));
+        }
+        if (contains(FIELD_PREPARED)) {
+            dest.writeByte((byte) (mState.isPrepared() ? 1 : 0));
+        }
+        if (contains(FIELD_AUDIO_SESSION_ID)) {
+            dest.writeInt(mState.getAudioSessionId());
+        }
+        if (contains(FIELD_BUFFERED_PROGRESS)) {
+            dest.writeInt(mState.getBufferedProgress());
+        }
+        if (contains(FIELD_STALLED)) {
+            dest.writeByte((byte) (mState.isStalled() ? 1 : 0));
+        }
+        if (contains(FIELD_ERROR_CODE)) {
+            dest.writeInt(mState.getErrorCode());
+        }
+        if (contains(FIELD_ERROR_MESSAGE)) {
+            dest.writeString(mState.getErrorMessage());
+        }
+        if (contains(FIELD_SLEEP_TIMER_STARTED)) {
+            dest.writeByte((byte) (mState.isSleepTimerStarted() ? 1 : 0));
+        }
+        if (contains(FIELD_SLEEP_TIMER_TIME)) {
+            dest.writeLong(mState.getSleepTimerTime());
+        }
+        if (contains(FIELD_SLEEP_TIMER_START_TIME)) {
+            dest.writeLong(mState.getSleepTimerStartTime());
+        }
+        if (contains(FIELD_TIMEOUT_ACTION)) {
+            dest.writeInt(mState.getTimeoutAction().ordinal());
+        }
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    public static final Creator<PlayerStateDelta> CREATOR = new Creator<PlayerStateDelta>() {
+        @Override
+        public PlayerStateDelta createFromParcel(Parcel in) {
+            return new PlayerStateDelta(in);
+        }
+
+        @Override
+        public PlayerStateDelta[] newArray(int size) {
+            return new PlayerStateDelta[size];
+        }
+    };
+}
@@ -12,16 +12,37 @@ public interface PlayerStateSynchronizer {
     /**
      * 同步客户端与服务端的状态信息。
      * <p>
-     * 该方法会在客户端连接成功后调用，以同步客户端与服务端的状态信息。
+     * 该方法会在客户端连接成功后调用，以同步客户端与服务端的状态信息。服务端只会同步自 version 版本以来
+     * 被修改过的字段，如果 changeLogToken 与服务端的变更日志不一致（例如首次连接，或者 PlayerService
+     * 已被重新创建），则会同步全部字段。
      *
-     * @param clientToken 客户端的 token。不能为 null，且应该保证该参数的唯一性。该 token 会在
-     *                    {@link OnSyncPlayerStateListener#onSyncPlayerState(String, PlayerState)} 方法中返回，
-     *                    用于鉴别是否是当前客户端客户端。
+     * @param clientToken    客户端的 token。不能为 null，且应该保证该参数的唯一性。该 token 会在
+     *                       {@link OnSyncPlayerStateListener#onSyncPlayerState(String, PlayerStateDelta)}
+     *                       方法中返回，用于鉴别是否是当前客户端客户端。
+     * @param changeLogToken 客户端上次同步时服务端变更日志的 token，首次同步时为空字符串
+     * @param version        客户端上次同步时的版本号，首次同步时为 0
      */
-    void syncPlayerState(String clientToken);
+    void syncPlayerState(String clientToken, String changeLogToken, long version);
+
+    /**
+     * 设置客户端感兴趣的事件类型。
+     * <p>
+     * 服务端会合并所有客户端感兴趣的事件类型，只有至少有一个客户端感兴趣的事件才会被发送。
+     *
+     * @param clientToken 客户端的 token，不能为 null
+     * @param interest    客户端感兴趣的事件类型的位掩码，参见 {@link EventInterest}
+     */
+    void setEventInterest(String clientToken, int interest);
+
+    /**
+     * 移除客户端感兴趣的事件类型。该方法应该在客户端断开连接前调用。
+     *
+     * @param clientToken 客户端的 token，不能为 null
+     */
+    void removeEventInterest(String clientToken);
 
     @Channel
     interface OnSyncPlayerStateListener {
-        void onSyncPlayerState(@NonNull String clientToken, @NonNull PlayerState playerState);
+        void onSyncPlayerState(@NonNull String clientToken, @NonNull PlayerStateDelta delta);
     }
 }
@@ -0,0 +1,199 @@
+package snow.player;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import snow.player.audio.MusicItem;
+import snow.player.playlist.Playlist;
+import snow.player.playlist.PlaylistEditor;
+
+/**
+ * 用于在服务端组装分块传输的播放列表。
+ * <p>
+ * 分块的解析与播放列表的组装都会在一个单独的后台线程中按顺序进行，组装完毕后会在主线程中调用
+ * {@link PlaylistEditor#setPlaylist(Playlist, int, boolean)} 方法设置新的播放列表。
+ *
+ * @see PlaylistTransfer
+ */
+class PlaylistAssembler implements PlaylistTransfer {
+    /**
+     * 每个分块包含的最大歌曲数量。
+     */
+    static final int CHUNK_SIZE = 500;
+
+    // 超过该时间仍未提交的传输会被丢弃（例如客户端在传输过程中被终止）
+    private static final long TRANSFER_TIMEOUT_MILLIS = 60_000;
+
+    private static final String KEY_MUSIC_ITEMS = "music_items";
+
+    private final PlaylistEditor mPlaylistEditor;
+    private final ExecutorService mExecutor;
+    private final Map<String, Transfer> mAllTransfer;
+
+    PlaylistAssembler(@NonNull PlaylistEditor playlistEditor) {
+        Preconditions.checkNotNull(playlistEditor);
+
+        mPlaylistEditor = playlistEditor;
+        mExecutor = Executors.newSingleThreadExecutor();
+        mAllTransfer = new HashMap<>();
+    }
+
+    /**
+     * 判断是否需要分块传输指定的播放列表。
+     */
+    static boolean needChunkedTransfer(@NonNull Playlist playlist) {
+        return playlist.size() > CHUNK_SIZE;
+    }
+
+    /**
+     * 创建一个分块。
+     *
+     * @param musicItems 分块中包含的歌曲，不能为 null
+     */
+    static Bundle newChunk(@NonNull List<MusicItem> musicItems) {
+        Preconditions.checkNotNull(musicItems);
+
+        Bundle chunk = new Bundle();
+        chunk.putParcelableArrayList(KEY_MUSIC_ITEMS, new ArrayList<>(musicItems));
+        return chunk;
+    }
+
+    /**
+     * 创建一个不包含任何歌曲的播放列表，用于传输播放列表的 token、editable 与 extra 数据。
+     */
+    static Playlist newHeader(@NonNull Playlist playlist) {
+        return new Playlist.Builder()
+                .setToken(playlist.getToken())
+                .setEditable(playlist.isEditable())
+                .setExtra(playlist.getExtra())
+                .build();
+    }
+
+    @Override
+    public void beginPlaylistTransfer(final String transferId, final Playlist header) {
+        Preconditions.checkNotNull(transferId);
+        Preconditions.checkNotNull(header);
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                discardTimeoutTransfers();
+                mAllTransfer.put(transferId, new Transfer(header));
+            }
+        });
+    }
+
+    @Override
+    public void appendPlaylistChunk(final String transferId, final Bundle chunk) {
+        Preconditions.checkNotNull(transferId);
+        Preconditions.checkNotNull(chunk);
+
+        // 分块在后台线程中才会被访问，因此其中的 MusicItem 也会在后台线程中才被反序列化
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                Transfer transfer = mAllTransfer.get(transferId);
+                if (transfer == null) {
+                    return;
+                }
+
+                chunk.setClassLoader(MusicItem.class.getClassLoader());
+                List<MusicItem> musicItems = chunk.getParcelableArrayList(KEY_MUSIC_ITEMS);
+                if (musicItems != null) {
+                    transfer.append(musicItems);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void commitPlaylistTransfer(final String transferId, final int position, final boolean play) {
+        Preconditions.checkNotNull(transferId);
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                Transfer transfer = mAllTransfer.remove(transferId);
+                if (transfer == null) {
+                    return;
+                }
+
+                final Playlist playlist = transfer.build();
+                if (position < 0 || position >= playlist.size()) {
+                    return;
+                }
+
+                AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mExecutor.isShutdown()) {
+                            return;
+                        }
+
+                        mPlaylistEditor.setPlaylist(playlist, position, play);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 释放资源，所有未提交的传输都会被丢弃。
+     */
+    void release() {
+        mExecutor.shutdownNow();
+    }
+
+    private void execute(Runnable task) {
+        if (mExecutor.isShutdown()) {
+            return;
+        }
+
+        mExecutor.execute(task);
+    }
+
+    private void discardTimeoutTransfers() {
+        long now = SystemClock.elapsedRealtime();
+
+        Iterator<Transfer> iterator = mAllTransfer.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().mUpdateTime > TRANSFER_TIMEOUT_MILLIS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class Transfer {
+        private final Playlist mHeader;
+        private final List<MusicItem> mMusicItems;
+        private long mUpdateTime;
+
+        Transfer(Playlist header) {
+            mHeader = header;
+            mMusicItems = new ArrayList<>();
+            mUpdateTime = SystemClock.elapsedRealtime();
+        }
+
+        void append(List<MusicItem> musicItems) {
+            mMusicItems.addAll(musicItems);
+            mUpdateTime = SystemClock.elapsedRealtime();
+        }
+
+        Playlist build() {
+            return new Playlist(mHeader.getToken(), mMusicItems, mHeader.isEditable(), mHeader.getExtra());
+        }
+    }
+}
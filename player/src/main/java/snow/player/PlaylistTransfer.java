@@ -0,0 +1,46 @@
+package snow.player;
+
+import android.os.Bundle;
+
+import channel.helper.Channel;
+import snow.player.playlist.Playlist;
+
+/**
+ * 用于分块传输非常大的播放列表。
+ * <p>
+ * 由于 Binder 的传输缓冲区大小有限，一次性传输包含大量歌曲的播放列表会导致
+ * {@code TransactionTooLargeException} 异常。因此当播放列表很大时，客户端会先调用
+ * {@link #beginPlaylistTransfer(String, Playlist)} 开始传输，然后多次调用
+ * {@link #appendPlaylistChunk(String, Bundle)} 分块传输播放列表中的歌曲，最后调用
+ * {@link #commitPlaylistTransfer(String, int, boolean)} 提交传输。服务端会在后台线程中组装播放列表，
+ * 并在提交后设置新的播放列表。
+ *
+ * @see PlaylistAssembler
+ */
+@Channel
+public interface PlaylistTransfer {
+    /**
+     * 开始传输播放列表。
+     *
+     * @param transferId 本次传输的 id，不能为 null，且应该保证该参数的唯一性
+     * @param header     不包含任何歌曲的播放列表，用于传输播放列表的 token、editable 与 extra 数据
+     */
+    void beginPlaylistTransfer(String transferId, Playlist header);
+
+    /**
+     * 传输播放列表中的一部分歌曲。
+     *
+     * @param transferId 本次传输的 id
+     * @param chunk      由 {@link PlaylistAssembler#newChunk(java.util.List)} 创建的分块
+     */
+    void appendPlaylistChunk(String transferId, Bundle chunk);
+
+    /**
+     * 提交传输，服务端会在播放列表组装完毕后设置新的播放列表。
+     *
+     * @param transferId 本次传输的 id
+     * @param position   播放列表中要播放的歌曲的位置
+     * @param play       是否立即播放 {@code position} 参数指定处的音乐
+     */
+    void commitPlaylistTransfer(String transferId, int position, boolean play);
+}
@@ -0,0 +1,160 @@
+package snow.player;
+
+import android.net.Uri;
+import android.support.v4.media.MediaDescriptionCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import snow.player.audio.MusicItem;
+import snow.player.playlist.Playlist;
+
+/**
+ * 用于向 MediaSession 发布播放队列的一个滑动窗口。
+ * <p>
+ * 一次性发布完整的播放队列可能会超出 Binder 的传输限制，因此只会发布正在播放的歌曲附近的一部分歌曲。
+ * 每个 {@link MediaSessionCompat.QueueItem} 的 ID 就是歌曲在播放列表中的位置。
+ * <p>
+ * 切换歌曲时，只有当正在播放的歌曲接近窗口的边缘时才会移动窗口，并且会复用窗口中已创建的
+ * {@link MediaSessionCompat.QueueItem} 对象；播放列表被修改时，则会重新创建整个窗口。
+ */
+class QueueWindow {
+    static final int DEFAULT_WINDOW_SIZE = 50;
+
+    private final MediaSessionCompat mMediaSession;
+    private int mWindowSize;
+
+    @Nullable
+    private Playlist mPlaylist;
+    private int mStart;
+    private int mEnd;
+    private List<MediaSessionCompat.QueueItem> mQueue;
+
+    QueueWindow(@NonNull MediaSessionCompat mediaSession) {
+        Preconditions.checkNotNull(mediaSession);
+
+        mMediaSession = mediaSession;
+        mWindowSize = DEFAULT_WINDOW_SIZE;
+        mQueue = Collections.emptyList();
+    }
+
+    /**
+     * 设置窗口的大小。设置后需要调用 {@link #update(Playlist, int)} 方法重新发布播放队列。
+     *
+     * @param windowSize 窗口的大小，小于等于 0 时不会发布播放队列
+     */
+    void setWindowSize(int windowSize) {
+        if (mWindowSize == windowSize) {
+            return;
+        }
+
+        mWindowSize = windowSize;
+        clear();
+    }
+
+    boolean isEnabled() {
+        return mWindowSize > 0;
+    }
+
+    /**
+     * 获取正在播放的歌曲对应的 {@link MediaSessionCompat.QueueItem} 的 ID。
+     */
+    long getActiveQueueItemId(int position) {
+        if (position < mStart || position >= mEnd) {
+            return MediaSessionCompat.QueueItem.UNKNOWN_ID;
+        }
+
+        return position;
+    }
+
+    /**
+     * 更新播放队列的窗口。
+     *
+     * @param playlist 当前的播放列表，为 null 时表示播放列表尚未加载
+     * @param position 正在播放的歌曲的位置
+     */
+    void update(@Nullable Playlist playlist, int position) {
+        if (!isEnabled() || playlist == null || playlist.isEmpty()) {
+            clear();
+            return;
+        }
+
+        boolean playlistChanged = playlist != mPlaylist;
+        if (!playlistChanged && !shouldMoveWindow(position)) {
+            return;
+        }
+
+        int size = playlist.size();
+        int start = Math.max(0, Math.min(position - mWindowSize / 2, size - mWindowSize));
+        int end = Math.min(size, start + mWindowSize);
+
+        if (!playlistChanged && start == mStart && end == mEnd) {
+            return;
+        }
+
+        List<MediaSessionCompat.QueueItem> queue = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            if (!playlistChanged && i >= mStart && i < mEnd) {
+                queue.add(mQueue.get(i - mStart));
+                continue;
+            }
+
+            queue.add(createQueueItem(playlist.get(i), i));
+        }
+
+        mPlaylist = playlist;
+        mStart = start;
+        mEnd = end;
+        mQueue = queue;
+        mMediaSession.setQueue(queue);
+    }
+
+    /**
+     * 清空已发布的播放队列。
+     */
+    void clear() {
+        if (mPlaylist == null) {
+            return;
+        }
+
+        mPlaylist = null;
+        mStart = 0;
+        mEnd = 0;
+        mQueue = Collections.emptyList();
+        mMediaSession.setQueue(null);
+    }
+
+    // 只有当正在播放的歌曲进入窗口两端各 1/4 的区域（且窗口还能继续移动）时，才需要移动窗口
+    private boolean shouldMoveWindow(int position) {
+        if (position < mStart || position >= mEnd) {
+            return true;
+        }
+
+        int margin = mWindowSize / 4;
+        boolean nearStart = position < mStart + margin && mStart > 0;
+        boolean nearEnd = position >= mEnd - margin && mPlaylist != null && mEnd < mPlaylist.size();
+
+        return nearStart || nearEnd;
+    }
+
+    private static MediaSessionCompat.QueueItem createQueueItem(MusicItem musicItem, int position) {
+        MediaDescriptionCompat.Builder builder = new MediaDescriptionCompat.Builder()
+                .setMediaId(musicItem.getMusicId())
+                .setTitle(musicItem.getTitle())
+                .setSubtitle(musicItem.getArtist())
+                .setDescription(musicItem.getAlbum());
+
+        if (!musicItem.getIconUri().isEmpty()) {
+            builder.setIconUri(Uri.parse(musicItem.getIconUri()));
+        }
+
+        return new MediaSessionCompat.QueueItem(builder.build(), position);
+    }
+}
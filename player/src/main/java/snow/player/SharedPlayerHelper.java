@@ -0,0 +1,206 @@
+package snow.player;
+
+import android.content.Context;
+import android.media.AudioManager;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import media.helper.AudioFocusHelper;
+import snow.player.helper.NetworkHelper;
+import snow.player.helper.PhoneCallStateHelper;
+
+/**
+ * 在同一个 PlayerService 中的所有播放器（主播放器与托管的播放器）之间共享音频焦点、来电状态与网络状态。
+ * <p>
+ * 整个 Service 只会持有一个音频焦点：只要有一个播放器持有音频焦点，就不会放弃音频焦点，因此播放器之间不会
+ * 因为相互抢占音频焦点而暂停。音频焦点、来电状态与网络状态的改变会被分发给所有已注册的播放器。
+ * <p>
+ * 该类不是线程安全的，只应该在主线程中使用。
+ */
+class SharedPlayerHelper {
+    private final AudioFocusHelper mAudioFocusHelper;
+    private final PhoneCallStateHelper mPhoneCallStateHelper;
+    private final NetworkHelper mNetworkHelper;
+    // NetworkHelper 只会持有监听器的弱引用
+    private final NetworkHelper.OnNetworkStateChangeListener mNetworkStateListener;
+
+    private final Set<AudioFocusHelper.OnAudioFocusChangeListener> mAudioFocusListeners;
+    private final Set<PhoneCallStateHelper.OnStateChangeListener> mCallStateListeners;
+    private final Set<NetworkHelper.OnNetworkStateChangeListener> mNetworkStateListeners;
+
+    SharedPlayerHelper(@NonNull Context context) {
+        Preconditions.checkNotNull(context);
+
+        Context applicationContext = context.getApplicationContext();
+
+        mAudioFocusListeners = new LinkedHashSet<>();
+        mCallStateListeners = new LinkedHashSet<>();
+        mNetworkStateListeners = new LinkedHashSet<>();
+
+        mAudioFocusHelper = new AudioFocusHelper(applicationContext, new AudioFocusHelper.OnAudioFocusChangeListener() {
+            @Override
+            public void onLoss() {
+                for (AudioFocusHelper.OnAudioFocusChangeListener listener : copy(mAudioFocusListeners)) {
+                    listener.onLoss();
+                }
+            }
+
+            @Override
+            public void onLossTransient() {
+                for (AudioFocusHelper.OnAudioFocusChangeListener listener : copy(mAudioFocusListeners)) {
+                    listener.onLossTransient();
+                }
+            }
+
+            @Override
+            public void onLossTransientCanDuck() {
+                for (AudioFocusHelper.OnAudioFocusChangeListener listener : copy(mAudioFocusListeners)) {
+                    listener.onLossTransientCanDuck();
+                }
+            }
+
+            @Override
+            public void onGain(boolean lossTransient, boolean lossTransientCanDuck) {
+                for (AudioFocusHelper.OnAudioFocusChangeListener listener : copy(mAudioFocusListeners)) {
+                    listener.onGain(lossTransient, lossTransientCanDuck);
+                }
+            }
+        });
+
+        mPhoneCallStateHelper = new PhoneCallStateHelper(applicationContext, new PhoneCallStateHelper.OnStateChangeListener() {
+            @Override
+            public void onIDLE() {
+                for (PhoneCallStateHelper.OnStateChangeListener listener : copy(mCallStateListeners)) {
+                    listener.onIDLE();
+                }
+            }
+
+            @Override
+            public void onRinging() {
+                for (PhoneCallStateHelper.OnStateChangeListener listener : copy(mCallStateListeners)) {
+                    listener.onRinging();
+                }
+            }
+
+            @Override
+            public void onOffHook() {
+                for (PhoneCallStateHelper.OnStateChangeListener listener : copy(mCallStateListeners)) {
+                    listener.onOffHook();
+                }
+            }
+        });
+
+        mNetworkStateListener = new NetworkHelper.OnNetworkStateChangeListener() {
+            @Override
+            public void onNetworkStateChanged(boolean connected, boolean wifiNetwork) {
+                for (NetworkHelper.OnNetworkStateChangeListener listener : copy(mNetworkStateListeners)) {
+                    listener.onNetworkStateChanged(connected, wifiNetwork);
+                }
+            }
+        };
+        mNetworkHelper = NetworkHelper.newInstance(applicationContext, mNetworkStateListener);
+        mNetworkHelper.subscribeNetworkState();
+    }
+
+    // 监听器可能会在回调中注销自己，因此需要遍历一个副本
+    private static <T> List<T> copy(Set<T> listeners) {
+        return new ArrayList<>(listeners);
+    }
+
+    /**
+     * 为播放器请求音频焦点。
+     *
+     * @param listener 播放器的音频焦点监听器，在调用 {@link #abandonAudioFocus(AudioFocusHelper.OnAudioFocusChangeListener)}
+     *                 前会一直接收音频焦点的改变
+     * @return 请求结果，{@link AudioManager#AUDIOFOCUS_REQUEST_FAILED} 表示请求失败
+     */
+    int requestAudioFocus(@NonNull AudioFocusHelper.OnAudioFocusChangeListener listener) {
+        Preconditions.checkNotNull(listener);
+
+        int result = mAudioFocusHelper.requestAudioFocus(AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        if (result != AudioManager.AUDIOFOCUS_REQUEST_FAILED) {
+            mAudioFocusListeners.add(listener);
+        }
+
+        return result;
+    }
+
+    /**
+     * 播放器放弃音频焦点。只有当所有播放器都放弃了音频焦点时，才会真正放弃音频焦点。
+     */
+    void abandonAudioFocus(@NonNull AudioFocusHelper.OnAudioFocusChangeListener listener) {
+        if (mAudioFocusListeners.remove(listener) && mAudioFocusListeners.isEmpty()) {
+            mAudioFocusHelper.abandonAudioFocus();
+        }
+    }
+
+    /**
+     * 是否没有任何来电。
+     */
+    boolean isCallIDLE() {
+        return mPhoneCallStateHelper.isCallIDLE();
+    }
+
+    /**
+     * 注册来电状态监听器。如果已经注册，则忽略本次调用。
+     */
+    void registerCallStateListener(@NonNull PhoneCallStateHelper.OnStateChangeListener listener) {
+        Preconditions.checkNotNull(listener);
+
+        if (mCallStateListeners.add(listener) && mCallStateListeners.size() == 1) {
+            mPhoneCallStateHelper.registerCallStateListener();
+        }
+    }
+
+    /**
+     * 注销来电状态监听器。
+     */
+    void unregisterCallStateListener(@NonNull PhoneCallStateHelper.OnStateChangeListener listener) {
+        if (mCallStateListeners.remove(listener) && mCallStateListeners.isEmpty()) {
+            mPhoneCallStateHelper.unregisterCallStateListener();
+        }
+    }
+
+    /**
+     * 当前网络是否可用。
+     */
+    boolean networkAvailable() {
+        return mNetworkHelper.networkAvailable();
+    }
+
+    /**
+     * 当前网络是否是 Wifi 网络。
+     */
+    boolean isWifiNetwork() {
+        return mNetworkHelper.isWifiNetwork();
+    }
+
+    void addNetworkStateListener(@NonNull NetworkHelper.OnNetworkStateChangeListener listener) {
+        Preconditions.checkNotNull(listener);
+        mNetworkStateListeners.add(listener);
+    }
+
+    void removeNetworkStateListener(@NonNull NetworkHelper.OnNetworkStateChangeListener listener) {
+        mNetworkStateListeners.remove(listener);
+    }
+
+    /**
+     * 释放所有资源。应该在所有播放器都已释放后调用。
+     */
+    void release() {
+        mAudioFocusListeners.clear();
+        mCallStateListeners.clear();
+        mNetworkStateListeners.clear();
+
+        mAudioFocusHelper.abandonAudioFocus();
+        mPhoneCallStateHelper.unregisterCallStateListener();
+        mNetworkHelper.unsubscribeNetworkState();
+    }
+}
@@ -0,0 +1,111 @@
+package snow.player;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import snow.player.playlist.Playlist;
+
+/**
+ * 用于编码与解码事务中的命令。
+ * <p>
+ * 每个命令都会被编码为一个 Bundle 对象，事务则是一个按顺序保存了所有命令的 Bundle 对象。
+ */
+final class TransactionCommand {
+    static final int PLAY = 1;
+    static final int PAUSE = 2;
+    static final int STOP = 3;
+    static final int PLAY_PAUSE = 4;
+    static final int SEEK_TO = 5;
+    static final int SKIP_TO_NEXT = 6;
+    static final int SKIP_TO_PREVIOUS = 7;
+    static final int SKIP_TO_POSITION = 8;
+    static final int PLAY_PAUSE_POSITION = 9;
+    static final int SET_PLAY_MODE = 10;
+    static final int SET_PLAYLIST = 11;
+    static final int SET_SOUND_QUALITY = 12;
+    static final int SET_AUDIO_EFFECT_ENABLED = 13;
+    static final int SET_ONLY_WIFI_NETWORK = 14;
+    static final int SET_IGNORE_AUDIO_FOCUS = 15;
+
+    private static final String KEY_COMMANDS = "commands";
+    private static final String KEY_OP = "op";
+    private static final String KEY_INT = "int";
+    private static final String KEY_BOOLEAN = "boolean";
+    private static final String KEY_PLAYLIST = "playlist";
+
+    private TransactionCommand() {
+        throw new AssertionError();
+    }
+
+    static Bundle newCommand(int op) {
+        Bundle command = new Bundle();
+        command.putInt(KEY_OP, op);
+        return command;
+    }
+
+    static Bundle newCommand(int op, int intArg) {
+        Bundle command = newCommand(op);
+        command.putInt(KEY_INT, intArg);
+        return command;
+    }
+
+    static Bundle newCommand(int op, boolean booleanArg) {
+        Bundle command = newCommand(op);
+        command.putBoolean(KEY_BOOLEAN, booleanArg);
+        return command;
+    }
+
+    static Bundle newSetPlaylistCommand(@NonNull Playlist playlist, int position, boolean play) {
+        Preconditions.checkNotNull(playlist);
+
+        Bundle command = newCommand(SET_PLAYLIST, position);
+        command.putBoolean(KEY_BOOLEAN, play);
+        command.putParcelable(KEY_PLAYLIST, playlist);
+        return command;
+    }
+
+    static Bundle newTransaction(@NonNull ArrayList<Bundle> commands) {
+        Preconditions.checkNotNull(commands);
+
+        Bundle transaction = new Bundle();
+        transaction.putParcelableArrayList(KEY_COMMANDS, commands);
+        return transaction;
+    }
+
+    @NonNull
+    static List<Bundle> getCommands(@NonNull Bundle transaction) {
+        Preconditions.checkNotNull(transaction);
+        transaction.setClassLoader(TransactionCommand.class.getClassLoader());
+
+        List<Bundle> commands = transaction.getParcelableArrayList(KEY_COMMANDS);
+        if (commands == null) {
+            return Collections.emptyList();
+        }
+
+        return commands;
+    }
+
+    static int getOp(@NonNull Bundle command) {
+        return command.getInt(KEY_OP);
+    }
+
+    static int getInt(@NonNull Bundle command) {
+        return command.getInt(KEY_INT);
+    }
+
+    static boolean getBoolean(@NonNull Bundle command) {
+        return command.getBoolean(KEY_BOOLEAN);
+    }
+
+    static Playlist getPlaylist(@NonNull Bundle command) {
+        command.setClassLoader(TransactionCommand.class.getClassLoader());
+        return command.getParcelable(KEY_PLAYLIST);
+    }
+}
@@ -0,0 +1,39 @@
+package snow.player;
+
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+import channel.helper.Channel;
+
+/**
+ * 用于在服务端执行客户端提交的事务。
+ * <p>
+ * 事务中的所有命令会通过一次跨进程调用发送给服务端，并由服务端按顺序执行。事务执行期间产生的所有播放器
+ * 事件都会被合并，并在事务执行完毕后通过 {@link OnCommitListener} 一次性通知给客户端。
+ *
+ * @see PlayerClient#transaction()
+ */
+@Channel
+public interface TransactionExecutor {
+    /**
+     * 执行事务。
+     *
+     * @param transaction 要执行的事务，由 {@link TransactionCommand} 创建
+     */
+    void execute(Bundle transaction);
+
+    /**
+     * 用于监听事务的提交。
+     */
+    @Channel
+    interface OnCommitListener {
+        /**
+         * 事务执行完毕后会回调该方法。
+         *
+         * @param delta  事务执行期间被修改过的播放器状态字段
+         * @param events 事务执行期间被合并的事件类型的位掩码，参见 {@link EventInterest}
+         */
+        void onCommitted(@NonNull PlayerStateDelta delta, int events);
+    }
+}
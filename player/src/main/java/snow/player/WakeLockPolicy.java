@@ -0,0 +1,300 @@
+package snow.player;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.net.wifi.WifiManager;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 播放器的 WakeLock 与 WifiLock 管理策略。
+ * <p>
+ * 播放本地文件（或已完全缓存的歌曲）时，音频 HAL 会在需要时自行保持 CPU 唤醒，此时持有 WakeLock 只会
+ * 浪费电量。因此只会在以下情况下持有 WakeLock：
+ * <ol>
+ *     <li>正在准备播放器；</li>
+ *     <li>正在播放，并且处于 stalled 状态；</li>
+ *     <li>正在播放，并且正在通过网络播放尚未缓存的歌曲。</li>
+ * </ol>
+ * 只有通过网络播放尚未缓存的歌曲时才会持有 WifiLock。
+ * <p>
+ * 同时会记录 WakeLock 与 WifiLock 的累计持有时间与获取次数，方便评估耗电情况。
+ */
+final class WakeLockPolicy {
+    private static final String TAG = "WakeLockPolicy";
+    private static final String LOCK_TAG = "snow.player:AbstractPlayer";
+
+    private final Context mApplicationContext;
+
+    @Nullable
+    private final PowerManager.WakeLock mWakeLock;
+    @Nullable
+    private final WifiManager.WifiLock mWifiLock;
+
+    private long mTimeout;
+
+    private boolean mPreparing;
+    private boolean mPlaying;
+    private boolean mStalled;
+    private boolean mStreaming;
+    private boolean mFullyBuffered;
+
+    private boolean mWakeLockHeld;
+    private boolean mWifiLockHeld;
+
+    private long mWakeLockAcquireTime;
+    private long mWifiLockAcquireTime;
+    private long mWakeLockHeldTime;
+    private long mWifiLockHeldTime;
+    private int mWakeLockAcquireCount;
+    private int mWifiLockAcquireCount;
+
+    WakeLockPolicy(@NonNull Context context) {
+        Preconditions.checkNotNull(context);
+
+        mApplicationContext = context.getApplicationContext();
+
+        PowerManager pm = (PowerManager) mApplicationContext.getSystemService(Context.POWER_SERVICE);
+        WifiManager wm = (WifiManager) mApplicationContext.getSystemService(Context.WIFI_SERVICE);
+
+        if (pm != null) {
+            mWakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, LOCK_TAG);
+            mWakeLock.setReferenceCounted(false);
+        } else {
+            mWakeLock = null;
+        }
+
+        if (wm != null) {
+            mWifiLock = wm.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, LOCK_TAG);
+            mWifiLock.setReferenceCounted(false);
+        } else {
+            mWifiLock = null;
+        }
+    }
+
+    /**
+     * 判断指定的 Uri 是否指向一个本地资源。
+     */
+    static boolean isLocalUri(@NonNull Uri uri) {
+        String scheme = uri.getScheme();
+        return scheme == null ||
+                "file".equalsIgnoreCase(scheme) ||
+                "content".equalsIgnoreCase(scheme) ||
+                "android.resource".equalsIgnoreCase(scheme);
+    }
+
+    /**
+     * 设置 WakeLock 的超时时间，避免因为异常情况导致 WakeLock 一直不被释放。
+     *
+     * @param timeout 超时时间（单位：毫秒）
+     */
+    void setTimeout(long timeout) {
+        mTimeout = timeout;
+    }
+
+    /**
+     * 开始准备一首新的歌曲。
+     *
+     * @param streaming 是否正在通过网络播放尚未缓存的歌曲
+     */
+    void onPreparing(boolean streaming) {
+        mPreparing = true;
+        mStreaming = streaming;
+        mFullyBuffered = false;
+        update();
+    }
+
+    void onPrepared() {
+        mPreparing = false;
+        update();
+    }
+
+    void setPlaying(boolean playing) {
+        mPlaying = playing;
+        update();
+    }
+
+    void setStalled(boolean stalled) {
+        mStalled = stalled;
+        update();
+    }
+
+    /**
+     * 设置是否正在通过网络播放尚未缓存的歌曲。
+     */
+    void setStreaming(boolean streaming) {
+        mStreaming = streaming;
+        update();
+    }
+
+    /**
+     * 设置歌曲是否已完全缓冲。
+     */
+    void setFullyBuffered(boolean fullyBuffered) {
+        mFullyBuffered = fullyBuffered;
+        update();
+    }
+
+    /**
+     * 播放器已停止（暂停、停止或发生错误），释放所有锁。
+     * <p>
+     * 不会清除歌曲的缓冲状态：已完全缓冲的歌曲不会再次通知缓冲进度，如果在此处清除，那么暂停后恢复播放时
+     * 会一直持有锁直到超时。缓冲状态只会在准备新的歌曲时（{@link #onPreparing(boolean)}）被清除。
+     */
+    void reset() {
+        mPreparing = false;
+        mPlaying = false;
+        mStalled = false;
+        update();
+    }
+
+    /**
+     * 获取 WakeLock 的累计持有时间（单位：毫秒）。
+     */
+    long getWakeLockHeldTime() {
+        if (mWakeLockHeld) {
+            return mWakeLockHeldTime + (SystemClock.elapsedRealtime() - mWakeLockAcquireTime);
+        }
+
+        return mWakeLockHeldTime;
+    }
+
+    /**
+     * 获取 WifiLock 的累计持有时间（单位：毫秒）。
+     */
+    long getWifiLockHeldTime() {
+        if (mWifiLockHeld) {
+            return mWifiLockHeldTime + (SystemClock.elapsedRealtime() - mWifiLockAcquireTime);
+        }
+
+        return mWifiLockHeldTime;
+    }
+
+    /**
+     * 获取 WakeLock 的累计获取次数。
+     */
+    int getWakeLockAcquireCount() {
+        return mWakeLockAcquireCount;
+    }
+
+    /**
+     * 获取 WifiLock 的累计获取次数。
+     */
+    int getWifiLockAcquireCount() {
+        return mWifiLockAcquireCount;
+    }
+
+    private void update() {
+        boolean streamingUncached = mStreaming && !mFullyBuffered;
+        boolean needWakeLock = mPreparing || (mPlaying && (mStalled || streamingUncached));
+        boolean needWifiLock = needWakeLock && streamingUncached;
+
+        if (needWakeLock) {
+            acquireWakeLock();
+        } else {
+            releaseWakeLock();
+        }
+
+        if (needWifiLock) {
+            acquireWifiLock();
+        } else {
+            releaseWifiLock();
+        }
+    }
+
+    private void acquireWakeLock() {
+        if (mWakeLock == null) {
+            return;
+        }
+
+        if (mWakeLockHeld) {
+            if (mWakeLock.isHeld()) {
+                return;
+            }
+
+            // WakeLock 已超时自动释放，重新获取
+            releaseWakeLock();
+        }
+
+        if (wakeLockPermissionDenied()) {
+            Log.w(TAG, "need permission: 'android.permission.WAKE_LOCK'");
+            return;
+        }
+
+        if (mTimeout > 0) {
+            mWakeLock.acquire(mTimeout);
+        } else {
+            mWakeLock.acquire();
+        }
+
+        mWakeLockHeld = true;
+        mWakeLockAcquireTime = SystemClock.elapsedRealtime();
+        mWakeLockAcquireCount++;
+    }
+
+    private void releaseWakeLock() {
+        if (mWakeLock == null || !mWakeLockHeld) {
+            return;
+        }
+
+        if (mWakeLock.isHeld()) {
+            mWakeLock.release();
+        }
+
+        mWakeLockHeld = false;
+        mWakeLockHeldTime += SystemClock.elapsedRealtime() - mWakeLockAcquireTime;
+    }
+
+    private void acquireWifiLock() {
+        if (mWifiLock == null || mWifiLockHeld) {
+            return;
+        }
+
+        if (wakeLockPermissionDenied()) {
+            return;
+        }
+
+        mWifiLock.acquire();
+
+        mWifiLockHeld = true;
+        mWifiLockAcquireTime = SystemClock.elapsedRealtime();
+        mWifiLockAcquireCount++;
+    }
+
+    private void releaseWifiLock() {
+        if (mWifiLock == null || !mWifiLockHeld) {
+            return;
+        }
+
+        if (mWifiLock.isHeld()) {
+            mWifiLock.release();
+        }
+
+        mWifiLockHeld = false;
+        mWifiLockHeldTime += SystemClock.elapsedRealtime() - mWifiLockAcquireTime;
+    }
+
+    private boolean wakeLockPermissionDenied() {
+        return PackageManager.PERMISSION_DENIED ==
+                ContextCompat.checkSelfPermission(mApplicationContext, Manifest.permission.WAKE_LOCK);
+    }
+
+    /**
+     * 释放所有锁，并输出累计持有时间。
+     */
+    void release() {
+        reset();
+
+        Log.d(TAG, "WakeLock held " + getWakeLockHeldTime() + "ms (" + getWakeLockAcquireCount() + " times), " +
+                "WifiLock held " + getWifiLockHeldTime() + "ms (" + getWifiLockAcquireCount() + " times)");
+    }
+}
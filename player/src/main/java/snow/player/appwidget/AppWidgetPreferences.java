@@ -72,6 +72,23 @@ public class AppWidgetPreferences implements SharedPreferences {
         mMMKV = MMKV.mmkvWithID("AppWidgetPreferences:" + service.getName(), MMKV.MULTI_PROCESS_MODE);
     }
 
+    /**
+     * 创建一个用于 PlayerService 托管的播放器的 AppWidgetPreferences 对象。
+     *
+     * @param context  Context 对象
+     * @param service  关联的 PlayerService 类的 Class 对象
+     * @param playerId 托管的播放器的 ID
+     */
+    public AppWidgetPreferences(@NonNull Context context,
+                                @NonNull Class<? extends PlayerService> service,
+                                @NonNull String playerId) {
+        mApplicationContext = context.getApplicationContext();
+        mService = service;
+
+        MMKV.initialize(context);
+        mMMKV = MMKV.mmkvWithID("AppWidgetPreferences:" + service.getName() + "/" + playerId, MMKV.MULTI_PROCESS_MODE);
+    }
+
     @Override
     public Map<String, ?> getAll() {
         return mMMKV.getAll();
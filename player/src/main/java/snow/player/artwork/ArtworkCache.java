@@ -0,0 +1,466 @@
+package snow.player.artwork;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Maybe;
+import io.reactivex.MaybeSource;
+import io.reactivex.Single;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 歌曲内嵌图片（专辑封面）的两级缓存，由通知栏与 UI 共享。
+ * <p>
+ * 第一级是内存缓存，保存按目标尺寸解码（以及裁剪成圆角）后的 Bitmap；第二级是磁盘缓存（应用的缓存目录），保存从歌曲文件中
+ * 提取出的原始图片数据。没有内嵌图片的歌曲也会被记录下来，避免每次都重新打开文件。因此每首歌曲只需要
+ * 使用 MediaMetadataRetriever 提取一次图片。
+ * <p>
+ * 所有的提取与解码操作都会在 io 线程中进行，同一首歌曲同时只会提取一次。缓存的键为歌曲的 Uri，
+ * 只支持本地歌曲。
+ * <p>
+ * 注意！内存缓存中的 Bitmap 是共享的，不要修改或回收这些 Bitmap。
+ */
+public final class ArtworkCache {
+    private static final String TAG = "ArtworkCache";
+
+    private static final String CACHE_DIR = "artwork";
+    private static final String CACHE_FILE_SUFFIX = ".art";
+    private static final int MAGIC = 0x41525457;    // "ARTW"
+    private static final int VERSION = 1;
+    private static final long MAX_DISK_CACHE_SIZE = 50 * 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static ArtworkCache sInstance;
+
+    private final Context mApplicationContext;
+    private final File mCacheDir;
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final Map<String, Single<byte[]>> mPendingTasks;
+
+    private ArtworkCache(Context context) {
+        mApplicationContext = context.getApplicationContext();
+        mCacheDir = new File(mApplicationContext.getCacheDir(), CACHE_DIR);
+
+        // 使用最大可用内存的 1/16
+        int memoryCacheSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        mPendingTasks = new HashMap<>();
+    }
+
+    /**
+     * 获取 ArtworkCache 对象。
+     *
+     * @param context Context 对象，不能为 null
+     */
+    @NonNull
+    public static synchronized ArtworkCache getInstance(@NonNull Context context) {
+        Preconditions.checkNotNull(context);
+
+        if (sInstance == null) {
+            sInstance = new ArtworkCache(context);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * 获取歌曲的内嵌图片的原始数据。
+     *
+     * @param uri 歌曲的 Uri，不能为 null
+     * @return 如果歌曲没有内嵌图片，或者不是本地歌曲，则发射一个长度为 0 的数组。不要修改发射的数组
+     */
+    @NonNull
+    public synchronized Single<byte[]> getEmbeddedPicture(@NonNull final String uri) {
+        Preconditions.checkNotNull(uri);
+
+        if (!isLocalUri(uri)) {
+            return Single.just(EMPTY);
+        }
+
+        Single<byte[]> pending = mPendingTasks.get(uri);
+        if (pending != null) {
+            return pending;
+        }
+
+        pending = Single.fromCallable(new Callable<byte[]>() {
+            @Override
+            public byte[] call() {
+                return loadEmbeddedPicture(uri);
+            }
+        }).subscribeOn(Schedulers.io())
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        removePendingTask(uri);
+                    }
+                })
+                .cache();
+
+        mPendingTasks.put(uri, pending);
+        return pending;
+    }
+
+    /**
+     * 获取按目标尺寸解码后的歌曲内嵌图片。
+     * <p>
+     * 图片会按 2 的幂缩小后再解码，避免为了一个小图标解码整张大图，然后再居中裁剪并缩放到目标尺寸。
+     *
+     * @param uri    歌曲的 Uri，不能为 null
+     * @param width  目标宽度（单位：像素）
+     * @param height 目标高度（单位：像素）
+     * @return 如果歌曲没有内嵌图片，或者不是本地歌曲，则不会发射任何数据
+     */
+    @NonNull
+    public Maybe<Bitmap> getArtwork(@NonNull String uri, int width, int height) {
+        return getArtwork(uri, width, height, null);
+    }
+
+    /**
+     * 获取按目标尺寸解码并裁剪成圆角的歌曲内嵌图片。
+     * <p>
+     * 图片会先按 2 的幂缩小后再解码，然后在一次绘制中居中裁剪、缩放到目标尺寸并应用圆角。缓存的是变换后的
+     * 最终结果，因此同一首歌曲的图标只需要解码与变换一次，不需要再交给 Glide 进行变换。
+     *
+     * @param uri         歌曲的 Uri，不能为 null
+     * @param width       目标宽度（单位：像素），小于等于 0 时保持解码后的尺寸
+     * @param height      目标高度（单位：像素），小于等于 0 时保持解码后的尺寸
+     * @param cornerRadii 圆角的半径（单位：像素），顺序为：[左上, 右上, 右下, 左下]，为 null 时只缩放
+     * @return 如果歌曲没有内嵌图片，或者不是本地歌曲，则不会发射任何数据
+     */
+    @NonNull
+    public Maybe<Bitmap> getArtwork(@NonNull final String uri,
+                                    final int width,
+                                    final int height,
+                                    @Nullable int[] cornerRadii) {
+        Preconditions.checkNotNull(uri);
+        Preconditions.checkArgument(cornerRadii == null || cornerRadii.length == 4,
+                "cornerRadii length must be 4");
+
+        final int[] radii = cornerRadii == null ? null : cornerRadii.clone();
+        final String key = getBitmapKey(uri, width, height, radii);
+        Bitmap bitmap;
+        synchronized (this) {
+            bitmap = mMemoryCache.get(key);
+        }
+
+        if (bitmap != null) {
+            return Maybe.just(bitmap);
+        }
+
+        return getEmbeddedPicture(uri)
+                .observeOn(Schedulers.io())
+                .flatMapMaybe(new Function<byte[], MaybeSource<Bitmap>>() {
+                    @Override
+                    public MaybeSource<Bitmap> apply(byte[] picture) {
+                        Bitmap bitmap = decode(picture, width, height);
+                        if (bitmap == null) {
+                            return Maybe.empty();
+                        }
+
+                        boolean sized = width > 0 && height > 0;
+                        boolean exact = !sized || (bitmap.getWidth() == width && bitmap.getHeight() == height);
+                        if (radii != null || !exact) {
+                            bitmap = transform(bitmap, width, height, radii);
+                        }
+
+                        synchronized (ArtworkCache.this) {
+                            mMemoryCache.put(key, bitmap);
+                        }
+                        return Maybe.just(bitmap);
+                    }
+                });
+    }
+
+    /**
+     * 从内存缓存中获取已解码的歌曲内嵌图片，该方法不会阻塞。
+     *
+     * @return 如果内存缓存中没有对应的图片，则返回 null
+     */
+    @Nullable
+    public synchronized Bitmap getCachedArtwork(@NonNull String uri, int width, int height) {
+        Preconditions.checkNotNull(uri);
+        return mMemoryCache.get(getBitmapKey(uri, width, height, null));
+    }
+
+    /**
+     * 清空所有缓存。
+     */
+    public synchronized void clearCache() {
+        mMemoryCache.evictAll();
+
+        File[] files = mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!file.delete()) {
+                Log.w(TAG, "delete cache file failed: " + file);
+            }
+        }
+    }
+
+    private synchronized void removePendingTask(String uri) {
+        mPendingTasks.remove(uri);
+    }
+
+    // 运行在 io 线程中
+    private byte[] loadEmbeddedPicture(String uri) {
+        File cacheFile = getCacheFile(uri);
+
+        byte[] picture = readCache(cacheFile, uri);
+        if (picture != null) {
+            return picture;
+        }
+
+        picture = extractEmbeddedPicture(uri);
+        writeCache(cacheFile, uri, picture);
+        trimCache();
+        return picture;
+    }
+
+    private byte[] extractEmbeddedPicture(String uri) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+
+        try {
+            retriever.setDataSource(mApplicationContext, Uri.parse(uri));
+            byte[] picture = retriever.getEmbeddedPicture();
+            return picture == null ? EMPTY : picture;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "extract embedded picture failed: " + uri, e);
+            return EMPTY;
+        } finally {
+            retriever.release();
+        }
+    }
+
+    @Nullable
+    private static Bitmap decode(byte[] picture, int width, int height) {
+        if (picture.length == 0) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+
+        options.inSampleSize = computeSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeByteArray(picture, 0, picture.length, options);
+    }
+
+    // 居中裁剪并缩放到目标尺寸，同时应用圆角。变换后会回收 source
+    private static Bitmap transform(Bitmap source, int width, int height, @Nullable int[] radii) {
+        if (width <= 0 || height <= 0) {
+            width = source.getWidth();
+            height = source.getHeight();
+        }
+
+        float scale = Math.max((float) width / source.getWidth(), (float) height / source.getHeight());
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((width - source.getWidth() * scale) / 2, (height - source.getHeight() * scale) / 2);
+
+        BitmapShader shader = new BitmapShader(source, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(shader);
+
+        Bitmap result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(result);
+        RectF rect = new RectF(0, 0, width, height);
+
+        if (radii == null) {
+            canvas.drawRect(rect, paint);
+        } else {
+            Path path = new Path();
+            path.addRoundRect(rect, new float[]{
+                    radii[0], radii[0],
+                    radii[1], radii[1],
+                    radii[2], radii[2],
+                    radii[3], radii[3]
+            }, Path.Direction.CW);
+            canvas.drawPath(path, paint);
+        }
+
+        canvas.setBitmap(null);
+        source.recycle();
+        return result;
+    }
+
+    static int computeSampleSize(int outWidth, int outHeight, int width, int height) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return sampleSize;
+        }
+
+        while (outWidth / (sampleSize * 2) >= width && outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    @Nullable
+    private static byte[] readCache(File cacheFile, String uri) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !uri.equals(in.readUTF())) {
+                return null;
+            }
+
+            byte[] picture = new byte[in.readInt()];
+            in.readFully(picture);
+
+            if (!cacheFile.setLastModified(System.currentTimeMillis())) {
+                Log.d(TAG, "update last modified time failed: " + cacheFile);
+            }
+            return picture;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "read cache failed: " + cacheFile, e);
+            return null;
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private void writeCache(File cacheFile, String uri, byte[] picture) {
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            Log.w(TAG, "create cache dir failed: " + mCacheDir);
+            return;
+        }
+
+        // 先写入临时文件再重命名，避免进程被杀死时留下不完整的缓存文件
+        File tempFile = new File(mCacheDir, cacheFile.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(uri);
+                out.writeInt(picture.length);
+                out.write(picture);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "write cache failed: " + cacheFile, e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(cacheFile)) {
+            Log.w(TAG, "rename cache file failed: " + cacheFile);
+            tempFile.delete();
+        }
+    }
+
+    // 缓存的总大小超出上限时，删除最久没有使用的缓存文件
+    private void trimCache() {
+        File[] files = mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long totalSize = 0;
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            totalSize += files[i].length();
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+
+        if (totalSize <= MAX_DISK_CACHE_SIZE) {
+            return;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                long x = lastModified[o1];
+                long y = lastModified[o2];
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        for (int i = 0; i < files.length && totalSize > MAX_DISK_CACHE_SIZE; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                totalSize -= length;
+            } else {
+                Log.w(TAG, "delete cache file failed: " + file);
+            }
+        }
+    }
+
+    private File getCacheFile(String uri) {
+        // 文件名可能存在哈希冲突，因此缓存文件中也会保存完整的 Uri 用于校验
+        return new File(mCacheDir, Integer.toHexString(uri.hashCode()) + CACHE_FILE_SUFFIX);
+    }
+
+    private static String getBitmapKey(String uri, int width, int height, @Nullable int[] radii) {
+        String key = uri + "@" + width + "x" + height;
+        if (radii == null) {
+            return key;
+        }
+
+        return key + "#" + radii[0] + "," + radii[1] + "," + radii[2] + "," + radii[3];
+    }
+
+    private static boolean isLocalUri(String uri) {
+        if (uri.isEmpty()) {
+            return false;
+        }
+
+        String scheme = Uri.parse(uri).getScheme();
+        return !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme));
+    }
+}
@@ -235,6 +235,15 @@ public class MediaMusicPlayer extends AbstractMusicPlayer {
         return mMediaPlayer.getAudioSessionId();
     }
 
+    @Override
+    public void setAudioSessionId(int audioSessionId) {
+        try {
+            mMediaPlayer.setAudioSessionId(audioSessionId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void setOnPreparedListener(final OnPreparedListener listener) {
         if (listener == null) {
@@ -149,6 +149,16 @@ public interface MusicPlayer {
      */
     int getAudioSessionId();
 
+    /**
+     * 设置音频会话 ID。
+     * <p>
+     * 该方法只应该在调用 {@link #prepare()} 方法之前调用。播放器会为创建的所有 {@link MusicPlayer} 设置同一个
+     * 音频会话 ID，这样切换歌曲时就不需要重新创建音频特效。
+     *
+     * @param audioSessionId 音频会话 ID
+     */
+    void setAudioSessionId(int audioSessionId);
+
     /**
      * 设置一个 OnPreparedListener 监听器。
      */
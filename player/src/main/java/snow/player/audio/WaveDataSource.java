@@ -0,0 +1,49 @@
+package snow.player.audio;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 波形数据源，用于将播放器解码后的音频数据直接提供给波形视图（例如 ui 模块的 {@code AbstractWaveView}）。
+ * <p>
+ * 设置了数据源后，波形视图会在每一帧绘制前从数据源中读取最新的波形数据，而不是使用
+ * {@code android.media.audiofx.Visualizer} 捕获波形，因此不需要 {@code android.permission.RECORD_AUDIO}
+ * 权限。
+ * <p>
+ * 该接口由播放器的实现模块（例如 exo 模块的 {@code WaveTap}）实现，因此播放器的实现模块不需要依赖 ui 模块。
+ */
+public interface WaveDataSource {
+
+    /**
+     * 获取波形的采样率（单位：mHz），与 {@code Visualizer} 返回的采样率的单位一致。
+     *
+     * @return 如果还没有任何波形数据，则返回 0
+     */
+    int getSamplingRate();
+
+    /**
+     * 获取数据源的版本号。每当数据源中写入了新的音频数据时，版本号都会改变。
+     */
+    long getVersion();
+
+    /**
+     * 读取最新的波形数据。
+     * <p>
+     * 波形数据的格式与 {@code Visualizer} 捕获的波形数据相同：单声道，8 bit 无符号 PCM 数据（128 表示 0）。
+     * 该方法可能会在任意线程中调用，并且不会阻塞。
+     *
+     * @param waveform 用于存储波形数据的数组，会读取与数组长度相同数量的采样
+     * @return 如果数据源中没有足够的数据，则返回 false
+     */
+    boolean readWaveform(@NonNull byte[] waveform);
+
+    /**
+     * 读取最新的 PCM 采样，用于计算频谱。
+     * <p>
+     * 采样为单声道，范围为 [-1, 1]，精度应不低于 {@link #readWaveform(byte[])} 返回的波形数据。
+     * 该方法会在波形视图的频谱分析线程中调用，并且不会阻塞。
+     *
+     * @param samples 用于存储采样的数组，会读取与数组长度相同数量的采样
+     * @return 如果数据源中没有足够的数据，则返回 false
+     */
+    boolean readSamples(@NonNull float[] samples);
+}
@@ -7,6 +7,9 @@ import android.media.audiofx.Virtualizer;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
 
 import snow.player.util.AndroidAudioEffectConfigUtil;
 
@@ -20,6 +23,10 @@ import snow.player.util.AndroidAudioEffectConfigUtil;
  *     <li>Virtualizer：环绕声</li>
  *     <li>PresetReverb：预置混响</li>
  * </ul>
+ * <p>
+ * 播放器会为创建的所有 MusicPlayer 设置同一个 audio session id，因此切换歌曲时音频特效会一直保持可用，
+ * 不会在每次准备播放器时重新创建。配置信息只会在 {@link #init(Bundle)} 与 {@link #updateConfig(Bundle)}
+ * 时解析一次，并且更新配置时只会重新应用发生了变化的参数。
  */
 public final class AndroidAudioEffectManager implements AudioEffectManager {
     /**
@@ -29,52 +36,78 @@ public final class AndroidAudioEffectManager implements AudioEffectManager {
      */
     public static final int PRIORITY = 1;
 
-    private Bundle mConfig;
+    private static final int NO_AUDIO_SESSION = -1;
+
+    private Config mConfig;
 
     private Equalizer mEqualizer;
     private BassBoost mBassBoost;
     private PresetReverb mPresetReverb;
     private Virtualizer mVirtualizer;
 
+    private int mAudioSessionId = NO_AUDIO_SESSION;
+    // 已应用到当前音频特效上的配置
+    private Config mAppliedConfig;
+
     @Override
     public void init(@NonNull Bundle config) {
-        mConfig = new Bundle(config);
+        mConfig = Config.parse(config);
     }
 
     @Override
     public void updateConfig(@NonNull Bundle config) {
-        mConfig = new Bundle(config);
+        mConfig = Config.parse(config);
+
+        if (mAudioSessionId == NO_AUDIO_SESSION) {
+            return;
+        }
+
+        Config applied = mAppliedConfig;
 
         if (mEqualizer.hasControl()) {
-            AndroidAudioEffectConfigUtil.applySettings(mConfig, mEqualizer);
+            applyChanges(mEqualizer, applied.mEqualizerSettings, mConfig.mEqualizerSettings);
         }
 
         if (mBassBoost.hasControl()) {
-            AndroidAudioEffectConfigUtil.applySettings(mConfig, mBassBoost);
+            applyChanges(mBassBoost, applied.mBassBoostSettings, mConfig.mBassBoostSettings);
         }
 
         if (mVirtualizer.hasControl()) {
-            AndroidAudioEffectConfigUtil.applySettings(mConfig, mVirtualizer);
+            applyChanges(mVirtualizer, applied.mVirtualizerSettings, mConfig.mVirtualizerSettings);
         }
 
         if (mPresetReverb.hasControl()) {
-            AndroidAudioEffectConfigUtil.applySettings(mConfig, mPresetReverb);
+            applyChanges(mPresetReverb, applied.mPresetReverbSettings, mConfig.mPresetReverbSettings);
         }
+
+        mAppliedConfig = new Config(
+                mEqualizer.hasControl() ? mConfig.mEqualizerSettings : applied.mEqualizerSettings,
+                mBassBoost.hasControl() ? mConfig.mBassBoostSettings : applied.mBassBoostSettings,
+                mVirtualizer.hasControl() ? mConfig.mVirtualizerSettings : applied.mVirtualizerSettings,
+                mPresetReverb.hasControl() ? mConfig.mPresetReverbSettings : applied.mPresetReverbSettings
+        );
     }
 
     @Override
     public void attachAudioEffect(int audioSessionId) {
+        if (audioSessionId == mAudioSessionId) {
+            // audio session id 没有改变，继续使用已创建的音频特效
+            return;
+        }
+
         releaseAudioEffect();
 
         mEqualizer = new Equalizer(PRIORITY, audioSessionId);
         mBassBoost = new BassBoost(PRIORITY, audioSessionId);
         mVirtualizer = new Virtualizer(PRIORITY, audioSessionId);
         mPresetReverb = new PresetReverb(PRIORITY, audioSessionId);
+        mAudioSessionId = audioSessionId;
 
-        AndroidAudioEffectConfigUtil.applySettings(mConfig, mEqualizer);
-        AndroidAudioEffectConfigUtil.applySettings(mConfig, mBassBoost);
-        AndroidAudioEffectConfigUtil.applySettings(mConfig, mVirtualizer);
-        AndroidAudioEffectConfigUtil.applySettings(mConfig, mPresetReverb);
+        applyChanges(mEqualizer, null, mConfig.mEqualizerSettings);
+        applyChanges(mBassBoost, null, mConfig.mBassBoostSettings);
+        applyChanges(mVirtualizer, null, mConfig.mVirtualizerSettings);
+        applyChanges(mPresetReverb, null, mConfig.mPresetReverbSettings);
+        mAppliedConfig = mConfig;
 
         mEqualizer.setEnabled(true);
         mBassBoost.setEnabled(true);
@@ -93,6 +126,9 @@ public final class AndroidAudioEffectManager implements AudioEffectManager {
     }
 
     private void releaseAudioEffect() {
+        mAudioSessionId = NO_AUDIO_SESSION;
+        mAppliedConfig = null;
+
         if (mEqualizer != null) {
             mEqualizer.release();
             mEqualizer = null;
@@ -113,4 +149,108 @@ public final class AndroidAudioEffectManager implements AudioEffectManager {
             mVirtualizer = null;
         }
     }
+
+    private static void applyChanges(Equalizer equalizer,
+                                     @Nullable Equalizer.Settings oldSettings,
+                                     @Nullable Equalizer.Settings newSettings) {
+        if (newSettings == null) {
+            return;
+        }
+
+        try {
+            if (oldSettings == null ||
+                    oldSettings.curPreset != newSettings.curPreset ||
+                    oldSettings.numBands != newSettings.numBands) {
+                equalizer.setProperties(newSettings);
+                return;
+            }
+
+            if (Arrays.equals(oldSettings.bandLevels, newSettings.bandLevels)) {
+                return;
+            }
+
+            for (short band = 0; band < newSettings.numBands; band++) {
+                if (oldSettings.bandLevels[band] != newSettings.bandLevels[band]) {
+                    equalizer.setBandLevel(band, newSettings.bandLevels[band]);
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void applyChanges(BassBoost bassBoost,
+                                     @Nullable BassBoost.Settings oldSettings,
+                                     @Nullable BassBoost.Settings newSettings) {
+        if (newSettings == null || (oldSettings != null && oldSettings.strength == newSettings.strength)) {
+            return;
+        }
+
+        try {
+            bassBoost.setStrength(newSettings.strength);
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void applyChanges(Virtualizer virtualizer,
+                                     @Nullable Virtualizer.Settings oldSettings,
+                                     @Nullable Virtualizer.Settings newSettings) {
+        if (newSettings == null || (oldSettings != null && oldSettings.strength == newSettings.strength)) {
+            return;
+        }
+
+        try {
+            virtualizer.setStrength(newSettings.strength);
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void applyChanges(PresetReverb presetReverb,
+                                     @Nullable PresetReverb.Settings oldSettings,
+                                     @Nullable PresetReverb.Settings newSettings) {
+        if (newSettings == null || (oldSettings != null && oldSettings.preset == newSettings.preset)) {
+            return;
+        }
+
+        try {
+            presetReverb.setPreset(newSettings.preset);
+        } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 解析后的音频特效配置。为 null 的字段表示没有对应的配置。
+     */
+    private static final class Config {
+        @Nullable
+        final Equalizer.Settings mEqualizerSettings;
+        @Nullable
+        final BassBoost.Settings mBassBoostSettings;
+        @Nullable
+        final Virtualizer.Settings mVirtualizerSettings;
+        @Nullable
+        final PresetReverb.Settings mPresetReverbSettings;
+
+        Config(@Nullable Equalizer.Settings equalizerSettings,
+               @Nullable BassBoost.Settings bassBoostSettings,
+               @Nullable Virtualizer.Settings virtualizerSettings,
+               @Nullable PresetReverb.Settings presetReverbSettings) {
+            mEqualizerSettings = equalizerSettings;
+            mBassBoostSettings = bassBoostSettings;
+            mVirtualizerSettings = virtualizerSettings;
+            mPresetReverbSettings = presetReverbSettings;
+        }
+
+        static Config parse(@NonNull Bundle config) {
+            return new Config(
+                    AndroidAudioEffectConfigUtil.getEqualizerSettings(config),
+                    AndroidAudioEffectConfigUtil.getBassBoostSettings(config),
+                    AndroidAudioEffectConfigUtil.getVirtualizerSettings(config),
+                    AndroidAudioEffectConfigUtil.getPresetReverbSettings(config)
+            );
+        }
+    }
 }
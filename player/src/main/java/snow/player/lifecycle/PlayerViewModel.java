@@ -39,10 +39,10 @@ public class PlayerViewModel extends ViewModel {
     private MutableLiveData<String> mAlbum;
     private MutableLiveData<String> mIconUri;
     private MutableLiveData<Integer> mDuration;             // 单位：秒
-    private MutableLiveData<Integer> mPlayProgress;         // 单位：秒
+    private ProgressLiveData mPlayProgress;                 // 单位：秒
     private MutableLiveData<Integer> mBufferedProgress;     // 单位：秒
     private MutableLiveData<Integer> mSleepTimerTime;       // 单位：秒
-    private MutableLiveData<Integer> mSleepTimerProgress;   // 单位：秒
+    private ProgressLiveData mSleepTimerProgress;           // 单位：秒
     private MutableLiveData<Integer> mPlayPosition;
     private MutableLiveData<PlayMode> mPlayMode;
     private MutableLiveData<PlaybackState> mPlaybackState;
@@ -352,6 +352,7 @@ public class PlayerViewModel extends ViewModel {
             }
         });
         mProgressClock.setEnabled(enable);
+        mPlayProgress.setProgressClock(mProgressClock);
 
         mSleepTimerProgressClock = new ProgressClock(true, new ProgressClock.Callback() {
             @Override
@@ -359,6 +360,7 @@ public class PlayerViewModel extends ViewModel {
                 mSleepTimerProgress.setValue(progressSec);
             }
         });
+        mSleepTimerProgress.setProgressClock(mSleepTimerProgressClock);
     }
 
     private void addAllListener() {
@@ -1051,10 +1053,10 @@ public class PlayerViewModel extends ViewModel {
         mAlbum = new MutableLiveData<>(mDefaultAlbum);
         mIconUri = new MutableLiveData<>(getIconUri(mPlayerClient));
         mDuration = new MutableLiveData<>(getDurationSec());
-        mPlayProgress = new MutableLiveData<>(getPlayProgressSec());
+        mPlayProgress = new ProgressLiveData(getPlayProgressSec());
         mBufferedProgress = new MutableLiveData<>(getBufferedProgressSec());
         mSleepTimerTime = new MutableLiveData<>((int) (mPlayerClient.getSleepTimerTime() / 1000));
-        mSleepTimerProgress = new MutableLiveData<>((int) (mPlayerClient.getSleepTimerElapsedTime() / 1000));
+        mSleepTimerProgress = new ProgressLiveData((int) (mPlayerClient.getSleepTimerElapsedTime() / 1000));
         mPlayPosition = new MutableLiveData<>(mPlayerClient.getPlayPosition());
         mPlayMode = new MutableLiveData<>(mPlayerClient.getPlayMode());
         mPlaybackState = new MutableLiveData<>(mPlayerClient.getPlaybackState());
@@ -1093,4 +1095,41 @@ public class PlayerViewModel extends ViewModel {
 
         return musicItem.getIconUri();
     }
+
+    /**
+     * 只在有活跃的观察者时才运行进度条时钟的 LiveData。
+     * <p>
+     * 没有活跃的观察者时（例如：Activity 已处于 stopped 状态）会暂停进度条时钟；有观察者重新变为活跃状态时，
+     * 进度条时钟会根据最后一次同步的播放进度与更新时间重新计算当前进度。
+     */
+    private static class ProgressLiveData extends MutableLiveData<Integer> {
+        @Nullable
+        private ProgressClock mProgressClock;
+
+        ProgressLiveData(Integer value) {
+            super(value);
+        }
+
+        void setProgressClock(@NonNull ProgressClock progressClock) {
+            mProgressClock = progressClock;
+
+            if (!hasActiveObservers()) {
+                mProgressClock.suspend();
+            }
+        }
+
+        @Override
+        protected void onActive() {
+            if (mProgressClock != null) {
+                mProgressClock.resume();
+            }
+        }
+
+        @Override
+        protected void onInactive() {
+            if (mProgressClock != null) {
+                mProgressClock.suspend();
+            }
+        }
+    }
 }
@@ -12,8 +12,10 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import snow.player.audio.MusicItem;
 
@@ -49,10 +51,12 @@ public final class Playlist implements Iterable<MusicItem>, Parcelable {
     }
 
     private ArrayList<MusicItem> excludeRepeatItem(List<MusicItem> items) {
-        ArrayList<MusicItem> musicItems = new ArrayList<>();
+        ArrayList<MusicItem> musicItems = new ArrayList<>(items.size());
+        // 使用 HashSet 去重，避免播放列表很大时 ArrayList.contains 带来的 O(n^2) 开销
+        Set<MusicItem> addedItems = new HashSet<>(items.size() * 2);
 
         for (MusicItem item : items) {
-            if (musicItems.contains(item)) {
+            if (!addedItems.add(item)) {
                 continue;
             }
 
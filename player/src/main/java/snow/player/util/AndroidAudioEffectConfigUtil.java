@@ -7,6 +7,7 @@ import android.media.audiofx.Virtualizer;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * 用于获取和修改 Android 音频特效的配置信息。
@@ -28,18 +29,39 @@ public final class AndroidAudioEffectConfigUtil {
      * @param equalizer 要恢复配置的 Equalizer 对象，不能为 null
      */
     public static void applySettings(@NonNull Bundle config, @NonNull Equalizer equalizer) {
-        String settings = config.getString(KEY_SETTING_EQUALIZER);
-        if (settings == null || settings.isEmpty()) {
+        Equalizer.Settings settings = getEqualizerSettings(config);
+        if (settings == null) {
             return;
         }
 
         try {
-            equalizer.setProperties(new Equalizer.Settings(settings));
+            equalizer.setProperties(settings);
         } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 从 config 中解析 Equalizer 的配置。
+     *
+     * @param config Bundle 对象，包含音频特效的配置信息，不能为 null
+     * @return 如果 config 中没有 Equalizer 的配置，或者配置无效，则返回 null
+     */
+    @Nullable
+    public static Equalizer.Settings getEqualizerSettings(@NonNull Bundle config) {
+        String settings = config.getString(KEY_SETTING_EQUALIZER);
+        if (settings == null || settings.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new Equalizer.Settings(settings);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * 从 config 中应用 BassBoost 的配置。
      *
@@ -47,18 +69,39 @@ public final class AndroidAudioEffectConfigUtil {
      * @param bassBoost 要恢复配置的 BassBoost 对象，不能为 null
      */
     public static void applySettings(@NonNull Bundle config, @NonNull BassBoost bassBoost) {
-        String settings = config.getString(KEY_SETTING_BASS_BOOST);
-        if (settings == null || settings.isEmpty()) {
+        BassBoost.Settings settings = getBassBoostSettings(config);
+        if (settings == null) {
             return;
         }
 
         try {
-            bassBoost.setProperties(new BassBoost.Settings(settings));
+            bassBoost.setProperties(settings);
         } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 从 config 中解析 BassBoost 的配置。
+     *
+     * @param config Bundle 对象，包含音频特效的配置信息，不能为 null
+     * @return 如果 config 中没有 BassBoost 的配置，或者配置无效，则返回 null
+     */
+    @Nullable
+    public static BassBoost.Settings getBassBoostSettings(@NonNull Bundle config) {
+        String settings = config.getString(KEY_SETTING_BASS_BOOST);
+        if (settings == null || settings.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new BassBoost.Settings(settings);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * 从 config 中应用 Virtualizer 的配置。
      *
@@ -66,18 +109,39 @@ public final class AndroidAudioEffectConfigUtil {
      * @param virtualizer 要恢复配置的 Virtualizer 对象，不能为 null
      */
     public static void applySettings(@NonNull Bundle config, @NonNull Virtualizer virtualizer) {
-        String settings = config.getString(KEY_SETTING_VIRTUALIZER);
-        if (settings == null || settings.isEmpty()) {
+        Virtualizer.Settings settings = getVirtualizerSettings(config);
+        if (settings == null) {
             return;
         }
 
         try {
-            virtualizer.setProperties(new Virtualizer.Settings(settings));
+            virtualizer.setProperties(settings);
         } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 从 config 中解析 Virtualizer 的配置。
+     *
+     * @param config Bundle 对象，包含音频特效的配置信息，不能为 null
+     * @return 如果 config 中没有 Virtualizer 的配置，或者配置无效，则返回 null
+     */
+    @Nullable
+    public static Virtualizer.Settings getVirtualizerSettings(@NonNull Bundle config) {
+        String settings = config.getString(KEY_SETTING_VIRTUALIZER);
+        if (settings == null || settings.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new Virtualizer.Settings(settings);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * 从 config 中应用 PresetReverb 的配置。
      *
@@ -85,18 +149,39 @@ public final class AndroidAudioEffectConfigUtil {
      * @param presetReverb 要恢复配置的 PresetReverb 对象，不能为 null
      */
     public static void applySettings(@NonNull Bundle config, @NonNull PresetReverb presetReverb) {
-        String settings = config.getString(KEY_SETTING_PRESET_REVERB);
-        if (settings == null || settings.isEmpty()) {
+        PresetReverb.Settings settings = getPresetReverbSettings(config);
+        if (settings == null) {
             return;
         }
 
         try {
-            presetReverb.setProperties(new PresetReverb.Settings(settings));
+            presetReverb.setProperties(settings);
         } catch (IllegalArgumentException | IllegalStateException | UnsupportedOperationException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * 从 config 中解析 PresetReverb 的配置。
+     *
+     * @param config Bundle 对象，包含音频特效的配置信息，不能为 null
+     * @return 如果 config 中没有 PresetReverb 的配置，或者配置无效，则返回 null
+     */
+    @Nullable
+    public static PresetReverb.Settings getPresetReverbSettings(@NonNull Bundle config) {
+        String settings = config.getString(KEY_SETTING_PRESET_REVERB);
+        if (settings == null || settings.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new PresetReverb.Settings(settings);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * 更新音频特效的 Equalizer 配置。
      *
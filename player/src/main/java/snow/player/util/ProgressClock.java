@@ -7,17 +7,12 @@ import androidx.annotation.NonNull;
 
 import com.google.common.base.Preconditions;
 
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
-
-import io.reactivex.Observable;
-import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.disposables.Disposable;
-import io.reactivex.functions.Consumer;
-import io.reactivex.schedulers.Schedulers;
-
 /**
  * 进度条时钟，支持倒计时。
+ * <p>
+ * 可以调用 {@link #suspend()} 方法暂停时钟的计时（例如：UI 不可见时），暂停期间调用
+ * {@link #start(int, long, int)} 方法只会记录进度，不会回调 {@link Callback}；调用 {@link #resume()}
+ * 方法恢复计时时，会根据最后一次记录的进度重新计算当前的进度。
  */
 public class ProgressClock {
     private static final String TAG = "ProgressClock";
@@ -30,7 +25,28 @@ public class ProgressClock {
     private int mDurationSec;       // 单位：秒
 
     private boolean mLoop;
-    private Disposable mDisposable;
+    private WheelTimer.Timeout mTimeout;
+
+    private boolean mSuspended;
+    private boolean mStarted;
+    private int mStartProgress;
+    private long mStartUpdateTime;
+    private int mStartDuration;
+
+    // 缓存 1 小时以内的所有格式化字符串，避免每秒都创建新的字符串
+    private static final int TEXT_CACHE_SIZE = 60 * 60;
+    private static final String[] TEXT_CACHE = new String[TEXT_CACHE_SIZE];
+
+    private final Runnable mTickAction = new Runnable() {
+        @Override
+        public void run() {
+            if (mCountDown) {
+                decrease();
+            } else {
+                increase();
+            }
+        }
+    };
 
     /**
      * 创建一个 ProgressClock 对象。
@@ -114,6 +130,15 @@ public class ProgressClock {
     public void start(int progress, long updateTime, int duration) throws IllegalArgumentException {
         cancel();
 
+        mStarted = true;
+        mStartProgress = progress;
+        mStartUpdateTime = updateTime;
+        mStartDuration = duration;
+
+        if (mSuspended) {
+            return;
+        }
+
         if (duration < 1) {
             mCallback.onUpdateProgress(0, 0);
             return;
@@ -149,19 +174,7 @@ public class ProgressClock {
         updateProgress(mProgressSec);
 
         long delay = 1000 - (realProgress % 1000);
-        mDisposable = Observable.interval(delay, 1000, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.computation())
-                .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Consumer<Long>() {
-                    @Override
-                    public void accept(Long aLong) {
-                        if (mCountDown) {
-                            decrease();
-                        } else {
-                            increase();
-                        }
-                    }
-                });
+        mTimeout = WheelTimer.getInstance().schedulePeriodic(mTickAction, delay, 1000);
     }
 
     private boolean isTimeout() {
@@ -172,10 +185,60 @@ public class ProgressClock {
         return mProgressSec >= mDurationSec;
     }
 
+    /**
+     * 取消计时。
+     */
     public void cancel() {
-        if (mDisposable != null && !mDisposable.isDisposed()) {
-            mDisposable.dispose();
-            mDisposable = null;
+        mStarted = false;
+        stopTimer();
+    }
+
+    /**
+     * 暂停计时（例如：UI 不可见时）。
+     * <p>
+     * 暂停期间调用 {@link #start(int, long, int)} 方法只会记录进度，不会回调 {@link Callback}。
+     *
+     * @see #resume()
+     */
+    public void suspend() {
+        if (mSuspended) {
+            return;
+        }
+
+        mSuspended = true;
+        stopTimer();
+    }
+
+    /**
+     * 恢复计时。
+     * <p>
+     * 如果暂停前或暂停期间已启动时钟，则会根据最后一次调用 {@link #start(int, long, int)} 方法时传入的
+     * 进度与更新时间重新计算当前的进度，并立即回调一次 {@link Callback}。
+     *
+     * @see #suspend()
+     */
+    public void resume() {
+        if (!mSuspended) {
+            return;
+        }
+
+        mSuspended = false;
+        if (mStarted) {
+            start(mStartProgress, mStartUpdateTime, mStartDuration);
+        }
+    }
+
+    /**
+     * 是否已暂停计时。
+     */
+    public boolean isSuspended() {
+        return mSuspended;
+    }
+
+    private void stopTimer() {
+        if (mTimeout != null) {
+            mTimeout.cancel();
+            mTimeout = null;
         }
     }
 
@@ -188,7 +251,7 @@ public class ProgressClock {
         }
 
         if (!mLoop && (newProgress >= mDurationSec)) {
-            cancel();
+            stopTimer();
         }
 
         updateProgress(newProgress);
@@ -203,7 +266,7 @@ public class ProgressClock {
         }
 
         if (!mLoop && newProgress <= 0) {
-            cancel();
+            stopTimer();
         }
 
         updateProgress(newProgress);
@@ -220,6 +283,8 @@ public class ProgressClock {
      * 格式化后的字符串的格式为：[时:分:秒]（例如：01:30:45）。如果 “时” 为 0, 则会忽略, 此时的字符串格式
      * 是：[分:秒]（例如：04:35）。最多支持到 99:59:59, 如果 seconds 参数的值大于等于 359,999(99:59:59) 时，
      * 会直接返回 99:59:59。
+     * <p>
+     * 1 小时以内的格式化结果会被缓存，重复格式化相同的进度时不会创建新的字符串。
      *
      * @param seconds 歌曲的播放进度，单位：秒
      * @return 返回格式化后的字符串
@@ -235,15 +300,40 @@ public class ProgressClock {
             return "99:59:59";
         }
 
+        if (seconds < TEXT_CACHE_SIZE) {
+            String text = TEXT_CACHE[seconds];
+            if (text == null) {
+                text = format(seconds);
+                TEXT_CACHE[seconds] = text;
+            }
+            return text;
+        }
+
+        return format(seconds);
+    }
+
+    private static String format(int seconds) {
         int second = seconds % 60;
         int minute = (seconds / 60) % 60;
         int hour = (seconds / 3600);
 
-        if (hour <= 0) {
-            return String.format(Locale.ENGLISH, "%02d:%02d", minute, second);
+        char[] buffer = new char[8];
+        int length = 0;
+        if (hour > 0) {
+            length = appendTwoDigits(buffer, length, hour);
+            buffer[length++] = ':';
         }
+        length = appendTwoDigits(buffer, length, minute);
+        buffer[length++] = ':';
+        length = appendTwoDigits(buffer, length, second);
+
+        return new String(buffer, 0, length);
+    }
 
-        return String.format(Locale.ENGLISH, "%02d:%02d:%02d", hour, minute, second);
+    private static int appendTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
     }
 
     /**
@@ -0,0 +1,275 @@
+package snow.player.util;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 基于哈希时间轮（hashed wheel）的定时器，所有定时任务都会在主线程中执行。
+ * <p>
+ * 进度条时钟、播放进度记录、睡眠定时器与空闲定时器等所有定时任务都会共享同一个时间轮，并且只使用主线程的
+ * 一个 {@link Handler} 进行调度：时间轮只会在最近的一个定时任务到期时才唤醒，并在每次唤醒时执行所有已到期
+ * 的任务。所有任务的到期时间都会按 {@link #TICK_MILLIS} 向上对齐，因此到期时间相近的任务会被合并到同一次
+ * 唤醒中执行，无论有多少个定时任务处于活动状态，每个 tick 最多只会唤醒一次。
+ * <p>
+ * 时间轮使用 {@link SystemClock#elapsedRealtime()} 计时，该时钟在设备深度睡眠期间也会继续计时，因此睡眠
+ * 定时器等任务的到期时间不会因为设备睡眠而被推迟；设备唤醒后，所有在睡眠期间到期的任务都会被立即执行。
+ * <p>
+ * 该类不是线程安全的，只能在主线程中使用。
+ */
+public final class WheelTimer {
+    /**
+     * 时间轮的精度（单位：毫秒）。
+     */
+    public static final long TICK_MILLIS = 50;
+
+    private static final int WHEEL_SIZE = 64;   // 必须是 2 的幂
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static WheelTimer sInstance;
+
+    private final Handler mHandler;
+    private final List<List<Timeout>> mWheel;
+    private final long mStartTime;
+
+    private long mCurrentTick;
+    private int mTimeoutCount;
+    private long mScheduledTick;
+
+    private final Runnable mTickAction = new Runnable() {
+        @Override
+        public void run() {
+            mScheduledTick = -1;
+            advance();
+            scheduleNextTick();
+        }
+    };
+
+    private WheelTimer() {
+        mHandler = new Handler(Looper.getMainLooper());
+        mWheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            mWheel.add(new ArrayList<Timeout>());
+        }
+
+        mStartTime = SystemClock.elapsedRealtime();
+        mCurrentTick = 0;
+        mScheduledTick = -1;
+    }
+
+    /**
+     * 获取当前进程中的 WheelTimer 对象。
+     */
+    @NonNull
+    public static WheelTimer getInstance() {
+        checkMainThread();
+
+        if (sInstance == null) {
+            sInstance = new WheelTimer();
+        }
+
+        return sInstance;
+    }
+
+    private static void checkMainThread() {
+        Preconditions.checkState(Looper.myLooper() == Looper.getMainLooper(),
+                "WheelTimer must be used on the main thread.");
+    }
+
+    /**
+     * 在指定的延迟后执行一次任务。
+     *
+     * @param task        要执行的任务，会在主线程中执行，不能为 null
+     * @param delayMillis 延迟时间（单位：毫秒）
+     * @return 用于取消任务的 {@link Timeout} 对象
+     */
+    @NonNull
+    public Timeout schedule(@NonNull Runnable task, long delayMillis) {
+        return schedulePeriodic(task, delayMillis, 0);
+    }
+
+    /**
+     * 在指定的延迟后周期性地执行任务。
+     * <p>
+     * 每次执行的时间都是根据首次执行的时间计算的，不会因为任务的执行时间而产生累积误差。如果主线程被阻塞
+     * 导致错过了若干个周期，则错过的周期会被跳过，而不是连续执行多次。
+     *
+     * @param task               要执行的任务，会在主线程中执行，不能为 null
+     * @param initialDelayMillis 首次执行的延迟时间（单位：毫秒）
+     * @param periodMillis       执行周期（单位：毫秒），小于等于 0 时只会执行一次
+     * @return 用于取消任务的 {@link Timeout} 对象
+     */
+    @NonNull
+    public Timeout schedulePeriodic(@NonNull Runnable task, long initialDelayMillis, long periodMillis) {
+        Preconditions.checkNotNull(task);
+        checkMainThread();
+
+        Timeout timeout = new Timeout(this, task, periodMillis);
+        long now = SystemClock.elapsedRealtime();
+        timeout.mDeadline = now + Math.max(0, initialDelayMillis);
+        add(timeout);
+
+        return timeout;
+    }
+
+    private void add(Timeout timeout) {
+        // 到期时间向上对齐到 tick，并且至少是下一个 tick
+        long tick = Math.max(mCurrentTick + 1, ceilTick(timeout.mDeadline));
+        timeout.mDeadlineTick = tick;
+
+        mWheel.get((int) (tick & MASK)).add(timeout);
+        mTimeoutCount++;
+        timeout.mQueued = true;
+
+        if (mScheduledTick < 0 || tick < mScheduledTick) {
+            scheduleTick(tick);
+        }
+    }
+
+    private void remove(Timeout timeout) {
+        if (mWheel.get((int) (timeout.mDeadlineTick & MASK)).remove(timeout)) {
+            mTimeoutCount--;
+        }
+
+        timeout.mQueued = false;
+    }
+
+    private long ceilTick(long time) {
+        long elapsed = time - mStartTime;
+        return (elapsed + TICK_MILLIS - 1) / TICK_MILLIS;
+    }
+
+    private long currentTick() {
+        return (SystemClock.elapsedRealtime() - mStartTime) / TICK_MILLIS;
+    }
+
+    private void advance() {
+        long targetTick = currentTick();
+        if (targetTick <= mCurrentTick) {
+            return;
+        }
+
+        // 最多只需要遍历一圈，之后所有的桶都已被访问过
+        long fromTick = Math.max(mCurrentTick + 1, targetTick - MASK);
+        mCurrentTick = targetTick;
+
+        List<Timeout> expired = null;
+        for (long tick = fromTick; tick <= targetTick; tick++) {
+            Iterator<Timeout> iterator = mWheel.get((int) (tick & MASK)).iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.mDeadlineTick > targetTick) {
+                    continue;
+                }
+
+                iterator.remove();
+                mTimeoutCount--;
+                timeout.mQueued = false;
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(timeout);
+            }
+        }
+
+        if (expired == null) {
+            return;
+        }
+
+        for (Timeout timeout : expired) {
+            if (timeout.mCancelled) {
+                continue;
+            }
+
+            timeout.mTask.run();
+            if (timeout.isPeriodic() && !timeout.mCancelled) {
+                long now = SystemClock.elapsedRealtime();
+                long deadline = timeout.mDeadline + timeout.mPeriod;
+                if (deadline <= now) {
+                    // 跳过已错过的周期
+                    long missed = (now - deadline) / timeout.mPeriod + 1;
+                    deadline += missed * timeout.mPeriod;
+                }
+
+                timeout.mDeadline = deadline;
+                add(timeout);
+            }
+        }
+    }
+
+    private void scheduleNextTick() {
+        if (mTimeoutCount <= 0) {
+            return;
+        }
+
+        long nextTick = Long.MAX_VALUE;
+        for (List<Timeout> bucket : mWheel) {
+            for (Timeout timeout : bucket) {
+                nextTick = Math.min(nextTick, timeout.mDeadlineTick);
+            }
+        }
+
+        scheduleTick(nextTick);
+    }
+
+    private void scheduleTick(long tick) {
+        mHandler.removeCallbacks(mTickAction);
+        mScheduledTick = tick;
+
+        // Handler 使用 uptimeMillis 计时，因此需要换算成相对于当前时间的延迟
+        long delay = mStartTime + tick * TICK_MILLIS - SystemClock.elapsedRealtime();
+        mHandler.postDelayed(mTickAction, Math.max(0, delay));
+    }
+
+    /**
+     * 用于取消定时任务。
+     */
+    public static final class Timeout {
+        private final WheelTimer mTimer;
+        private final Runnable mTask;
+        private final long mPeriod;
+        private long mDeadline;
+        private long mDeadlineTick;
+        private boolean mQueued;
+        private boolean mCancelled;
+
+        Timeout(WheelTimer timer, Runnable task, long period) {
+            mTimer = timer;
+            mTask = task;
+            mPeriod = period;
+        }
+
+        boolean isPeriodic() {
+            return mPeriod > 0;
+        }
+
+        /**
+         * 取消定时任务。如果任务已执行（非周期任务）或已取消，则调用该方法不会有任何效果。
+         */
+        public void cancel() {
+            if (mCancelled) {
+                return;
+            }
+
+            mCancelled = true;
+            if (mQueued) {
+                mTimer.remove(this);
+            }
+        }
+
+        /**
+         * 定时任务是否已被取消。
+         */
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+    }
+}
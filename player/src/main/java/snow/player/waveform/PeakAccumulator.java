@@ -0,0 +1,92 @@
+package snow.player.waveform;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 将 16 bit PCM 数据按固定的时间间隔汇总成峰值。
+ * <p>
+ * 所有声道会混合在一起计算峰值（取所有声道的最大绝对值）。音频格式可以在解码过程中改变（例如：
+ * MediaCodec 输出的格式与 MediaExtractor 报告的格式不一致），改变后会按照新的格式重新开始计算当前区间的
+ * 帧数，已累计的峰值会合并到该区间中。
+ */
+final class PeakAccumulator {
+    private final int mIntervalMillis;
+
+    private int mChannelCount;
+    private int mFramesPerInterval;
+
+    private int mChannel;
+    private int mFrames;
+    private int mPeak;
+
+    private byte[] mPeaks;
+    private int mCount;
+
+    PeakAccumulator(int intervalMillis) {
+        mIntervalMillis = intervalMillis;
+        mPeaks = new byte[1024];
+    }
+
+    /**
+     * 设置音频格式。
+     */
+    void configure(int sampleRate, int channelCount) {
+        mChannelCount = Math.max(1, channelCount);
+        mFramesPerInterval = Math.max(1, (int) ((long) sampleRate * mIntervalMillis / 1000));
+        mChannel = 0;
+        mFrames = 0;
+    }
+
+    /**
+     * 累计 16 bit PCM 数据，会读取 buffer 中剩余的所有数据。
+     *
+     * @param buffer 交错存储的 16 bit PCM 数据，字节序由 buffer 自身决定
+     */
+    void process(@NonNull ByteBuffer buffer) {
+        if (mFramesPerInterval <= 0) {
+            throw new IllegalStateException("not configured");
+        }
+
+        while (buffer.remaining() >= 2) {
+            int sample = buffer.getShort();
+            mPeak = Math.max(mPeak, sample < 0 ? -sample : sample);
+
+            mChannel++;
+            if (mChannel < mChannelCount) {
+                continue;
+            }
+
+            mChannel = 0;
+            mFrames++;
+            if (mFrames >= mFramesPerInterval) {
+                endInterval();
+            }
+        }
+    }
+
+    private void endInterval() {
+        if (mCount == mPeaks.length) {
+            mPeaks = Arrays.copyOf(mPeaks, mCount * 2);
+        }
+
+        // 32768（Short.MIN_VALUE 的绝对值）也映射为 255
+        mPeaks[mCount++] = (byte) Math.min(255, (mPeak * 255 + 16384) / 32767);
+        mPeak = 0;
+        mFrames = 0;
+    }
+
+    /**
+     * 结束累计，最后一个不完整的区间也会被保存。
+     */
+    @NonNull
+    WaveformSummary finish() {
+        if (mFrames > 0) {
+            endInterval();
+        }
+
+        return new WaveformSummary(mIntervalMillis, Arrays.copyOf(mPeaks, mCount));
+    }
+}
@@ -0,0 +1,361 @@
+package snow.player.waveform;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.util.Function;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import snow.player.audio.MusicItem;
+
+/**
+ * 波形摘要仓库，用于获取歌曲的 {@link WaveformSummary}。
+ * <p>
+ * 每首歌曲只会在后台线程中解码一次，生成的波形摘要会保存到磁盘缓存（应用的缓存目录）中，并在内存中缓存
+ * 最近使用的波形摘要。因此 UI 只需要观察 {@link #getWaveform(MusicItem)} 返回的 LiveData 即可，不需要
+ * 自己解码音频。同一时间只会解码一首歌曲，避免与播放器争抢 CPU。
+ * <p>
+ * 只支持本地歌曲（file、content 与 android.resource），网络歌曲需要下载整个文件才能生成波形摘要，
+ * 因此不支持。
+ */
+public final class WaveformRepository {
+    private static final String TAG = "WaveformRepository";
+
+    /**
+     * 每个峰值对应的时间间隔（单位：毫秒）。
+     */
+    public static final int INTERVAL_MILLIS = 50;
+
+    private static final String CACHE_DIR = "waveform";
+    private static final String CACHE_FILE_SUFFIX = ".wvf";
+    // 约 2.5MB（按每首歌曲 5KB 计算）
+    private static final int MAX_CACHE_FILES = 500;
+    // 内存缓存的大小（单位：字节）
+    private static final int MEMORY_CACHE_SIZE = 512 * 1024;
+
+    private static WaveformRepository sInstance;
+
+    private final Context mApplicationContext;
+    private final File mCacheDir;
+    private final LruCache<String, WaveformSummary> mMemoryCache;
+    private final Map<String, Single<WaveformSummary>> mPendingTasks;
+    private final Scheduler mDecodeScheduler;
+
+    private WaveformRepository(Context context) {
+        mApplicationContext = context.getApplicationContext();
+        mCacheDir = new File(mApplicationContext.getCacheDir(), CACHE_DIR);
+        mMemoryCache = new LruCache<String, WaveformSummary>(MEMORY_CACHE_SIZE) {
+            @Override
+            protected int sizeOf(String key, WaveformSummary value) {
+                return Math.max(1, value.getPeakCount());
+            }
+        };
+        mPendingTasks = new HashMap<>();
+        mDecodeScheduler = Schedulers.from(Executors.newSingleThreadExecutor());
+    }
+
+    /**
+     * 获取 WaveformRepository 对象。
+     *
+     * @param context Context 对象，不能为 null
+     */
+    @NonNull
+    public static synchronized WaveformRepository getInstance(@NonNull Context context) {
+        Preconditions.checkNotNull(context);
+
+        if (sInstance == null) {
+            sInstance = new WaveformRepository(context);
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * 获取歌曲的波形摘要。
+     * <p>
+     * 返回的 LiveData 在第一次变为活跃状态时才会开始加载波形摘要，加载完成前 LiveData 的值为 null。
+     * 如果加载失败（例如：网络歌曲或无法解码的文件），则 LiveData 的值会一直为 null。
+     *
+     * @param musicItem 要获取波形摘要的歌曲，不能为 null
+     */
+    @NonNull
+    public LiveData<WaveformSummary> getWaveform(@NonNull MusicItem musicItem) {
+        Preconditions.checkNotNull(musicItem);
+        return new WaveformLiveData(this, musicItem);
+    }
+
+    /**
+     * 获取正在播放的歌曲的波形摘要，歌曲改变时会自动加载新歌曲的波形摘要。
+     *
+     * @param playingMusicItem 正在播放的歌曲，例如 {@code PlayerViewModel#getPlayingMusicItem()}，不能为 null
+     */
+    @NonNull
+    public LiveData<WaveformSummary> getWaveform(@NonNull LiveData<MusicItem> playingMusicItem) {
+        Preconditions.checkNotNull(playingMusicItem);
+
+        return Transformations.switchMap(playingMusicItem, new Function<MusicItem, LiveData<WaveformSummary>>() {
+            @Override
+            public LiveData<WaveformSummary> apply(MusicItem input) {
+                if (input == null) {
+                    return new MutableLiveData<>();
+                }
+
+                return getWaveform(input);
+            }
+        });
+    }
+
+    /**
+     * 异步加载歌曲的波形摘要。
+     * <p>
+     * 依次从内存缓存、磁盘缓存中查找，都没有找到时才会解码歌曲。同一首歌曲同时只会解码一次，即使所有
+     * 观察者都已取消订阅，解码也会继续进行，以便将结果保存到缓存中。
+     *
+     * @param musicItem 要加载波形摘要的歌曲，不能为 null
+     */
+    @NonNull
+    public synchronized Single<WaveformSummary> loadWaveform(@NonNull MusicItem musicItem) {
+        Preconditions.checkNotNull(musicItem);
+
+        final String key = getKey(musicItem);
+        WaveformSummary summary = mMemoryCache.get(key);
+        if (summary != null) {
+            return Single.just(summary);
+        }
+
+        Single<WaveformSummary> pending = mPendingTasks.get(key);
+        if (pending != null) {
+            return pending;
+        }
+
+        final Uri uri = Uri.parse(musicItem.getUri());
+        if (!isLocalUri(uri)) {
+            return Single.error(new IllegalArgumentException("only support local music: " + uri));
+        }
+
+        pending = Single.fromCallable(new Callable<WaveformSummary>() {
+            @Override
+            public WaveformSummary call() throws Exception {
+                return load(key, uri);
+            }
+        }).subscribeOn(mDecodeScheduler)
+                .doFinally(new Action() {
+                    @Override
+                    public void run() {
+                        removePendingTask(key);
+                    }
+                })
+                .cache();
+
+        mPendingTasks.put(key, pending);
+        return pending;
+    }
+
+    /**
+     * 清空所有缓存的波形摘要。
+     */
+    public synchronized void clearCache() {
+        mMemoryCache.evictAll();
+
+        File[] files = mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (!file.delete()) {
+                Log.w(TAG, "delete cache file failed: " + file);
+            }
+        }
+    }
+
+    private synchronized void removePendingTask(String key) {
+        mPendingTasks.remove(key);
+    }
+
+    // 运行在解码线程中
+    private WaveformSummary load(String key, Uri uri) throws IOException {
+        File cacheFile = getCacheFile(key);
+
+        WaveformSummary summary = readCache(cacheFile, key);
+        if (summary == null) {
+            summary = WaveformDecoder.decode(mApplicationContext, uri, INTERVAL_MILLIS);
+            writeCache(cacheFile, key, summary);
+            trimCache();
+        }
+
+        synchronized (this) {
+            mMemoryCache.put(key, summary);
+        }
+
+        return summary;
+    }
+
+    @Nullable
+    private static WaveformSummary readCache(File cacheFile, String key) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            WaveformSummary summary = WaveformSummary.readFrom(in, key);
+            if (summary != null && !cacheFile.setLastModified(System.currentTimeMillis())) {
+                Log.d(TAG, "update last modified time failed: " + cacheFile);
+            }
+            return summary;
+        } catch (IOException e) {
+            Log.w(TAG, "read cache failed: " + cacheFile, e);
+            return null;
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private void writeCache(File cacheFile, String key, WaveformSummary summary) {
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            Log.w(TAG, "create cache dir failed: " + mCacheDir);
+            return;
+        }
+
+        // 先写入临时文件再重命名，避免进程被杀死时留下不完整的缓存文件
+        File tempFile = new File(mCacheDir, cacheFile.getName() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                summary.writeTo(out, key);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "write cache failed: " + cacheFile, e);
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(cacheFile)) {
+            Log.w(TAG, "rename cache file failed: " + cacheFile);
+            tempFile.delete();
+        }
+    }
+
+    // 缓存文件过多时，删除最久没有使用的缓存文件
+    private void trimCache() {
+        File[] files = mCacheDir.listFiles();
+        if (files == null || files.length <= MAX_CACHE_FILES) {
+            return;
+        }
+
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                long x = lastModified[o1];
+                long y = lastModified[o2];
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        for (int i = 0; i < files.length - MAX_CACHE_FILES; i++) {
+            File file = files[order[i]];
+            if (!file.delete()) {
+                Log.w(TAG, "delete cache file failed: " + file);
+            }
+        }
+    }
+
+    private File getCacheFile(String key) {
+        // 文件名可能存在哈希冲突，因此缓存文件中也会保存完整的 key 用于校验
+        return new File(mCacheDir, Integer.toHexString(key.hashCode()) + CACHE_FILE_SUFFIX);
+    }
+
+    private static String getKey(MusicItem musicItem) {
+        return musicItem.getMusicId() + "|" + musicItem.getUri();
+    }
+
+    private static boolean isLocalUri(Uri uri) {
+        String scheme = uri.getScheme();
+        return scheme == null ||
+                "file".equalsIgnoreCase(scheme) ||
+                "content".equalsIgnoreCase(scheme) ||
+                "android.resource".equalsIgnoreCase(scheme);
+    }
+
+    private static class WaveformLiveData extends LiveData<WaveformSummary> {
+        private final WaveformRepository mRepository;
+        private final MusicItem mMusicItem;
+
+        @Nullable
+        private Disposable mDisposable;
+
+        WaveformLiveData(WaveformRepository repository, MusicItem musicItem) {
+            mRepository = repository;
+            mMusicItem = musicItem;
+        }
+
+        @Override
+        protected void onActive() {
+            if (getValue() != null || mDisposable != null) {
+                return;
+            }
+
+            mDisposable = mRepository.loadWaveform(mMusicItem)
+                    .subscribe(new Consumer<WaveformSummary>() {
+                        @Override
+                        public void accept(WaveformSummary summary) {
+                            postValue(summary);
+                        }
+                    }, new Consumer<Throwable>() {
+                        @Override
+                        public void accept(Throwable throwable) {
+                            Log.w(TAG, "load waveform failed: " + throwable.getMessage());
+                        }
+                    });
+        }
+
+        @Override
+        protected void onInactive() {
+            if (mDisposable != null) {
+                mDisposable.dispose();
+                mDisposable = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package snow.player.waveform;
+
+import androidx.annotation.NonNull;
+
+import com.google.common.base.Preconditions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 歌曲的波形摘要。
+ * <p>
+ * 将整首歌曲按固定的时间间隔（默认为 50 毫秒）划分成若干个区间，每个区间只保存 1 个字节的峰值，
+ * 范围为 [0, 255]，255 表示满幅。一首 4 分钟的歌曲只需要约 4.7KB，适合用于绘制波形进度条。
+ * <p>
+ * 该类是不可变的。
+ *
+ * @see WaveformRepository
+ */
+public final class WaveformSummary {
+    private static final int MAGIC = 0x57564653;    // "WVFS"
+    private static final int VERSION = 1;
+
+    private final int mIntervalMillis;
+    private final byte[] mPeaks;
+
+    WaveformSummary(int intervalMillis, @NonNull byte[] peaks) {
+        Preconditions.checkArgument(intervalMillis > 0, "intervalMillis must > 0");
+        Preconditions.checkNotNull(peaks);
+
+        mIntervalMillis = intervalMillis;
+        mPeaks = peaks;
+    }
+
+    /**
+     * 获取每个峰值对应的时间间隔（单位：毫秒）。
+     */
+    public int getIntervalMillis() {
+        return mIntervalMillis;
+    }
+
+    /**
+     * 获取峰值的数量。
+     */
+    public int getPeakCount() {
+        return mPeaks.length;
+    }
+
+    /**
+     * 获取波形摘要覆盖的时长（单位：毫秒）。
+     */
+    public long getDurationMillis() {
+        return (long) mIntervalMillis * mPeaks.length;
+    }
+
+    /**
+     * 获取指定区间的峰值。
+     *
+     * @param index 区间的索引
+     * @return 峰值，范围为 [0, 255]
+     */
+    public int getPeak(int index) {
+        return mPeaks[index] & 0xFF;
+    }
+
+    /**
+     * 获取指定播放位置所在区间的峰值。
+     *
+     * @param positionMillis 播放位置（单位：毫秒），超出范围时会被截断
+     * @return 峰值，范围为 [0, 255]；如果波形摘要为空，则返回 0
+     */
+    public int getPeakAt(long positionMillis) {
+        if (mPeaks.length == 0) {
+            return 0;
+        }
+
+        long index = positionMillis / mIntervalMillis;
+        return getPeak((int) Math.max(0, Math.min(mPeaks.length - 1, index)));
+    }
+
+    /**
+     * 将波形摘要重新采样成指定数量的峰值（每个峰值取对应区间内的最大值），方便按进度条的宽度绘制。
+     *
+     * @param out 用于存储峰值的数组，峰值的范围为 [0, 1]
+     */
+    public void resample(@NonNull float[] out) {
+        Preconditions.checkNotNull(out);
+
+        int count = mPeaks.length;
+        for (int i = 0; i < out.length; i++) {
+            if (count == 0) {
+                out[i] = 0;
+                continue;
+            }
+
+            int start = (int) ((long) i * count / out.length);
+            int end = (int) Math.max(start + 1, (long) (i + 1) * count / out.length);
+
+            int peak = 0;
+            for (int j = start; j < end && j < count; j++) {
+                peak = Math.max(peak, mPeaks[j] & 0xFF);
+            }
+            out[i] = peak / 255F;
+        }
+    }
+
+    void writeTo(@NonNull DataOutputStream out, @NonNull String key) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+        out.writeInt(mIntervalMillis);
+        out.writeInt(mPeaks.length);
+        out.write(mPeaks);
+    }
+
+    /**
+     * 从输入流中读取波形摘要。
+     *
+     * @param key 波形摘要的键，用于校验，避免文件名的哈希冲突
+     * @return 如果文件格式不正确或者键不匹配，则返回 null
+     */
+    static WaveformSummary readFrom(@NonNull DataInputStream in, @NonNull String key) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+            return null;
+        }
+
+        int intervalMillis = in.readInt();
+        int count = in.readInt();
+        if (intervalMillis <= 0 || count < 0) {
+            return null;
+        }
+
+        byte[] peaks = new byte[count];
+        in.readFully(peaks);
+        return new WaveformSummary(intervalMillis, peaks);
+    }
+}
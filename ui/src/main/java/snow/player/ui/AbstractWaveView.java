@@ -6,6 +6,9 @@ import android.content.pm.PackageManager;
 import android.graphics.Canvas;
 import android.media.audiofx.Equalizer;
 import android.media.audiofx.Visualizer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
@@ -19,6 +22,9 @@ import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.OnLifecycleEvent;
 
+import snow.player.audio.WaveDataSource;
+import snow.player.ui.spectrum.SpectrumAnalyzer;
+
 /**
  * 用于显示音频波形。
  * <p>
@@ -29,10 +35,34 @@ import androidx.lifecycle.OnLifecycleEvent;
  * View 嵌入的 Activity 具有生命周期感知功能（实现了 LifecycleOwner 接口）, 那么该类会自动在 onStop 时暂停
  * 波形捕获功能, 并在 onStart 时重新启动波形捕获功能。类似的, 当该 View 变得不可见（GONE 或者 INVISIBLE）时,
  * 会自动暂停波形捕获功能, 并在 View 重新变得可见（View.VISIBLE）时重新启动波形捕获功能。
+ * <p>
+ * 如果调用 {@link #setWaveDataSource(WaveDataSource)} 方法设置了波形数据源，则会在每一帧从数据源中读取波形
+ * 数据，而不再使用 Visualizer，此时不需要 {@code android.permission.RECORD_AUDIO} 权限。数据源连续几帧没有
+ * 写入新的数据时（例如暂停播放时），会降低轮询频率，直到数据源再次写入数据。
+ * <p>
+ * 调用 {@link #setSpectrumEnabled(boolean)} 方法并传入 true 后会切换到频谱模式：采样会在一个后台线程中
+ * 使用 {@link SpectrumAnalyzer} 转换成频谱柱的高度，子类只需要在 {@link #onDrawSpectrum(Canvas, float[], int)}
+ * 方法中绘制已计算好的频谱柱即可。
  */
 public abstract class AbstractWaveView extends View implements LifecycleObserver {
     private static final String TAG = "WaveView";
 
+    /**
+     * 默认的频谱柱数量。
+     */
+    public static final int DEFAULT_SPECTRUM_BAR_COUNT = 32;
+
+    // 使用波形数据源时的 FFT 长度
+    private static final int SPECTRUM_FFT_SIZE = 2048;
+    // 频谱分析的时间间隔（单位：毫秒），约 60 fps
+    private static final long SPECTRUM_INTERVAL = 16;
+    // 连续多少帧没有新的采样后开始衰减频谱柱
+    private static final int SPECTRUM_IDLE_FRAMES = 6;
+    // 波形数据源连续多少帧没有新数据后（例如暂停播放时）降低轮询频率
+    private static final int POLL_IDLE_FRAMES = 6;
+    // 没有新数据时的轮询间隔（单位：毫秒）
+    private static final long IDLE_POLL_INTERVAL = 250;
+
     @Nullable
     private Visualizer mVisualizer;
     private int mCaptureSize = getMinCaptureSize();
@@ -46,6 +76,53 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
 
     private boolean mEnable;
 
+    @Nullable
+    private WaveDataSource mWaveDataSource;
+    private byte[] mWaveformBuffer;
+    private long mLastVersion = -1;
+    private boolean mPolling;
+    private int mPollIdleFrames;
+
+    private final Runnable mPollAction = new Runnable() {
+        @Override
+        public void run() {
+            pollWaveDataSource();
+        }
+    };
+
+    private boolean mSpectrumEnabled;
+    private volatile int mSpectrumBarCount = DEFAULT_SPECTRUM_BAR_COUNT;
+    private volatile float mSpectrumAttack = -1;
+    private volatile float mSpectrumDecay = -1;
+
+    @Nullable
+    private HandlerThread mSpectrumThread;
+    @Nullable
+    private volatile Handler mSpectrumHandler;
+    @Nullable
+    private volatile SpectrumAnalyzer mSpectrumAnalyzer;
+
+    // 以下字段只会在频谱分析线程中访问
+    private float[] mSpectrumSamples;
+    private int mSpectrumSampleRate;
+    private int mSpectrumAnalyzerSampleRate;
+    private long mSpectrumVersion = -1;
+    private int mSpectrumIdleFrames;
+    private boolean mSpectrumSilent;
+
+    // Visualizer 捕获的波形会先复制到该数组中，再交给频谱分析线程
+    private final Object mCaptureLock = new Object();
+    private byte[] mCaptureBuffer;
+    private int mCaptureSamplingRate;
+    private boolean mCapturePending;
+
+    private final Runnable mSpectrumAction = new Runnable() {
+        @Override
+        public void run() {
+            analyzeSpectrum();
+        }
+    };
+
     @Nullable
     private LifecycleOwner mLifecycleOwner;
 
@@ -87,6 +164,11 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
     public void setAudioSessionId(int audioSessionId) {
         releaseVisualizer();
 
+        if (mWaveDataSource != null) {
+            // 已设置波形数据源，不需要使用 Visualizer
+            return;
+        }
+
         if (audioSessionId < 0) {
             Log.w(TAG, "audio session id must >= 0");
             return;
@@ -108,6 +190,11 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
         mVisualizer.setDataCaptureListener(new Visualizer.OnDataCaptureListener() {
             @Override
             public void onWaveFormDataCapture(Visualizer visualizer, byte[] waveform, int samplingRate) {
+                if (mSpectrumEnabled) {
+                    postCapture(waveform, samplingRate);
+                    return;
+                }
+
                 mWaveform = waveform;
                 mSamplingRate = samplingRate;
                 postInvalidate();
@@ -115,7 +202,7 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
 
             @Override
             public void onFftDataCapture(Visualizer visualizer, byte[] fft, int samplingRate) {
-                // ignore
+                // ignore: Visualizer 的 FFT 数据只有 8 bit 精度，频谱由 SpectrumAnalyzer 根据波形计算
             }
         }, getCaptureRate(), true, false);
 
@@ -127,6 +214,86 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
         }
     }
 
+    /**
+     * 设置波形数据源。
+     * <p>
+     * 设置后会释放已创建的 Visualizer，并在每一帧从数据源中读取最新的波形数据，因此不需要
+     * {@code android.permission.RECORD_AUDIO} 权限。传入 null 时会恢复使用 Visualizer，此时需要重新调用
+     * {@link #setAudioSessionId(int)} 方法。
+     *
+     * @param waveDataSource 波形数据源，为 null 时表示使用 Visualizer 捕获波形
+     */
+    public void setWaveDataSource(@Nullable WaveDataSource waveDataSource) {
+        stopPolling();
+        releaseVisualizer();
+
+        mWaveDataSource = waveDataSource;
+        mLastVersion = -1;
+
+        if (mEnable) {
+            startVisualizer();
+        }
+    }
+
+    /**
+     * 启用或禁用频谱模式。
+     * <p>
+     * 启用后会在后台线程中计算频谱柱的高度，并调用 {@link #onDrawSpectrum(Canvas, float[], int)} 方法
+     * 绘制频谱，而不再调用 {@link #onDrawWave(Canvas, byte[], int)} 方法。
+     */
+    public void setSpectrumEnabled(boolean enabled) {
+        if (mSpectrumEnabled == enabled) {
+            return;
+        }
+
+        pauseVisualizer();
+        mSpectrumEnabled = enabled;
+
+        if (mEnable) {
+            startVisualizer();
+        }
+    }
+
+    /**
+     * 是否已启用频谱模式。
+     */
+    public boolean isSpectrumEnabled() {
+        return mSpectrumEnabled;
+    }
+
+    /**
+     * 设置频谱柱的数量，默认为 {@link #DEFAULT_SPECTRUM_BAR_COUNT}。
+     */
+    public void setSpectrumBarCount(int barCount) {
+        if (barCount < 1) {
+            throw new IllegalArgumentException("barCount must >= 1");
+        }
+
+        mSpectrumBarCount = barCount;
+    }
+
+    /**
+     * 获取频谱柱的数量。
+     */
+    public int getSpectrumBarCount() {
+        return mSpectrumBarCount;
+    }
+
+    /**
+     * 设置频谱柱的平滑系数。
+     *
+     * @see SpectrumAnalyzer#setSmoothing(float, float)
+     */
+    public void setSpectrumSmoothing(float attack, float decay) {
+        mSpectrumAttack = attack;
+        mSpectrumDecay = decay;
+
+        SpectrumAnalyzer analyzer = mSpectrumAnalyzer;
+        if (analyzer != null) {
+            analyzer.setSmoothing(attack, decay);
+        }
+    }
+
     /**
      * 设置关联的 LifecycleOwner 对象。
      * <p>
@@ -155,7 +322,7 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
      * @param enabled 该参数为 true 时启动波形捕获功能, 该参数为 false 时暂停波形捕获功能。
      */
     public void setEnabled(boolean enabled) {
-        if (enabled && noRecordAudioPermission()) {
+        if (enabled && mWaveDataSource == null && noRecordAudioPermission()) {
             Log.e(TAG, "need permission: android.permission.RECORD_AUDIO");
             return;
         }
@@ -319,6 +486,14 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
 
     @Override
     protected void onDraw(Canvas canvas) {
+        if (mSpectrumEnabled) {
+            SpectrumAnalyzer analyzer = mSpectrumAnalyzer;
+            if (analyzer != null) {
+                onDrawSpectrum(canvas, analyzer.acquireBars(), analyzer.getBarCount());
+            }
+            return;
+        }
+
         if (mWaveform == null) {
             return;
         }
@@ -342,6 +517,18 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
      */
     protected abstract void onDrawWave(Canvas canvas, @NonNull byte[] waveform, int samplingRate);
 
+    /**
+     * 绘制频谱，只会在启用了频谱模式时调用。如果需要支持频谱模式，子类需要重写该方法。
+     * <p>
+     * 频谱柱的高度已在后台线程中计算并平滑，该方法中只需要按高度绘制即可。
+     *
+     * @param canvas     当前的 Canvas 对象
+     * @param barHeights 各频谱柱的高度，范围为 [0, 1]，按频率从低到高排列。不要修改或保存该数组
+     * @param barCount   频谱柱的数量
+     */
+    protected void onDrawSpectrum(Canvas canvas, @NonNull float[] barHeights, int barCount) {
+    }
+
     // **************************************private*****************************************
 
     private boolean noRecordAudioPermission() {
@@ -358,6 +545,17 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
     }
 
     private void startVisualizer() {
+        if (mSpectrumEnabled) {
+            startSpectrum();
+        }
+
+        if (mWaveDataSource != null) {
+            if (!mSpectrumEnabled) {
+                startPolling();
+            }
+            return;
+        }
+
         if (mVisualizer != null) {
             mVisualizer.setEnabled(true);
             mEqualizer.setEnabled(true);
@@ -365,6 +563,9 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
     }
 
     private void pauseVisualizer() {
+        stopPolling();
+        stopSpectrum();
+
         if (mVisualizer != null) {
             mVisualizer.setEnabled(false);
             mEqualizer.setEnabled(false);
@@ -372,6 +573,9 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
     }
 
     private void releaseVisualizer() {
+        stopPolling();
+        stopSpectrum();
+
         if (mVisualizer != null) {
             mVisualizer.release();
             mEqualizer.release();
@@ -379,4 +583,170 @@ public abstract class AbstractWaveView extends View implements LifecycleObserver
             mEqualizer = null;
         }
     }
+
+    private void startPolling() {
+        if (mPolling || getVisibility() != VISIBLE) {
+            return;
+        }
+
+        mPolling = true;
+        mPollIdleFrames = 0;
+        postOnAnimation(mPollAction);
+    }
+
+    private void stopPolling() {
+        mPolling = false;
+        removeCallbacks(mPollAction);
+    }
+
+    private void pollWaveDataSource() {
+        if (!mPolling || mWaveDataSource == null) {
+            return;
+        }
+
+        long version = mWaveDataSource.getVersion();
+        if (version != mLastVersion) {
+            if (mWaveformBuffer == null || mWaveformBuffer.length != getCaptureSize()) {
+                mWaveformBuffer = new byte[getCaptureSize()];
+            }
+
+            if (mWaveDataSource.readWaveform(mWaveformBuffer)) {
+                mLastVersion = version;
+                mWaveform = mWaveformBuffer;
+                mSamplingRate = mWaveDataSource.getSamplingRate();
+                invalidate();
+            }
+            mPollIdleFrames = 0;
+        } else if (mPollIdleFrames < POLL_IDLE_FRAMES) {
+            mPollIdleFrames++;
+        }
+
+        // 暂停播放后数据源不会再写入新的数据，此时不需要每一帧都轮询
+        if (mPollIdleFrames < POLL_IDLE_FRAMES) {
+            postOnAnimation(mPollAction);
+        } else {
+            postDelayed(mPollAction, IDLE_POLL_INTERVAL);
+        }
+    }
+
+    private void startSpectrum() {
+        if (mSpectrumHandler != null || getVisibility() != VISIBLE) {
+            return;
+        }
+
+        mSpectrumThread = new HandlerThread("SpectrumAnalyzer", Process.THREAD_PRIORITY_DISPLAY);
+        mSpectrumThread.start();
+        mSpectrumHandler = new Handler(mSpectrumThread.getLooper());
+        mSpectrumHandler.post(mSpectrumAction);
+    }
+
+    private void stopSpectrum() {
+        if (mSpectrumHandler == null || mSpectrumThread == null) {
+            return;
+        }
+
+        mSpectrumHandler.removeCallbacks(mSpectrumAction);
+        mSpectrumThread.quit();
+        mSpectrumHandler = null;
+        mSpectrumThread = null;
+    }
+
+    private void postCapture(byte[] waveform, int samplingRate) {
+        synchronized (mCaptureLock) {
+            if (mCaptureBuffer == null || mCaptureBuffer.length != waveform.length) {
+                mCaptureBuffer = new byte[waveform.length];
+            }
+
+            System.arraycopy(waveform, 0, mCaptureBuffer, 0, waveform.length);
+            mCaptureSamplingRate = samplingRate;
+            mCapturePending = true;
+        }
+    }
+
+    // 运行在频谱分析线程中
+    private void analyzeSpectrum() {
+        Handler handler = mSpectrumHandler;
+        if (handler == null) {
+            return;
+        }
+
+        if (readSpectrumSamples()) {
+            mSpectrumIdleFrames = 0;
+            mSpectrumSilent = false;
+            SpectrumAnalyzer analyzer = prepareSpectrumAnalyzer(mSpectrumSamples.length, mSpectrumSampleRate);
+            analyzer.process(mSpectrumSamples);
+            postInvalidateOnAnimation();
+        } else if (mSpectrumIdleFrames < SPECTRUM_IDLE_FRAMES) {
+            mSpectrumIdleFrames++;
+        } else if (!mSpectrumSilent && mSpectrumAnalyzer != null) {
+            // 暂停播放后让频谱柱逐渐回落，回落到 0 后不再重绘
+            mSpectrumSilent = mSpectrumAnalyzer.decay();
+            postInvalidateOnAnimation();
+        }
+
+        // 频谱柱回落到 0 后（例如暂停播放时）降低分析频率
+        handler.postDelayed(mSpectrumAction, mSpectrumSilent ? IDLE_POLL_INTERVAL : SPECTRUM_INTERVAL);
+    }
+
+    private boolean readSpectrumSamples() {
+        WaveDataSource source = mWaveDataSource;
+        if (source != null) {
+            long version = source.getVersion();
+            int sampleRate = source.getSamplingRate() / 1000;
+            if (version == mSpectrumVersion || sampleRate <= 0) {
+                return false;
+            }
+
+            ensureSpectrumSamples(SPECTRUM_FFT_SIZE);
+            if (!source.readSamples(mSpectrumSamples)) {
+                return false;
+            }
+
+            mSpectrumVersion = version;
+            mSpectrumSampleRate = sampleRate;
+            return true;
+        }
+
+        synchronized (mCaptureLock) {
+            if (!mCapturePending || mCaptureBuffer == null) {
+                return false;
+            }
+
+            mCapturePending = false;
+            ensureSpectrumSamples(mCaptureBuffer.length);
+            for (int i = 0; i < mCaptureBuffer.length; i++) {
+                mSpectrumSamples[i] = ((mCaptureBuffer[i] & 0xFF) - 128) / 128F;
+            }
+            mSpectrumSampleRate = mCaptureSamplingRate / 1000;
+        }
+
+        return mSpectrumSampleRate > 0;
+    }
+
+    private void ensureSpectrumSamples(int size) {
+        if (mSpectrumSamples == null || mSpectrumSamples.length != size) {
+            mSpectrumSamples = new float[size];
+        }
+    }
+
+    // 只有在 FFT 长度、采样率或频谱柱数量改变时才会创建新的 SpectrumAnalyzer
+    private SpectrumAnalyzer prepareSpectrumAnalyzer(int fftSize, int sampleRate) {
+        SpectrumAnalyzer analyzer = mSpectrumAnalyzer;
+        int barCount = mSpectrumBarCount;
+
+        if (analyzer != null && analyzer.getFftSize() == fftSize &&
+                mSpectrumAnalyzerSampleRate == sampleRate && analyzer.getBarCount() == barCount) {
+            return analyzer;
+        }
+
+        analyzer = new SpectrumAnalyzer(fftSize, sampleRate, barCount,
+                SpectrumAnalyzer.DEFAULT_MIN_FREQUENCY, SpectrumAnalyzer.DEFAULT_MAX_FREQUENCY);
+        if (mSpectrumAttack > 0 && mSpectrumDecay > 0) {
+            analyzer.setSmoothing(mSpectrumAttack, mSpectrumDecay);
+        }
+
+        mSpectrumAnalyzerSampleRate = sampleRate;
+        mSpectrumAnalyzer = analyzer;
+        return analyzer;
+    }
 }
@@ -0,0 +1,163 @@
+package snow.player.ui.spectrum;
+
+/**
+ * 实数序列的快速傅里叶变换（FFT）。
+ * <p>
+ * 将长度为 N 的实数序列打包成长度为 N/2 的复数序列，使用基 2 的 FFT 变换后再拆分出实数序列的频谱，
+ * 计算量约为直接使用复数 FFT 的一半。旋转因子、位反转表与工作数组都会在构造时预先分配，
+ * 调用 {@link #magnitudes(float[], float[])} 时不会分配任何对象。
+ * <p>
+ * 该类不是线程安全的。
+ */
+public final class RealFft {
+    private final int mSize;
+    private final int mHalfSize;
+
+    private final float[] mWindow;
+    private final int[] mBitReverse;
+    // 长度为 N/2 的复数 FFT 的旋转因子
+    private final float[] mCos;
+    private final float[] mSin;
+    // 拆分实数频谱时使用的旋转因子
+    private final float[] mSplitCos;
+    private final float[] mSplitSin;
+
+    private final float[] mReal;
+    private final float[] mImag;
+
+    /**
+     * @param size 变换的长度，必须是不小于 4 的 2 的幂
+     */
+    public RealFft(int size) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("size must be a power of 2 and >= 4");
+        }
+
+        mSize = size;
+        mHalfSize = size / 2;
+
+        mWindow = new float[size];
+        for (int i = 0; i < size; i++) {
+            // Hann 窗
+            mWindow[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (size - 1)));
+        }
+
+        int bits = Integer.numberOfTrailingZeros(mHalfSize);
+        mBitReverse = new int[mHalfSize];
+        for (int i = 0; i < mHalfSize; i++) {
+            mBitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+
+        mCos = new float[mHalfSize / 2];
+        mSin = new float[mHalfSize / 2];
+        for (int i = 0; i < mCos.length; i++) {
+            double angle = 2 * Math.PI * i / mHalfSize;
+            mCos[i] = (float) Math.cos(angle);
+            mSin[i] = (float) Math.sin(angle);
+        }
+
+        mSplitCos = new float[mHalfSize];
+        mSplitSin = new float[mHalfSize];
+        for (int i = 0; i < mHalfSize; i++) {
+            double angle = 2 * Math.PI * i / size;
+            mSplitCos[i] = (float) Math.cos(angle);
+            mSplitSin[i] = (float) Math.sin(angle);
+        }
+
+        mReal = new float[mHalfSize];
+        mImag = new float[mHalfSize];
+    }
+
+    /**
+     * 获取变换的长度。
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * 对输入的实数序列加 Hann 窗后进行变换，并计算前 N/2 个频点的幅度。
+     * <p>
+     * 第 k 个频点的频率为 {@code k * sampleRate / N}。幅度已按窗函数归一化：振幅为 A 的正弦信号，
+     * 其所在频点的幅度约为 A。
+     *
+     * @param input      长度为 N 的实数序列，不会被修改
+     * @param magnitudes 用于存储幅度的数组，长度不能小于 N/2
+     */
+    public void magnitudes(float[] input, float[] magnitudes) {
+        if (input.length < mSize || magnitudes.length < mHalfSize) {
+            throw new IllegalArgumentException("array too small");
+        }
+
+        final float[] re = mReal;
+        final float[] im = mImag;
+        final float[] window = mWindow;
+        final int[] bitReverse = mBitReverse;
+
+        // 偶数位置的采样作为实部，奇数位置的采样作为虚部，同时按位反转的顺序存放
+        for (int i = 0; i < mHalfSize; i++) {
+            int j = bitReverse[i];
+            re[j] = input[2 * i] * window[2 * i];
+            im[j] = input[2 * i + 1] * window[2 * i + 1];
+        }
+
+        transform(re, im);
+
+        // Hann 窗的相干增益为 0.5，因此正弦信号所在频点的幅度为 A * N / 4
+        final float scale = 4.0F / mSize;
+
+        for (int k = 0; k < mHalfSize; k++) {
+            int m = k == 0 ? 0 : mHalfSize - k;
+
+            // Z[k] 与 conj(Z[N/2 - k])
+            float zr = re[k];
+            float zi = im[k];
+            float cr = re[m];
+            float ci = -im[m];
+
+            // 偶数部分 E = (Z[k] + conj(Z[N/2 - k])) / 2
+            float er = (zr + cr) * 0.5F;
+            float ei = (zi + ci) * 0.5F;
+
+            // 奇数部分 O = (Z[k] - conj(Z[N/2 - k])) / 2i
+            float or = (zi - ci) * 0.5F;
+            float oi = -(zr - cr) * 0.5F;
+
+            // X[k] = E + W^k * O，其中 W = e^(-2πi/N)
+            float wr = mSplitCos[k];
+            float wi = -mSplitSin[k];
+            float xr = er + wr * or - wi * oi;
+            float xi = ei + wr * oi + wi * or;
+
+            magnitudes[k] = (float) Math.sqrt(xr * xr + xi * xi) * scale;
+        }
+    }
+
+    // 原地进行长度为 N/2 的基 2 复数 FFT（输入已按位反转的顺序排列）
+    private void transform(float[] re, float[] im) {
+        final int n = mHalfSize;
+        final float[] cos = mCos;
+        final float[] sin = mSin;
+
+        for (int size = 2; size <= n; size <<= 1) {
+            int half = size >> 1;
+            int step = n / size;
+            for (int start = 0; start < n; start += size) {
+                for (int j = 0, t = 0; j < half; j++, t += step) {
+                    int a = start + j;
+                    int b = a + half;
+
+                    float wr = cos[t];
+                    float wi = -sin[t];
+                    float br = re[b] * wr - im[b] * wi;
+                    float bi = re[b] * wi + im[b] * wr;
+
+                    re[b] = re[a] - br;
+                    im[b] = im[a] - bi;
+                    re[a] += br;
+                    im[a] += bi;
+                }
+            }
+        }
+    }
+}
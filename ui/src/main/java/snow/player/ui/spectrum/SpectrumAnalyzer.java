@@ -0,0 +1,226 @@
+package snow.player.ui.spectrum;
+
+/**
+ * 频谱分析器，用于将 PCM 采样转换成频谱柱的高度。
+ * <p>
+ * 采样经过 {@link RealFft} 变换后，按对数频率划分成若干个频谱柱（低频的频谱柱较窄，高频的频谱柱较宽，
+ * 与人耳的听感一致），每个频谱柱的幅度换算成分贝后映射到 [0, 1] 范围内，最后再分别使用上升系数与下降
+ * 系数进行平滑，避免频谱柱跳动得过于剧烈。
+ * <p>
+ * 频谱柱的高度使用三个 float 数组进行缓冲：生产者线程调用 {@link #process(float[])} 写入后台缓冲区，
+ * 写入完成后与待读取缓冲区交换；绘制线程调用 {@link #acquireBars()} 时才会将待读取缓冲区与前台缓冲区
+ * 交换。因此生产者不会覆盖正在绘制的数据，两个线程也都不需要等待对方，整个过程不会分配任何对象。
+ * <p>
+ * {@link #process(float[])} 只能在同一个线程中调用，{@link #acquireBars()} 也只能在同一个线程中调用。
+ */
+public final class SpectrumAnalyzer {
+    /**
+     * 默认的最低频率（单位：Hz）。
+     */
+    public static final float DEFAULT_MIN_FREQUENCY = 40;
+    /**
+     * 默认的最高频率（单位：Hz）。
+     */
+    public static final float DEFAULT_MAX_FREQUENCY = 16_000;
+
+    private static final float DEFAULT_ATTACK = 0.6F;
+    private static final float DEFAULT_DECAY = 0.12F;
+    // 低于该值（单位：dB）的幅度视为 0
+    private static final float MIN_DB = -60;
+
+    private final RealFft mFft;
+    private final int mBarCount;
+    private final float[] mMagnitudes;
+
+    private final int[] mBinStart;
+    private final int[] mBinEnd;
+
+    private volatile float mAttack = DEFAULT_ATTACK;
+    private volatile float mDecay = DEFAULT_DECAY;
+
+    // 平滑后的频谱柱高度（只在生产者线程中访问）
+    private final float[] mSmoothed;
+
+    private final Object mLock = new Object();
+    private float[] mBack;
+    private float[] mReady;
+    private float[] mFront;
+    private boolean mFresh;
+
+    /**
+     * @param fftSize      FFT 的长度，必须是不小于 4 的 2 的幂
+     * @param sampleRate   采样率（单位：Hz）
+     * @param barCount     频谱柱的数量，不能小于 1
+     * @param minFrequency 最低频率（单位：Hz）
+     * @param maxFrequency 最高频率（单位：Hz），超出奈奎斯特频率时会被截断
+     */
+    public SpectrumAnalyzer(int fftSize, int sampleRate, int barCount, float minFrequency, float maxFrequency) {
+        if (barCount < 1) {
+            throw new IllegalArgumentException("barCount must >= 1");
+        }
+
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must > 0");
+        }
+
+        mFft = new RealFft(fftSize);
+        mBarCount = barCount;
+        mMagnitudes = new float[fftSize / 2];
+
+        mBinStart = new int[barCount];
+        mBinEnd = new int[barCount];
+        computeBins(fftSize, sampleRate, minFrequency, maxFrequency);
+
+        mSmoothed = new float[barCount];
+        mBack = new float[barCount];
+        mReady = new float[barCount];
+        mFront = new float[barCount];
+    }
+
+    // 按对数频率划分频谱柱，每个频谱柱至少包含一个频点
+    private void computeBins(int fftSize, int sampleRate, float minFrequency, float maxFrequency) {
+        int binCount = fftSize / 2;
+        float binWidth = (float) sampleRate / fftSize;
+
+        float maxFreq = Math.min(maxFrequency, sampleRate / 2.0F);
+        float minFreq = Math.max(binWidth, Math.min(minFrequency, maxFreq));
+        double ratio = maxFreq / minFreq;
+
+        int previousEnd = 1;    // 跳过直流分量
+        for (int i = 0; i < mBarCount; i++) {
+            double high = minFreq * Math.pow(ratio, (double) (i + 1) / mBarCount);
+
+            int start = Math.min(previousEnd, binCount - 1);
+            int end = (int) Math.round(high / binWidth);
+            end = Math.max(start + 1, Math.min(end, binCount));
+
+            mBinStart[i] = start;
+            mBinEnd[i] = end;
+            previousEnd = end;
+        }
+    }
+
+    /**
+     * 获取 FFT 的长度，也就是每次调用 {@link #process(float[])} 时需要提供的采样数量。
+     */
+    public int getFftSize() {
+        return mFft.getSize();
+    }
+
+    /**
+     * 获取频谱柱的数量。
+     */
+    public int getBarCount() {
+        return mBarCount;
+    }
+
+    /**
+     * 设置平滑系数。系数的范围为 (0, 1]，值越大，频谱柱的变化越快，为 1 时不进行平滑。
+     *
+     * @param attack 频谱柱上升时使用的系数
+     * @param decay  频谱柱下降时使用的系数
+     */
+    public void setSmoothing(float attack, float decay) {
+        mAttack = clampCoefficient(attack);
+        mDecay = clampCoefficient(decay);
+    }
+
+    private static float clampCoefficient(float value) {
+        return Math.max(0.01F, Math.min(1, value));
+    }
+
+    /**
+     * 分析一帧采样，并发布新的频谱柱高度。
+     *
+     * @param samples 单声道采样，范围为 [-1, 1]，长度不能小于 {@link #getFftSize()}
+     */
+    public void process(float[] samples) {
+        mFft.magnitudes(samples, mMagnitudes);
+
+        final float attack = mAttack;
+        final float decay = mDecay;
+        final float[] back = mBack;
+
+        for (int i = 0; i < mBarCount; i++) {
+            float peak = 0;
+            for (int k = mBinStart[i]; k < mBinEnd[i]; k++) {
+                peak = Math.max(peak, mMagnitudes[k]);
+            }
+
+            float target = normalize(peak);
+            float current = mSmoothed[i];
+            current += (target - current) * (target > current ? attack : decay);
+
+            mSmoothed[i] = current;
+            back[i] = current;
+        }
+
+        synchronized (mLock) {
+            mBack = mReady;
+            mReady = back;
+            mFresh = true;
+        }
+    }
+
+    /**
+     * 将平滑后的频谱柱高度逐渐衰减到 0，例如：暂停播放后没有新的采样时。
+     *
+     * @return 如果所有频谱柱都已衰减到 0，则返回 true
+     */
+    public boolean decay() {
+        final float decay = mDecay;
+        final float[] back = mBack;
+
+        boolean silent = true;
+        for (int i = 0; i < mBarCount; i++) {
+            float current = mSmoothed[i] * (1 - decay);
+            if (current < 0.001F) {
+                current = 0;
+            } else {
+                silent = false;
+            }
+
+            mSmoothed[i] = current;
+            back[i] = current;
+        }
+
+        synchronized (mLock) {
+            mBack = mReady;
+            mReady = back;
+            mFresh = true;
+        }
+
+        return silent;
+    }
+
+    /**
+     * 获取最新的频谱柱高度，范围为 [0, 1]。
+     * <p>
+     * 返回的数组在下一次调用该方法之前不会被修改，调用者不应该修改或保存该数组。
+     */
+    public float[] acquireBars() {
+        synchronized (mLock) {
+            if (mFresh) {
+                float[] front = mFront;
+                mFront = mReady;
+                mReady = front;
+                mFresh = false;
+            }
+
+            return mFront;
+        }
+    }
+
+    private static float normalize(float magnitude) {
+        if (magnitude <= 0) {
+            return 0;
+        }
+
+        float db = (float) (20 * Math.log10(magnitude));
+        if (db <= MIN_DB) {
+            return 0;
+        }
+
+        return Math.min(1, 1 - db / MIN_DB);
+    }
+}
@@ -0,0 +1,39 @@
+package snow.player.ui.spectrum;
+
+/**
+ * {@link RealFft} 的基准测试，输出每次变换的平均耗时。
+ * <p>
+ * 该类不是单元测试，不会在 {@code ./gradlew test} 中运行（耗时的计时代码会导致单元测试在较慢的 CI 机器上
+ * 不稳定）。需要时在 IDE 中直接运行 {@link #main(String[])} 方法。
+ */
+public final class RealFftBenchmark {
+
+    private RealFftBenchmark() {
+        throw new AssertionError();
+    }
+
+    public static void main(String[] args) {
+        int size = 2048;
+        float[] input = new float[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = (float) Math.sin(i * 0.1);
+        }
+
+        RealFft fft = new RealFft(size);
+        float[] magnitudes = new float[size / 2];
+
+        // 预热
+        int iterations = 20_000;
+        for (int i = 0; i < iterations / 10; i++) {
+            fft.magnitudes(input, magnitudes);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            fft.magnitudes(input, magnitudes);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("RealFft(" + size + "): " + (elapsed / iterations / 1000.0) + " us/transform");
+    }
+}
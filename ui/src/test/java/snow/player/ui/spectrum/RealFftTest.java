@@ -0,0 +1,63 @@
+package snow.player.ui.spectrum;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RealFftTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_sizeNotPowerOfTwo() {
+        new RealFft(1000);
+    }
+
+    @Test
+    public void magnitudes_matchNaiveDft() {
+        int size = 256;
+        float[] input = new float[size];
+        Random random = new Random(1);
+        for (int i = 0; i < size; i++) {
+            input[i] = random.nextFloat() * 2 - 1;
+        }
+
+        RealFft fft = new RealFft(size);
+        float[] magnitudes = new float[size / 2];
+        fft.magnitudes(input, magnitudes);
+
+        double[] window = new double[size];
+        for (int i = 0; i < size; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (size - 1));
+        }
+
+        for (int k = 0; k < size / 2; k++) {
+            double re = 0;
+            double im = 0;
+            for (int n = 0; n < size; n++) {
+                double angle = 2 * Math.PI * k * n / size;
+                re += input[n] * window[n] * Math.cos(angle);
+                im -= input[n] * window[n] * Math.sin(angle);
+            }
+
+            double expected = Math.sqrt(re * re + im * im) * 4 / size;
+            assertEquals("bin " + k, expected, magnitudes[k], 1e-3);
+        }
+    }
+
+    @Test
+    public void magnitudes_sineAmplitude() {
+        int size = 1024;
+        int bin = 64;
+        float[] input = new float[size];
+        for (int i = 0; i < size; i++) {
+            input[i] = (float) (0.5 * Math.sin(2 * Math.PI * bin * i / size));
+        }
+
+        float[] magnitudes = new float[size / 2];
+        new RealFft(size).magnitudes(input, magnitudes);
+
+        assertEquals(0.5, magnitudes[bin], 0.01);
+        assertTrue(magnitudes[bin + 8] < 0.001);
+    }
+}
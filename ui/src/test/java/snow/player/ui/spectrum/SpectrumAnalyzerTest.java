@@ -0,0 +1,97 @@
+package snow.player.ui.spectrum;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpectrumAnalyzerTest {
+    private static final int SAMPLE_RATE = 44100;
+    private static final int FFT_SIZE = 2048;
+
+    @Test
+    public void process_sineRaisesMatchingBar() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 16, 40, 16000);
+        analyzer.setSmoothing(1, 1);
+
+        analyzer.process(sine(1000, 0.5));
+        float[] bars = analyzer.acquireBars();
+
+        int loudest = 0;
+        for (int i = 1; i < bars.length; i++) {
+            if (bars[i] > bars[loudest]) {
+                loudest = i;
+            }
+        }
+
+        // 1kHz 位于 40Hz 到 16kHz 之间按对数划分的第 9 个频谱柱（下标 8）
+        assertEquals(8, loudest);
+        assertTrue(bars[loudest] > 0.8F);
+        assertEquals(0, bars[0], 0);
+    }
+
+    @Test
+    public void process_attackAndDecay() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 8, 40, 16000);
+        analyzer.setSmoothing(0.5F, 0.1F);
+
+        float[] sine = sine(1000, 0.5);
+        analyzer.process(sine);
+        float first = max(analyzer.acquireBars());
+        analyzer.process(sine);
+        float second = max(analyzer.acquireBars());
+        assertTrue(second > first);
+
+        analyzer.process(new float[FFT_SIZE]);
+        float decayed = max(analyzer.acquireBars());
+        assertEquals(second * 0.9F, decayed, 1e-4);
+    }
+
+    @Test
+    public void acquireBars_frontBufferStableUntilNextAcquire() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 8, 40, 16000);
+        analyzer.setSmoothing(1, 1);
+
+        analyzer.process(sine(1000, 0.5));
+        float[] front = analyzer.acquireBars();
+        float value = max(front);
+
+        analyzer.process(new float[FFT_SIZE]);
+        analyzer.process(new float[FFT_SIZE]);
+        assertEquals(value, max(front), 0);
+
+        float[] next = analyzer.acquireBars();
+        assertNotSame(front, next);
+        assertEquals(0, max(next), 0);
+    }
+
+    @Test
+    public void decay_reachesSilence() {
+        SpectrumAnalyzer analyzer = new SpectrumAnalyzer(FFT_SIZE, SAMPLE_RATE, 8, 40, 16000);
+        analyzer.setSmoothing(1, 0.5F);
+        analyzer.process(sine(1000, 0.5));
+
+        int frames = 0;
+        while (!analyzer.decay()) {
+            frames++;
+            assertTrue(frames < 100);
+        }
+
+        assertEquals(0, max(analyzer.acquireBars()), 0);
+    }
+
+    private static float[] sine(double frequency, double amplitude) {
+        float[] samples = new float[FFT_SIZE];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+        }
+        return samples;
+    }
+
+    private static float max(float[] values) {
+        float max = 0;
+        for (float value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+}